@@ -35,4 +35,18 @@ public class ThreadLocalWithInitial {
       }
     };
   }
+
+  /**
+   * Returns a ThreadLocal for scratch values that are only reused to save
+   * allocations. There are no virtual threads on android, so this is the same as
+   * {@link #of}.
+   */
+  public static <T> ThreadLocal<T> scratch(Supplier<? extends T> supplier) {
+    return of(supplier);
+  }
+
+  /** Returns whether a thread is a virtual thread, which is never on android. */
+  public static boolean isVirtual(Thread thread) {
+    return false;
+  }
 }
@@ -185,6 +185,9 @@ public abstract class Schema extends JsonProperties implements Serializable {
 
   int hashCode = NO_HASHCODE;
 
+  // the parsing canonical form never changes once it can be computed
+  transient volatile SchemaNormalization.Fingerprints fingerprints;
+
   @Override
   public void addProp(String name, String value) {
     super.addProp(name, value);
@@ -488,6 +491,14 @@ public abstract class Schema extends JsonProperties implements Serializable {
     return equalCachedHash(that) && propsEqual(that);
   }
 
+  /**
+   * Compares with another schema, where <tt>seen</tt> holds the pairs of records
+   * already being compared, or is null until the first record is reached.
+   */
+  boolean equals(Object o, Set<SeenPair> seen) {
+    return equals(o);
+  }
+
   @Override
   public final int hashCode() {
     if (hashCode == NO_HASHCODE)
@@ -499,6 +510,14 @@ public abstract class Schema extends JsonProperties implements Serializable {
     return getType().hashCode() + propsHashCode();
   }
 
+  /**
+   * Computes the hash, where <tt>seen</tt> holds the records already being
+   * hashed, or is null until the first record is reached.
+   */
+  int computeHash(Map<Schema, Schema> seen) {
+    return computeHash();
+  }
+
   final boolean equalCachedHash(Schema other) {
     return (hashCode == other.hashCode) || (hashCode == NO_HASHCODE) || (other.hashCode == NO_HASHCODE);
   }
@@ -693,14 +712,21 @@ public abstract class Schema extends JsonProperties implements Serializable {
         return true;
       if (!(other instanceof Field))
         return false;
-      Field that = (Field) other;
-      return (name.equals(that.name)) && (schema.equals(that.schema)) && defaultValueEquals(that.defaultValue)
+      return equals((Field) other, null);
+    }
+
+    private boolean equals(Field that, Set<SeenPair> seen) {
+      return (name.equals(that.name)) && (schema.equals(that.schema, seen)) && defaultValueEquals(that.defaultValue)
           && (order == that.order) && propsEqual(that);
     }
 
     @Override
     public int hashCode() {
-      return name.hashCode() + schema.computeHash();
+      return hashCode(null);
+    }
+
+    private int hashCode(Map<Schema, Schema> seen) {
+      return name.hashCode() + schema.computeHash(seen);
     }
 
     private boolean defaultValueEquals(JsonNode thatDefaultValue) {
@@ -922,9 +948,6 @@ public abstract class Schema extends JsonProperties implements Serializable {
     }
   }
 
-  private static final ThreadLocal<Set<SeenPair>> SEEN_EQUALS = ThreadLocalWithInitial.of(HashSet::new);
-  private static final ThreadLocal<Map<Schema, Schema>> SEEN_HASHCODE = ThreadLocalWithInitial.of(IdentityHashMap::new);
-
   private static class RecordSchema extends NamedSchema {
     private List<Field> fields;
     private Map<String, Field> fieldMap;
@@ -991,6 +1014,11 @@ public abstract class Schema extends JsonProperties implements Serializable {
 
     @Override
     public boolean equals(Object o) {
+      return equals(o, null);
+    }
+
+    @Override
+    boolean equals(Object o, Set<SeenPair> seen) {
       if (o == this)
         return true;
       if (!(o instanceof RecordSchema))
@@ -1002,33 +1030,39 @@ public abstract class Schema extends JsonProperties implements Serializable {
         return false;
       if (!propsEqual(that))
         return false;
-      Set<Schema.SeenPair> seen = SEEN_EQUALS.get();
-      SeenPair here = new SeenPair(this, o);
-      if (seen.contains(here))
+      if (seen == null)
+        seen = new HashSet<>();
+      if (!seen.add(new SeenPair(this, o)))
         return true; // prevent stack overflow
-      boolean first = seen.isEmpty();
-      try {
-        seen.add(here);
-        return Objects.equals(fields, that.fields);
-      } finally {
-        if (first)
-          seen.clear();
+      if (fields == null || that.fields == null)
+        return fields == that.fields;
+      if (fields.size() != that.fields.size())
+        return false;
+      for (int i = 0; i < fields.size(); i++) {
+        Field f = fields.get(i);
+        Field g = that.fields.get(i);
+        if (f != g && !f.equals(g, seen))
+          return false;
       }
+      return true;
     }
 
     @Override
     int computeHash() {
-      Map<Schema, Schema> seen = SEEN_HASHCODE.get();
-      if (seen.containsKey(this))
+      return computeHash(null);
+    }
+
+    @Override
+    int computeHash(Map<Schema, Schema> seen) {
+      if (seen == null)
+        seen = new IdentityHashMap<>();
+      else if (seen.containsKey(this))
         return 0; // prevent stack overflow
-      boolean first = seen.isEmpty();
-      try {
-        seen.put(this, this);
-        return super.computeHash() + fields.hashCode();
-      } finally {
-        if (first)
-          seen.clear();
-      }
+      seen.put(this, this);
+      int hash = 1; // as List.hashCode()
+      for (Field f : fields)
+        hash = 31 * hash + f.hashCode(seen);
+      return super.computeHash() + hash;
     }
 
     @Override
@@ -1183,17 +1217,27 @@ public abstract class Schema extends JsonProperties implements Serializable {
 
     @Override
     public boolean equals(Object o) {
+      return equals(o, null);
+    }
+
+    @Override
+    boolean equals(Object o, Set<SeenPair> seen) {
       if (o == this)
         return true;
       if (!(o instanceof ArraySchema))
         return false;
       ArraySchema that = (ArraySchema) o;
-      return equalCachedHash(that) && elementType.equals(that.elementType) && propsEqual(that);
+      return equalCachedHash(that) && elementType.equals(that.elementType, seen) && propsEqual(that);
     }
 
     @Override
     int computeHash() {
-      return super.computeHash() + elementType.computeHash();
+      return computeHash(null);
+    }
+
+    @Override
+    int computeHash(Map<Schema, Schema> seen) {
+      return super.computeHash() + elementType.computeHash(seen);
     }
 
     @Override
@@ -1223,17 +1267,27 @@ public abstract class Schema extends JsonProperties implements Serializable {
 
     @Override
     public boolean equals(Object o) {
+      return equals(o, null);
+    }
+
+    @Override
+    boolean equals(Object o, Set<SeenPair> seen) {
       if (o == this)
         return true;
       if (!(o instanceof MapSchema))
         return false;
       MapSchema that = (MapSchema) o;
-      return equalCachedHash(that) && valueType.equals(that.valueType) && propsEqual(that);
+      return equalCachedHash(that) && valueType.equals(that.valueType, seen) && propsEqual(that);
     }
 
     @Override
     int computeHash() {
-      return super.computeHash() + valueType.computeHash();
+      return computeHash(null);
+    }
+
+    @Override
+    int computeHash(Map<Schema, Schema> seen) {
+      return super.computeHash() + valueType.computeHash(seen);
     }
 
     @Override
@@ -1293,19 +1347,35 @@ public abstract class Schema extends JsonProperties implements Serializable {
 
     @Override
     public boolean equals(Object o) {
+      return equals(o, null);
+    }
+
+    @Override
+    boolean equals(Object o, Set<SeenPair> seen) {
       if (o == this)
         return true;
       if (!(o instanceof UnionSchema))
         return false;
       UnionSchema that = (UnionSchema) o;
-      return equalCachedHash(that) && types.equals(that.types) && propsEqual(that);
+      if (!equalCachedHash(that) || types.size() != that.types.size())
+        return false;
+      for (int i = 0; i < types.size(); i++) {
+        if (!types.get(i).equals(that.types.get(i), seen))
+          return false;
+      }
+      return propsEqual(that);
     }
 
     @Override
     int computeHash() {
+      return computeHash(null);
+    }
+
+    @Override
+    int computeHash(Map<Schema, Schema> seen) {
       int hash = super.computeHash();
       for (Schema type : types)
-        hash += type.computeHash();
+        hash += type.computeHash(seen);
       return hash;
     }
 
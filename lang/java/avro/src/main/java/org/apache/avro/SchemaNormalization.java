@@ -63,13 +63,7 @@ public class SchemaNormalization {
    */
   public static byte[] fingerprint(String fpName, byte[] data) throws NoSuchAlgorithmException {
     if (fpName.equals("CRC-64-AVRO")) {
-      long fp = fingerprint64(data);
-      byte[] result = new byte[8];
-      for (int i = 0; i < 8; i++) {
-        result[i] = (byte) fp;
-        fp >>= 8;
-      }
-      return result;
+      return toBytes(fingerprint64(data));
     }
 
     MessageDigest md = MessageDigest.getInstance(fpName);
@@ -89,18 +83,70 @@ public class SchemaNormalization {
 
   /**
    * Returns {@link #fingerprint} applied to the parsing canonical form of the
-   * supplied schema.
+   * supplied schema. The <code>"CRC-64-AVRO"</code>, <code>"MD5"</code> and
+   * <code>"SHA-256"</code> fingerprints are computed once per schema instance.
    */
   public static byte[] parsingFingerprint(String fpName, Schema s) throws NoSuchAlgorithmException {
-    return fingerprint(fpName, toParsingForm(s).getBytes(StandardCharsets.UTF_8));
+    Fingerprints fingerprints = fingerprints(s);
+    switch (fpName) {
+    case "CRC-64-AVRO":
+      return toBytes(fingerprints.crc64);
+    case "MD5":
+      if (fingerprints.md5 == null) {
+        fingerprints.md5 = fingerprint(fpName, parsingForm(s));
+      }
+      return fingerprints.md5.clone();
+    case "SHA-256":
+      if (fingerprints.sha256 == null) {
+        fingerprints.sha256 = fingerprint(fpName, parsingForm(s));
+      }
+      return fingerprints.sha256.clone();
+    default:
+      return fingerprint(fpName, parsingForm(s));
+    }
   }
 
   /**
    * Returns {@link #fingerprint64} applied to the parsing canonical form of the
-   * supplied schema.
+   * supplied schema. It is computed once per schema instance.
    */
   public static long parsingFingerprint64(Schema s) {
-    return fingerprint64(toParsingForm(s).getBytes(StandardCharsets.UTF_8));
+    return fingerprints(s).crc64;
+  }
+
+  private static Fingerprints fingerprints(Schema s) {
+    Fingerprints fingerprints = s.fingerprints;
+    if (fingerprints == null) {
+      s.fingerprints = fingerprints = new Fingerprints(fingerprint64(parsingForm(s)));
+    }
+    return fingerprints;
+  }
+
+  private static byte[] parsingForm(Schema s) {
+    return toParsingForm(s).getBytes(StandardCharsets.UTF_8);
+  }
+
+  private static byte[] toBytes(long fp) {
+    byte[] result = new byte[8];
+    for (int i = 0; i < 8; i++) {
+      result[i] = (byte) fp;
+      fp >>= 8;
+    }
+    return result;
+  }
+
+  /**
+   * The fingerprints of a schema's parsing canonical form, kept by the schema.
+   * Digests are computed on first use.
+   */
+  static final class Fingerprints {
+    private final long crc64;
+    private volatile byte[] md5;
+    private volatile byte[] sha256;
+
+    private Fingerprints(long crc64) {
+      this.crc64 = crc64;
+    }
   }
 
   private static Appendable build(Map<String, String> env, Schema s, Appendable o) throws IOException {
@@ -25,13 +25,10 @@ import org.apache.avro.util.NonCopyingByteArrayOutputStream;
 import org.apache.commons.compress.compressors.bzip2.BZip2CompressorInputStream;
 import org.apache.commons.compress.compressors.bzip2.BZip2CompressorOutputStream;
 
-import static org.apache.avro.util.NonCopyingByteArrayOutputStream.capacityLimitedOutputStream;
-
 /** * Implements bzip2 compression and decompression. */
 public class BZip2Codec extends Codec {
 
   public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
-  private final byte[] buffer = new byte[DEFAULT_BUFFER_SIZE];
 
   static class Option extends CodecFactory {
     @Override
@@ -58,20 +55,16 @@ public class BZip2Codec extends Codec {
 
   @Override
   public ByteBuffer decompress(ByteBuffer compressedData) throws IOException {
+    return decompress(compressedData, null);
+  }
+
+  @Override
+  public ByteBuffer decompress(ByteBuffer compressedData, ByteBuffer reuse) throws IOException {
     ByteArrayInputStream bais = new ByteArrayInputStream(compressedData.array(), computeOffset(compressedData),
         compressedData.remaining());
 
-    @SuppressWarnings("resource")
-    NonCopyingByteArrayOutputStream baos = capacityLimitedOutputStream(DEFAULT_BUFFER_SIZE);
-
     try (BZip2CompressorInputStream inputStream = new BZip2CompressorInputStream(bais)) {
-
-      int readCount;
-      while ((readCount = inputStream.read(buffer, compressedData.position(), buffer.length)) > 0) {
-        baos.write(buffer, 0, readCount);
-      }
-
-      return baos.asByteBuffer();
+      return readFully(inputStream, reuse);
     }
   }
 
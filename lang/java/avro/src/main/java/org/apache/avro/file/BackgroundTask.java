@@ -0,0 +1,79 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.file;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.apache.avro.AvroRuntimeException;
+
+/**
+ * A task run on an executor ahead of the caller, such as decoding, compressing
+ * or reading a block, whose result is later waited for in order.
+ */
+final class BackgroundTask<V> extends FutureTask<V> {
+  private final String description;
+
+  /**
+   * @param callable    computes the result.
+   * @param description what the task does, for the message when interrupted,
+   *                    e.g. "decoding block".
+   */
+  BackgroundTask(Callable<V> callable, String description) {
+    super(callable);
+    this.description = description;
+  }
+
+  /**
+   * Runs this task on an executor, or on the calling thread if the executor
+   * rejects it, so that {@link #await()} never waits for a task that will not
+   * run.
+   */
+  void submitTo(Executor executor) {
+    try {
+      executor.execute(this);
+    } catch (RejectedExecutionException e) {
+      run();
+    }
+  }
+
+  /** Waits for the result, rethrowing the failure of the task as is. */
+  V await() throws IOException {
+    try {
+      return get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while " + description);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      } else if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      } else if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new AvroRuntimeException(cause);
+    }
+  }
+}
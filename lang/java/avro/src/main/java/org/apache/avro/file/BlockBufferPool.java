@@ -0,0 +1,104 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.file;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A bounded pool of heap buffers holding the blocks of data files. A pool may be
+ * shared by any number of {@link DataFileStream readers} and
+ * {@link DataFileWriter writers}, on any threads, so that long-running jobs
+ * recycle block buffers instead of allocating new ones for each block.
+ * <p/>
+ * Buffers are kept by size class, in powers of two from 4KB. Buffers released
+ * when the pool is full are left to the garbage collector.
+ *
+ * @see DataFileStream#setBufferPool(BlockBufferPool)
+ * @see DataFileWriter#setBufferPool(BlockBufferPool)
+ */
+public class BlockBufferPool {
+  private static final int MIN_SIZE_CLASS = 12;
+  private static final int MAX_SIZE_CLASS = 30;
+
+  private final List<Queue<ByteBuffer>> free = new ArrayList<>();
+  private final AtomicInteger pooled = new AtomicInteger();
+  private final int maxBuffers;
+
+  /**
+   * Create a pool.
+   *
+   * @param maxBuffers the number of idle buffers kept
+   */
+  public BlockBufferPool(int maxBuffers) {
+    if (maxBuffers < 0) {
+      throw new IllegalArgumentException("Invalid maxBuffers value: " + maxBuffers);
+    }
+    this.maxBuffers = maxBuffers;
+    for (int i = 0; i <= MAX_SIZE_CLASS; i++) {
+      free.add(new ConcurrentLinkedQueue<>());
+    }
+  }
+
+  /**
+   * Return a heap buffer with a capacity of at least {@code capacity} bytes, with
+   * its position at 0 and its limit at its capacity.
+   */
+  public ByteBuffer acquire(int capacity) {
+    int sizeClass = Math.max(MIN_SIZE_CLASS, 32 - Integer.numberOfLeadingZeros(capacity - 1));
+    if (sizeClass > MAX_SIZE_CLASS) {
+      return ByteBuffer.allocate(capacity);
+    }
+    ByteBuffer buffer = free.get(sizeClass).poll();
+    if (buffer == null) {
+      return ByteBuffer.allocate(1 << sizeClass);
+    }
+    pooled.decrementAndGet();
+    ((Buffer) buffer).clear();
+    return buffer;
+  }
+
+  /**
+   * Hand a buffer back to the pool. The caller must not use it afterwards.
+   * Buffers that are read-only, direct or smaller than 4KB are ignored.
+   */
+  public void release(ByteBuffer buffer) {
+    if (buffer == null || !buffer.hasArray() || buffer.isReadOnly() || buffer.arrayOffset() != 0) {
+      return;
+    }
+    int sizeClass = Math.min(MAX_SIZE_CLASS, 31 - Integer.numberOfLeadingZeros(buffer.capacity()));
+    if (sizeClass < MIN_SIZE_CLASS) {
+      return;
+    }
+    if (pooled.incrementAndGet() > maxBuffers) {
+      pooled.decrementAndGet();
+      return;
+    }
+    free.get(sizeClass).offer(buffer);
+  }
+
+  /** Return the number of idle buffers in the pool. */
+  public int size() {
+    return pooled.get();
+  }
+}
@@ -0,0 +1,44 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.file;
+
+/**
+ * Decides from its {@link BlockStatistics} whether a block of a data file can
+ * hold records a reader is interested in. Blocks ruled out are skipped without
+ * being decompressed or decoded.
+ *
+ * @see DataFileStream#setBlockFilter(BlockFilter)
+ */
+@FunctionalInterface
+public interface BlockFilter {
+  /**
+   * Return false if no record of the block can match. Returning true when in
+   * doubt is always correct.
+   */
+  boolean mightMatch(BlockStatistics statistics);
+
+  /**
+   * A filter keeping blocks that might hold a value of field between lower and
+   * upper, both inclusive.
+   *
+   * @see BlockStatistics#mightContain(String, Object, Object)
+   */
+  static BlockFilter range(String field, Object lower, Object upper) {
+    return statistics -> statistics.mightContain(field, lower, upper);
+  }
+}
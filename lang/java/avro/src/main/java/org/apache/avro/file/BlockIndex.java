@@ -0,0 +1,212 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.file;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.avro.Schema;
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.EncoderFactory;
+import org.apache.avro.util.NonCopyingByteArrayOutputStream;
+
+/**
+ * The start offset and record count of each data block in a file. Written by
+ * {@link DataFileWriter} as the payload of a trailing block holding no records,
+ * encoded as a long block count followed by a long offset delta and a long
+ * record count per block. When {@link BlockStatistics} are collected, this is
+ * followed by the number and names of the fields with statistics and, for each
+ * block, a boolean telling whether its statistics are known and, if so, the
+ * statistics.
+ */
+final class BlockIndex {
+  private long[] offsets = new long[16];
+  private long[] firstRows = new long[16];
+  private BlockStatistics[] statistics = new BlockStatistics[16];
+  private List<String> statisticsFields = Collections.emptyList();
+  private Schema[] statisticsTypes = new Schema[0];
+  private int size;
+  private long rowCount;
+  private long end = -1;
+
+  /**
+   * Record a block that starts at offset and holds count records, with
+   * statistics for the fields of {@link #getStatisticsFields()} or null if those
+   * are not known.
+   */
+  void add(long offset, long count, BlockStatistics blockStatistics) {
+    if (size == offsets.length) {
+      offsets = Arrays.copyOf(offsets, size * 2);
+      firstRows = Arrays.copyOf(firstRows, size * 2);
+      statistics = Arrays.copyOf(statistics, size * 2);
+    }
+    offsets[size] = offset;
+    firstRows[size] = rowCount;
+    statistics[size] = blockStatistics;
+    size++;
+    rowCount += count;
+  }
+
+  List<String> getStatisticsFields() {
+    return statisticsFields;
+  }
+
+  Schema[] getStatisticsTypes() {
+    return statisticsTypes;
+  }
+
+  /** Collect statistics for the given fields of the blocks added from now on. */
+  void setStatisticsFields(List<String> fields, Schema[] types) {
+    this.statisticsFields = fields;
+    this.statisticsTypes = types;
+  }
+
+  /** Return the statistics of the block starting at offset, or null. */
+  BlockStatistics getStatistics(long offset) {
+    int found = Arrays.binarySearch(offsets, 0, size, offset);
+    return found < 0 ? null : statistics[found];
+  }
+
+  int size() {
+    return size;
+  }
+
+  long getOffset(int block) {
+    return offsets[block];
+  }
+
+  long getFirstRow(int block) {
+    return firstRows[block];
+  }
+
+  long[] getOffsets() {
+    return Arrays.copyOf(offsets, size);
+  }
+
+  long[] getFirstRows() {
+    return Arrays.copyOf(firstRows, size);
+  }
+
+  long getRowCount() {
+    return rowCount;
+  }
+
+  /** Return the position just past the last data block, or -1 if unknown. */
+  long getEnd() {
+    return end;
+  }
+
+  void setEnd(long end) {
+    this.end = end;
+  }
+
+  /** Return the block holding row, or -1 if the file has fewer rows. */
+  int findBlock(long row) {
+    if (row < 0 || row >= rowCount) {
+      return -1;
+    }
+    int found = Arrays.binarySearch(firstRows, 0, size, row);
+    if (found < 0) {
+      return -found - 2; // the block starting before row
+    }
+    // skip blocks without records that start at the same row
+    while (found + 1 < size && firstRows[found + 1] == row) {
+      found++;
+    }
+    return found;
+  }
+
+  ByteBuffer encode() throws IOException {
+    NonCopyingByteArrayOutputStream out = new NonCopyingByteArrayOutputStream(10 + size * 8);
+    BinaryEncoder encoder = EncoderFactory.get().directBinaryEncoder(out, null);
+    encoder.writeLong(size);
+    long previous = 0;
+    for (int i = 0; i < size; i++) {
+      encoder.writeLong(offsets[i] - previous);
+      encoder.writeLong((i + 1 < size ? firstRows[i + 1] : rowCount) - firstRows[i]);
+      previous = offsets[i];
+    }
+    if (!statisticsFields.isEmpty()) {
+      encoder.writeLong(statisticsFields.size());
+      for (String field : statisticsFields) {
+        encoder.writeString(field);
+      }
+      for (int i = 0; i < size; i++) {
+        encoder.writeBoolean(statistics[i] != null);
+        if (statistics[i] != null) {
+          statistics[i].write(encoder);
+        }
+      }
+    }
+    encoder.flush();
+    return out.asByteBuffer();
+  }
+
+  /**
+   * Read an index, resolving the fields with statistics against the schema of
+   * the file.
+   */
+  static BlockIndex decode(ByteBuffer data, Schema schema) throws IOException {
+    BinaryDecoder in = DecoderFactory.get().binaryDecoder(data, null);
+    long blocks = in.readLong();
+    // each block takes at least two bytes
+    if (blocks < 0 || blocks > data.remaining() / 2) {
+      throw new IOException("Invalid block index size: " + blocks);
+    }
+    BlockIndex index = new BlockIndex();
+    long offset = 0;
+    for (long i = 0; i < blocks; i++) {
+      offset += in.readLong();
+      long count = in.readLong();
+      if (count < 0) {
+        throw new IOException("Invalid block record count: " + count);
+      }
+      index.add(offset, count, null);
+    }
+    if (!in.isEnd()) {
+      long fieldCount = in.readLong();
+      if (fieldCount < 0 || fieldCount > in.remainingBytes()) {
+        throw new IOException("Invalid block statistics field count: " + fieldCount);
+      }
+      String[] fields = new String[(int) fieldCount];
+      for (int i = 0; i < fields.length; i++) {
+        fields[i] = in.readString();
+      }
+      try {
+        List<String> fieldList = BlockStatistics.fieldList(fields);
+        index.setStatisticsFields(fieldList, BlockStatistics.typesOf(schema, fieldList));
+      } catch (IllegalArgumentException e) {
+        throw new IOException("Invalid block statistics", e);
+      }
+      for (int i = 0; i < index.size; i++) {
+        if (in.readBoolean()) {
+          BlockStatistics blockStatistics = BlockStatistics.read(in, index.statisticsFields, index.statisticsTypes);
+          long next = i + 1 < index.size ? index.firstRows[i + 1] : index.rowCount;
+          blockStatistics.setRecordCount(next - index.firstRows[i]);
+          index.statistics[i] = blockStatistics;
+        }
+      }
+    }
+    return index;
+  }
+}
@@ -0,0 +1,308 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.file;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.avro.Conversion;
+import org.apache.avro.Conversions;
+import org.apache.avro.LogicalType;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.io.Decoder;
+import org.apache.avro.io.Encoder;
+import org.apache.avro.util.Utf8;
+
+/**
+ * The minimum, maximum and null count of selected top-level fields over the
+ * records of one block, collected by {@link DataFileWriter} when configured
+ * with {@link DataFileWriter#setBlockStatistics(String...)}. Only fields of a
+ * primitive type other than bytes, or of an enum, optionally in a union with
+ * null, can be tracked. Strings are reported as {@link Utf8} and enum symbols
+ * as {@link GenericData.EnumSymbol}.
+ *
+ * @see BlockFilter
+ */
+public final class BlockStatistics {
+  private final List<String> fields;
+  private final Schema[] types;
+  private final long[] nullCounts;
+  private final Object[] mins;
+  private final Object[] maxs;
+  private long recordCount;
+
+  BlockStatistics(List<String> fields, Schema[] types) {
+    this.fields = fields;
+    this.types = types;
+    this.nullCounts = new long[types.length];
+    this.mins = new Object[types.length];
+    this.maxs = new Object[types.length];
+  }
+
+  /** Return the number of records in the block. */
+  public long getRecordCount() {
+    return recordCount;
+  }
+
+  /** Return the names of the fields with statistics. */
+  public List<String> getFields() {
+    return fields;
+  }
+
+  /** Return the number of null values of a field, or -1 if not tracked. */
+  public long getNullCount(String field) {
+    int i = fields.indexOf(field);
+    return i < 0 ? -1 : nullCounts[i];
+  }
+
+  /**
+   * Return the smallest value of a field, or null if it is not tracked or has
+   * only null values.
+   */
+  public Object getMin(String field) {
+    int i = fields.indexOf(field);
+    return i < 0 ? null : mins[i];
+  }
+
+  /**
+   * Return the largest value of a field, or null if it is not tracked or has only
+   * null values.
+   */
+  public Object getMax(String field) {
+    int i = fields.indexOf(field);
+    return i < 0 ? null : maxs[i];
+  }
+
+  /**
+   * Return false if no record in the block can have a value of field between
+   * lower and upper, both inclusive and compared as by
+   * {@link GenericData#compare(Object, Object, Schema)}. A null bound is
+   * unbounded. Fields without statistics always return true.
+   */
+  public boolean mightContain(String field, Object lower, Object upper) {
+    int i = fields.indexOf(field);
+    if (i < 0) {
+      return true;
+    }
+    if (mins[i] == null) {
+      return false; // only nulls
+    }
+    GenericData data = GenericData.get();
+    return (lower == null || data.compare(maxs[i], lower, types[i]) >= 0)
+        && (upper == null || data.compare(mins[i], upper, types[i]) <= 0);
+  }
+
+  void addRecord() {
+    recordCount++;
+  }
+
+  void setRecordCount(long recordCount) {
+    this.recordCount = recordCount;
+  }
+
+  /**
+   * Return a field value as tracked for the field at index i, converting a
+   * logical type, such as a timestamp, to its underlying type with the
+   * conversion registered in data.
+   *
+   * @throws ClassCastException if the value does not match the field's type
+   */
+  Object rawValue(int i, Object value, GenericData data) {
+    if (value == null) {
+      return null;
+    }
+    LogicalType logicalType = types[i].getLogicalType();
+    if (logicalType != null) {
+      Conversion<?> conversion = data.getConversionByClass(value.getClass(), logicalType);
+      if (conversion != null) {
+        value = Conversions.convertToRawType(value, types[i], logicalType, conversion);
+      }
+    }
+    Schema.Type type = types[i].getType();
+    return type == Schema.Type.STRING || type == Schema.Type.ENUM ? value : copy(types[i], value);
+  }
+
+  /** Account for a value of the field at index i. */
+  void add(int i, Object value) {
+    if (value == null) {
+      nullCounts[i]++;
+      return;
+    }
+    Schema.Type type = types[i].getType();
+    if (type != Schema.Type.STRING && type != Schema.Type.ENUM) {
+      value = copy(types[i], value); // compare numbers as the boxed type of the schema
+    }
+    GenericData data = GenericData.get();
+    if (mins[i] == null || data.compare(value, mins[i], types[i]) < 0) {
+      mins[i] = copy(types[i], value);
+    }
+    if (maxs[i] == null || data.compare(value, maxs[i], types[i]) > 0) {
+      maxs[i] = copy(types[i], value);
+    }
+  }
+
+  private static Object copy(Schema type, Object value) {
+    switch (type.getType()) {
+    case STRING:
+      return value instanceof Utf8 ? new Utf8((Utf8) value) : new Utf8(value.toString());
+    case ENUM:
+      return new GenericData.EnumSymbol(type, value.toString());
+    case BOOLEAN:
+      return (Boolean) value;
+    case INT:
+      return ((Number) value).intValue();
+    case LONG:
+      return ((Number) value).longValue();
+    case FLOAT:
+      return ((Number) value).floatValue();
+    case DOUBLE:
+      return ((Number) value).doubleValue();
+    default:
+      return value;
+    }
+  }
+
+  void write(Encoder out) throws IOException {
+    for (int i = 0; i < types.length; i++) {
+      out.writeLong(nullCounts[i]);
+      out.writeBoolean(mins[i] != null);
+      if (mins[i] != null) {
+        writeValue(out, types[i], mins[i]);
+        writeValue(out, types[i], maxs[i]);
+      }
+    }
+  }
+
+  static BlockStatistics read(Decoder in, List<String> fields, Schema[] types) throws IOException {
+    BlockStatistics statistics = new BlockStatistics(fields, types);
+    for (int i = 0; i < types.length; i++) {
+      statistics.nullCounts[i] = in.readLong();
+      if (in.readBoolean()) {
+        statistics.mins[i] = readValue(in, types[i]);
+        statistics.maxs[i] = readValue(in, types[i]);
+      }
+    }
+    return statistics;
+  }
+
+  private static void writeValue(Encoder out, Schema type, Object value) throws IOException {
+    switch (type.getType()) {
+    case BOOLEAN:
+      out.writeBoolean((Boolean) value);
+      break;
+    case INT:
+      out.writeInt((Integer) value);
+      break;
+    case LONG:
+      out.writeLong((Long) value);
+      break;
+    case FLOAT:
+      out.writeFloat((Float) value);
+      break;
+    case DOUBLE:
+      out.writeDouble((Double) value);
+      break;
+    case STRING:
+      out.writeString((Utf8) value);
+      break;
+    case ENUM:
+      out.writeEnum(type.getEnumOrdinal(value.toString()));
+      break;
+    default:
+      throw new IllegalStateException("No statistics for " + type);
+    }
+  }
+
+  private static Object readValue(Decoder in, Schema type) throws IOException {
+    switch (type.getType()) {
+    case BOOLEAN:
+      return in.readBoolean();
+    case INT:
+      return in.readInt();
+    case LONG:
+      return in.readLong();
+    case FLOAT:
+      return in.readFloat();
+    case DOUBLE:
+      return in.readDouble();
+    case STRING:
+      return in.readString(null);
+    case ENUM:
+      return new GenericData.EnumSymbol(type, type.getEnumSymbols().get(in.readEnum()));
+    default:
+      throw new IllegalStateException("No statistics for " + type);
+    }
+  }
+
+  /**
+   * Return the types of the named fields of a record schema.
+   *
+   * @throws IllegalArgumentException if a field is missing or has a type without
+   *                                  statistics
+   */
+  static Schema[] typesOf(Schema schema, List<String> fields) {
+    if (schema.getType() != Schema.Type.RECORD) {
+      throw new IllegalArgumentException("Block statistics need a record schema: " + schema);
+    }
+    Schema[] types = new Schema[fields.size()];
+    for (int i = 0; i < types.length; i++) {
+      Schema.Field field = schema.getField(fields.get(i));
+      if (field == null) {
+        throw new IllegalArgumentException("No field " + fields.get(i) + " in " + schema.getFullName());
+      }
+      types[i] = valueType(field.schema());
+      if (types[i] == null) {
+        throw new IllegalArgumentException("No statistics for field " + field.name() + " of type " + field.schema());
+      }
+    }
+    return types;
+  }
+
+  private static Schema valueType(Schema schema) {
+    if (schema.getType() == Schema.Type.UNION) {
+      List<Schema> branches = schema.getTypes();
+      if (branches.size() != 2) {
+        return null;
+      }
+      int nullBranch = branches.get(0).getType() == Schema.Type.NULL ? 0 : 1;
+      if (branches.get(nullBranch).getType() != Schema.Type.NULL) {
+        return null;
+      }
+      schema = branches.get(1 - nullBranch);
+    }
+    switch (schema.getType()) {
+    case BOOLEAN:
+    case INT:
+    case LONG:
+    case FLOAT:
+    case DOUBLE:
+    case STRING:
+    case ENUM:
+      return schema;
+    default:
+      return null;
+    }
+  }
+
+  static List<String> fieldList(String... fields) {
+    return Collections.unmodifiableList(Arrays.asList(fields.clone()));
+  }
+}
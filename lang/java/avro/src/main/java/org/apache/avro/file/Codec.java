@@ -18,7 +18,11 @@
 package org.apache.avro.file;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.apache.avro.SystemLimitException;
 
 /**
  * Interface for Avro-supported compression codecs for data files.
@@ -33,9 +37,37 @@ public abstract class Codec {
   /** Compresses the input data */
   public abstract ByteBuffer compress(ByteBuffer uncompressedData) throws IOException;
 
+  /**
+   * Compress the data, writing it to {@code reuse} when that is a writable heap
+   * buffer large enough to hold it, so that a writer can keep using one buffer
+   * for all blocks. The default implementation ignores {@code reuse}.
+   *
+   * @param uncompressedData the data to compress
+   * @param reuse            a buffer returned by an earlier call, or null
+   * @return the compressed data, starting at position 0, in {@code reuse} or in a
+   *         new buffer
+   */
+  public ByteBuffer compress(ByteBuffer uncompressedData, ByteBuffer reuse) throws IOException {
+    return compress(uncompressedData);
+  }
+
   /** Decompress the data */
   public abstract ByteBuffer decompress(ByteBuffer compressedData) throws IOException;
 
+  /**
+   * Decompress the data, writing it to {@code reuse} when that is a writable heap
+   * buffer large enough to hold it, so that a reader can keep using one buffer
+   * for all blocks. The default implementation ignores {@code reuse}.
+   *
+   * @param compressedData the data to decompress
+   * @param reuse          a buffer returned by an earlier call, or null
+   * @return the decompressed data, starting at position 0, in {@code reuse} or in
+   *         a new buffer
+   */
+  public ByteBuffer decompress(ByteBuffer compressedData, ByteBuffer reuse) throws IOException {
+    return decompress(compressedData);
+  }
+
   /**
    * Codecs must implement an equals() method. Two codecs, A and B are equal if:
    * the result of A and B decompressing content compressed by A is the same AND
@@ -55,6 +87,59 @@ public abstract class Codec {
     return getName();
   }
 
+  /**
+   * Return true if {@link #decompress(ByteBuffer)} accepts buffers without an
+   * accessible array, such as slices of a memory-mapped file.
+   */
+  boolean acceptsDirectBuffers() {
+    return false;
+  }
+
+  /**
+   * Return the array of reuse if data can be written to it from index 0, or a
+   * new array of the given size.
+   */
+  static byte[] outputArray(ByteBuffer reuse, int size) {
+    if (reuse != null && reuse.hasArray() && !reuse.isReadOnly() && reuse.arrayOffset() == 0
+        && reuse.array().length >= size) {
+      return reuse.array();
+    }
+    return new byte[size];
+  }
+
+  /**
+   * Return a larger copy of a full output array, within the limit set by
+   * {@link SystemLimitException#MAX_DECOMPRESS_LENGTH}.
+   */
+  static byte[] grow(byte[] output) {
+    long limit = SystemLimitException.MAX_DECOMPRESS_LENGTH;
+    SystemLimitException.checkMaxDecompressCapacity(limit, output.length, 1);
+    long size = Math.min(Math.max(2L * output.length, 8192), Math.min(limit, Integer.MAX_VALUE - 8));
+    return Arrays.copyOf(output, (int) size);
+  }
+
+  /** Read a decompressing stream to its end, into reuse if possible. */
+  static ByteBuffer readFully(InputStream in, ByteBuffer reuse) throws IOException {
+    byte[] output = outputArray(reuse, 8192);
+    int size = 0;
+    for (;;) {
+      if (size == output.length) {
+        int b = in.read();
+        if (b < 0) {
+          break;
+        }
+        output = grow(output);
+        output[size++] = (byte) b;
+      }
+      int n = in.read(output, size, output.length - size);
+      if (n < 0) {
+        break;
+      }
+      size += n;
+    }
+    return ByteBuffer.wrap(output, 0, size);
+  }
+
   // Codecs often reference the array inside a ByteBuffer. Compute the offset
   // to the start of data correctly in the case that our ByteBuffer
   // is a slice() of another.
@@ -119,6 +119,25 @@ public abstract class CodecFactory {
     return new ZstandardCodec.Option(level, useChecksum, useBufferPool);
   }
 
+  /**
+   * zstandard codec, with specific compression level, checksum, bufferPool and
+   * dictionary. The dictionary is written to the metadata of data files, and
+   * used by readers to decompress them.
+   *
+   * @param level         The compression level should be between -5 and 22,
+   *                      inclusive. Negative levels are 'fast' modes akin to lz4
+   *                      or snappy, levels above 9 are generally for archival
+   *                      purposes, and levels above 18 use a lot of memory.
+   * @param useChecksum   if true, will include a checksum with each data block
+   * @param useBufferPool if true, will use recycling buffer pool
+   * @param dictionary    a dictionary, as returned by
+   *                      {@link ZstandardCodec#trainDictionary(Iterable, int)}
+   */
+  public static CodecFactory zstandardCodec(int level, boolean useChecksum, boolean useBufferPool,
+      byte[] dictionary) {
+    return new ZstandardCodec.Option(level, useChecksum, useBufferPool, dictionary.clone());
+  }
+
   /** Creates internal Codec. */
   protected abstract Codec createInstance();
 
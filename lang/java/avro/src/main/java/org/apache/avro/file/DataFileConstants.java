@@ -32,6 +32,13 @@ public class DataFileConstants {
 
   public static final String SCHEMA = "avro.schema";
   public static final String CODEC = "avro.codec";
+  /**
+   * Set to {@link #TRAILING_BLOCK_INDEX} when the file ends with a block index.
+   */
+  public static final String BLOCK_INDEX = "avro.index";
+  public static final String TRAILING_BLOCK_INDEX = "trailing";
+  /** The dictionary of files compressed by a zstandard codec with one. */
+  public static final String ZSTANDARD_DICTIONARY = "avro.codec.zstandard.dictionary";
   public static final String NULL_CODEC = "null";
   public static final String DEFLATE_CODEC = "deflate";
   public static final String SNAPPY_CODEC = "snappy";
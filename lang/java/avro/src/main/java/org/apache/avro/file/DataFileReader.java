@@ -18,6 +18,7 @@
 package org.apache.avro.file;
 
 import org.apache.avro.InvalidAvroMagicException;
+import org.apache.avro.io.BinaryDecoder;
 import org.apache.avro.io.DatumReader;
 import org.apache.avro.io.DecoderFactory;
 import org.apache.commons.io.IOUtils;
@@ -26,6 +27,7 @@ import java.io.EOFException;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 
 import static org.apache.avro.file.DataFileConstants.MAGIC;
@@ -37,9 +39,13 @@ import static org.apache.avro.file.DataFileConstants.SYNC_SIZE;
  * @see DataFileWriter
  */
 public class DataFileReader<D> extends DataFileStream<D> implements FileReader<D> {
+  /** The most bytes read from the end of a file when looking for its index. */
+  static final int MAX_INDEX_WINDOW = 16 * 1024 * 1024;
+
   private final SeekableInputStream sin;
   private long blockStart;
   private int[] partialMatchTable;
+  private BlockIndex blockIndex;
 
   /** Open a reader for a file. */
   public static <D> FileReader<D> openReader(File file, DatumReader<D> reader) throws IOException {
@@ -167,6 +173,7 @@ public class DataFileReader<D> extends DataFileStream<D> implements FileReader<D
    * not saved while writing a file, use {@link #sync(long)} instead.
    */
   public void seek(long position) throws IOException {
+    cancelReadAhead();
     sin.seek(position);
     vin = DecoderFactory.get().binaryDecoder(this.sin, vin);
     datumIn = null;
@@ -174,6 +181,163 @@ public class DataFileReader<D> extends DataFileStream<D> implements FileReader<D
     blockFinished();
   }
 
+  /**
+   * Move to the record with the given zero-based number. The block holding it is
+   * found with the index written by
+   * {@link DataFileWriter#setBlockIndexEnabled(boolean)}, or, for files without
+   * one, with a single scan over the block headers the first time an index is
+   * needed. The records before it in its block are decoded and dropped. If the
+   * file has no more than {@code row} records, moves to the end of the file.
+   */
+  public void seekToRow(long row) throws IOException {
+    if (row < 0) {
+      throw new IllegalArgumentException("Invalid row: " + row);
+    }
+    BlockIndex index = getBlockIndex();
+    int block = index.findBlock(row);
+    if (block < 0) {
+      seek(index.getEnd());
+      return;
+    }
+    seek(index.getOffset(block));
+    D reuse = null;
+    for (long skip = row - index.getFirstRow(block); skip > 0; skip--) {
+      reuse = next(reuse);
+    }
+  }
+
+  /**
+   * Return the start position of each block holding records, suitable for
+   * {@link #seek(long)}.
+   *
+   * @see #seekToRow(long)
+   */
+  public long[] getBlockOffsets() throws IOException {
+    return getBlockIndex().getOffsets();
+  }
+
+  /**
+   * Return the number of the first record of each block, in the same order as
+   * {@link #getBlockOffsets()}.
+   */
+  public long[] getBlockFirstRows() throws IOException {
+    return getBlockIndex().getFirstRows();
+  }
+
+  BlockIndex getBlockIndex() throws IOException {
+    if (blockIndex == null) {
+      // vin has buffered input up to the current position, so restore it after
+      long position = sin.tell();
+      try {
+        if (DataFileConstants.TRAILING_BLOCK_INDEX.equals(getMetaString(DataFileConstants.BLOCK_INDEX))) {
+          blockIndex = readTrailingBlockIndex();
+        }
+        if (blockIndex == null) {
+          blockIndex = scanBlockIndex();
+        }
+      } finally {
+        sin.seek(position);
+      }
+    }
+    return blockIndex;
+  }
+
+  /**
+   * Read the index from the last block of the file, or return null if the file
+   * does not end with one, e.g. when an older writer appended to it. The end of
+   * the file is read in growing windows, up to {@link #MAX_INDEX_WINDOW} bytes;
+   * larger indexes are rebuilt by scanning instead.
+   */
+  private BlockIndex readTrailingBlockIndex() throws IOException {
+    final byte[] sync = getHeader().sync;
+    final long length = sin.length();
+    int size = (int) Math.min(64 * 1024, length);
+    byte[] tail = new byte[size];
+    sin.seek(length - size);
+    readFully(tail, size);
+    if (!Arrays.equals(tail, size - SYNC_SIZE, size, sync, 0, SYNC_SIZE)) {
+      return null;
+    }
+    // the block starts after the sync before the final one
+    int start = lastIndexOf(tail, sync, size - SYNC_SIZE - 1);
+    while (start < 0) {
+      if (size == length || size >= MAX_INDEX_WINDOW) {
+        return null;
+      }
+      // read only the bytes before the window, and search only those
+      int grown = (int) Math.min(Math.min(2L * size, length), MAX_INDEX_WINDOW);
+      byte[] larger = new byte[grown];
+      System.arraycopy(tail, 0, larger, grown - size, size);
+      sin.seek(length - grown);
+      readFully(larger, grown - size);
+      start = lastIndexOf(larger, sync, grown - size - 1);
+      tail = larger;
+      size = grown;
+    }
+    start += SYNC_SIZE;
+    BinaryDecoder in = DecoderFactory.get().binaryDecoder(tail, start, size - start, null);
+    long count = in.readLong();
+    long blockSize = in.readLong();
+    int payload = in.remainingBytes() - SYNC_SIZE;
+    if (count != 0 || blockSize != payload) {
+      return null;
+    }
+    ByteBuffer data = resolveCodec().decompress(ByteBuffer.wrap(tail, size - SYNC_SIZE - payload, payload));
+    BlockIndex index = BlockIndex.decode(data, getSchema());
+    index.setEnd(length - size + start);
+    return index;
+  }
+
+  /** Build an index by walking the block headers of the file. */
+  private BlockIndex scanBlockIndex() throws IOException {
+    sin.seek(0);
+    BinaryDecoder in = DecoderFactory.get().binaryDecoder(sin, null);
+    in.skipFixed(MAGIC.length);
+    for (long n = in.readMapStart(); n != 0; n = in.mapNext()) {
+      for (long i = 0; i < n; i++) {
+        in.skipString();
+        in.skipBytes();
+      }
+    }
+    in.skipFixed(SYNC_SIZE);
+    BlockIndex index = new BlockIndex();
+    InputStream buffered = in.inputStream();
+    while (!in.isEnd()) {
+      long offset = sin.tell() - buffered.available();
+      long count = in.readLong();
+      long blockSize = in.readLong();
+      if (count < 0 || blockSize < 0 || blockSize > Integer.MAX_VALUE) {
+        throw new IOException("Block size invalid or too large at " + offset + ": " + blockSize);
+      }
+      in.skipFixed((int) blockSize + SYNC_SIZE);
+      if (count > 0) {
+        index.add(offset, count, null);
+      }
+    }
+    index.setEnd(sin.length());
+    return index;
+  }
+
+  private void readFully(byte[] b, int length) throws IOException {
+    for (int off = 0; off < length;) {
+      int n = sin.read(b, off, length - off);
+      if (n < 0) {
+        throw new EOFException();
+      }
+      off += n;
+    }
+  }
+
+  /** Return the last match of pattern starting at or before from. */
+  private static int lastIndexOf(byte[] data, byte[] pattern, int from) {
+    for (int i = Math.min(from, data.length - pattern.length); i >= 0; i--) {
+      if (Arrays.equals(data, i, i + pattern.length, pattern, 0, pattern.length)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
   /**
    * Move to the next synchronization point after a position. To process a range
    * of file entires, call this with the starting position, then check
@@ -243,7 +407,31 @@ public class DataFileReader<D> extends DataFileStream<D> implements FileReader<D
 
   @Override
   protected void blockFinished() throws IOException {
-    blockStart = sin.tell() - vin.inputStream().available();
+    // blocks decoded ahead have already been read past, so use the recorded end
+    blockStart = decodedBlockEnd >= 0 ? decodedBlockEnd : rawBlockEnd();
+  }
+
+  @Override
+  ByteBuffer sliceRawBlock(int length) throws IOException {
+    if (!(sin.in instanceof SeekableMappedFileInput)) {
+      return null;
+    }
+    ByteBuffer slice = ((SeekableMappedFileInput) sin.in).slice(rawBlockEnd(), length);
+    vin.skipFixed(length);
+    return slice;
+  }
+
+  @Override
+  BlockStatistics blockStatistics(long blockStart) throws IOException {
+    if (blockStart < 0 || getMeta(DataFileConstants.BLOCK_INDEX) == null) {
+      return null; // statistics are only stored with an index
+    }
+    return getBlockIndex().getStatistics(blockStart);
+  }
+
+  @Override
+  long rawBlockEnd() throws IOException {
+    return sin.tell() - vin.inputStream().available();
   }
 
   /** Return the last synchronization point before our current position. */
@@ -264,7 +452,7 @@ public class DataFileReader<D> extends DataFileStream<D> implements FileReader<D
 
   static class SeekableInputStream extends InputStream implements SeekableInput {
     private final byte[] oneByte = new byte[1];
-    private final SeekableInput in;
+    final SeekableInput in;
 
     SeekableInputStream(SeekableInput in) {
       this.in = in;
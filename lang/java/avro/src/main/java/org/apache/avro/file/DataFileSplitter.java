@@ -0,0 +1,339 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.file;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.file.DataFileStream.Header;
+import org.apache.avro.io.DatumReader;
+
+/**
+ * Plans the reading of a data file as independent byte ranges, so that one file
+ * can be read by several threads. Each {@link Split} opens its own input and
+ * reads the blocks whose leading sync marker lies within its range, the same
+ * way the MapReduce record readers process file splits: together the splits of
+ * a plan read every record of the file exactly once.
+ * <p/>
+ * When the file has a block index, split boundaries are placed on block
+ * boundaries so that each split holds about the same number of records;
+ * otherwise the file is cut into ranges of about the same number of bytes. For
+ * example, to read a file with all available processors:
+ *
+ * <pre>
+ * DataFileSplitter&lt;User&gt; splitter = new DataFileSplitter&lt;&gt;(file,
+ *     () -&gt; new SpecificDatumReader&lt;&gt;(User.class));
+ * try (Stream&lt;User&gt; users = splitter.stream(Runtime.getRuntime().availableProcessors())) {
+ *   users.forEach(...);
+ * }
+ * </pre>
+ */
+public class DataFileSplitter<D> {
+
+  /** Opens a new input over the data file, once for each split read. */
+  @FunctionalInterface
+  public interface InputOpener {
+    SeekableInput open() throws IOException;
+  }
+
+  private final InputOpener opener;
+  private final Supplier<? extends DatumReader<D>> datumReaders;
+  private final Header header;
+  private final long length;
+  /** The start of each data block, or null if the file has no block index. */
+  private final long[] blockOffsets;
+  private final long[] blockFirstRows;
+  private final long rowCount;
+
+  /**
+   * Create a splitter for a local file.
+   *
+   * @param file         the data file
+   * @param datumReaders creates a datum reader for each split
+   */
+  public DataFileSplitter(File file, Supplier<? extends DatumReader<D>> datumReaders) throws IOException {
+    this(() -> new SeekableFileInput(file), datumReaders);
+  }
+
+  /**
+   * Create a splitter for a data file. The header, and the block index if the
+   * file has one, are read once here and shared by all splits.
+   *
+   * @param opener       opens the data file, once here and once for each split
+   * @param datumReaders creates a datum reader for each split
+   */
+  public DataFileSplitter(InputOpener opener, Supplier<? extends DatumReader<D>> datumReaders) throws IOException {
+    this.opener = opener;
+    this.datumReaders = datumReaders;
+    SeekableInput in = opener.open();
+    DataFileReader<D> opened;
+    try {
+      this.length = in.length();
+      opened = new DataFileReader<>(in, datumReaders.get());
+    } catch (IOException | RuntimeException e) {
+      in.close();
+      throw e;
+    }
+    try (DataFileReader<D> reader = opened) {
+      this.header = reader.getHeader();
+      if (DataFileConstants.TRAILING_BLOCK_INDEX.equals(reader.getMetaString(DataFileConstants.BLOCK_INDEX))) {
+        BlockIndex index = reader.getBlockIndex();
+        this.blockOffsets = index.getOffsets();
+        this.blockFirstRows = index.getFirstRows();
+        this.rowCount = index.getRowCount();
+      } else {
+        this.blockOffsets = null;
+        this.blockFirstRows = null;
+        this.rowCount = -1;
+      }
+    }
+  }
+
+  /** Return the header of the data file. */
+  public Header getHeader() {
+    return header;
+  }
+
+  /** Return the length of the data file in bytes. */
+  public long getLength() {
+    return length;
+  }
+
+  /**
+   * Plan the reading of the file as at most {@code count} splits. Fewer splits
+   * are returned when the file has fewer blocks.
+   */
+  public List<Split> split(int count) {
+    if (count < 1) {
+      throw new IllegalArgumentException("Invalid count value: " + count);
+    }
+    List<Split> splits = new ArrayList<>(count);
+    long start = 0;
+    for (int i = 1; i < count; i++) {
+      long end = boundary(i, count);
+      if (end > start) {
+        splits.add(new Split(start, end));
+        start = end;
+      }
+    }
+    splits.add(new Split(start, length));
+    return Collections.unmodifiableList(splits);
+  }
+
+  /** Return the end of split i of count, and the start of the next. */
+  private long boundary(int i, int count) {
+    if (blockOffsets == null) {
+      return (long) (length * ((double) i / count));
+    }
+    long row = (long) (rowCount * ((double) i / count));
+    int block = 0;
+    for (int low = 0, high = blockOffsets.length - 1; low <= high;) {
+      int mid = (low + high) >>> 1;
+      if (blockFirstRows[mid] <= row) {
+        block = mid;
+        low = mid + 1;
+      } else {
+        high = mid - 1;
+      }
+    }
+    // a block belongs to the split holding the sync marker before it
+    return block == 0 ? 0 : blockOffsets[block] - DataFileConstants.SYNC_SIZE;
+  }
+
+  /**
+   * Return a parallel stream over all records of the file, read as at most
+   * {@code count} splits. Closing the stream closes any split left open.
+   */
+  public Stream<D> stream(int count) {
+    return split(count).parallelStream().flatMap(Split::stream);
+  }
+
+  /**
+   * A byte range of the data file. A split holds the blocks whose leading sync
+   * marker starts within its range. Splits may be read concurrently, each with
+   * its own input.
+   */
+  public final class Split {
+    private final long start;
+    private final long end;
+
+    Split(long start, long end) {
+      this.start = start;
+      this.end = end;
+    }
+
+    /** Return the first byte of this split. */
+    public long getStart() {
+      return start;
+    }
+
+    /** Return the byte after the last of this split. */
+    public long getEnd() {
+      return end;
+    }
+
+    /** Open a reader over the records of this split. */
+    public SplitReader open() throws IOException {
+      return new SplitReader(this);
+    }
+
+    /**
+     * Return a spliterator over the records of this split. The split is opened on
+     * the first advance, and closed once its records are exhausted.
+     */
+    public Spliterator<D> spliterator() {
+      return new SplitSpliterator(this);
+    }
+
+    /** Return a sequential stream over the records of this split. */
+    public Stream<D> stream() {
+      SplitSpliterator spliterator = new SplitSpliterator(this);
+      return StreamSupport.stream(spliterator, false).onClose(spliterator::close);
+    }
+
+    @Override
+    public String toString() {
+      return "Split[" + start + ", " + end + ")";
+    }
+  }
+
+  /** Reads the records of one split. */
+  public final class SplitReader implements Iterator<D>, Iterable<D>, Closeable {
+    private final DataFileReader<D> reader;
+    private final long end;
+
+    SplitReader(Split split) throws IOException {
+      SeekableInput in = opener.open();
+      try {
+        in.seek(split.start);
+        this.reader = DataFileReader.openReader(in, datumReaders.get(), header, true);
+      } catch (IOException | RuntimeException e) {
+        in.close();
+        throw e;
+      }
+      this.end = split.end;
+    }
+
+    /** Return the underlying file reader. */
+    public DataFileReader<D> getReader() {
+      return reader;
+    }
+
+    @Override
+    public Iterator<D> iterator() {
+      return this;
+    }
+
+    @Override
+    public boolean hasNext() {
+      try {
+        return reader.hasNext() && !reader.pastSync(end);
+      } catch (IOException e) {
+        throw new AvroRuntimeException(e);
+      }
+    }
+
+    @Override
+    public D next() {
+      try {
+        return next(null);
+      } catch (IOException e) {
+        throw new AvroRuntimeException(e);
+      }
+    }
+
+    /**
+     * Read the next datum of this split.
+     *
+     * @param reuse an instance to reuse, or null
+     */
+    public D next(D reuse) throws IOException {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      return reader.next(reuse);
+    }
+
+    @Override
+    public void close() throws IOException {
+      reader.close();
+    }
+  }
+
+  /** Lazily opens a split, and closes it once exhausted. */
+  private final class SplitSpliterator extends Spliterators.AbstractSpliterator<D> {
+    private final Split split;
+    private SplitReader reader;
+    private boolean done;
+
+    SplitSpliterator(Split split) {
+      super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+      this.split = split;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super D> action) {
+      if (done) {
+        return false;
+      }
+      try {
+        if (reader == null) {
+          reader = split.open();
+        }
+        if (reader.hasNext()) {
+          action.accept(reader.next(null));
+          return true;
+        }
+      } catch (IOException e) {
+        close();
+        throw new AvroRuntimeException(e);
+      } catch (RuntimeException | Error e) {
+        close();
+        throw e;
+      }
+      close();
+      return false;
+    }
+
+    void close() {
+      done = true;
+      if (reader != null) {
+        try {
+          reader.close();
+        } catch (IOException e) {
+          throw new AvroRuntimeException(e);
+        } finally {
+          reader = null;
+        }
+      }
+    }
+  }
+}
@@ -32,6 +32,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -40,6 +41,10 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
 
 /**
  * Streaming access to files written by {@link DataFileWriter}. Use
@@ -82,6 +87,28 @@ public class DataFileStream<D> implements Iterator<D>, Iterable<D>, Closeable {
   byte[] syncBuffer = new byte[DataFileConstants.SYNC_SIZE];
   private Codec codec;
 
+  /** Executor decoding blocks ahead of the caller, or null to decode inline. */
+  private Executor decodeExecutor;
+  private int maxPendingBlocks;
+  private final Queue<PendingBlock> pendingBlocks = new ArrayDeque<>();
+  /** Codec instances not currently used by a decoding task. */
+  private final Queue<Codec> idleCodecs = new ConcurrentLinkedQueue<>();
+  private List<D> decodedRecords;
+  private int decodedIndex;
+  /** End position of the block being consumed when decoding ahead. */
+  long decodedBlockEnd = -1;
+
+  private BlockFilter blockFilter;
+  private BlockBufferPool bufferPool;
+  /** Holds the decompressed data of the current block, reused across blocks. */
+  private ByteBuffer decompressBuffer;
+  /** Size of the last block decompressed ahead, to size pooled buffers. */
+  private volatile int decompressedSizeHint = 8192;
+  /** The block decoded ahead whose records are being returned. */
+  private PendingBlock currentBlock;
+  /** Start position of the block whose header was last read, if known. */
+  private long nextBlockStart = -1;
+
   /**
    * Construct a reader for an input stream. For file-based input, use
    * {@link DataFileReader}. This will buffer, wrapping with a
@@ -143,6 +170,7 @@ public class DataFileStream<D> implements Iterator<D>, Iterable<D>, Closeable {
     header.metaKeyList = Collections.unmodifiableList(header.metaKeyList);
     header.schema = JsonSchemaParser.parseInternal(getMetaString(DataFileConstants.SCHEMA));
     this.codec = resolveCodec();
+    idleCodecs.clear();
     reader.setSchema(header.schema);
   }
 
@@ -150,13 +178,19 @@ public class DataFileStream<D> implements Iterator<D>, Iterable<D>, Closeable {
   void initialize(Header header) {
     this.header = header;
     this.codec = resolveCodec();
+    idleCodecs.clear();
     reader.setSchema(header.schema);
   }
 
   Codec resolveCodec() {
     String codecStr = getMetaString(DataFileConstants.CODEC);
     if (codecStr != null) {
-      return CodecFactory.fromString(codecStr).createInstance();
+      Codec codec = CodecFactory.fromString(codecStr).createInstance();
+      byte[] dictionary = getMeta(DataFileConstants.ZSTANDARD_DICTIONARY);
+      if (dictionary != null && codec instanceof ZstandardCodec) {
+        codec = ((ZstandardCodec) codec).withDictionary(dictionary);
+      }
+      return codec;
     } else {
       return CodecFactory.nullCodec().createInstance();
     }
@@ -198,6 +232,72 @@ public class DataFileStream<D> implements Iterator<D>, Iterable<D>, Closeable {
     return Long.parseLong(getMetaString(key));
   }
 
+  /**
+   * Expert: decompress and decode blocks on the given executor, keeping up to
+   * {@code maxPendingBlocks} blocks in flight ahead of the caller. Raw blocks are
+   * still read by the calling thread and records are returned in file order, but
+   * the instance passed to {@link #next(Object)} is not reused since records are
+   * decoded before they are requested. The {@link DatumReader} of this stream
+   * must support concurrent use, as
+   * {@link org.apache.avro.generic.GenericDatumReader} and its subclasses do.
+   * <p/>
+   * May only be called between blocks: before the first record is read, or right
+   * after {@link DataFileReader#seek(long)} or {@link DataFileReader#sync(long)}.
+   * Passing a null executor switches back to decoding on the calling thread.
+   *
+   * @param executor         runs the decompress and decode task of each block
+   * @param maxPendingBlocks the number of blocks read ahead, at least 1
+   * @throws IllegalStateException if a block is partially read
+   */
+  public void setParallelDecoding(Executor executor, int maxPendingBlocks) {
+    if (executor != null && maxPendingBlocks < 1) {
+      throw new IllegalArgumentException("Invalid maxPendingBlocks value: " + maxPendingBlocks);
+    }
+    if (blockRemaining != 0 || !pendingBlocks.isEmpty()) {
+      throw new IllegalStateException("Not at block start.");
+    }
+    this.decodeExecutor = executor;
+    this.maxPendingBlocks = maxPendingBlocks;
+    this.decodedRecords = null;
+    this.decodedBlockEnd = -1;
+  }
+
+  /** Return true if blocks are decoded ahead on an executor. */
+  public boolean isParallelDecoding() {
+    return decodeExecutor != null;
+  }
+
+  /**
+   * Skip blocks whose {@link BlockStatistics} the filter rules out, without
+   * decompressing them. Statistics are stored in the block index at the end of
+   * the file, so only {@link DataFileReader} can make use of them: other streams
+   * and files written without statistics read every block. Records of blocks
+   * that are kept are all returned, whether they match or not.
+   *
+   * @param filter the filter to apply, or null to read all blocks
+   * @see DataFileWriter#setBlockStatistics(String...)
+   */
+  public void setBlockFilter(BlockFilter filter) {
+    this.blockFilter = filter;
+  }
+
+  /** Return the filter set with {@link #setBlockFilter(BlockFilter)}, or null. */
+  public BlockFilter getBlockFilter() {
+    return blockFilter;
+  }
+
+  /**
+   * Take the buffers holding raw and decompressed blocks from a pool, and hand
+   * them back once a block is consumed. Without a pool, the buffers of blocks
+   * read on the calling thread are still reused from block to block, but blocks
+   * decoded ahead with {@link #setParallelDecoding(Executor, int)} get new ones.
+   *
+   * @param pool the pool to use, or null
+   */
+  public void setBufferPool(BlockBufferPool pool) {
+    this.bufferPool = pool;
+  }
+
   /**
    * Returns an iterator over entries in this file. Note that this iterator is
    * shared with other users of the file: it does not contain a separate pointer
@@ -214,7 +314,10 @@ public class DataFileStream<D> implements Iterator<D>, Iterable<D>, Closeable {
   @Override
   public boolean hasNext() {
     try {
-      if (blockRemaining == 0) {
+      if (decodeExecutor != null) {
+        return hasNextDecoded();
+      }
+      while (blockRemaining == 0) {
         // check that the previous block was finished
         if (null != datumIn) {
           boolean atEnd = datumIn.isEnd();
@@ -222,13 +325,23 @@ public class DataFileStream<D> implements Iterator<D>, Iterable<D>, Closeable {
             throw new IOException("Block read partially, the data may be corrupt");
           }
         }
-        if (hasNextBlock()) {
-          block = nextRawBlock(block);
-          block.decompressUsing(codec);
-          blockBuffer = block.getAsByteBuffer();
-          datumIn = DecoderFactory.get().binaryDecoder(blockBuffer.array(),
-              blockBuffer.arrayOffset() + blockBuffer.position(), blockBuffer.remaining(), datumIn);
+        if (!hasNextBlock()) {
+          break;
+        }
+        if (skipFilteredBlock()) {
+          datumIn = null;
+          blockFinished();
+          continue;
         }
+        block = nextRawBlock(block);
+        if (blockCount == 0) {
+          // holds no records, e.g. a block index
+          datumIn = null;
+          blockFinished();
+          continue;
+        }
+        blockBuffer = decompress(block);
+        datumIn = decoderFor(blockBuffer, datumIn);
       }
       return blockRemaining != 0;
     } catch (EOFException e) { // at EOF
@@ -238,6 +351,41 @@ public class DataFileStream<D> implements Iterator<D>, Iterable<D>, Closeable {
     }
   }
 
+  /**
+   * Decompress a raw block into {@link #decompressBuffer}, which the codec
+   * replaces if too small.
+   */
+  private ByteBuffer decompress(DataBlock raw) throws IOException {
+    ByteBuffer data = raw.decompressedUsing(codec, decompressBuffer);
+    if (data.hasArray() && data.array() != raw.data) {
+      if (decompressBuffer != null && decompressBuffer.array() != data.array()) {
+        recycle(decompressBuffer);
+      }
+      decompressBuffer = data;
+    }
+    return data;
+  }
+
+  /** Return a heap array of at least size bytes, from the pool if set. */
+  private byte[] allocate(int size) {
+    return bufferPool != null ? bufferPool.acquire(size).array() : new byte[size];
+  }
+
+  private void recycle(ByteBuffer buffer) {
+    if (bufferPool != null) {
+      bufferPool.release(buffer);
+    }
+  }
+
+  /** Decode in place, whether the block is on the heap or memory-mapped. */
+  private static BinaryDecoder decoderFor(ByteBuffer block, BinaryDecoder reuse) {
+    if (block.hasArray()) {
+      return DecoderFactory.get().binaryDecoder(block.array(), block.arrayOffset() + block.position(),
+          block.remaining(), reuse);
+    }
+    return DecoderFactory.get().binaryDecoder(block, reuse);
+  }
+
   /**
    * Read the next datum in the file.
    *
@@ -261,22 +409,37 @@ public class DataFileStream<D> implements Iterator<D>, Iterable<D>, Closeable {
   public D next(D reuse) throws IOException {
     if (!hasNext())
       throw new NoSuchElementException();
-    D result = reader.read(reuse, datumIn);
+    D result;
+    if (decodedRecords != null) {
+      result = decodedRecords.set(decodedIndex++, null);
+    } else {
+      result = reader.read(reuse, datumIn);
+    }
     if (0 == --blockRemaining) {
       blockFinished();
     }
     return result;
   }
 
-  /** Expert: Return the next block in the file, as binary-encoded data. */
+  /**
+   * Expert: Return the next block in the file, as binary-encoded data.
+   * <p/>
+   * The returned buffer belongs to the caller: later calls neither overwrite it
+   * nor hand it back to the {@link BlockBufferPool}.
+   */
   public ByteBuffer nextBlock() throws IOException {
     if (!hasNext())
       throw new NoSuchElementException();
     if (blockRemaining != blockCount)
       throw new IllegalStateException("Not at block start.");
     blockRemaining = 0;
+    decodedRecords = null;
     blockFinished();
     datumIn = null;
+    // drop the buffers behind the block, so later blocks neither reuse nor recycle them
+    block = null;
+    decompressBuffer = null;
+    currentBlock = null;
     return blockBuffer;
   }
 
@@ -300,6 +463,9 @@ public class DataFileStream<D> implements Iterator<D>, Iterable<D>, Closeable {
         return true;
       if (vin.isEnd())
         return false;
+      if (blockFilter != null) {
+        nextBlockStart = rawBlockEnd();
+      }
       blockRemaining = vin.readLong(); // read block count
       blockSize = vin.readLong(); // read block size
       if (blockSize > Integer.MAX_VALUE || blockSize < 0) {
@@ -315,18 +481,55 @@ public class DataFileStream<D> implements Iterator<D>, Iterable<D>, Closeable {
     }
   }
 
+  /**
+   * Skip the block whose header was just read if the block filter rules out all
+   * of its records.
+   */
+  private boolean skipFilteredBlock() throws IOException {
+    if (blockFilter == null || blockRemaining == 0) {
+      return false;
+    }
+    BlockStatistics statistics = blockStatistics(nextBlockStart);
+    if (statistics == null || statistics.getRecordCount() != blockRemaining || blockFilter.mightMatch(statistics)) {
+      return false;
+    }
+    vin.skipFixed((int) blockSize);
+    readSync();
+    blockCount = 0;
+    blockRemaining = 0;
+    return true;
+  }
+
   DataBlock nextRawBlock(DataBlock reuse) throws IOException {
     if (!hasNextBlock()) {
       throw new NoSuchElementException();
     }
-    if (reuse == null || reuse.data.length < (int) blockSize) {
-      reuse = new DataBlock(blockRemaining, (int) blockSize);
+    ByteBuffer slice = codec.acceptsDirectBuffers() ? sliceRawBlock((int) blockSize) : null;
+    if (slice != null) {
+      reuse = new DataBlock(slice, blockRemaining);
     } else {
-      reuse.numEntries = blockRemaining;
-      reuse.blockSize = (int) blockSize;
+      if (reuse == null) {
+        reuse = new DataBlock(allocate((int) blockSize), blockRemaining, (int) blockSize);
+      } else {
+        if (reuse.data == null || reuse.data.length < (int) blockSize) {
+          if (reuse.data != null) {
+            recycle(ByteBuffer.wrap(reuse.data));
+          }
+          reuse.data = allocate((int) blockSize);
+        }
+        reuse.numEntries = blockRemaining;
+        reuse.blockSize = (int) blockSize;
+        reuse.offset = 0;
+        reuse.view = null;
+      }
+      // throws if it can't read the size requested
+      vin.readFixed(reuse.data, 0, reuse.blockSize);
     }
-    // throws if it can't read the size requested
-    vin.readFixed(reuse.data, 0, reuse.blockSize);
+    readSync();
+    return reuse;
+  }
+
+  private void readSync() throws IOException {
     vin.readFixed(syncBuffer);
     availableBlock = false;
     if (!Arrays.equals(syncBuffer, header.sync))
@@ -334,7 +537,142 @@ public class DataFileStream<D> implements Iterator<D>, Iterable<D>, Closeable {
           + "file header's sync marker. This likely indicates data corruption, truncated file, "
           + "or incorrectly concatenated Avro files. Verify file integrity and ensure proper "
           + "file transmission or creation.");
-    return reuse;
+  }
+
+  /**
+   * Advances to the next block decoded on {@link #decodeExecutor}, topping up
+   * the blocks read ahead first.
+   */
+  private boolean hasNextDecoded() throws IOException {
+    if (blockRemaining == 0) {
+      decodedRecords = null;
+      if (currentBlock != null) {
+        currentBlock.recycleBuffers();
+        currentBlock = null;
+      }
+      readAhead();
+      PendingBlock head = pendingBlocks.poll();
+      if (head != null) {
+        currentBlock = head;
+        readAhead();
+        decodedRecords = head.task.await();
+        decodedIndex = 0;
+        decodedBlockEnd = head.end;
+        blockBuffer = head.data;
+        blockSize = head.blockSize;
+        blockCount = head.numEntries;
+        blockRemaining = head.numEntries;
+      }
+    }
+    return blockRemaining != 0;
+  }
+
+  private void readAhead() throws IOException {
+    while (pendingBlocks.size() < maxPendingBlocks && hasNextBlock()) {
+      if (skipFilteredBlock()) {
+        continue;
+      }
+      long size = blockSize;
+      DataBlock raw = nextRawBlock(null);
+      if (raw.numEntries == 0) {
+        continue; // holds no records, e.g. a block index
+      }
+      PendingBlock pending = new PendingBlock(raw, size, rawBlockEnd());
+      pendingBlocks.add(pending);
+      pending.task.submitTo(decodeExecutor);
+    }
+  }
+
+  /**
+   * Discards the blocks read ahead. Called when the underlying input is
+   * repositioned.
+   */
+  void cancelReadAhead() {
+    for (PendingBlock pending : pendingBlocks) {
+      pending.task.cancel(false);
+    }
+    pendingBlocks.clear();
+    decodedRecords = null;
+    decodedBlockEnd = -1;
+    currentBlock = null;
+  }
+
+  /**
+   * Return the payload of the next raw block without copying it, skipping past
+   * it in the input, or null if the input can not provide such a view.
+   */
+  ByteBuffer sliceRawBlock(int length) throws IOException {
+    return null;
+  }
+
+  /**
+   * Return the statistics stored for the block starting at a position, or null
+   * if there are none.
+   */
+  BlockStatistics blockStatistics(long blockStart) throws IOException {
+    return null;
+  }
+
+  /**
+   * Return the position just past the last raw block read from the input, or -1
+   * if the input is not seekable.
+   */
+  long rawBlockEnd() throws IOException {
+    return -1;
+  }
+
+  /** Decompresses and decodes a raw block on {@link #decodeExecutor}. */
+  private final class PendingBlock implements Callable<List<D>> {
+    private final BackgroundTask<List<D>> task = new BackgroundTask<>(this, "decoding block");
+    private final DataBlock raw;
+    private final long numEntries;
+    private final long blockSize;
+    private final long end;
+    private ByteBuffer data; // published by task.get()
+
+    PendingBlock(DataBlock raw, long blockSize, long end) {
+      this.raw = raw;
+      this.numEntries = raw.numEntries;
+      this.blockSize = blockSize;
+      this.end = end;
+    }
+
+    @Override
+    public List<D> call() throws IOException {
+      Codec c = idleCodecs.poll();
+      if (c == null) {
+        c = resolveCodec();
+      }
+      ByteBuffer reuse = bufferPool != null ? bufferPool.acquire(decompressedSizeHint) : null;
+      try {
+        data = raw.decompressedUsing(c, reuse);
+      } finally {
+        idleCodecs.offer(c);
+      }
+      if (reuse != null && (!data.hasArray() || data.array() != reuse.array())) {
+        recycle(reuse); // the codec needed a larger buffer
+      }
+      decompressedSizeHint = data.remaining();
+      BinaryDecoder in = decoderFor(data, null);
+      List<D> records = new ArrayList<>();
+      for (long i = 0; i < numEntries; i++) {
+        records.add(reader.read(null, in));
+      }
+      if (!in.isEnd()) {
+        throw new IOException("Block read partially, the data may be corrupt");
+      }
+      return records;
+    }
+
+    /** Hand the buffers of this block back to the pool once it is consumed. */
+    void recycleBuffers() {
+      if (raw.data != null) {
+        recycle(ByteBuffer.wrap(raw.data));
+      }
+      if (data != null && data.hasArray() && data.array() != raw.data) {
+        recycle(data);
+      }
+    }
   }
 
   /** Not supported. */
@@ -346,53 +684,96 @@ public class DataFileStream<D> implements Iterator<D>, Iterable<D>, Closeable {
   /** Close this reader. */
   @Override
   public void close() throws IOException {
+    cancelReadAhead();
     vin.inputStream().close();
   }
 
   static class DataBlock {
     private byte[] data;
+    private ByteBuffer view; // set instead of data for blocks without an array
     private long numEntries;
     private int blockSize;
     private int offset = 0;
     private boolean flushOnWrite = true;
 
-    private DataBlock(long numEntries, int blockSize) {
-      this.data = new byte[blockSize];
+    private DataBlock(byte[] data, long numEntries, int blockSize) {
+      this.data = data;
       this.numEntries = numEntries;
       this.blockSize = blockSize;
     }
 
     DataBlock(ByteBuffer block, long numEntries) {
-      this.data = block.array();
-      this.blockSize = block.remaining();
-      this.offset = block.arrayOffset() + block.position();
+      setData(block);
       this.numEntries = numEntries;
     }
 
+    long getNumEntries() {
+      return numEntries;
+    }
+
     void setFlushOnWrite(boolean flushOnWrite) {
       this.flushOnWrite = flushOnWrite;
     }
 
     ByteBuffer getAsByteBuffer() {
+      if (view != null) {
+        return view.duplicate();
+      }
       return ByteBuffer.wrap(data, offset, blockSize);
     }
 
+    private void setData(ByteBuffer block) {
+      if (block.hasArray()) {
+        this.data = block.array();
+        this.offset = block.arrayOffset() + block.position();
+        this.view = null;
+      } else {
+        this.data = null;
+        this.offset = 0;
+        this.view = block;
+      }
+      this.blockSize = block.remaining();
+    }
+
+    // codecs that need an array get a heap copy of a mapped block
+    private ByteBuffer getAsByteBufferFor(Codec c) {
+      if (view == null || c.acceptsDirectBuffers()) {
+        return getAsByteBuffer();
+      }
+      byte[] copy = new byte[blockSize];
+      view.duplicate().get(copy);
+      return ByteBuffer.wrap(copy);
+    }
+
     void decompressUsing(Codec c) throws IOException {
-      ByteBuffer result = c.decompress(getAsByteBuffer());
-      data = result.array();
-      blockSize = result.remaining();
+      setData(c.decompress(getAsByteBufferFor(c)));
+    }
+
+    /**
+     * Return the decompressed data without changing this block, in reuse if the
+     * codec can write to it.
+     */
+    ByteBuffer decompressedUsing(Codec c, ByteBuffer reuse) throws IOException {
+      return c.decompress(getAsByteBufferFor(c), reuse);
     }
 
     void compressUsing(Codec c) throws IOException {
-      ByteBuffer result = c.compress(getAsByteBuffer());
-      data = result.array();
-      blockSize = result.remaining();
+      setData(c.compress(getAsByteBufferFor(c)));
+    }
+
+    /** Compress the data of this block, into reuse if the codec can write to it. */
+    void compressUsing(Codec c, ByteBuffer reuse) throws IOException {
+      setData(c.compress(getAsByteBufferFor(c), reuse));
     }
 
     void writeBlockTo(BinaryEncoder e, byte[] sync) throws IOException {
       e.writeLong(this.numEntries);
       e.writeLong(this.blockSize);
-      e.writeFixed(this.data, offset, this.blockSize);
+      if (view != null) {
+        e.writeFixed(view.duplicate());
+      } else {
+        e.writeFixed(this.data, offset, this.blockSize);
+      }
       e.writeFixed(sync);
       if (flushOnWrite) {
         e.flush();
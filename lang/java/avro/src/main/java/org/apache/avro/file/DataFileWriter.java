@@ -20,7 +20,9 @@ package org.apache.avro.file;
 import org.apache.avro.AvroRuntimeException;
 import org.apache.avro.Schema;
 import org.apache.avro.file.DataFileStream.DataBlock;
+import org.apache.avro.generic.GenericData;
 import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
 import org.apache.avro.io.BinaryEncoder;
 import org.apache.avro.io.DatumWriter;
 import org.apache.avro.io.EncoderFactory;
@@ -35,11 +37,18 @@ import java.io.FilterOutputStream;
 import java.io.Flushable;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.Buffer;
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.security.SecureRandom;
+import java.util.ArrayDeque;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
 import java.util.function.Function;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
@@ -77,9 +86,35 @@ public class DataFileWriter<D> implements Closeable, Flushable {
 
   private boolean isOpen;
   private Codec codec;
+  private CodecFactory codecFactory;
+
+  /** Executor compressing sealed blocks, or null to compress inline. */
+  private Executor compressExecutor;
+  private int maxPendingBlocks;
+  private final Queue<PendingBlock> pendingBlocks = new ArrayDeque<>();
+  /** Codec instances not currently used by a compression task. */
+  private final Queue<Codec> idleCodecs = new ConcurrentLinkedQueue<>();
 
   private boolean flushOnEveryBlock = true;
 
+  private BlockBufferPool bufferPool;
+  /** The last compressed block, whose buffer is reused for the next. */
+  private ByteBuffer compressBuffer;
+
+  private boolean blockIndexEnabled;
+  /** Offsets of the blocks written so far, or null if no index is written. */
+  private BlockIndex blockIndex;
+  /** File position of the first byte written to out. */
+  private long positionBase;
+  private List<String> statisticsFields = Collections.emptyList();
+  /** Statistics of the current block, or null if none are collected. */
+  private BlockStatistics blockStatistics;
+  /** Whether the current block holds records appended without statistics. */
+  private boolean blockStatisticsUnknown;
+  private int[] statisticsPositions;
+  private Object[] statisticsValues;
+  private GenericData statisticsData;
+
   /** Construct a writer, not yet open. */
   public DataFileWriter(DatumWriter<D> dout) {
     this.dout = dout;
@@ -101,8 +136,90 @@ public class DataFileWriter<D> implements Closeable, Flushable {
    */
   public DataFileWriter<D> setCodec(CodecFactory c) {
     assertNotOpen();
+    this.codecFactory = c;
     this.codec = c.createInstance();
     setMetaInternal(DataFileConstants.CODEC, codec.getName());
+    byte[] dictionary = codec instanceof ZstandardCodec ? ((ZstandardCodec) codec).getDictionary() : null;
+    if (dictionary != null) {
+      setMetaInternal(DataFileConstants.ZSTANDARD_DICTIONARY, dictionary);
+    } else {
+      meta.remove(DataFileConstants.ZSTANDARD_DICTIONARY);
+    }
+    return this;
+  }
+
+  /**
+   * Configures this writer to compress blocks on the given executor. Once a block
+   * is full its bytes are handed to the executor, and {@link #append(Object)}
+   * continues encoding into a fresh block while up to {@code maxPendingBlocks}
+   * blocks are compressed in parallel. Compressed blocks are written to the
+   * output in order by the appending thread, and {@link #sync()},
+   * {@link #flush()} and {@link #close()} wait for all pending blocks. May not be
+   * reset after writes have begun.
+   *
+   * @param executor         runs the compression of each block, or null to
+   *                         compress on the appending thread
+   * @param maxPendingBlocks the number of blocks compressed concurrently, at
+   *                         least 1
+   * @return this DataFileWriter
+   */
+  public DataFileWriter<D> setParallelCompression(Executor executor, int maxPendingBlocks) {
+    assertNotOpen();
+    if (executor != null && maxPendingBlocks < 1) {
+      throw new IllegalArgumentException("Invalid maxPendingBlocks value: " + maxPendingBlocks);
+    }
+    this.compressExecutor = executor;
+    this.maxPendingBlocks = maxPendingBlocks;
+    return this;
+  }
+
+  /**
+   * Take the copies of blocks handed to the compression executor set with
+   * {@link #setParallelCompression(Executor, int)} from a pool, and hand them and
+   * the compressed blocks back once written. Has no effect otherwise. May not be
+   * reset after writes have begun.
+   *
+   * @param pool the pool to use, or null
+   * @return this DataFileWriter
+   */
+  public DataFileWriter<D> setBufferPool(BlockBufferPool pool) {
+    assertNotOpen();
+    this.bufferPool = pool;
+    return this;
+  }
+
+  /**
+   * Configures this writer to end the file with an index of its blocks, letting
+   * {@link DataFileReader#seekToRow(long)} jump to a record without scanning the
+   * file. The index is stored in a final block holding no records, which readers
+   * not aware of it skip. When appending to an existing file the setting of that
+   * file is kept. May not be reset after writes have begun.
+   *
+   * @param enabled whether to write a block index on {@link #close()}
+   * @return this DataFileWriter
+   */
+  public DataFileWriter<D> setBlockIndexEnabled(boolean enabled) {
+    assertNotOpen();
+    this.blockIndexEnabled = enabled;
+    return this;
+  }
+
+  /**
+   * Configures this writer to collect {@link BlockStatistics} for the given
+   * top-level fields and store them in the block index, which this enables.
+   * Readers use them to skip blocks ruled out by a {@link BlockFilter}. Records
+   * added with {@link #appendEncoded(ByteBuffer)} or
+   * {@link #appendAllFrom(DataFileStream, boolean)} leave the statistics of
+   * their blocks unknown. When appending to an existing file the fields of that
+   * file are kept. May not be reset after writes have begun.
+   *
+   * @param fields the names of fields of a primitive type other than bytes, or
+   *               of an enum, optionally in a union with null
+   * @return this DataFileWriter
+   */
+  public DataFileWriter<D> setBlockStatistics(String... fields) {
+    assertNotOpen();
+    this.statisticsFields = BlockStatistics.fieldList(fields);
     return this;
   }
 
@@ -170,8 +287,20 @@ public class DataFileWriter<D> implements Closeable, Flushable {
     } else {
       throw new IOException("sync must be exactly 16 bytes");
     }
+    if (blockIndexEnabled || !statisticsFields.isEmpty()) {
+      setMetaInternal(DataFileConstants.BLOCK_INDEX, DataFileConstants.TRAILING_BLOCK_INDEX);
+      this.blockIndex = new BlockIndex();
+      if (!statisticsFields.isEmpty()) {
+        blockIndex.setStatisticsFields(statisticsFields, BlockStatistics.typesOf(schema, statisticsFields));
+      }
+    } else {
+      meta.remove(DataFileConstants.BLOCK_INDEX);
+      this.blockIndex = null;
+    }
+    this.positionBase = 0;
 
     init(outs);
+    startStatistics();
 
     vout.writeFixed(DataFileConstants.MAGIC); // write magic
 
@@ -224,6 +353,12 @@ public class DataFileWriter<D> implements Closeable, Flushable {
    * Open a writer appending to an existing file. <strong>Since 1.9.0 this method
    * does not close in.</strong>
    *
+   * <p/>
+   * If the file ends with a block index, out must be a {@link FileOutputStream}
+   * so that the old index can be truncated and replaced by one covering the old
+   * and new blocks when this writer is closed. Other streams are refused, as
+   * readers would stop at the old index and miss the appended records.
+   *
    * @param in  reading the existing file.
    * @param out positioned at the end of the existing file.
    */
@@ -236,12 +371,34 @@ public class DataFileWriter<D> implements Closeable, Flushable {
     byte[] codecBytes = this.meta.get(DataFileConstants.CODEC);
     if (codecBytes != null) {
       String strCodec = new String(codecBytes, StandardCharsets.UTF_8);
-      this.codec = CodecFactory.fromString(strCodec).createInstance();
+      this.codecFactory = CodecFactory.fromString(strCodec);
+      byte[] dictionary = this.meta.get(DataFileConstants.ZSTANDARD_DICTIONARY);
+      if (dictionary != null && DataFileConstants.ZSTANDARD_CODEC.equals(strCodec)) {
+        this.codecFactory = CodecFactory.zstandardCodec(CodecFactory.DEFAULT_ZSTANDARD_LEVEL, false,
+            CodecFactory.DEFAULT_ZSTANDARD_BUFFERPOOL, dictionary);
+      }
+    } else {
+      this.codecFactory = CodecFactory.nullCodec();
+    }
+    this.codec = codecFactory.createInstance();
+    this.positionBase = in.length();
+    if (DataFileConstants.TRAILING_BLOCK_INDEX.equals(reader.getMetaString(DataFileConstants.BLOCK_INDEX))) {
+      this.blockIndex = reader.getBlockIndex();
+      if (blockIndex.getEnd() < positionBase) {
+        if (!(out instanceof FileOutputStream)) {
+          throw new IOException("Cannot append to a file ending with a block index through "
+              + out.getClass().getName() + ", as the index cannot be truncated");
+        }
+        // drop the old index, close() writes one covering the old and new blocks
+        ((FileOutputStream) out).getChannel().truncate(blockIndex.getEnd());
+        this.positionBase = blockIndex.getEnd();
+      }
     } else {
-      this.codec = CodecFactory.nullCodec().createInstance();
+      this.blockIndex = null;
     }
 
     init(out);
+    startStatistics();
 
     return this;
   }
@@ -258,11 +415,46 @@ public class DataFileWriter<D> implements Closeable, Flushable {
     buffer = new NonCopyingByteArrayOutputStream(maxBlockSize());
     this.bufOut = this.initEncoder.apply(buffer);
     if (this.codec == null) {
-      this.codec = CodecFactory.nullCodec().createInstance();
+      this.codecFactory = CodecFactory.nullCodec();
+      this.codec = codecFactory.createInstance();
     }
     this.isOpen = true;
   }
 
+  private void startStatistics() {
+    this.blockStatistics = null;
+    this.blockStatisticsUnknown = false;
+    if (blockIndex == null || blockIndex.getStatisticsFields().isEmpty()) {
+      return;
+    }
+    List<String> fields = blockIndex.getStatisticsFields();
+    this.statisticsPositions = new int[fields.size()];
+    for (int i = 0; i < statisticsPositions.length; i++) {
+      statisticsPositions[i] = schema.getField(fields.get(i)).pos();
+    }
+    this.statisticsValues = new Object[fields.size()];
+    this.statisticsData = dout instanceof GenericDatumWriter ? ((GenericDatumWriter<?>) dout).getData()
+        : GenericData.get();
+    this.blockStatistics = new BlockStatistics(fields, blockIndex.getStatisticsTypes());
+  }
+
+  /** Read the values of a datum to collect, failing before any is added. */
+  private void readStatistics(D datum) {
+    List<String> fields = blockStatistics.getFields();
+    for (int i = 0; i < statisticsPositions.length; i++) {
+      Object value = statisticsData.getField(datum, fields.get(i), statisticsPositions[i]);
+      statisticsValues[i] = blockStatistics.rawValue(i, value, statisticsData);
+    }
+  }
+
+  private void collectStatistics() {
+    for (int i = 0; i < statisticsValues.length; i++) {
+      blockStatistics.add(i, statisticsValues[i]);
+      statisticsValues[i] = null;
+    }
+    blockStatistics.addRecord();
+  }
+
   /**
    * Returns the estimated maximum compressed block size. Blocks are flushed when
    * uncompressed data reaches {@link #syncInterval}, but compression may increase
@@ -335,11 +527,17 @@ public class DataFileWriter<D> implements Closeable, Flushable {
     int usedBuffer = bufferInUse();
     try {
       dout.write(datum, bufOut);
+      if (blockStatistics != null) {
+        readStatistics(datum);
+      }
     } catch (IOException | RuntimeException e) {
       resetBufferTo(usedBuffer);
       throw new AppendWriteException(e);
     }
     blockCount++;
+    if (blockStatistics != null) {
+      collectStatistics();
+    }
     writeIfBlockFull();
   }
 
@@ -362,6 +560,7 @@ public class DataFileWriter<D> implements Closeable, Flushable {
     assertOpen();
     bufOut.writeFixed(datum);
     blockCount++;
+    blockStatisticsUnknown = true;
     writeIfBlockFull();
   }
 
@@ -402,40 +601,148 @@ public class DataFileWriter<D> implements Closeable, Flushable {
     }
     // flush anything written so far
     writeBlock();
+    writePendingBlocks();
     Codec otherCodec = otherFile.resolveCodec();
     DataBlock nextBlockRaw = null;
     if (codec.equals(otherCodec) && !recompress) {
       // copy raw bytes
       while (otherFile.hasNextBlock()) {
         nextBlockRaw = otherFile.nextRawBlock(nextBlockRaw);
-        nextBlockRaw.writeBlockTo(vout, sync);
+        if (nextBlockRaw.getNumEntries() > 0) {
+          writeDataBlock(nextBlockRaw, null);
+        }
       }
     } else {
       while (otherFile.hasNextBlock()) {
         nextBlockRaw = otherFile.nextRawBlock(nextBlockRaw);
-        nextBlockRaw.decompressUsing(otherCodec);
-        nextBlockRaw.compressUsing(codec);
-        nextBlockRaw.writeBlockTo(vout, sync);
+        if (nextBlockRaw.getNumEntries() > 0) {
+          nextBlockRaw.decompressUsing(otherCodec);
+          nextBlockRaw.compressUsing(codec);
+          writeDataBlock(nextBlockRaw, null);
+        }
       }
     }
   }
 
   private void writeBlock() throws IOException {
     if (blockCount > 0) {
+      BlockStatistics statistics = blockStatisticsUnknown ? null : blockStatistics;
       try {
         bufOut.flush();
-        ByteBuffer uncompressed = buffer.asByteBuffer();
-        DataBlock block = new DataBlock(uncompressed, blockCount);
-        block.setFlushOnWrite(flushOnEveryBlock);
-        block.compressUsing(codec);
-        block.writeBlockTo(vout, sync);
+        if (compressExecutor != null) {
+          // the buffer is reused for the next block, so hand over a copy
+          submitBlock(new DataBlock(copyOfBuffer(), blockCount), statistics);
+        } else {
+          ByteBuffer uncompressed = buffer.asByteBuffer();
+          DataBlock block = new DataBlock(uncompressed, blockCount);
+          block.setFlushOnWrite(flushOnEveryBlock);
+          block.compressUsing(codec, compressBuffer);
+          ByteBuffer compressed = block.getAsByteBuffer();
+          if (compressed.hasArray() && compressed.array() != uncompressed.array()) {
+            compressBuffer = compressed;
+          }
+          writeDataBlock(block, statistics);
+        }
       } finally {
         buffer.reset();
         blockCount = 0;
+        if (blockStatistics != null) {
+          blockStatistics = new BlockStatistics(blockStatistics.getFields(), blockIndex.getStatisticsTypes());
+          blockStatisticsUnknown = false;
+        }
       }
     }
   }
 
+  private ByteBuffer copyOfBuffer() {
+    if (bufferPool == null) {
+      return ByteBuffer.wrap(buffer.toByteArray());
+    }
+    ByteBuffer copy = bufferPool.acquire(buffer.size());
+    copy.put(buffer.asByteBuffer());
+    ((Buffer) copy).flip();
+    return copy;
+  }
+
+  private void writeDataBlock(DataBlock block, BlockStatistics statistics) throws IOException {
+    if (blockIndex != null) {
+      blockIndex.add(positionBase + out.tell(), block.getNumEntries(), statistics);
+    }
+    block.writeBlockTo(vout, sync);
+  }
+
+  private void submitBlock(DataBlock block, BlockStatistics statistics) throws IOException {
+    while (pendingBlocks.size() >= maxPendingBlocks) {
+      writePendingBlock();
+    }
+    block.setFlushOnWrite(flushOnEveryBlock);
+    PendingBlock pending = new PendingBlock(block, statistics);
+    pendingBlocks.add(pending);
+    pending.task.submitTo(compressExecutor);
+    // emit whatever has completed so far, without waiting
+    while (!pendingBlocks.isEmpty() && pendingBlocks.peek().task.isDone()) {
+      writePendingBlock();
+    }
+  }
+
+  /** Waits for all blocks being compressed and writes them in order. */
+  private void writePendingBlocks() throws IOException {
+    while (!pendingBlocks.isEmpty()) {
+      writePendingBlock();
+    }
+  }
+
+  private void writePendingBlock() throws IOException {
+    PendingBlock pending = pendingBlocks.poll();
+    try {
+      DataBlock block = pending.task.await();
+      writeDataBlock(block, pending.statistics);
+      if (bufferPool != null) {
+        bufferPool.release(block.getAsByteBuffer());
+      }
+    } catch (IOException | RuntimeException | Error e) {
+      // later blocks can not be written without leaving a gap in the file
+      for (PendingBlock p : pendingBlocks) {
+        p.task.cancel(false);
+      }
+      pendingBlocks.clear();
+      throw e;
+    }
+  }
+
+  /** Compresses a sealed block on {@link #compressExecutor}. */
+  private final class PendingBlock {
+    private final BackgroundTask<DataBlock> task;
+    private final BlockStatistics statistics;
+
+    PendingBlock(DataBlock block, BlockStatistics statistics) {
+      this.statistics = statistics;
+      this.task = new BackgroundTask<>(() -> {
+        Codec c = idleCodecs.poll();
+        if (c == null) {
+          c = codecFactory.createInstance();
+        }
+        ByteBuffer uncompressed = block.getAsByteBuffer();
+        ByteBuffer reuse = bufferPool != null ? bufferPool.acquire(uncompressed.remaining()) : null;
+        try {
+          block.compressUsing(c, reuse);
+        } finally {
+          idleCodecs.offer(c);
+        }
+        if (bufferPool != null) {
+          byte[] compressed = block.getAsByteBuffer().array();
+          if (compressed != uncompressed.array()) {
+            bufferPool.release(uncompressed);
+          }
+          if (compressed != reuse.array()) {
+            bufferPool.release(reuse);
+          }
+        }
+        return block;
+      }, "compressing block");
+    }
+  }
+
   /**
    * Return the current position as a value that may be passed to
    * {@link DataFileReader#seek(long)}. Forces the end of the current block,
@@ -449,6 +756,7 @@ public class DataFileWriter<D> implements Closeable, Flushable {
   public long sync() throws IOException {
     assertOpen();
     writeBlock();
+    writePendingBlocks();
     return out.tell();
   }
 
@@ -483,11 +791,21 @@ public class DataFileWriter<D> implements Closeable, Flushable {
   public void close() throws IOException {
     if (isOpen) {
       flush();
+      if (blockIndex != null) {
+        writeBlockIndex();
+      }
       out.close();
       isOpen = false;
     }
   }
 
+  /** Ends the file with a block holding no records whose payload is the index. */
+  private void writeBlockIndex() throws IOException {
+    DataBlock block = new DataBlock(blockIndex.encode(), 0);
+    block.compressUsing(codec);
+    block.writeBlockTo(vout, sync);
+  }
+
   private static class BufferedFileOutputStream extends BufferedOutputStream {
     private long position; // start of buffer
 
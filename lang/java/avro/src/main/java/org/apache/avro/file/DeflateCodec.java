@@ -18,16 +18,11 @@
 package org.apache.avro.file;
 
 import java.io.IOException;
-import java.io.OutputStream;
 import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
 import java.util.zip.Deflater;
-import java.util.zip.DeflaterOutputStream;
 import java.util.zip.Inflater;
-import java.util.zip.InflaterOutputStream;
-
-import org.apache.avro.util.NonCopyingByteArrayOutputStream;
-
-import static org.apache.avro.util.NonCopyingByteArrayOutputStream.capacityLimitedOutputStream;
 
 /**
  * Implements DEFLATE (RFC1951) compression and decompression.
@@ -56,6 +51,8 @@ public class DeflateCodec extends Codec {
 
   private Deflater deflater;
   private Inflater inflater;
+  /** Holds compressed blocks when the caller has no buffer to reuse. */
+  private byte[] compressBuffer;
   // currently only do 'nowrap' -- RFC 1951, not zlib
   private final boolean nowrap = true;
   private final int compressionLevel;
@@ -71,20 +68,67 @@ public class DeflateCodec extends Codec {
 
   @Override
   public ByteBuffer compress(ByteBuffer data) throws IOException {
-    NonCopyingByteArrayOutputStream baos = new NonCopyingByteArrayOutputStream(DEFAULT_BUFFER_SIZE);
-    try (OutputStream outputStream = new DeflaterOutputStream(baos, getDeflater())) {
-      outputStream.write(data.array(), computeOffset(data), data.remaining());
+    return compress(data, null);
+  }
+
+  @Override
+  public ByteBuffer compress(ByteBuffer data, ByteBuffer reuse) throws IOException {
+    Deflater deflater = getDeflater();
+    int length = data.remaining();
+    deflater.setInput(data.array(), computeOffset(data), length);
+    deflater.finish();
+    // the bound of zlib's deflateBound(), without the zlib wrapper
+    long bound = length + (length >>> 12) + (length >>> 14) + (length >>> 25) + 13L;
+    int initial = (int) Math.min(bound, Integer.MAX_VALUE - 8);
+    byte[] output;
+    if (reuse != null) {
+      output = outputArray(reuse, initial);
+    } else {
+      if (compressBuffer == null || compressBuffer.length < initial) {
+        compressBuffer = new byte[initial];
+      }
+      output = compressBuffer;
     }
-    return baos.asByteBuffer();
+    int size = 0;
+    while (!deflater.finished()) {
+      if (size == output.length) {
+        output = Arrays.copyOf(output, (int) Math.min(2L * output.length, Integer.MAX_VALUE - 8));
+      }
+      size += deflater.deflate(output, size, output.length - size);
+    }
+    if (reuse == null) {
+      compressBuffer = output;
+      return ByteBuffer.wrap(Arrays.copyOf(output, size));
+    }
+    return ByteBuffer.wrap(output, 0, size);
   }
 
   @Override
   public ByteBuffer decompress(ByteBuffer data) throws IOException {
-    NonCopyingByteArrayOutputStream baos = capacityLimitedOutputStream(DEFAULT_BUFFER_SIZE);
-    try (OutputStream outputStream = new InflaterOutputStream(baos, getInflater())) {
-      outputStream.write(data.array(), computeOffset(data), data.remaining());
+    return decompress(data, null);
+  }
+
+  @Override
+  public ByteBuffer decompress(ByteBuffer data, ByteBuffer reuse) throws IOException {
+    Inflater inflater = getInflater();
+    inflater.setInput(data.array(), computeOffset(data), data.remaining());
+    byte[] output = outputArray(reuse, DEFAULT_BUFFER_SIZE);
+    int size = 0;
+    try {
+      while (!inflater.finished()) {
+        if (size == output.length) {
+          output = grow(output);
+        }
+        int n = inflater.inflate(output, size, output.length - size);
+        if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+          break; // truncated input
+        }
+        size += n;
+      }
+    } catch (DataFormatException e) {
+      throw new IOException(e);
     }
-    return baos.asByteBuffer();
+    return ByteBuffer.wrap(output, 0, size);
   }
 
   // get and initialize the inflater for use.
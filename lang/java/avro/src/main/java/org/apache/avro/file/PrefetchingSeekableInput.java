@@ -0,0 +1,170 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.file;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+
+/**
+ * A {@link SeekableInput} that reads ahead of its position on an executor,
+ * hiding the latency of remote inputs such as files in an object store. The
+ * input is fetched in chunks of a fixed size, and up to a given number of chunks
+ * past the current one are requested in the background, so that a
+ * {@link DataFileReader} decodes one block while the following ones are read.
+ * <p/>
+ * At most {@code chunkSize * maxChunks} bytes are buffered. A seek within the
+ * chunks already requested keeps them; any other seek discards them and starts
+ * reading ahead from the new position. The wrapped input is only used by the
+ * fetching tasks, one at a time, and is closed with this input.
+ */
+public class PrefetchingSeekableInput implements SeekableInput {
+  private final SeekableInput in;
+  private final Executor executor;
+  private final int chunkSize;
+  private final int maxChunks;
+  private final long length;
+  /** Consecutive chunks, the first holding the current position once filled. */
+  private final Queue<Chunk> chunks = new ArrayDeque<>();
+  private long position;
+  /** Start of the next chunk to request. */
+  private long nextChunk;
+
+  /**
+   * Create an input prefetching from another.
+   *
+   * @param in        the input to read ahead of
+   * @param executor  runs the reads of each chunk
+   * @param chunkSize the number of bytes read at once
+   * @param maxChunks the number of chunks requested ahead, at least 1
+   */
+  public PrefetchingSeekableInput(SeekableInput in, Executor executor, int chunkSize, int maxChunks)
+      throws IOException {
+    if (chunkSize < 1) {
+      throw new IllegalArgumentException("Invalid chunkSize value: " + chunkSize);
+    }
+    if (maxChunks < 1) {
+      throw new IllegalArgumentException("Invalid maxChunks value: " + maxChunks);
+    }
+    this.in = in;
+    this.executor = executor;
+    this.chunkSize = chunkSize;
+    this.maxChunks = maxChunks;
+    this.length = in.length();
+    this.position = in.tell();
+    this.nextChunk = position;
+  }
+
+  @Override
+  public void seek(long p) throws IOException {
+    if (p < 0 || p > length) {
+      throw new EOFException("Illegal seek: " + p);
+    }
+    while (!chunks.isEmpty() && chunks.peek().end <= p) {
+      chunks.poll().task.cancel(false);
+    }
+    if (chunks.isEmpty() ? p != nextChunk : chunks.peek().start > p) {
+      cancel();
+      nextChunk = p;
+    }
+    position = p;
+  }
+
+  @Override
+  public long tell() throws IOException {
+    return position;
+  }
+
+  @Override
+  public long length() throws IOException {
+    return length;
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException {
+    if (len == 0) {
+      return 0;
+    }
+    if (position >= length) {
+      return -1;
+    }
+    requestChunks();
+    Chunk chunk = chunks.peek();
+    byte[] data = chunk.task.await();
+    int n = (int) Math.min(len, chunk.end - position);
+    System.arraycopy(data, (int) (position - chunk.start), b, off, n);
+    position += n;
+    if (position == chunk.end) {
+      chunks.poll();
+      requestChunks();
+    }
+    return n;
+  }
+
+  private void requestChunks() {
+    while (chunks.size() < maxChunks && nextChunk < length) {
+      Chunk chunk = new Chunk(nextChunk, Math.min(length, nextChunk + chunkSize));
+      chunks.add(chunk);
+      nextChunk = chunk.end;
+      chunk.task.submitTo(executor);
+    }
+  }
+
+  private void cancel() {
+    for (Chunk chunk : chunks) {
+      chunk.task.cancel(false);
+    }
+    chunks.clear();
+  }
+
+  @Override
+  public void close() throws IOException {
+    cancel();
+    synchronized (in) {
+      in.close();
+    }
+  }
+
+  /** The bytes from start to end of the input, read on the executor. */
+  private final class Chunk {
+    private final long start;
+    private final long end;
+    private final BackgroundTask<byte[]> task;
+
+    Chunk(long start, long end) {
+      this.start = start;
+      this.end = end;
+      this.task = new BackgroundTask<>(() -> {
+        byte[] data = new byte[(int) (end - start)];
+        synchronized (in) {
+          in.seek(start);
+          for (int off = 0; off < data.length;) {
+            int n = in.read(data, off, data.length - off);
+            if (n < 0) {
+              throw new EOFException("Unexpected end of input at " + (start + off));
+            }
+            off += n;
+          }
+        }
+        return data;
+      }, "reading ahead");
+    }
+  }
+}
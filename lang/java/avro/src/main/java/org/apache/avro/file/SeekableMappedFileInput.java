@@ -0,0 +1,145 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.file;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A {@link SeekableInput} over a memory-mapped local file. Reads are served
+ * from the page cache without a system call, and {@link DataFileReader} uses
+ * {@link #slice(long, int)} to decode blocks of files without compression in
+ * place instead of copying each block to the heap.
+ * <p/>
+ * Files larger than 1GB are mapped in several regions. The mappings are
+ * released by the garbage collector once this input and all slices handed out
+ * are unreachable, not by {@link #close()}.
+ */
+public class SeekableMappedFileInput implements SeekableInput {
+  private static final int DEFAULT_REGION_SIZE = 1 << 30;
+
+  private final FileChannel channel;
+  private final MappedByteBuffer[] regions;
+  private final int regionSize;
+  private final long length;
+  private long position;
+
+  public SeekableMappedFileInput(File file) throws IOException {
+    this(file, DEFAULT_REGION_SIZE);
+  }
+
+  SeekableMappedFileInput(File file, int regionSize) throws IOException {
+    this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+    try {
+      this.regionSize = regionSize;
+      this.length = channel.size();
+      this.regions = new MappedByteBuffer[(int) ((length + regionSize - 1) / regionSize)];
+      for (int i = 0; i < regions.length; i++) {
+        long start = (long) i * regionSize;
+        regions[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(regionSize, length - start));
+      }
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  @Override
+  public void seek(long p) throws IOException {
+    if (p < 0 || p > length) {
+      throw new EOFException("Illegal seek: " + p);
+    }
+    this.position = p;
+  }
+
+  @Override
+  public long tell() throws IOException {
+    return position;
+  }
+
+  @Override
+  public long length() throws IOException {
+    return length;
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException {
+    if (len == 0) {
+      return 0;
+    }
+    if (position >= length) {
+      return -1;
+    }
+    int n = (int) Math.min(len, length - position);
+    copy(position, b, off, n);
+    position += n;
+    return n;
+  }
+
+  /**
+   * Return the {@code length} bytes starting at {@code position}, without
+   * changing the current position. The result is a read-only view of the mapped
+   * memory, unless the range crosses a region boundary, in which case the bytes
+   * are copied to a heap buffer.
+   *
+   * @throws EOFException if the range extends past the end of the file
+   */
+  public ByteBuffer slice(long position, int length) throws IOException {
+    if (position < 0 || length < 0 || position + length > this.length) {
+      throw new EOFException("Cannot read " + length + " bytes at " + position + " from a file of " + this.length);
+    }
+    if (length == 0) {
+      return ByteBuffer.allocate(0);
+    }
+    int region = (int) (position / regionSize);
+    int offset = (int) (position % regionSize);
+    if ((long) offset + length <= regions[region].limit()) {
+      ByteBuffer view = regions[region].duplicate();
+      ((Buffer) view).position(offset);
+      ((Buffer) view).limit(offset + length);
+      return view.slice().asReadOnlyBuffer();
+    }
+    byte[] copy = new byte[length];
+    copy(position, copy, 0, length);
+    return ByteBuffer.wrap(copy);
+  }
+
+  private void copy(long from, byte[] b, int off, int len) {
+    while (len > 0) {
+      ByteBuffer region = regions[(int) (from / regionSize)];
+      int offset = (int) (from % regionSize);
+      int n = Math.min(len, region.limit() - offset);
+      ((Buffer) region).position(offset);
+      region.get(b, off, n);
+      from += n;
+      off += n;
+      len -= n;
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+}
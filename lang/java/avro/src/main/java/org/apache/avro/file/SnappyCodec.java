@@ -53,8 +53,13 @@ public class SnappyCodec extends Codec {
 
   @Override
   public ByteBuffer compress(ByteBuffer in) throws IOException {
+    return compress(in, null);
+  }
+
+  @Override
+  public ByteBuffer compress(ByteBuffer in, ByteBuffer reuse) throws IOException {
     int offset = computeOffset(in);
-    ByteBuffer out = ByteBuffer.allocate(Snappy.maxCompressedLength(in.remaining()) + 4);
+    ByteBuffer out = ByteBuffer.wrap(outputArray(reuse, Snappy.maxCompressedLength(in.remaining()) + 4));
     int size = Snappy.compress(in.array(), offset, in.remaining(), out.array(), 0);
     crc32.reset();
     crc32.update(in.array(), offset, in.remaining());
@@ -67,19 +72,23 @@ public class SnappyCodec extends Codec {
 
   @Override
   public ByteBuffer decompress(ByteBuffer in) throws IOException {
+    return decompress(in, null);
+  }
+
+  @Override
+  public ByteBuffer decompress(ByteBuffer in, ByteBuffer reuse) throws IOException {
     int offset = computeOffset(in);
     final int uncompressedLength = Snappy.uncompressedLength(in.array(), offset, in.remaining() - 4);
     SystemLimitException.checkMaxDecompressCapacity(SystemLimitException.MAX_DECOMPRESS_LENGTH, 0, uncompressedLength);
-    ByteBuffer out = ByteBuffer.allocate(uncompressedLength);
-    int size = Snappy.uncompress(in.array(), offset, in.remaining() - 4, out.array(), 0);
-    ((Buffer) out).limit(size);
+    byte[] out = outputArray(reuse, uncompressedLength);
+    int size = Snappy.uncompress(in.array(), offset, in.remaining() - 4, out, 0);
 
     crc32.reset();
-    crc32.update(out.array(), 0, size);
+    crc32.update(out, 0, size);
     if (in.getInt(in.limit() - 4) != (int) crc32.getValue())
       throw new IOException("Checksum failure");
 
-    return out;
+    return ByteBuffer.wrap(out, 0, size);
   }
 
   @Override
@@ -67,14 +67,16 @@ public class XZCodec extends Codec {
 
   @Override
   public ByteBuffer decompress(ByteBuffer data) throws IOException {
-    NonCopyingByteArrayOutputStream baos = NonCopyingByteArrayOutputStream
-        .capacityLimitedOutputStream(DEFAULT_BUFFER_SIZE);
+    return decompress(data, null);
+  }
+
+  @Override
+  public ByteBuffer decompress(ByteBuffer data, ByteBuffer reuse) throws IOException {
     InputStream bytesIn = new ByteArrayInputStream(data.array(), computeOffset(data), data.remaining());
 
     try (InputStream ios = new XZCompressorInputStream(bytesIn)) {
-      ios.transferTo(baos);
+      return readFully(ios, reuse);
     }
-    return baos.asByteBuffer();
   }
 
   @Override
@@ -22,9 +22,18 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
+import java.util.Arrays;
 
+import org.apache.avro.SystemLimitException;
 import org.apache.avro.util.NonCopyingByteArrayOutputStream;
 
+/**
+ * Compresses blocks with Zstandard. A codec may compress with a dictionary,
+ * trained with {@link #trainDictionary(Iterable, int)} from samples of the
+ * blocks to compress, which greatly improves the compression of small blocks.
+ * The dictionary is stored in the {@value DataFileConstants#ZSTANDARD_DICTIONARY}
+ * metadata of data files, from which readers restore it.
+ */
 public class ZstandardCodec extends Codec {
   public final static int DEFAULT_COMPRESSION = 3;
   public final static boolean DEFAULT_USE_BUFFERPOOL = false;
@@ -34,31 +43,76 @@ public class ZstandardCodec extends Codec {
     private final int compressionLevel;
     private final boolean useChecksum;
     private final boolean useBufferPool;
+    private final byte[] dictionary;
 
     Option(int compressionLevel, boolean useChecksum, boolean useBufferPool) {
+      this(compressionLevel, useChecksum, useBufferPool, null);
+    }
+
+    Option(int compressionLevel, boolean useChecksum, boolean useBufferPool, byte[] dictionary) {
       this.compressionLevel = compressionLevel;
       this.useChecksum = useChecksum;
       this.useBufferPool = useBufferPool;
+      this.dictionary = dictionary;
     }
 
     @Override
     protected Codec createInstance() {
-      return new ZstandardCodec(compressionLevel, useChecksum, useBufferPool);
+      return new ZstandardCodec(compressionLevel, useChecksum, useBufferPool, dictionary);
     }
   }
 
   private final int compressionLevel;
   private final boolean useChecksum;
   private final boolean useBufferPool;
+  private final byte[] dictionary;
+  private final ZstandardLoader.Dictionary digestedDictionary;
+  private ZstandardLoader.Contexts contexts;
+  /** Holds compressed blocks when the caller has no buffer to reuse. */
+  private byte[] compressBuffer;
 
   /**
    * Create a ZstandardCodec instance with the given compressionLevel, checksum,
    * and bufferPool option
    **/
   public ZstandardCodec(int compressionLevel, boolean useChecksum, boolean useBufferPool) {
+    this(compressionLevel, useChecksum, useBufferPool, null);
+  }
+
+  /**
+   * Create a ZstandardCodec instance with the given compressionLevel, checksum,
+   * bufferPool option and dictionary, or none if null.
+   **/
+  public ZstandardCodec(int compressionLevel, boolean useChecksum, boolean useBufferPool, byte[] dictionary) {
     this.compressionLevel = compressionLevel;
     this.useChecksum = useChecksum;
     this.useBufferPool = useBufferPool;
+    this.dictionary = dictionary == null ? null : dictionary.clone();
+    this.digestedDictionary = dictionary == null ? null : new ZstandardLoader.Dictionary(this.dictionary);
+  }
+
+  /**
+   * Train a dictionary for compressing data like the given samples, typically
+   * the serialized records of a few hundred blocks.
+   *
+   * @param samples the data to train on
+   * @param maxSize the maximum size of the dictionary in bytes, typically around
+   *                100KB
+   * @throws IllegalArgumentException if no dictionary can be trained from the
+   *                                  samples, for instance if there are too few
+   */
+  public static byte[] trainDictionary(Iterable<ByteBuffer> samples, int maxSize) {
+    return ZstandardLoader.train(samples, maxSize);
+  }
+
+  /** Return the dictionary used by this codec, or null if none. */
+  public byte[] getDictionary() {
+    return dictionary == null ? null : dictionary.clone();
+  }
+
+  /** Return a codec like this one using the given dictionary. */
+  ZstandardCodec withDictionary(byte[] dictionary) {
+    return new ZstandardCodec(compressionLevel, useChecksum, useBufferPool, dictionary);
   }
 
   @Override
@@ -68,33 +122,72 @@ public class ZstandardCodec extends Codec {
 
   @Override
   public ByteBuffer compress(ByteBuffer data) throws IOException {
-    NonCopyingByteArrayOutputStream baos = new NonCopyingByteArrayOutputStream(DEFAULT_BUFFER_SIZE);
-    try (OutputStream outputStream = ZstandardLoader.output(baos, compressionLevel, useChecksum, useBufferPool)) {
-      outputStream.write(data.array(), computeOffset(data), data.remaining());
+    return compress(data, null);
+  }
+
+  @Override
+  public ByteBuffer compress(ByteBuffer data, ByteBuffer reuse) throws IOException {
+    int maxLength = ZstandardLoader.Contexts.maxCompressedLength(data.remaining());
+    if (maxLength < 0) {
+      NonCopyingByteArrayOutputStream baos = new NonCopyingByteArrayOutputStream(DEFAULT_BUFFER_SIZE);
+      try (OutputStream outputStream = ZstandardLoader.output(baos, compressionLevel, useChecksum, useBufferPool,
+          digestedDictionary)) {
+        outputStream.write(data.array(), computeOffset(data), data.remaining());
+      }
+      return baos.asByteBuffer();
+    }
+    if (reuse == null) {
+      if (compressBuffer == null || compressBuffer.length < maxLength) {
+        compressBuffer = new byte[maxLength];
+      }
+      int size = contexts().compress(compressBuffer, data.array(), computeOffset(data), data.remaining());
+      return ByteBuffer.wrap(Arrays.copyOf(compressBuffer, size));
     }
-    return baos.asByteBuffer();
+    byte[] output = outputArray(reuse, maxLength);
+    int size = contexts().compress(output, data.array(), computeOffset(data), data.remaining());
+    return ByteBuffer.wrap(output, 0, size);
   }
 
   @Override
   public ByteBuffer decompress(ByteBuffer compressedData) throws IOException {
-    NonCopyingByteArrayOutputStream baos = NonCopyingByteArrayOutputStream
-        .capacityLimitedOutputStream(DEFAULT_BUFFER_SIZE);
-    InputStream bytesIn = new ByteArrayInputStream(compressedData.array(), computeOffset(compressedData),
-        compressedData.remaining());
-    try (InputStream ios = ZstandardLoader.input(bytesIn, useBufferPool)) {
-      ios.transferTo(baos);
+    return decompress(compressedData, null);
+  }
+
+  @Override
+  public ByteBuffer decompress(ByteBuffer compressedData, ByteBuffer reuse) throws IOException {
+    byte[] input = compressedData.array();
+    int offset = computeOffset(compressedData);
+    int length = compressedData.remaining();
+    // frames written whole record their size, and are decompressed in one call
+    long size = ZstandardLoader.Contexts.decompressedSize(input, offset, length);
+    if (size >= 0 && size <= SystemLimitException.MAX_DECOMPRESS_LENGTH && size < Integer.MAX_VALUE - 8) {
+      byte[] output = outputArray(reuse, (int) size);
+      if (contexts().decompress(output, (int) size, input, offset, length) == size) {
+        return ByteBuffer.wrap(output, 0, (int) size);
+      }
+    }
+    InputStream bytesIn = new ByteArrayInputStream(input, offset, length);
+    try (InputStream ios = ZstandardLoader.input(bytesIn, useBufferPool, digestedDictionary)) {
+      return readFully(ios, reuse);
+    }
+  }
+
+  private ZstandardLoader.Contexts contexts() {
+    if (contexts == null) {
+      contexts = ZstandardLoader.contexts(this, compressionLevel, useChecksum, digestedDictionary);
     }
-    return baos.asByteBuffer();
+    return contexts;
   }
 
   @Override
   public int hashCode() {
-    return getName().hashCode();
+    return getName().hashCode() * 31 + Arrays.hashCode(dictionary);
   }
 
   @Override
   public boolean equals(Object obj) {
-    return (this == obj) || (obj != null && obj.getClass() == this.getClass());
+    return (this == obj) || (obj != null && obj.getClass() == this.getClass()
+        && Arrays.equals(dictionary, ((ZstandardCodec) obj).dictionary));
   }
 
   @Override
@@ -20,11 +20,19 @@ package org.apache.avro.file;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.lang.ref.Cleaner;
+import java.nio.ByteBuffer;
 
 import com.github.luben.zstd.BufferPool;
 import com.github.luben.zstd.NoPool;
 import com.github.luben.zstd.RecyclingBufferPool;
 import com.github.luben.zstd.Zstd;
+import com.github.luben.zstd.ZstdCompressCtx;
+import com.github.luben.zstd.ZstdDecompressCtx;
+import com.github.luben.zstd.ZstdDictCompress;
+import com.github.luben.zstd.ZstdDictDecompress;
+import com.github.luben.zstd.ZstdDictTrainer;
+import com.github.luben.zstd.ZstdException;
 import com.github.luben.zstd.ZstdInputStreamNoFinalizer;
 import com.github.luben.zstd.ZstdOutputStreamNoFinalizer;
 
@@ -32,19 +40,175 @@ import com.github.luben.zstd.ZstdOutputStreamNoFinalizer;
  * we get NoClassDefFoundError when we try and use the Codec's compress
  * or decompress methods rather than when we instantiate it */
 final class ZstandardLoader {
+  private static final Cleaner CLEANER = Cleaner.create();
 
   static InputStream input(InputStream compressed, boolean useBufferPool) throws IOException {
+    return input(compressed, useBufferPool, null);
+  }
+
+  static InputStream input(InputStream compressed, boolean useBufferPool, Dictionary dictionary)
+      throws IOException {
     BufferPool pool = useBufferPool ? RecyclingBufferPool.INSTANCE : NoPool.INSTANCE;
-    return new ZstdInputStreamNoFinalizer(compressed, pool);
+    ZstdInputStreamNoFinalizer zstdInputStream = new ZstdInputStreamNoFinalizer(compressed, pool);
+    if (dictionary != null) {
+      zstdInputStream.setDict(dictionary.decompress());
+    }
+    return zstdInputStream;
   }
 
   static OutputStream output(OutputStream compressed, int level, boolean checksum, boolean useBufferPool)
       throws IOException {
-    int bounded = Math.max(Math.min(level, Zstd.maxCompressionLevel()), Zstd.minCompressionLevel());
+    return output(compressed, level, checksum, useBufferPool, null);
+  }
+
+  static OutputStream output(OutputStream compressed, int level, boolean checksum, boolean useBufferPool,
+      Dictionary dictionary) throws IOException {
     BufferPool pool = useBufferPool ? RecyclingBufferPool.INSTANCE : NoPool.INSTANCE;
-    ZstdOutputStreamNoFinalizer zstdOutputStream = new ZstdOutputStreamNoFinalizer(compressed, pool).setLevel(bounded);
+    ZstdOutputStreamNoFinalizer zstdOutputStream = new ZstdOutputStreamNoFinalizer(compressed, pool)
+        .setLevel(bound(level));
     zstdOutputStream.setCloseFrameOnFlush(false);
     zstdOutputStream.setChecksum(checksum);
+    if (dictionary != null) {
+      zstdOutputStream.setDict(dictionary.compress(level));
+    }
     return zstdOutputStream;
   }
+
+  private static int bound(int level) {
+    return Math.max(Math.min(level, Zstd.maxCompressionLevel()), Zstd.minCompressionLevel());
+  }
+
+  static byte[] train(Iterable<ByteBuffer> samples, int maxSize) {
+    long total = 0;
+    for (ByteBuffer sample : samples) {
+      total += sample.remaining();
+    }
+    if (total > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Samples too large: " + total + " bytes");
+    }
+    ZstdDictTrainer trainer = new ZstdDictTrainer((int) total, maxSize);
+    for (ByteBuffer sample : samples) {
+      byte[] bytes = new byte[sample.remaining()];
+      sample.duplicate().get(bytes);
+      trainer.addSample(bytes);
+    }
+    try {
+      return trainer.trainSamples();
+    } catch (ZstdException e) {
+      throw new IllegalArgumentException("Cannot train a dictionary from the samples: " + e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Create native contexts for one codec, freed once the codec is unreachable.
+   */
+  static Contexts contexts(Object owner, int level, boolean checksum, Dictionary dictionary) {
+    Contexts contexts = new Contexts(level, checksum, dictionary);
+    CLEANER.register(owner, contexts);
+    return contexts;
+  }
+
+  /**
+   * Compression and decompression contexts, created on first use and reused for
+   * every block. Like codecs, contexts are not thread safe.
+   */
+  static final class Contexts implements Runnable {
+    private final int level;
+    private final boolean checksum;
+    private final Dictionary dictionary;
+    private ZstdCompressCtx compress;
+    private ZstdDecompressCtx decompress;
+
+    private Contexts(int level, boolean checksum, Dictionary dictionary) {
+      this.level = level;
+      this.checksum = checksum;
+      this.dictionary = dictionary;
+    }
+
+    /**
+     * Return the size of the largest frame compressing length bytes, or -1 if it
+     * does not fit in an array.
+     */
+    static int maxCompressedLength(int length) {
+      long bound = Zstd.compressBound(length);
+      return bound > Integer.MAX_VALUE - 8 ? -1 : (int) bound;
+    }
+
+    /** Compress a frame to output, which must hold at least maxCompressedLength. */
+    int compress(byte[] output, byte[] input, int offset, int length) throws IOException {
+      if (compress == null) {
+        compress = new ZstdCompressCtx().setLevel(bound(level)).setChecksum(checksum);
+        if (dictionary != null) {
+          compress.loadDict(dictionary.compress(level));
+        }
+      }
+      try {
+        return compress.compressByteArray(output, 0, output.length, input, offset, length);
+      } catch (ZstdException e) {
+        throw new IOException(e);
+      }
+    }
+
+    /**
+     * Return the decompressed size recorded in the first frame of the input, or -1
+     * if it is unknown.
+     */
+    static long decompressedSize(byte[] input, int offset, int length) {
+      long size = Zstd.getFrameContentSize(input, offset, length);
+      return size < 0 ? -1 : size;
+    }
+
+    /**
+     * Decompress the input into output, returning the decompressed size, or -1 if
+     * the output is too small.
+     */
+    int decompress(byte[] output, int size, byte[] input, int offset, int length) {
+      if (decompress == null) {
+        decompress = new ZstdDecompressCtx();
+        if (dictionary != null) {
+          decompress.loadDict(dictionary.decompress());
+        }
+      }
+      try {
+        return decompress.decompressByteArray(output, 0, size, input, offset, length);
+      } catch (ZstdException e) {
+        return -1;
+      }
+    }
+
+    @Override
+    public void run() {
+      if (compress != null) {
+        compress.close();
+      }
+      if (decompress != null) {
+        decompress.close();
+      }
+    }
+  }
+
+  /** A dictionary, digested on first use for compression and decompression. */
+  static final class Dictionary {
+    private final byte[] bytes;
+    private ZstdDictCompress compress;
+    private ZstdDictDecompress decompress;
+
+    Dictionary(byte[] bytes) {
+      this.bytes = bytes;
+    }
+
+    synchronized ZstdDictCompress compress(int level) {
+      if (compress == null) {
+        compress = new ZstdDictCompress(bytes, bound(level));
+      }
+      return compress;
+    }
+
+    synchronized ZstdDictDecompress decompress() {
+      if (decompress == null) {
+        decompress = new ZstdDictDecompress(bytes);
+      }
+      return decompress;
+    }
+  }
 }
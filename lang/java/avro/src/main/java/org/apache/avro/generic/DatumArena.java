@@ -0,0 +1,173 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.generic;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import org.apache.avro.Schema;
+import org.apache.avro.util.Utf8;
+
+/**
+ * Recycles the records, fixed values, arrays, maps, {@link Utf8} and
+ * {@link ByteBuffer} instances created by a {@link GenericDatumReader} across
+ * batches of reads.
+ * <p/>
+ * Once an arena is set with {@link GenericDatumReader#setArena(DatumArena)},
+ * every such value the reader produces is taken from the arena rather than
+ * allocated, or reused from the datum passed to
+ * {@link GenericDatumReader#read(Object, org.apache.avro.io.Decoder)}. Values
+ * taken since the last {@link #reset()} are all distinct. Calling
+ * {@link #reset()} hands them out again, in order, for the next batch, so none
+ * of the data read before it may be used afterwards; copy anything that must
+ * outlive its batch with {@link GenericData#deepCopy(Schema, Object)}.
+ * <p/>
+ * Pooled instances are created with the reader's {@link GenericData}, so the
+ * arena works with both generic and specific records. An arena is not thread
+ * safe, and should only be used by one reader at a time.
+ */
+public class DatumArena {
+  private final Map<Schema, Pool> pools = new IdentityHashMap<>();
+  private final Pool maps = new Pool();
+  private final Pool strings = new Pool();
+  private final Pool bytes = new Pool();
+
+  // most records in a batch are read one after another with the same schema
+  private Schema lastSchema;
+  private Pool lastPool;
+
+  /**
+   * Returns a pooled record, fixed, array or map for a schema, or null if values
+   * of the schema's type are not pooled.
+   */
+  Object take(Schema schema, GenericData data) {
+    switch (schema.getType()) {
+    case RECORD:
+    case FIXED:
+    case ARRAY:
+      break;
+    case MAP:
+      Object map = maps.take();
+      if (map == null) {
+        maps.set(map = data.newMap(null, 0));
+      }
+      return map;
+    default:
+      return null;
+    }
+    Pool pool = lastPool;
+    if (schema != lastSchema) {
+      pool = pools.computeIfAbsent(schema, s -> new Pool());
+      lastSchema = schema;
+      lastPool = pool;
+    }
+    Object datum = pool.take();
+    if (datum == null) {
+      switch (schema.getType()) {
+      case RECORD:
+        datum = data.newRecord(null, schema);
+        break;
+      case FIXED:
+        datum = data.createFixed(null, schema);
+        break;
+      default:
+        datum = data.newArray(null, 0, schema);
+      }
+      pool.set(datum);
+    }
+    return datum;
+  }
+
+  /** Returns a pooled {@link Utf8}. */
+  Utf8 takeUtf8() {
+    Utf8 utf8 = (Utf8) strings.take();
+    if (utf8 == null) {
+      strings.set(utf8 = new Utf8());
+    }
+    return utf8;
+  }
+
+  /**
+   * Returns a pooled {@link ByteBuffer}, or null if a new one is needed. The
+   * buffer actually used must then be passed to {@link #replaceBytes}.
+   */
+  ByteBuffer takeBytes() {
+    return (ByteBuffer) bytes.take();
+  }
+
+  /** Records the buffer used in place of the last one taken. */
+  void replaceBytes(ByteBuffer buffer) {
+    bytes.set(buffer);
+  }
+
+  /**
+   * Makes every pooled value available again. Data read before this call must
+   * no longer be used.
+   */
+  public void reset() {
+    maps.next = 0;
+    strings.next = 0;
+    bytes.next = 0;
+    for (Pool pool : pools.values()) {
+      pool.next = 0;
+    }
+  }
+
+  /** Drops every pooled value, releasing the memory they hold. */
+  public void clear() {
+    maps.clear();
+    strings.clear();
+    bytes.clear();
+    pools.clear();
+    lastSchema = null;
+    lastPool = null;
+  }
+
+  /** The values of one kind, handed out in order between resets. */
+  private static class Pool {
+    private Object[] items = new Object[16];
+    private int size;
+    private int next;
+
+    /** Takes the next value, or reserves a slot for one and returns null. */
+    Object take() {
+      if (next < size) {
+        return items[next++];
+      }
+      if (size == items.length) {
+        items = Arrays.copyOf(items, size * 2);
+      }
+      size++;
+      next++;
+      return null;
+    }
+
+    /** Replaces the value last taken. */
+    void set(Object item) {
+      items[next - 1] = item;
+    }
+
+    void clear() {
+      items = new Object[16];
+      size = 0;
+      next = 0;
+    }
+  }
+}
@@ -0,0 +1,577 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.generic;
+
+import java.lang.reflect.Method;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.Conversion;
+import org.apache.avro.Conversions;
+import org.apache.avro.LogicalType;
+import org.apache.avro.Schema;
+import org.apache.avro.Schema.Field;
+import org.apache.avro.io.BinaryData;
+import org.apache.avro.reflect.ReflectData;
+import org.apache.avro.specific.SpecificData;
+import org.apache.avro.util.Utf8;
+
+/**
+ * The {@link GenericData#deepCopy(Schema, Object)},
+ * {@link GenericData#hashCode(Object, Schema)} and
+ * {@link GenericData#compare(Object, Object, Schema)} of a schema, compiled
+ * once into a tree of nodes so that values are not matched against the schema
+ * on every call: record fields, their order and the symbols and branches of
+ * enums and unions are resolved ahead of time.
+ * <p/>
+ * Plans call back into their {@link GenericData} for field access, union
+ * resolution and the creation of copies, and reproduce the comparison of
+ * {@link SpecificData} enums and {@link ReflectData} arrays. Models that
+ * override {@link GenericData#compare(Object, Object, Schema, boolean)} or
+ * {@link GenericData#deepCopy(Schema, Object)} otherwise are not compiled.
+ */
+final class DatumPlan {
+  private static final ClassValue<Boolean> COMPILABLE = new ClassValue<Boolean>() {
+    @Override
+    protected Boolean computeValue(Class<?> type) {
+      for (Class<?> c = type; c != GenericData.class; c = c.getSuperclass()) {
+        if (c == SpecificData.class || c == ReflectData.class) {
+          continue;
+        }
+        for (Method method : c.getDeclaredMethods()) {
+          Class<?>[] params = method.getParameterTypes();
+          if ((method.getName().equals("compare") && params.length == 4 && params[2] == Schema.class)
+              || (method.getName().equals("deepCopy") && params.length == 2 && params[0] == Schema.class)) {
+            return false;
+          }
+        }
+      }
+      return true;
+    }
+  };
+
+  private final Schema schema;
+  private final Node root;
+
+  DatumPlan(GenericData data, Schema schema) {
+    this.schema = schema;
+    this.root = new Compiler(data).compile(schema);
+  }
+
+  /** Returns the schema instance this plan was compiled for. */
+  Schema getSchema() {
+    return schema;
+  }
+
+  /** Whether plans reproduce the comparisons and copies of a model class. */
+  static boolean isCompilable(Class<? extends GenericData> type) {
+    return COMPILABLE.get(type);
+  }
+
+  int compare(Object o1, Object o2, boolean equals) {
+    return compare(root, o1, o2, equals);
+  }
+
+  int hashCode(Object o) {
+    return o == null ? 0 : root.hashCode(o, new Hash());
+  }
+
+  Object deepCopy(Object value) {
+    return copy(root, value);
+  }
+
+  private static int compare(Node node, Object o1, Object o2, boolean equals) {
+    return o1 == o2 ? 0 : node.compare(o1, o2, equals);
+  }
+
+  private static int hashCodeAdd(Node node, Object o, Hash hash) {
+    int prefix = 31 * hash.current;
+    return prefix + (o == null ? 0 : node.hashCode(o, hash));
+  }
+
+  private static Object copy(Node node, Object value) {
+    return value == null ? null : node.copy(value);
+  }
+
+  /**
+   * The state of a hash code computation. At most ten record fields and array
+   * elements are added into it, nested ones included.
+   */
+  private static final class Hash {
+    private int counter = 10;
+    private int current = 1;
+
+    boolean shouldStop() {
+      return --counter <= 0;
+    }
+  }
+
+  private abstract static class Node {
+    /** Compares two distinct values. */
+    abstract int compare(Object o1, Object o2, boolean equals);
+
+    /** Hashes a non-null value. */
+    abstract int hashCode(Object o, Hash hash);
+
+    /** Copies a non-null value. */
+    abstract Object copy(Object value);
+  }
+
+  /** Ints, longs, floats, doubles, booleans and fixed values. */
+  private static class ComparableNode extends Node {
+    @Override
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    int compare(Object o1, Object o2, boolean equals) {
+      return ((Comparable) o1).compareTo(o2);
+    }
+
+    @Override
+    int hashCode(Object o, Hash hash) {
+      return o.hashCode();
+    }
+
+    @Override
+    Object copy(Object value) {
+      return value; // immutable
+    }
+  }
+
+  private static class NullNode extends Node {
+    @Override
+    int compare(Object o1, Object o2, boolean equals) {
+      return 0;
+    }
+
+    @Override
+    int hashCode(Object o, Hash hash) {
+      return 0;
+    }
+
+    @Override
+    Object copy(Object value) {
+      return null;
+    }
+  }
+
+  private static class FixedNode extends ComparableNode {
+    private final GenericData data;
+    private final Schema schema;
+
+    FixedNode(GenericData data, Schema schema) {
+      this.data = data;
+      this.schema = schema;
+    }
+
+    @Override
+    Object copy(Object value) {
+      return data.createFixed(null, ((GenericFixed) value).bytes(), schema);
+    }
+  }
+
+  private static class StringNode extends Node {
+    private final GenericData data;
+
+    StringNode(GenericData data) {
+      this.data = data;
+    }
+
+    @Override
+    int compare(Object o1, Object o2, boolean equals) {
+      CharSequence cs1 = o1 instanceof CharSequence ? (CharSequence) o1 : o1.toString();
+      CharSequence cs2 = o2 instanceof CharSequence ? (CharSequence) o2 : o2.toString();
+      return Utf8.compareSequences(cs1, cs2);
+    }
+
+    @Override
+    int hashCode(Object o, Hash hash) {
+      return (o instanceof Utf8 ? o : new Utf8(o.toString())).hashCode();
+    }
+
+    @Override
+    Object copy(Object value) {
+      return data.createString(value);
+    }
+  }
+
+  private static class BytesNode extends ComparableNode {
+    private final boolean javaArrays;
+
+    BytesNode(boolean javaArrays) {
+      this.javaArrays = javaArrays;
+    }
+
+    @Override
+    int compare(Object o1, Object o2, boolean equals) {
+      if (javaArrays && o1 instanceof byte[]) {
+        byte[] b1 = (byte[]) o1;
+        byte[] b2 = (byte[]) o2;
+        return BinaryData.compareBytes(b1, 0, b1.length, b2, 0, b2.length);
+      }
+      return super.compare(o1, o2, equals);
+    }
+
+    @Override
+    Object copy(Object value) {
+      ByteBuffer byteBufferValue = (ByteBuffer) value;
+      int start = byteBufferValue.position();
+      int length = byteBufferValue.limit() - start;
+      byte[] bytesCopy = new byte[length];
+      byteBufferValue.get(bytesCopy, 0, length);
+      ((Buffer) byteBufferValue).position(start);
+      return ByteBuffer.wrap(bytesCopy, 0, length);
+    }
+  }
+
+  private static class EnumNode extends Node {
+    private final GenericData data;
+    private final Schema schema;
+    private final boolean javaEnums;
+
+    EnumNode(GenericData data, Schema schema, boolean javaEnums) {
+      this.data = data;
+      this.schema = schema;
+      this.javaEnums = javaEnums;
+    }
+
+    @Override
+    int compare(Object o1, Object o2, boolean equals) {
+      if (javaEnums && o1 instanceof Enum) {
+        return ((Enum<?>) o1).ordinal() - ((Enum<?>) o2).ordinal();
+      }
+      return schema.getEnumOrdinal(o1.toString()) - schema.getEnumOrdinal(o2.toString());
+    }
+
+    @Override
+    int hashCode(Object o, Hash hash) {
+      return schema.getEnumOrdinal(o.toString());
+    }
+
+    @Override
+    Object copy(Object value) {
+      return data.createEnum(value.toString(), schema);
+    }
+  }
+
+  private static class ArrayNode extends Node {
+    private final Schema schema;
+    private final boolean javaArrays;
+    private Node element;
+
+    ArrayNode(Schema schema, boolean javaArrays) {
+      this.schema = schema;
+      this.javaArrays = javaArrays;
+    }
+
+    @Override
+    int compare(Object o1, Object o2, boolean equals) {
+      if (javaArrays && o1.getClass().isArray()) {
+        int l1 = java.lang.reflect.Array.getLength(o1);
+        int l2 = java.lang.reflect.Array.getLength(o2);
+        int l = Math.min(l1, l2);
+        for (int i = 0; i < l; i++) {
+          int compare = DatumPlan.compare(element, java.lang.reflect.Array.get(o1, i),
+              java.lang.reflect.Array.get(o2, i), equals);
+          if (compare != 0)
+            return compare;
+        }
+        return Integer.compare(l1, l2);
+      }
+      if (o1 instanceof RandomAccess && o2 instanceof RandomAccess) {
+        List<?> a1 = (List<?>) o1;
+        List<?> a2 = (List<?>) o2;
+        int l1 = a1.size();
+        int l2 = a2.size();
+        int l = Math.min(l1, l2);
+        for (int i = 0; i < l; i++) {
+          int compare = DatumPlan.compare(element, a1.get(i), a2.get(i), equals);
+          if (compare != 0)
+            return compare;
+        }
+        return Integer.compare(l1, l2);
+      }
+      Iterator<?> e1 = ((Collection<?>) o1).iterator();
+      Iterator<?> e2 = ((Collection<?>) o2).iterator();
+      while (e1.hasNext() && e2.hasNext()) {
+        int compare = DatumPlan.compare(element, e1.next(), e2.next(), equals);
+        if (compare != 0)
+          return compare;
+      }
+      return e1.hasNext() ? 1 : (e2.hasNext() ? -1 : 0);
+    }
+
+    @Override
+    int hashCode(Object o, Hash hash) {
+      for (Object e : (Collection<?>) o) {
+        if (hash.shouldStop()) {
+          return hash.current;
+        }
+        hash.current = hashCodeAdd(element, e, hash);
+      }
+      return hash.current;
+    }
+
+    @Override
+    Object copy(Object value) {
+      List<?> arrayValue = (List<?>) value;
+      List<Object> arrayCopy = new GenericData.Array<>(arrayValue.size(), schema);
+      for (Object obj : arrayValue) {
+        arrayCopy.add(DatumPlan.copy(element, obj));
+      }
+      return arrayCopy;
+    }
+  }
+
+  private static class MapNode extends ComparableNode {
+    private final GenericData data;
+    private Node value;
+
+    MapNode(GenericData data) {
+      this.data = data;
+    }
+
+    @Override
+    int compare(Object o1, Object o2, boolean equals) {
+      if (equals)
+        return data.compareMaps((Map<?, ?>) o1, (Map<?, ?>) o2);
+      throw new AvroRuntimeException("Can't compare maps!");
+    }
+
+    @Override
+    Object copy(Object datum) {
+      Map<?, ?> mapValue = (Map<?, ?>) datum;
+      Map<Object, Object> mapCopy = new HashMap<>(mapValue.size());
+      for (Map.Entry<?, ?> entry : mapValue.entrySet()) {
+        Object key = entry.getKey();
+        mapCopy.put(key == null ? null : data.createString(key), DatumPlan.copy(value, entry.getValue()));
+      }
+      return mapCopy;
+    }
+  }
+
+  private static class UnionNode extends Node {
+    private final GenericData data;
+    private final Schema schema;
+    private final Node[] branches;
+    /** The index of the null branch, or -1. */
+    private final int nullIndex;
+
+    UnionNode(GenericData data, Schema schema, Node[] branches) {
+      this.data = data;
+      this.schema = schema;
+      this.branches = branches;
+      Integer index = schema.getIndexNamed(Schema.Type.NULL.getName());
+      this.nullIndex = index == null ? -1 : index;
+    }
+
+    private int resolve(Object datum) {
+      return datum == null && nullIndex >= 0 ? nullIndex : data.resolveUnion(schema, datum);
+    }
+
+    @Override
+    int compare(Object o1, Object o2, boolean equals) {
+      int i1 = resolve(o1);
+      int i2 = resolve(o2);
+      return (i1 == i2) ? DatumPlan.compare(branches[i1], o1, o2, equals) : Integer.compare(i1, i2);
+    }
+
+    @Override
+    int hashCode(Object o, Hash hash) {
+      return branches[resolve(o)].hashCode(o, hash);
+    }
+
+    @Override
+    Object copy(Object value) {
+      return branches[resolve(value)].copy(value);
+    }
+  }
+
+  private static class RecordNode extends Node {
+    private final GenericData data;
+    private final Schema schema;
+    private final String[] names;
+    private final int[] positions;
+    private final Field.Order[] orders;
+    private final Node[] fields;
+
+    RecordNode(GenericData data, Schema schema) {
+      this.data = data;
+      this.schema = schema;
+      int count = schema.getFields().size();
+      this.names = new String[count];
+      this.positions = new int[count];
+      this.orders = new Field.Order[count];
+      this.fields = new Node[count];
+    }
+
+    @Override
+    int compare(Object o1, Object o2, boolean equals) {
+      for (int i = 0; i < fields.length; i++) {
+        if (orders[i] == Field.Order.IGNORE)
+          continue; // ignore this field
+        int compare = DatumPlan.compare(fields[i], data.getField(o1, names[i], positions[i]),
+            data.getField(o2, names[i], positions[i]), equals);
+        if (compare != 0) // not equal
+          return orders[i] == Field.Order.DESCENDING ? -compare : compare;
+      }
+      return 0;
+    }
+
+    @Override
+    int hashCode(Object o, Hash hash) {
+      IndexedRecord record = (IndexedRecord) o;
+      for (int i = 0; i < fields.length; i++) {
+        if (hash.shouldStop()) {
+          return hash.current;
+        }
+        if (orders[i] == Field.Order.IGNORE)
+          continue;
+        hash.current = hashCodeAdd(fields[i], record.get(positions[i]), hash);
+      }
+      return hash.current;
+    }
+
+    @Override
+    Object copy(Object value) {
+      Object oldState = data.getRecordState(value, schema);
+      Object newRecord = data.newRecord(null, schema);
+      Object newState = data.getRecordState(newRecord, schema);
+      for (int i = 0; i < fields.length; i++) {
+        Object newValue = DatumPlan.copy(fields[i], data.getField(value, names[i], positions[i], oldState));
+        data.setField(newRecord, names[i], positions[i], newValue, newState);
+      }
+      return newRecord;
+    }
+  }
+
+  /**
+   * Copies values of a logical type by converting them to the raw type, copying
+   * that, then converting back, if a conversion for their class is registered.
+   */
+  private static class LogicalNode extends Node {
+    private final GenericData data;
+    private final Schema schema;
+    private final LogicalType logicalType;
+    private final Node raw;
+
+    LogicalNode(GenericData data, Schema schema, Node raw) {
+      this.data = data;
+      this.schema = schema;
+      this.logicalType = schema.getLogicalType();
+      this.raw = raw;
+    }
+
+    @Override
+    int compare(Object o1, Object o2, boolean equals) {
+      return raw.compare(o1, o2, equals);
+    }
+
+    @Override
+    int hashCode(Object o, Hash hash) {
+      return raw.hashCode(o, hash);
+    }
+
+    @Override
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    Object copy(Object value) {
+      Conversion conversion = data.getConversionByClass(value.getClass(), logicalType);
+      if (conversion == null) // no conversion defined -- try raw copy
+        return raw.copy(value);
+      Object copy = DatumPlan.copy(raw, Conversions.convertToRawType(value, schema, logicalType, conversion));
+      return Conversions.convertToLogicalType(copy, schema, logicalType, conversion);
+    }
+  }
+
+  private static class Compiler {
+    private final GenericData data;
+    private final boolean javaEnums;
+    private final boolean javaArrays;
+    /** Records compiled or being compiled, for recursive schemas. */
+    private final Map<Schema, RecordNode> records = new IdentityHashMap<>();
+
+    Compiler(GenericData data) {
+      this.data = data;
+      this.javaEnums = data instanceof SpecificData;
+      this.javaArrays = data instanceof ReflectData;
+    }
+
+    Node compile(Schema schema) {
+      Node node = compileRaw(schema);
+      return schema.getLogicalType() == null ? node : new LogicalNode(data, schema, node);
+    }
+
+    private Node compileRaw(Schema schema) {
+      switch (schema.getType()) {
+      case RECORD:
+        RecordNode record = records.get(schema);
+        if (record == null) {
+          record = new RecordNode(data, schema);
+          records.put(schema, record);
+          for (Field field : schema.getFields()) {
+            int i = field.pos();
+            record.names[i] = field.name();
+            record.positions[i] = i;
+            record.orders[i] = field.order();
+            record.fields[i] = compile(field.schema());
+          }
+        }
+        return record;
+      case ENUM:
+        return new EnumNode(data, schema, javaEnums);
+      case ARRAY:
+        ArrayNode array = new ArrayNode(schema, javaArrays);
+        array.element = compile(schema.getElementType());
+        return array;
+      case MAP:
+        MapNode map = new MapNode(data);
+        map.value = compile(schema.getValueType());
+        return map;
+      case UNION:
+        List<Schema> types = schema.getTypes();
+        Node[] branches = new Node[types.size()];
+        for (int i = 0; i < branches.length; i++) {
+          branches[i] = compile(types.get(i));
+        }
+        return new UnionNode(data, schema, branches);
+      case FIXED:
+        return new FixedNode(data, schema);
+      case STRING:
+        return new StringNode(data);
+      case BYTES:
+        return new BytesNode(javaArrays);
+      case NULL:
+        return new NullNode();
+      case INT:
+      case LONG:
+      case FLOAT:
+      case DOUBLE:
+      case BOOLEAN:
+        return new ComparableNode();
+      default:
+        throw new AvroRuntimeException("Unknown type: " + schema);
+      }
+    }
+  }
+}
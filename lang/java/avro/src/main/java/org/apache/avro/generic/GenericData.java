@@ -55,6 +55,7 @@ import org.apache.avro.io.DatumWriter;
 import org.apache.avro.io.DecoderFactory;
 import org.apache.avro.io.EncoderFactory;
 import org.apache.avro.io.FastReaderBuilder;
+import org.apache.avro.io.FastWriterBuilder;
 import org.apache.avro.util.Utf8;
 import org.apache.avro.util.internal.Accessor;
 import org.apache.avro.generic.PrimitivesArrays.PrimitiveArray;
@@ -226,6 +227,75 @@ public class GenericData {
     return this.fastReaderBuilder;
   }
 
+  public static final String FAST_WRITER_PROP = "org.apache.avro.fastwrite";
+  private boolean fastWriterEnabled = "true".equalsIgnoreCase(System.getProperty(FAST_WRITER_PROP, "false"));
+  private FastWriterBuilder fastWriterBuilder = null;
+
+  /**
+   * Enable writers that precompute a write plan per schema, see
+   * {@link FastWriterBuilder}. Disabled by default, or enabled with the system
+   * property {@value #FAST_WRITER_PROP}.
+   */
+  public GenericData setFastWriterEnabled(boolean flag) {
+    this.fastWriterEnabled = flag;
+    return this;
+  }
+
+  public boolean isFastWriterEnabled() {
+    return fastWriterEnabled && FastWriterBuilder.isSupportedData(this);
+  }
+
+  public FastWriterBuilder getFastWriterBuilder() {
+    if (fastWriterBuilder == null) {
+      fastWriterBuilder = new FastWriterBuilder(this);
+    }
+    return this.fastWriterBuilder;
+  }
+
+  /**
+   * Field plans of the {@link LazyGenericRecord}s decoded with this model.
+   * Plans keep the schema instances they were built for, so schemas are hashed
+   * by identity.
+   */
+  final ConcurrentMap<Schema, LazyGenericRecord.Plan> lazyRecordPlans = identityHashedCache();
+
+  /**
+   * Compiled copies, hash codes and comparisons, or null if not compiled. Plans
+   * keep the schema instances they were compiled for, as copies are created with
+   * them, so schemas are hashed by identity.
+   */
+  private final ConcurrentMap<Schema, DatumPlan> datumPlans = DatumPlan.isCompilable(getClass())
+      ? identityHashedCache()
+      : null;
+
+  /**
+   * Returns a weak cache hashing schemas by identity. Equal schemas may still
+   * share a slot when their identity hashes collide, so callers check the schema
+   * of the value found.
+   */
+  private static <V> ConcurrentMap<Schema, V> identityHashedCache() {
+    return new ConcurrentReferenceHashMap<Schema, V>(16, WEAK) {
+      @Override
+      protected int getHash(Object o) {
+        return System.identityHashCode(o);
+      }
+    };
+  }
+
+  /** Returns the compiled plan for a schema, or null if this model is not compiled. */
+  private DatumPlan getDatumPlan(Schema schema) {
+    if (datumPlans == null) {
+      return null;
+    }
+    DatumPlan plan = datumPlans.get(schema);
+    // an equal schema with the same identity hash may hold the slot
+    if (plan == null || plan.getSchema() != schema) {
+      plan = new DatumPlan(this, schema);
+      datumPlans.put(schema, plan);
+    }
+    return plan;
+  }
+
   /**
    * Default implementation of {@link GenericRecord}. Note that this
    * implementation does not fill in default values for fields if they are not
@@ -1135,6 +1205,10 @@ public class GenericData {
    * {@link #compare(Object,Object,Schema)}.
    */
   public int hashCode(Object o, Schema s) {
+    DatumPlan plan = getDatumPlan(s);
+    if (plan != null) {
+      return plan.hashCode(o);
+    }
     HashCodeCalculator calculator = new HashCodeCalculator();
     return calculator.hashCode(o, s);
   }
@@ -1269,12 +1343,17 @@ public class GenericData {
 
   /**
    * Comparison implementation. When equals is true, only checks for equality, not
-   * for order.
+   * for order. Unless a subclass overrides it, values are compared with a plan
+   * compiled once per schema.
    */
   @SuppressWarnings(value = "unchecked")
   protected int compare(Object o1, Object o2, Schema s, boolean equals) {
     if (o1 == o2)
       return 0;
+    DatumPlan plan = getDatumPlan(s);
+    if (plan != null) {
+      return plan.compare(o1, o2, equals);
+    }
     switch (s.getType()) {
     case RECORD:
       for (Field f : s.getFields()) {
@@ -1362,6 +1441,8 @@ public class GenericData {
    * Makes a deep copy of a value given its schema.
    * <P>
    * Logical types are converted to raw types, copied, then converted back.
+   * Unless a subclass overrides it, values are copied with a plan compiled once
+   * per schema.
    *
    * @param schema the schema of the value to deep copy.
    * @param value  the value to deep copy.
@@ -1371,6 +1452,10 @@ public class GenericData {
   public <T> T deepCopy(Schema schema, T value) {
     if (value == null)
       return null;
+    DatumPlan plan = getDatumPlan(schema);
+    if (plan != null) {
+      return (T) plan.deepCopy(value);
+    }
     LogicalType logicalType = schema.getLogicalType();
     if (logicalType == null) // not a logical type -- use raw copy
       return (T) deepCopyRaw(schema, value);
@@ -37,10 +37,13 @@ import org.apache.avro.Conversions;
 import org.apache.avro.LogicalType;
 import org.apache.avro.Schema;
 import org.apache.avro.Schema.Field;
+import org.apache.avro.generic.PrimitivesArrays.PrimitiveArray;
+import org.apache.avro.io.BinaryDecoder;
 import org.apache.avro.io.DatumReader;
 import org.apache.avro.io.Decoder;
 import org.apache.avro.io.DecoderFactory;
 import org.apache.avro.io.ResolvingDecoder;
+import org.apache.avro.io.SkipPlan;
 import org.apache.avro.util.Utf8;
 import org.apache.avro.util.WeakIdentityHashMap;
 import org.apache.avro.util.internal.ThreadLocalWithInitial;
@@ -51,6 +54,7 @@ public class GenericDatumReader<D> implements DatumReader<D> {
   private Schema actual;
   private Schema expected;
   private DatumReader<D> fastDatumReader = null;
+  private DatumArena arena;
 
   private ResolvingDecoder creatorResolver = null;
   private final Thread creator;
@@ -111,43 +115,62 @@ public class GenericDatumReader<D> implements DatumReader<D> {
     creatorResolver = null;
   }
 
+  /** Get the arena values are taken from, or null. */
+  public DatumArena getArena() {
+    return arena;
+  }
+
+  /**
+   * Set an arena to take records, arrays, maps, strings and bytes from, in place
+   * of allocating them or reusing those of the datum passed to
+   * {@link #read(Object, Decoder)}. Reading with an arena bypasses the fast
+   * reader. Pass null to read without an arena again.
+   */
+  public void setArena(DatumArena arena) {
+    this.arena = arena;
+  }
+
   private static final ThreadLocal<Map<Schema, Map<Schema, ResolvingDecoder>>> RESOLVER_CACHE = ThreadLocalWithInitial
       .of(WeakIdentityHashMap::new);
 
   /**
    * Gets a resolving decoder for use by this GenericDatumReader. Unstable API.
-   * Currently uses a thread local cache to prevent constructing the resolvers too
-   * often, because that is very expensive.
+   * Resolvers are shared by all threads through
+   * {@link org.apache.avro.io.ResolverCache}, because building them is very
+   * expensive. The creating thread reuses its decoder, and other platform
+   * threads reuse one decoder per pair of schemas from a thread local cache.
+   * Virtual threads, which seldom live long enough to reuse one, get a new
+   * decoder over the shared resolver.
    */
   protected final ResolvingDecoder getResolver(Schema actual, Schema expected) throws IOException {
     Thread currThread = Thread.currentThread();
-    ResolvingDecoder resolver;
-    if (currThread == creator && creatorResolver != null) {
+    if (currThread == creator) {
+      if (creatorResolver == null) {
+        creatorResolver = DecoderFactory.get().resolvingDecoder(actual, expected, null);
+      }
       return creatorResolver;
     }
+    if (ThreadLocalWithInitial.isVirtual(currThread)) {
+      return DecoderFactory.get().resolvingDecoder(actual, expected, null);
+    }
 
     Map<Schema, ResolvingDecoder> cache = RESOLVER_CACHE.get().get(actual);
     if (cache == null) {
       cache = new WeakIdentityHashMap<>();
       RESOLVER_CACHE.get().put(actual, cache);
     }
-    resolver = cache.get(expected);
+    ResolvingDecoder resolver = cache.get(expected);
     if (resolver == null) {
-      resolver = DecoderFactory.get().resolvingDecoder(Schema.applyAliases(actual, expected), expected, null);
+      resolver = DecoderFactory.get().resolvingDecoder(actual, expected, null);
       cache.put(expected, resolver);
     }
-
-    if (currThread == creator) {
-      creatorResolver = resolver;
-    }
-
     return resolver;
   }
 
   @Override
   @SuppressWarnings("unchecked")
   public D read(D reuse, Decoder in) throws IOException {
-    if (data.isFastReaderEnabled()) {
+    if (arena == null && data.isFastReaderEnabled()) {
       if (this.fastDatumReader == null) {
         this.fastDatumReader = data.getFastReaderBuilder().createDatumReader(actual, expected);
       }
@@ -180,6 +203,10 @@ public class GenericDatumReader<D> implements DatumReader<D> {
   }
 
   protected Object readWithoutConversion(Object old, Schema expected, ResolvingDecoder in) throws IOException {
+    if (arena != null) {
+      // values nested in an old datum may since have been handed out again
+      old = arena.take(expected, data);
+    }
     switch (expected.getType()) {
     case RECORD:
       return readRecord(old, expected, in);
@@ -299,6 +326,15 @@ public class GenericDatumReader<D> implements DatumReader<D> {
       LogicalType logicalType = expectedType.getLogicalType();
       Conversion<?> conversion = getData().getConversionFor(logicalType);
       Object array = newArray(old, (int) l, expected);
+      if (array instanceof PrimitiveArray && (logicalType == null || conversion == null)
+          && ((PrimitiveArray<?>) array).valueType() == expectedType.getType()) {
+        // unboxed items are read a block at a time
+        PrimitiveArray<?> primitives = (PrimitiveArray<?>) array;
+        do {
+          primitives.readItems(in, (int) l);
+        } while ((l = arrayNext(in, expectedType)) > 0);
+        return pruneArray(array);
+      }
       do {
         if (logicalType != null && conversion != null) {
           for (long i = 0; i < l; i++) {
@@ -587,6 +623,9 @@ public class GenericDatumReader<D> implements DatumReader<D> {
    * representation. By default, this calls {@link Decoder#readString(Utf8)}.
    */
   protected Object readString(Object old, Decoder in) throws IOException {
+    if (arena != null) {
+      return in.readString(arena.takeUtf8());
+    }
     return in.readString(old instanceof Utf8 ? (Utf8) old : null);
   }
 
@@ -715,6 +754,14 @@ public class GenericDatumReader<D> implements DatumReader<D> {
    * {@link Decoder#readBytes(ByteBuffer)}.
    */
   protected Object readBytes(Object old, Decoder in) throws IOException {
+    if (arena != null) {
+      ByteBuffer pooled = arena.takeBytes();
+      ByteBuffer bytes = in.readBytes(pooled);
+      if (bytes != pooled) {
+        arena.replaceBytes(bytes);
+      }
+      return bytes;
+    }
     return in.readBytes(old instanceof ByteBuffer ? (ByteBuffer) old : null);
   }
 
@@ -735,8 +782,15 @@ public class GenericDatumReader<D> implements DatumReader<D> {
     return ByteBuffer.wrap(value);
   }
 
-  /** Skip an instance of a schema. */
+  /**
+   * Skip an instance of a schema. Binary data of a composite schema is skipped
+   * with the {@link SkipPlan} compiled for it.
+   */
   public static void skip(Schema schema, Decoder in) throws IOException {
+    if (in instanceof BinaryDecoder && isComposite(schema.getType())) {
+      SkipPlan.get(schema).skip(in);
+      return;
+    }
     switch (schema.getType()) {
     case RECORD:
       for (Field field : schema.getFields())
@@ -797,4 +851,9 @@ public class GenericDatumReader<D> implements DatumReader<D> {
     }
   }
 
+  private static boolean isComposite(Schema.Type type) {
+    return type == Schema.Type.RECORD || type == Schema.Type.ARRAY || type == Schema.Type.MAP
+        || type == Schema.Type.UNION;
+  }
+
 }
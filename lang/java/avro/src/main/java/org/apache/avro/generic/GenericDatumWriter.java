@@ -32,6 +32,7 @@ import org.apache.avro.Conversions;
 import org.apache.avro.LogicalType;
 import org.apache.avro.Schema;
 import org.apache.avro.Schema.Field;
+import org.apache.avro.generic.PrimitivesArrays.PrimitiveArray;
 import org.apache.avro.path.TracingAvroTypeException;
 import org.apache.avro.UnresolvedUnionException;
 import org.apache.avro.io.DatumWriter;
@@ -48,6 +49,7 @@ import org.apache.avro.util.SchemaUtil;
 public class GenericDatumWriter<D> implements DatumWriter<D> {
   private final GenericData data;
   private Schema root;
+  private DatumWriter<D> fastDatumWriter = null;
 
   public GenericDatumWriter() {
     this(GenericData.get());
@@ -74,10 +76,18 @@ public class GenericDatumWriter<D> implements DatumWriter<D> {
 
   public void setSchema(Schema root) {
     this.root = root;
+    fastDatumWriter = null;
   }
 
   public void write(D datum, Encoder out) throws IOException {
     Objects.requireNonNull(out, "Encoder cannot be null");
+    if (isFastWriterSupported() && data.isFastWriterEnabled()) {
+      if (fastDatumWriter == null) {
+        fastDatumWriter = data.getFastWriterBuilder().createDatumWriter(root);
+      }
+      fastDatumWriter.write(datum, out);
+      return;
+    }
     try {
       write(root, datum, out);
     } catch (TracingNullPointException | TracingClassCastException | TracingAvroTypeException e) {
@@ -85,6 +95,15 @@ public class GenericDatumWriter<D> implements DatumWriter<D> {
     }
   }
 
+  /**
+   * Whether {@link #write(Object, Encoder)} may use a writer of the
+   * {@link org.apache.avro.io.FastWriterBuilder}. Subclasses that override how
+   * values are written are not.
+   */
+  protected boolean isFastWriterSupported() {
+    return getClass() == GenericDatumWriter.class;
+  }
+
   /** Called to write data. */
   protected void write(Schema schema, Object datum, Encoder out) throws IOException {
     LogicalType logicalType = schema.getLogicalType();
@@ -280,6 +299,13 @@ public class GenericDatumWriter<D> implements DatumWriter<D> {
     long actualSize = 0;
     out.writeArrayStart();
     out.setItemCount(size);
+    if (datum instanceof PrimitiveArray && ((PrimitiveArray<?>) datum).valueType() == element.getType()
+        && element.getLogicalType() == null) {
+      // unboxed items are written in bulk
+      ((PrimitiveArray<?>) datum).writeItems(out);
+      out.writeArrayEnd();
+      return;
+    }
     for (Iterator<?> it = getArrayElements(datum); it.hasNext();) {
       out.startItem();
       try {
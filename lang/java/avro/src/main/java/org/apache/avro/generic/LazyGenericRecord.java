@@ -0,0 +1,334 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.generic;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.Schema;
+import org.apache.avro.Schema.Field;
+import org.apache.avro.Schema.Type;
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.DatumReader;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.SkipPlan;
+
+/**
+ * A {@link GenericRecord} that is a lazy view over a binary-encoded record.
+ * Fields are decoded when first read with {@link #get(int)}; the fields before
+ * them are skipped, not decoded. Nested records are lazy views themselves and
+ * <tt>bytes</tt> values are slices sharing the encoded buffer, so reading a few
+ * fields of a large record costs little more than locating them.
+ * <p/>
+ * The encoded data must have been written with the schema of the record. It is
+ * not copied, so it must not be modified while the record is in use. Values
+ * set with {@link #put(int, Object)} replace the decoded ones but are not
+ * reflected in {@link #getEncoded()}.
+ * <p/>
+ * Lazy records are only equal to other lazy records, so that equality stays
+ * symmetric. To compare one to another kind of record, compare their fields or
+ * their encoded forms.
+ * <p/>
+ * Instances are not thread-safe.
+ */
+public class LazyGenericRecord implements GenericRecord, Comparable<GenericRecord> {
+  private static final Object UNREAD = new Object();
+
+  private final Plan plan;
+  private final ByteBuffer data;
+  /** Start of each field, followed by the end of the record. */
+  private final int[] offsets;
+  /** Number of fields whose end offset is known. */
+  private int located;
+  private final Object[] values;
+  private BinaryDecoder decoder;
+
+  private LazyGenericRecord(Plan plan, ByteBuffer data, int start) {
+    this.plan = plan;
+    this.data = data;
+    this.offsets = new int[plan.fields.length + 1];
+    this.offsets[0] = start;
+    this.values = new Object[plan.fields.length];
+    Arrays.fill(values, UNREAD);
+  }
+
+  /**
+   * Returns a lazy view of the record encoded in <i>data</i> from its position,
+   * using the {@link GenericData#get() default} data model. The position of
+   * <i>data</i> is not modified.
+   */
+  public static LazyGenericRecord wrap(Schema schema, ByteBuffer data) {
+    return wrap(GenericData.get(), schema, data);
+  }
+
+  /**
+   * Returns a lazy view of the record encoded in <i>data</i> from its position,
+   * decoding fields with <i>model</i>. The position of <i>data</i> is not
+   * modified.
+   */
+  public static LazyGenericRecord wrap(GenericData model, Schema schema, ByteBuffer data) {
+    if (schema.getType() != Type.RECORD) {
+      throw new AvroRuntimeException("Not a record schema: " + schema);
+    }
+    return new LazyGenericRecord(plan(model, schema), data.duplicate(), data.position());
+  }
+
+  private static Plan plan(GenericData model, Schema schema) {
+    Plan plan = model.lazyRecordPlans.get(schema);
+    if (plan == null || plan.schema != schema) {
+      plan = new Plan(model, schema);
+      model.lazyRecordPlans.put(schema, plan);
+    }
+    return plan;
+  }
+
+  @Override
+  public Schema getSchema() {
+    return plan.schema;
+  }
+
+  @Override
+  public void put(String key, Object v) {
+    put(field(key).pos(), v);
+  }
+
+  @Override
+  public void put(int i, Object v) {
+    values[i] = v;
+  }
+
+  @Override
+  public Object get(String key) {
+    return get(field(key).pos());
+  }
+
+  @Override
+  public Object get(int i) {
+    Object value = values[i];
+    if (value == UNREAD) {
+      value = decode(i);
+      values[i] = value;
+    }
+    return value;
+  }
+
+  private Field field(String key) {
+    Field field = plan.schema.getField(key);
+    if (field == null) {
+      throw new AvroRuntimeException("Not a valid schema field: " + key);
+    }
+    return field;
+  }
+
+  /**
+   * Returns the encoded bytes of the record, sharing content with the buffer it
+   * was wrapped around.
+   */
+  public ByteBuffer getEncoded() {
+    return slice(offsets[0], offset(plan.fields.length));
+  }
+
+  /** Returns the offset of field i in the buffer, skipping the fields before. */
+  private int offset(int i) {
+    try {
+      while (located < i) {
+        int start = offsets[located];
+        int size = plan.sizes[located];
+        if (size < 0) {
+          BinaryDecoder in = decoderAt(start);
+          plan.skips[located].skip(in);
+          size = data.limit() - start - in.remainingBytes();
+        } else if (start + size > data.limit()) {
+          throw new EOFException();
+        }
+        offsets[++located] = start + size;
+      }
+      return offsets[i];
+    } catch (IOException e) {
+      throw new AvroRuntimeException("Could not locate field " + plan.schema.getFields().get(located).name(), e);
+    }
+  }
+
+  private Object decode(int i) {
+    int start = offset(i);
+    try {
+      switch (plan.kinds[i]) {
+      case Plan.LAZY:
+        return new LazyGenericRecord(plan.nested(i), data, start);
+      case Plan.SLICE:
+        BinaryDecoder in = decoderAt(start);
+        int length = in.readInt();
+        int from = data.limit() - in.remainingBytes();
+        if (length < 0 || length > data.limit() - from) {
+          throw new EOFException();
+        }
+        return slice(from, from + length);
+      default:
+        return plan.reader(i).read(null, decoderAt(start));
+      }
+    } catch (IOException e) {
+      throw new AvroRuntimeException("Could not decode field " + plan.schema.getFields().get(i).name(), e);
+    }
+  }
+
+  private BinaryDecoder decoderAt(int position) {
+    ByteBuffer view = data.duplicate();
+    ((Buffer) view).position(position);
+    decoder = DecoderFactory.get().binaryDecoder(view, decoder);
+    return decoder;
+  }
+
+  private ByteBuffer slice(int from, int to) {
+    ByteBuffer view = data.duplicate();
+    ((Buffer) view).limit(to);
+    ((Buffer) view).position(from);
+    return view.slice();
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (o == this)
+      return true;
+    if (!(o instanceof LazyGenericRecord))
+      return false;
+    LazyGenericRecord that = (LazyGenericRecord) o;
+    if (!plan.schema.equals(that.getSchema()))
+      return false;
+    return plan.model.compare(this, that, plan.schema, true) == 0;
+  }
+
+  @Override
+  public int hashCode() {
+    return plan.model.hashCode(this, plan.schema);
+  }
+
+  @Override
+  public int compareTo(GenericRecord that) {
+    return plan.model.compare(this, that, plan.schema);
+  }
+
+  @Override
+  public String toString() {
+    return plan.model.toString(this);
+  }
+
+  /** What can be precomputed from a record schema: field kinds and sizes. */
+  static final class Plan {
+    static final byte DECODE = 0;
+    static final byte LAZY = 1;
+    static final byte SLICE = 2;
+
+    final GenericData model;
+    final Schema schema;
+    final Schema[] fields;
+    /** Encoded size of each field, or -1 when it varies. */
+    final int[] sizes;
+    /** How to skip each field of varying size. */
+    final SkipPlan[] skips;
+    final byte[] kinds;
+    /** Plans are shared between threads, so these caches publish atomically. */
+    private final AtomicReferenceArray<Plan> nested;
+    private final AtomicReferenceArray<DatumReader<Object>> readers;
+
+    Plan(GenericData model, Schema schema) {
+      this.model = model;
+      this.schema = schema;
+      List<Field> schemaFields = schema.getFields();
+      int n = schemaFields.size();
+      this.fields = new Schema[n];
+      this.sizes = new int[n];
+      this.skips = new SkipPlan[n];
+      this.kinds = new byte[n];
+      this.nested = new AtomicReferenceArray<>(n);
+      this.readers = new AtomicReferenceArray<>(n);
+      for (int i = 0; i < n; i++) {
+        Schema s = schemaFields.get(i).schema();
+        fields[i] = s;
+        sizes[i] = encodedSize(s);
+        if (sizes[i] < 0) {
+          skips[i] = SkipPlan.get(s);
+        }
+        boolean converted = s.getLogicalType() != null && model.getConversionFor(s.getLogicalType()) != null;
+        if (s.getType() == Type.RECORD && !converted) {
+          kinds[i] = LAZY;
+        } else if (s.getType() == Type.BYTES && !converted) {
+          kinds[i] = SLICE;
+        } else {
+          kinds[i] = DECODE;
+        }
+      }
+    }
+
+    /** Returns the fixed encoded size of a schema, or -1 if it varies. */
+    private static int encodedSize(Schema s) {
+      switch (s.getType()) {
+      case NULL:
+        return 0;
+      case BOOLEAN:
+        return 1;
+      case FLOAT:
+        return 4;
+      case DOUBLE:
+        return 8;
+      case FIXED:
+        return s.getFixedSize();
+      case RECORD:
+        int size = 0;
+        for (Field f : s.getFields()) {
+          int fieldSize = encodedSize(f.schema());
+          if (fieldSize < 0) {
+            return -1;
+          }
+          size += fieldSize;
+        }
+        return size;
+      default:
+        return -1;
+      }
+    }
+
+    Plan nested(int i) {
+      Plan p = nested.get(i);
+      if (p == null) {
+        p = plan(model, fields[i]);
+        if (!nested.compareAndSet(i, null, p)) {
+          p = nested.get(i);
+        }
+      }
+      return p;
+    }
+
+    @SuppressWarnings("unchecked")
+    DatumReader<Object> reader(int i) {
+      DatumReader<Object> r = readers.get(i);
+      if (r == null) {
+        r = (DatumReader<Object>) model.createDatumReader(fields[i]);
+        if (!readers.compareAndSet(i, null, r)) {
+          r = readers.get(i);
+        }
+      }
+      return r;
+    }
+  }
+}
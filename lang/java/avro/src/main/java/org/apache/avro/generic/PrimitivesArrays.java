@@ -18,7 +18,11 @@
 package org.apache.avro.generic;
 
 import org.apache.avro.Schema;
+import org.apache.avro.SystemLimitException;
+import org.apache.avro.io.Decoder;
+import org.apache.avro.io.Encoder;
 
+import java.io.IOException;
 import java.util.Arrays;
 import java.util.Collection;
 
@@ -64,6 +68,18 @@ public class PrimitivesArrays {
     }
 
     public abstract Schema.Type valueType();
+
+    /**
+     * Appends <tt>count</tt> items read from a decoder, as a block of an array
+     * whose count the caller has read.
+     */
+    public abstract void readItems(Decoder in, int count) throws IOException;
+
+    /**
+     * Writes all items to an encoder, as the items of an array whose start and
+     * count the caller has written.
+     */
+    public abstract void writeItems(Encoder out) throws IOException;
   }
 
   public static class IntArray extends PrimitiveArray<Integer> {
@@ -171,6 +187,21 @@ public class PrimitivesArrays {
     public Schema.Type valueType() {
       return Schema.Type.INT;
     }
+
+    @Override
+    public void readItems(Decoder in, int count) throws IOException {
+      int newSize = SystemLimitException.checkMaxCollectionLength(size, count);
+      if (elements.length < newSize) {
+        elements = Arrays.copyOf(elements, newSize);
+      }
+      in.readInts(elements, size, count);
+      size = newSize;
+    }
+
+    @Override
+    public void writeItems(Encoder out) throws IOException {
+      out.writeInts(elements, 0, size);
+    }
   }
 
   public static class LongArray extends PrimitiveArray<Long> {
@@ -278,6 +309,21 @@ public class PrimitivesArrays {
     public Schema.Type valueType() {
       return Schema.Type.LONG;
     }
+
+    @Override
+    public void readItems(Decoder in, int count) throws IOException {
+      int newSize = SystemLimitException.checkMaxCollectionLength(size, count);
+      if (elements.length < newSize) {
+        elements = Arrays.copyOf(elements, newSize);
+      }
+      in.readLongs(elements, size, count);
+      size = newSize;
+    }
+
+    @Override
+    public void writeItems(Encoder out) throws IOException {
+      out.writeLongs(elements, 0, size);
+    }
   }
 
   public static class BooleanArray extends PrimitiveArray<Boolean> {
@@ -446,6 +492,22 @@ public class PrimitivesArrays {
     public Schema.Type valueType() {
       return Schema.Type.BOOLEAN;
     }
+
+    @Override
+    public void readItems(Decoder in, int count) throws IOException {
+      SystemLimitException.checkMaxCollectionLength(size, count);
+      for (int i = 0; i < count; i++) {
+        add(in.readBoolean());
+      }
+    }
+
+    @Override
+    public void writeItems(Encoder out) throws IOException {
+      for (int i = 0; i < size; i++) {
+        out.startItem();
+        out.writeBoolean(getBoolean(i));
+      }
+    }
   }
 
   public static class FloatArray extends PrimitiveArray<Float> {
@@ -553,6 +615,21 @@ public class PrimitivesArrays {
     public Schema.Type valueType() {
       return Schema.Type.FLOAT;
     }
+
+    @Override
+    public void readItems(Decoder in, int count) throws IOException {
+      int newSize = SystemLimitException.checkMaxCollectionLength(size, count);
+      if (elements.length < newSize) {
+        elements = Arrays.copyOf(elements, newSize);
+      }
+      in.readFloats(elements, size, count);
+      size = newSize;
+    }
+
+    @Override
+    public void writeItems(Encoder out) throws IOException {
+      out.writeFloats(elements, 0, size);
+    }
   }
 
   public static class DoubleArray extends PrimitiveArray<Double> {
@@ -660,6 +737,21 @@ public class PrimitivesArrays {
     public Schema.Type valueType() {
       return Schema.Type.DOUBLE;
     }
+
+    @Override
+    public void readItems(Decoder in, int count) throws IOException {
+      int newSize = SystemLimitException.checkMaxCollectionLength(size, count);
+      if (elements.length < newSize) {
+        elements = Arrays.copyOf(elements, newSize);
+      }
+      in.readDoubles(elements, size, count);
+      size = newSize;
+    }
+
+    @Override
+    public void writeItems(Encoder out) throws IOException {
+      out.writeDoubles(elements, 0, size);
+    }
   }
 
 }
@@ -0,0 +1,751 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.io;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.InvalidNumberEncodingException;
+import org.apache.avro.Schema;
+import org.apache.avro.Schema.Field;
+import org.apache.avro.util.springframework.ConcurrentReferenceHashMap;
+
+import static org.apache.avro.util.springframework.ConcurrentReferenceHashMap.ReferenceType.WEAK;
+
+/**
+ * Compares binary-encoded data of a schema, compiled once per schema so that
+ * comparisons do not walk the schema. The order is that of
+ * {@link BinaryData#compare(byte[], int, int, byte[], int, int, Schema)}, which
+ * uses it, and of
+ * {@link org.apache.avro.generic.GenericData#compare(Object, Object, Schema)}.
+ * <p/>
+ * A comparator can also write a <i>normalized key</i>: a fixed-length prefix of
+ * a datum whose unsigned byte order, as given by
+ * {@link Arrays#compareUnsigned(byte[], int, int, byte[], int, int)}, agrees
+ * with the order of the datum. Sorters can compare normalized keys first and
+ * only compare the data themselves when the keys are equal:
+ *
+ * <pre>
+ * int c = Arrays.compareUnsigned(key1, 0, KEY_LENGTH, key2, 0, KEY_LENGTH);
+ * if (c == 0 &amp;&amp; !(complete1 &amp;&amp; complete2)) {
+ *   c = comparator.compare(b1, s1, l1, b2, s2, l2);
+ * }
+ * </pre>
+ */
+public final class BinaryComparator {
+  /**
+   * Comparators by schema, so that equal schemas share one. Lookups do not lock,
+   * and entries are held weakly so that schemas are not kept alive.
+   */
+  private static final ConcurrentMap<Schema, BinaryComparator> CACHE = new ConcurrentReferenceHashMap<>(16, WEAK);
+
+  private final Node root;
+
+  private BinaryComparator(Schema schema) {
+    this.root = new Compiler().compile(schema);
+  }
+
+  /** Returns the comparator for a schema, compiling it on first use. */
+  public static BinaryComparator get(Schema schema) {
+    BinaryComparator comparator = CACHE.get(schema);
+    if (comparator == null) {
+      comparator = new BinaryComparator(schema);
+      BinaryComparator raced = CACHE.putIfAbsent(schema, comparator);
+      if (raced != null) {
+        comparator = raced;
+      }
+    }
+    return comparator;
+  }
+
+  /**
+   * Compares binary-encoded data. If equal, return zero. If greater-than, return
+   * a positive value, if less than, return a negative value.
+   */
+  public int compare(byte[] b1, int s1, int l1, byte[] b2, int s2, int l2) {
+    try {
+      return root.compare(new Input(b1, s1, l1), new Input(b2, s2, l2));
+    } catch (IOException e) {
+      throw new AvroRuntimeException(e);
+    }
+  }
+
+  /**
+   * Writes the normalized key of binary-encoded data. The key is the first
+   * <i>keyLength</i> bytes of an order-preserving encoding of the datum, padded
+   * with zeros when the encoding is shorter.
+   * <p/>
+   * For any two data, a key that is less than another means the datum is less
+   * than the other, but equal keys only mean the data are equal when the whole
+   * encoding of both fit.
+   *
+   * @return true if the whole encoding of the datum fit in the key.
+   */
+  public boolean writeNormalizedKey(byte[] b, int s, int l, byte[] key, int keyOffset, int keyLength) {
+    if (keyOffset < 0 || keyLength < 0 || keyLength > key.length - keyOffset) {
+      throw new IndexOutOfBoundsException("Invalid key range: " + keyOffset + ", " + keyLength);
+    }
+    KeyWriter out = new KeyWriter(key, keyOffset, keyOffset + keyLength);
+    try {
+      root.writeKey(new Input(b, s, l), out);
+    } catch (IOException e) {
+      throw new AvroRuntimeException(e);
+    }
+    if (out.truncated) {
+      return false;
+    }
+    Arrays.fill(key, out.pos, out.end, (byte) 0);
+    return true;
+  }
+
+  /** Binary-encoded data being read. */
+  private static final class Input {
+    private final byte[] buf;
+    private int pos;
+    private final int limit;
+
+    Input(byte[] buf, int start, int length) {
+      this.buf = buf;
+      this.pos = start;
+      this.limit = start + length;
+    }
+
+    long readLong() throws IOException {
+      if (pos >= limit) {
+        throw new EOFException();
+      }
+      int b = buf[pos++];
+      if (b >= 0) {
+        return (b >>> 1) ^ -(b & 1);
+      }
+      long n = b & 0x7f;
+      for (int shift = 7; shift < 64; shift += 7) {
+        if (pos >= limit) {
+          throw new EOFException();
+        }
+        b = buf[pos++];
+        n |= (long) (b & 0x7f) << shift;
+        if (b >= 0) {
+          return (n >>> 1) ^ -(n & 1);
+        }
+      }
+      throw new InvalidNumberEncodingException("Invalid long encoding");
+    }
+
+    int readInt() throws IOException {
+      return (int) readLong();
+    }
+
+    int readLength() throws IOException {
+      long length = readLong();
+      if (length < 0) {
+        throw new AvroRuntimeException("Malformed data. Length is negative: " + length);
+      }
+      require(length);
+      return (int) length;
+    }
+
+    int readFixedInt() throws IOException {
+      require(4);
+      int n = (buf[pos] & 0xff) | (buf[pos + 1] & 0xff) << 8 | (buf[pos + 2] & 0xff) << 16 | buf[pos + 3] << 24;
+      pos += 4;
+      return n;
+    }
+
+    long readFixedLong() throws IOException {
+      return (readFixedInt() & 0xffffffffL) | (long) readFixedInt() << 32;
+    }
+
+    int readByte() throws IOException {
+      require(1);
+      return buf[pos++] & 0xff;
+    }
+
+    void skip(long length) throws IOException {
+      require(length);
+      pos += (int) length;
+    }
+
+    void require(long length) throws EOFException {
+      if (length > limit - pos) {
+        throw new EOFException();
+      }
+    }
+
+    /** Skips the blocks of an array or map, or returns the count of the next. */
+    long nextBlock() throws IOException {
+      long count = readLong();
+      while (count < 0) {
+        skip(readLong()); // a block written with its size in bytes
+        count = readLong();
+      }
+      return count;
+    }
+  }
+
+  /** Writes a normalized key, dropping what does not fit. */
+  private static final class KeyWriter {
+    private final byte[] key;
+    private int pos;
+    private final int end;
+    /** Xor-ed with written bytes, to invert the order of descending fields. */
+    private int invert;
+    private boolean truncated;
+
+    KeyWriter(byte[] key, int start, int end) {
+      this.key = key;
+      this.pos = start;
+      this.end = end;
+    }
+
+    void write(int b) {
+      if (pos < end) {
+        key[pos++] = (byte) (b ^ invert);
+      } else {
+        truncated = true;
+      }
+    }
+
+    void writeInt(int n) {
+      write(n >>> 24);
+      write(n >>> 16);
+      write(n >>> 8);
+      write(n);
+    }
+
+    void writeLong(long n) {
+      writeInt((int) (n >>> 32));
+      writeInt((int) n);
+    }
+  }
+
+  /**
+   * A compiled schema. The normalized key encodings of a schema's values are
+   * prefix-free, so that keys of values written one after the other compare
+   * like the values.
+   */
+  private abstract static class Node {
+    /** Compares the next values, leaving the inputs after them if equal. */
+    abstract int compare(Input a, Input b) throws IOException;
+
+    abstract void skip(Input in) throws IOException;
+
+    abstract void writeKey(Input in, KeyWriter out) throws IOException;
+  }
+
+  private static final class NullNode extends Node {
+    @Override
+    int compare(Input a, Input b) {
+      return 0;
+    }
+
+    @Override
+    void skip(Input in) {
+    }
+
+    @Override
+    void writeKey(Input in, KeyWriter out) {
+    }
+  }
+
+  private static final class BooleanNode extends Node {
+    @Override
+    int compare(Input a, Input b) throws IOException {
+      return Integer.compare(a.readByte(), b.readByte());
+    }
+
+    @Override
+    void skip(Input in) throws IOException {
+      in.skip(1);
+    }
+
+    @Override
+    void writeKey(Input in, KeyWriter out) throws IOException {
+      out.write(in.readByte());
+    }
+  }
+
+  private static final class IntNode extends Node {
+    @Override
+    int compare(Input a, Input b) throws IOException {
+      return Integer.compare(a.readInt(), b.readInt());
+    }
+
+    @Override
+    void skip(Input in) throws IOException {
+      in.readLong();
+    }
+
+    @Override
+    void writeKey(Input in, KeyWriter out) throws IOException {
+      out.writeInt(in.readInt() ^ Integer.MIN_VALUE);
+    }
+  }
+
+  /** Enum symbols compare by ordinal, which fits a byte for most enums. */
+  private static final class EnumNode extends Node {
+    private final boolean small;
+
+    EnumNode(Schema schema) {
+      this.small = schema.getEnumSymbols().size() <= 256;
+    }
+
+    @Override
+    int compare(Input a, Input b) throws IOException {
+      return Integer.compare(a.readInt(), b.readInt());
+    }
+
+    @Override
+    void skip(Input in) throws IOException {
+      in.readLong();
+    }
+
+    @Override
+    void writeKey(Input in, KeyWriter out) throws IOException {
+      int ordinal = in.readInt();
+      if (small) {
+        out.write(ordinal);
+      } else {
+        out.writeInt(ordinal ^ Integer.MIN_VALUE);
+      }
+    }
+  }
+
+  private static final class LongNode extends Node {
+    @Override
+    int compare(Input a, Input b) throws IOException {
+      return Long.compare(a.readLong(), b.readLong());
+    }
+
+    @Override
+    void skip(Input in) throws IOException {
+      in.readLong();
+    }
+
+    @Override
+    void writeKey(Input in, KeyWriter out) throws IOException {
+      out.writeLong(in.readLong() ^ Long.MIN_VALUE);
+    }
+  }
+
+  private static final class FloatNode extends Node {
+    @Override
+    int compare(Input a, Input b) throws IOException {
+      return Float.compare(Float.intBitsToFloat(a.readFixedInt()), Float.intBitsToFloat(b.readFixedInt()));
+    }
+
+    @Override
+    void skip(Input in) throws IOException {
+      in.skip(4);
+    }
+
+    @Override
+    void writeKey(Input in, KeyWriter out) throws IOException {
+      // canonical NaN, then negative values with all bits flipped and others
+      // with the sign bit flipped, as Float.compare orders them
+      int bits = Float.floatToIntBits(Float.intBitsToFloat(in.readFixedInt()));
+      out.writeInt(bits ^ (bits >> 31 | Integer.MIN_VALUE));
+    }
+  }
+
+  private static final class DoubleNode extends Node {
+    @Override
+    int compare(Input a, Input b) throws IOException {
+      return Double.compare(Double.longBitsToDouble(a.readFixedLong()), Double.longBitsToDouble(b.readFixedLong()));
+    }
+
+    @Override
+    void skip(Input in) throws IOException {
+      in.skip(8);
+    }
+
+    @Override
+    void writeKey(Input in, KeyWriter out) throws IOException {
+      long bits = Double.doubleToLongBits(Double.longBitsToDouble(in.readFixedLong()));
+      out.writeLong(bits ^ (bits >> 63 | Long.MIN_VALUE));
+    }
+  }
+
+  private static final class FixedNode extends Node {
+    private final int size;
+
+    FixedNode(int size) {
+      this.size = size;
+    }
+
+    @Override
+    int compare(Input a, Input b) throws IOException {
+      a.require(size);
+      b.require(size);
+      int c = BinaryData.compareBytes(a.buf, a.pos, size, b.buf, b.pos, size);
+      a.pos += size;
+      b.pos += size;
+      return c;
+    }
+
+    @Override
+    void skip(Input in) throws IOException {
+      in.skip(size);
+    }
+
+    @Override
+    void writeKey(Input in, KeyWriter out) throws IOException {
+      in.require(size);
+      for (int i = 0; i < size && !out.truncated; i++) {
+        out.write(in.buf[in.pos + i]);
+      }
+      in.pos += size;
+    }
+  }
+
+  /** Strings and bytes, compared as unsigned bytes. */
+  private static final class BytesNode extends Node {
+    @Override
+    int compare(Input a, Input b) throws IOException {
+      int l1 = a.readLength();
+      int l2 = b.readLength();
+      int c = BinaryData.compareBytes(a.buf, a.pos, l1, b.buf, b.pos, l2);
+      a.pos += l1;
+      b.pos += l2;
+      return c;
+    }
+
+    @Override
+    void skip(Input in) throws IOException {
+      in.skip(in.readLength());
+    }
+
+    /** Escapes zeros as 0x00 0x01 and ends with 0x00 0x00. */
+    @Override
+    void writeKey(Input in, KeyWriter out) throws IOException {
+      int length = in.readLength();
+      for (int i = 0; i < length && !out.truncated; i++) {
+        byte b = in.buf[in.pos + i];
+        out.write(b);
+        if (b == 0) {
+          out.write(1);
+        }
+      }
+      out.write(0);
+      out.write(0);
+      in.pos += length;
+    }
+  }
+
+  private static final class UnionNode extends Node {
+    private final Node[] branches;
+
+    UnionNode(Node[] branches) {
+      this.branches = branches;
+    }
+
+    private Node branch(int index) {
+      if (index < 0 || index >= branches.length) {
+        throw new AvroRuntimeException("Malformed data. Union index out of range: " + index);
+      }
+      return branches[index];
+    }
+
+    @Override
+    int compare(Input a, Input b) throws IOException {
+      int i1 = a.readInt();
+      int i2 = b.readInt();
+      int c = Integer.compare(i1, i2);
+      return c == 0 ? branch(i1).compare(a, b) : c;
+    }
+
+    @Override
+    void skip(Input in) throws IOException {
+      branch(in.readInt()).skip(in);
+    }
+
+    @Override
+    void writeKey(Input in, KeyWriter out) throws IOException {
+      int index = in.readInt();
+      Node branch = branch(index);
+      if (branches.length <= 256) {
+        out.write(index);
+      } else {
+        out.writeInt(index);
+      }
+      branch.writeKey(in, out);
+    }
+  }
+
+  /** Arrays compare item by item, then by length. */
+  private static final class ArrayNode extends Node {
+    private final Node items;
+
+    ArrayNode(Node items) {
+      this.items = items;
+    }
+
+    @Override
+    int compare(Input a, Input b) throws IOException {
+      long r1 = 0, r2 = 0; // remaining in current blocks
+      while (true) {
+        if (r1 == 0) {
+          r1 = a.nextBlock();
+        }
+        if (r2 == 0) {
+          r2 = b.nextBlock();
+        }
+        if (r1 == 0 || r2 == 0) {
+          // one ended: the other is longer unless it ends too
+          return r1 == 0 ? (r2 == 0 ? 0 : -1) : 1;
+        }
+        for (long n = Math.min(r1, r2); n > 0; n--) {
+          int c = items.compare(a, b);
+          if (c != 0) {
+            return c;
+          }
+          r1--;
+          r2--;
+        }
+      }
+    }
+
+    @Override
+    void skip(Input in) throws IOException {
+      for (long n = in.nextBlock(); n > 0; n = in.nextBlock()) {
+        for (long i = 0; i < n; i++) {
+          items.skip(in);
+        }
+      }
+    }
+
+    /** Precedes each item with 0x01 and ends with 0x00. */
+    @Override
+    void writeKey(Input in, KeyWriter out) throws IOException {
+      for (long n = in.nextBlock(); n > 0; n = in.nextBlock()) {
+        for (long i = 0; i < n; i++) {
+          out.write(1);
+          if (out.truncated) {
+            return;
+          }
+          items.writeKey(in, out);
+        }
+      }
+      out.write(0);
+    }
+  }
+
+  /** Maps cannot be compared, but can be skipped. */
+  private static final class MapNode extends Node {
+    private final Node values;
+
+    MapNode(Node values) {
+      this.values = values;
+    }
+
+    @Override
+    int compare(Input a, Input b) {
+      throw new AvroRuntimeException("Can't compare maps!");
+    }
+
+    @Override
+    void skip(Input in) throws IOException {
+      for (long n = in.nextBlock(); n > 0; n = in.nextBlock()) {
+        for (long i = 0; i < n; i++) {
+          in.skip(in.readLength());
+          values.skip(in);
+        }
+      }
+    }
+
+    @Override
+    void writeKey(Input in, KeyWriter out) {
+      throw new AvroRuntimeException("Can't compare maps!");
+    }
+  }
+
+  /**
+   * Records compare field by field in the order of each field. Runs of ignored
+   * fields are skipped together.
+   */
+  private static final class RecordNode extends Node {
+    private static final int ASCENDING = 0;
+    private static final int DESCENDING = 1;
+    private static final int IGNORE = 2;
+
+    private Node[] fields;
+    private int[] orders;
+
+    @Override
+    int compare(Input a, Input b) throws IOException {
+      for (int i = 0; i < fields.length; i++) {
+        Node field = fields[i];
+        switch (orders[i]) {
+        case ASCENDING:
+          int c = field.compare(a, b);
+          if (c != 0) {
+            return c;
+          }
+          break;
+        case DESCENDING:
+          c = field.compare(a, b);
+          if (c != 0) {
+            return -c;
+          }
+          break;
+        default:
+          field.skip(a);
+          field.skip(b);
+        }
+      }
+      return 0;
+    }
+
+    @Override
+    void skip(Input in) throws IOException {
+      for (Node field : fields) {
+        field.skip(in);
+      }
+    }
+
+    @Override
+    void writeKey(Input in, KeyWriter out) throws IOException {
+      for (int i = 0; i < fields.length && !out.truncated; i++) {
+        switch (orders[i]) {
+        case ASCENDING:
+          fields[i].writeKey(in, out);
+          break;
+        case DESCENDING:
+          out.invert ^= 0xff;
+          fields[i].writeKey(in, out);
+          out.invert ^= 0xff;
+          break;
+        default:
+          fields[i].skip(in);
+        }
+      }
+    }
+  }
+
+  /** Skips several ignored fields in a row. */
+  private static final class SkipNode extends Node {
+    private final Node[] skipped;
+
+    SkipNode(Node[] skipped) {
+      this.skipped = skipped;
+    }
+
+    @Override
+    int compare(Input a, Input b) throws IOException {
+      skip(a);
+      skip(b);
+      return 0;
+    }
+
+    @Override
+    void skip(Input in) throws IOException {
+      for (Node node : skipped) {
+        node.skip(in);
+      }
+    }
+
+    @Override
+    void writeKey(Input in, KeyWriter out) throws IOException {
+      skip(in);
+    }
+  }
+
+  private static final class Compiler {
+    /** Records compiled so far, for recursive references. */
+    private final Map<Schema, RecordNode> records = new IdentityHashMap<>();
+
+    Node compile(Schema schema) {
+      switch (schema.getType()) {
+      case NULL:
+        return new NullNode();
+      case BOOLEAN:
+        return new BooleanNode();
+      case INT:
+        return new IntNode();
+      case LONG:
+        return new LongNode();
+      case FLOAT:
+        return new FloatNode();
+      case DOUBLE:
+        return new DoubleNode();
+      case ENUM:
+        return new EnumNode(schema);
+      case FIXED:
+        return new FixedNode(schema.getFixedSize());
+      case STRING:
+      case BYTES:
+        return new BytesNode();
+      case ARRAY:
+        return new ArrayNode(compile(schema.getElementType()));
+      case MAP:
+        return new MapNode(compile(schema.getValueType()));
+      case UNION:
+        List<Schema> types = schema.getTypes();
+        Node[] branches = new Node[types.size()];
+        for (int i = 0; i < branches.length; i++) {
+          branches[i] = compile(types.get(i));
+        }
+        return new UnionNode(branches);
+      case RECORD:
+        return compileRecord(schema);
+      default:
+        throw new AvroRuntimeException("Unexpected schema to compare!");
+      }
+    }
+
+    private RecordNode compileRecord(Schema schema) {
+      RecordNode record = records.get(schema);
+      if (record != null) {
+        return record; // fields are set once the outer compilation completes
+      }
+      record = new RecordNode();
+      records.put(schema, record);
+      List<Node> fields = new ArrayList<>();
+      List<Integer> orders = new ArrayList<>();
+      List<Node> ignored = new ArrayList<>();
+      for (Field field : schema.getFields()) {
+        Node node = compile(field.schema());
+        if (field.order() == Field.Order.IGNORE) {
+          ignored.add(node);
+          continue;
+        }
+        if (!ignored.isEmpty()) {
+          fields.add(ignored.size() == 1 ? ignored.get(0) : new SkipNode(ignored.toArray(new Node[0])));
+          orders.add(RecordNode.IGNORE);
+          ignored.clear();
+        }
+        fields.add(node);
+        orders.add(field.order() == Field.Order.DESCENDING ? RecordNode.DESCENDING : RecordNode.ASCENDING);
+      }
+      if (!ignored.isEmpty()) {
+        fields.add(ignored.size() == 1 ? ignored.get(0) : new SkipNode(ignored.toArray(new Node[0])));
+        orders.add(RecordNode.IGNORE);
+      }
+      record.fields = fields.toArray(new Node[0]);
+      record.orders = orders.stream().mapToInt(Integer::intValue).toArray();
+      return record;
+    }
+  }
+}
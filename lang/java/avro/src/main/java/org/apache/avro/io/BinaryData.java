@@ -32,27 +32,6 @@ public class BinaryData {
   private BinaryData() {
   } // no public ctor
 
-  private static class Decoders {
-    private final BinaryDecoder d1, d2;
-
-    public Decoders() {
-      this.d1 = new BinaryDecoder(new byte[0], 0, 0);
-      this.d2 = new BinaryDecoder(new byte[0], 0, 0);
-    }
-
-    public void set(byte[] data1, int off1, int len1, byte[] data2, int off2, int len2) {
-      d1.setBuf(data1, off1, len1);
-      d2.setBuf(data2, off2, len2);
-    }
-
-    public void clear() {
-      d1.clearBuf();
-      d2.clearBuf();
-    }
-  } // no public ctor
-
-  private static final ThreadLocal<Decoders> DECODERS = ThreadLocalWithInitial.of(Decoders::new);
-
   /**
    * Compare binary encoded data. If equal, return zero. If greater-than, return
    * 1, if less than return -1. Order is consistent with that of
@@ -68,113 +47,7 @@ public class BinaryData {
    * {@link org.apache.avro.generic.GenericData#compare(Object, Object, Schema)}.
    */
   public static int compare(byte[] b1, int s1, int l1, byte[] b2, int s2, int l2, Schema schema) {
-    Decoders decoders = DECODERS.get();
-    decoders.set(b1, s1, l1, b2, s2, l2);
-    try {
-      return compare(decoders, schema);
-    } catch (IOException e) {
-      throw new AvroRuntimeException(e);
-    } finally {
-      decoders.clear();
-    }
-  }
-
-  /**
-   * If equal, return the number of bytes consumed. If greater than, return GT, if
-   * less than, return LT.
-   */
-  private static int compare(Decoders d, Schema schema) throws IOException {
-    Decoder d1 = d.d1;
-    Decoder d2 = d.d2;
-    switch (schema.getType()) {
-    case RECORD: {
-      for (Field field : schema.getFields()) {
-        if (field.order() == Field.Order.IGNORE) {
-          GenericDatumReader.skip(field.schema(), d1);
-          GenericDatumReader.skip(field.schema(), d2);
-          continue;
-        }
-        int c = compare(d, field.schema());
-        if (c != 0) {
-          return (field.order() != Field.Order.DESCENDING) ? c : -c;
-        }
-      }
-      return 0;
-    }
-    case ENUM:
-    case INT:
-      return Integer.compare(d1.readInt(), d2.readInt());
-    case LONG:
-      return Long.compare(d1.readLong(), d2.readLong());
-    case FLOAT:
-      return Float.compare(d1.readFloat(), d2.readFloat());
-    case DOUBLE:
-      return Double.compare(d1.readDouble(), d2.readDouble());
-    case BOOLEAN:
-      return Boolean.compare(d1.readBoolean(), d2.readBoolean());
-    case ARRAY: {
-      long i = 0; // position in array
-      long r1 = 0, r2 = 0; // remaining in current block
-      long l1 = 0, l2 = 0; // total array length
-      while (true) {
-        if (r1 == 0) { // refill blocks(s)
-          r1 = d1.readLong();
-          if (r1 < 0) {
-            r1 = -r1;
-            d1.readLong();
-          }
-          l1 += r1;
-        }
-        if (r2 == 0) {
-          r2 = d2.readLong();
-          if (r2 < 0) {
-            r2 = -r2;
-            d2.readLong();
-          }
-          l2 += r2;
-        }
-        if (r1 == 0 || r2 == 0) // empty block: done
-          return Long.compare(l1, l2);
-        long l = Math.min(l1, l2);
-        while (i < l) { // compare to end of block
-          int c = compare(d, schema.getElementType());
-          if (c != 0)
-            return c;
-          i++;
-          r1--;
-          r2--;
-        }
-      }
-    }
-    case MAP:
-      throw new AvroRuntimeException("Can't compare maps!");
-    case UNION: {
-      int i1 = d1.readInt();
-      int i2 = d2.readInt();
-      int c = Integer.compare(i1, i2);
-      return c == 0 ? compare(d, schema.getTypes().get(i1)) : c;
-    }
-    case FIXED: {
-      int size = schema.getFixedSize();
-      int c = compareBytes(d.d1.getBuf(), d.d1.getPos(), size, d.d2.getBuf(), d.d2.getPos(), size);
-      d.d1.skipFixed(size);
-      d.d2.skipFixed(size);
-      return c;
-    }
-    case STRING:
-    case BYTES: {
-      int l1 = d1.readInt();
-      int l2 = d2.readInt();
-      int c = compareBytes(d.d1.getBuf(), d.d1.getPos(), l1, d.d2.getBuf(), d.d2.getPos(), l2);
-      d.d1.skipFixed(l1);
-      d.d2.skipFixed(l2);
-      return c;
-    }
-    case NULL:
-      return 0;
-    default:
-      throw new AvroRuntimeException("Unexpected schema to compare!");
-    }
+    return BinaryComparator.get(schema).compare(b1, s1, l1, b2, s2, l2);
   }
 
   /**
@@ -197,7 +70,7 @@ public class BinaryData {
     }
   }
 
-  private static final ThreadLocal<HashData> HASH_DATA = ThreadLocalWithInitial.of(HashData::new);
+  private static final ThreadLocal<HashData> HASH_DATA = ThreadLocalWithInitial.scratch(HashData::new);
 
   /**
    * Hash binary encoded data. Consistent with
@@ -28,6 +28,7 @@ import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.Arrays;
 
 /**
@@ -294,6 +295,83 @@ public class BinaryDecoder extends Decoder {
     return Double.longBitsToDouble((((long) n1) & 0xffffffffL) | (((long) n2) << 32));
   }
 
+  @Override
+  public void readInts(int[] values, int offset, int length) throws IOException {
+    int i = offset;
+    int end = offset + length;
+    while (i < end) {
+      // decode in place while the buffer surely holds the next varint
+      final byte[] buf = this.buf;
+      final int safe = limit - 5;
+      int p = pos;
+      for (; i < end && p <= safe; i++) {
+        int b = buf[p++];
+        int n = b & 0x7f;
+        if (b < 0) {
+          b = buf[p++];
+          n ^= (b & 0x7f) << 7;
+          if (b < 0) {
+            b = buf[p++];
+            n ^= (b & 0x7f) << 14;
+            if (b < 0) {
+              b = buf[p++];
+              n ^= (b & 0x7f) << 21;
+              if (b < 0) {
+                b = buf[p++];
+                n ^= (b & 0x7f) << 28;
+                if (b < 0) {
+                  throw new InvalidNumberEncodingException("Invalid int encoding");
+                }
+              }
+            }
+          }
+        }
+        values[i] = (n >>> 1) ^ -(n & 1);
+      }
+      pos = p;
+      if (i < end) {
+        values[i++] = readInt(); // refills the buffer
+      }
+    }
+  }
+
+  @Override
+  public void readLongs(long[] values, int offset, int length) throws IOException {
+    for (int i = offset, end = offset + length; i < end; i++) {
+      values[i] = readLong();
+    }
+  }
+
+  @Override
+  public void readFloats(float[] values, int offset, int length) throws IOException {
+    int end = offset + length;
+    while (offset < end) {
+      int n = Math.min(end - offset, (limit - pos) >> 2);
+      if (n == 0) {
+        values[offset++] = readFloat(); // refills the buffer
+        continue;
+      }
+      ByteBuffer.wrap(buf, pos, n << 2).order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer().get(values, offset, n);
+      pos += n << 2;
+      offset += n;
+    }
+  }
+
+  @Override
+  public void readDoubles(double[] values, int offset, int length) throws IOException {
+    int end = offset + length;
+    while (offset < end) {
+      int n = Math.min(end - offset, (limit - pos) >> 3);
+      if (n == 0) {
+        values[offset++] = readDouble(); // refills the buffer
+        continue;
+      }
+      ByteBuffer.wrap(buf, pos, n << 3).order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer().get(values, offset, n);
+      pos += n << 3;
+      offset += n;
+    }
+  }
+
   @Override
   public Utf8 readString(Utf8 old) throws IOException {
     int length = SystemLimitException.checkMaxStringLength(readLong());
@@ -276,6 +276,40 @@ public class BlockingBinaryEncoder extends BufferedBinaryEncoder {
     pos += BinaryData.encodeDouble(d, buf, pos);
   }
 
+  // items are written one at a time, so that startItem can track blocks
+
+  @Override
+  public void writeInts(int[] values, int offset, int length) throws IOException {
+    for (int i = offset, end = offset + length; i < end; i++) {
+      startItem();
+      writeInt(values[i]);
+    }
+  }
+
+  @Override
+  public void writeLongs(long[] values, int offset, int length) throws IOException {
+    for (int i = offset, end = offset + length; i < end; i++) {
+      startItem();
+      writeLong(values[i]);
+    }
+  }
+
+  @Override
+  public void writeFloats(float[] values, int offset, int length) throws IOException {
+    for (int i = offset, end = offset + length; i < end; i++) {
+      startItem();
+      writeFloat(values[i]);
+    }
+  }
+
+  @Override
+  public void writeDoubles(double[] values, int offset, int length) throws IOException {
+    for (int i = offset, end = offset + length; i < end; i++) {
+      startItem();
+      writeDouble(values[i]);
+    }
+  }
+
   @Override
   public void writeFixed(byte[] bytes, int start, int len) throws IOException {
     doWriteBytes(bytes, start, len);
@@ -20,6 +20,7 @@ package org.apache.avro.io;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.channels.Channels;
 import java.nio.channels.WritableByteChannel;
 import java.util.Objects;
@@ -149,6 +150,49 @@ public class BufferedBinaryEncoder extends BinaryEncoder {
     pos += BinaryData.encodeDouble(d, buf, pos);
   }
 
+  @Override
+  public void writeInts(int[] values, int offset, int length) throws IOException {
+    for (int i = offset, end = offset + length; i < end;) {
+      ensureBounds(5);
+      // encode as many as surely fit before checking the buffer again
+      for (int last = i + Math.min(end - i, (buf.length - pos) / 5); i < last; i++) {
+        pos += BinaryData.encodeInt(values[i], buf, pos);
+      }
+    }
+  }
+
+  @Override
+  public void writeLongs(long[] values, int offset, int length) throws IOException {
+    for (int i = offset, end = offset + length; i < end;) {
+      ensureBounds(10);
+      for (int last = i + Math.min(end - i, (buf.length - pos) / 10); i < last; i++) {
+        pos += BinaryData.encodeLong(values[i], buf, pos);
+      }
+    }
+  }
+
+  @Override
+  public void writeFloats(float[] values, int offset, int length) throws IOException {
+    for (int end = offset + length; offset < end;) {
+      ensureBounds(4);
+      int n = Math.min(end - offset, (buf.length - pos) >> 2);
+      ByteBuffer.wrap(buf, pos, n << 2).order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer().put(values, offset, n);
+      pos += n << 2;
+      offset += n;
+    }
+  }
+
+  @Override
+  public void writeDoubles(double[] values, int offset, int length) throws IOException {
+    for (int end = offset + length; offset < end;) {
+      ensureBounds(8);
+      int n = Math.min(end - offset, (buf.length - pos) >> 3);
+      ByteBuffer.wrap(buf, pos, n << 3).order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer().put(values, offset, n);
+      pos += n << 3;
+      offset += n;
+    }
+  }
+
   @Override
   public void writeFixed(byte[] bytes, int start, int len) throws IOException {
     if (len > bulkLimit) {
@@ -0,0 +1,300 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.io;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.InvalidNumberEncodingException;
+import org.apache.avro.SystemLimitException;
+import org.apache.avro.util.Utf8;
+
+/**
+ * A {@link BinaryDecoder} that reads straight from a {@link ByteBuffer}, which
+ * may be a direct or memory-mapped buffer, using absolute gets and without
+ * copying the data to an intermediate array.
+ * <p/>
+ * The position of the buffer passed in is not modified.
+ *
+ * @see DecoderFactory#binaryDecoder(ByteBuffer, BinaryDecoder)
+ */
+class ByteBufferBinaryDecoder extends BinaryDecoder {
+  private ByteBuffer buf;
+  private int pos;
+  private int limit;
+
+  ByteBufferBinaryDecoder(ByteBuffer data) {
+    super();
+    configure(data);
+  }
+
+  ByteBufferBinaryDecoder configure(ByteBuffer data) {
+    // a private view, so reads never disturb the caller's position or byte order
+    this.buf = data.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+    this.pos = data.position();
+    this.limit = data.limit();
+    return this;
+  }
+
+  @Override
+  public boolean readBoolean() throws IOException {
+    if (pos >= limit) {
+      throw new EOFException();
+    }
+    return buf.get(pos++) == 1;
+  }
+
+  @Override
+  public int readInt() throws IOException {
+    int n = 0;
+    int shift = 0;
+    int p = pos;
+    do {
+      if (p >= limit) {
+        throw new EOFException();
+      }
+      int b = buf.get(p++);
+      n ^= (b & 0x7f) << shift;
+      if (b >= 0) {
+        pos = p;
+        return (n >>> 1) ^ -(n & 1); // back to two's-complement
+      }
+      shift += 7;
+    } while (shift < 35);
+    throw new InvalidNumberEncodingException("Invalid int encoding");
+  }
+
+  @Override
+  public long readLong() throws IOException {
+    long n = 0;
+    int shift = 0;
+    int p = pos;
+    do {
+      if (p >= limit) {
+        throw new EOFException();
+      }
+      int b = buf.get(p++);
+      n ^= (b & 0x7fL) << shift;
+      if (b >= 0) {
+        pos = p;
+        return (n >>> 1) ^ -(n & 1); // back to two's-complement
+      }
+      shift += 7;
+    } while (shift < 70);
+    throw new InvalidNumberEncodingException("Invalid long encoding");
+  }
+
+  @Override
+  public float readFloat() throws IOException {
+    ensureAvailable(4);
+    float f = buf.getFloat(pos);
+    pos += 4;
+    return f;
+  }
+
+  @Override
+  public double readDouble() throws IOException {
+    ensureAvailable(8);
+    double d = buf.getDouble(pos);
+    pos += 8;
+    return d;
+  }
+
+  @Override
+  public void readInts(int[] values, int offset, int length) throws IOException {
+    int p = pos;
+    for (int i = offset, end = offset + length; i < end; i++) {
+      int n = 0;
+      int shift = 0;
+      int b;
+      do {
+        if (p >= limit) {
+          pos = p;
+          throw new EOFException();
+        }
+        b = buf.get(p++);
+        n ^= (b & 0x7f) << shift;
+        shift += 7;
+      } while (b < 0 && shift < 35);
+      if (b < 0) {
+        throw new InvalidNumberEncodingException("Invalid int encoding");
+      }
+      values[i] = (n >>> 1) ^ -(n & 1); // back to two's-complement
+    }
+    pos = p;
+  }
+
+  @Override
+  public void readLongs(long[] values, int offset, int length) throws IOException {
+    int p = pos;
+    for (int i = offset, end = offset + length; i < end; i++) {
+      long n = 0;
+      int shift = 0;
+      int b;
+      do {
+        if (p >= limit) {
+          pos = p;
+          throw new EOFException();
+        }
+        b = buf.get(p++);
+        n ^= (b & 0x7fL) << shift;
+        shift += 7;
+      } while (b < 0 && shift < 70);
+      if (b < 0) {
+        throw new InvalidNumberEncodingException("Invalid long encoding");
+      }
+      values[i] = (n >>> 1) ^ -(n & 1); // back to two's-complement
+    }
+    pos = p;
+  }
+
+  @Override
+  public void readFloats(float[] values, int offset, int length) throws IOException {
+    view(length, 4).asFloatBuffer().get(values, offset, length);
+    pos += length << 2;
+  }
+
+  @Override
+  public void readDoubles(double[] values, int offset, int length) throws IOException {
+    view(length, 8).asDoubleBuffer().get(values, offset, length);
+    pos += length << 3;
+  }
+
+  /**
+   * Returns a little-endian view of the next <tt>count</tt> items of
+   * <tt>size</tt> bytes each, failing if the buffer holds fewer.
+   */
+  private ByteBuffer view(int count, int size) throws EOFException {
+    long length = (long) count * size;
+    if (length > limit - pos) {
+      throw new EOFException(
+          "Attempted to read " + length + " bytes, but only " + (limit - pos) + " bytes are available");
+    }
+    ByteBuffer view = buf.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+    ((Buffer) view).limit(pos + (int) length);
+    ((Buffer) view).position(pos);
+    return view;
+  }
+
+  @Override
+  public Utf8 readString(Utf8 old) throws IOException {
+    int length = SystemLimitException.checkMaxStringLength(readLong());
+    ensureAvailable(length);
+    Utf8 result = (old != null ? old : new Utf8());
+    result.setByteLength(length);
+    if (0 != length) {
+      doReadBytes(result.getBytes(), 0, length);
+    }
+    return result;
+  }
+
+  @Override
+  public ByteBuffer readBytes(ByteBuffer old) throws IOException {
+    int length = SystemLimitException.checkMaxBytesLength(readLong());
+    ensureAvailable(length);
+    final ByteBuffer result;
+    if (old != null && length <= old.capacity()) {
+      result = old;
+      result.clear();
+    } else {
+      result = ByteBuffer.allocate(length);
+    }
+    doReadBytes(result.array(), result.position(), length);
+    result.limit(length);
+    return result;
+  }
+
+  @Override
+  protected void doSkipBytes(long length) throws IOException {
+    if (length <= 0) {
+      return;
+    }
+    if (length > limit - pos) {
+      pos = limit;
+      throw new EOFException();
+    }
+    pos += (int) length;
+  }
+
+  @Override
+  protected void doReadBytes(byte[] bytes, int start, int length) throws IOException {
+    if (length < 0)
+      throw new AvroRuntimeException("Malformed data. Length is negative: " + length);
+    ensureAvailable(length);
+    ((Buffer) buf).position(pos);
+    buf.get(bytes, start, length);
+    pos += length;
+  }
+
+  private void ensureAvailable(int length) throws EOFException {
+    if (length > limit - pos) {
+      throw new EOFException(
+          "Attempted to read " + length + " bytes, but only " + (limit - pos) + " bytes are available");
+    }
+  }
+
+  @Override
+  public boolean isEnd() {
+    return pos >= limit;
+  }
+
+  @Override
+  public int remainingBytes() {
+    return limit - pos;
+  }
+
+  @Override
+  public InputStream inputStream() {
+    return new InputStream() {
+      @Override
+      public int read() {
+        return pos < limit ? buf.get(pos++) & 0xff : -1;
+      }
+
+      @Override
+      public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+          return 0;
+        }
+        if (pos >= limit) {
+          return -1;
+        }
+        int n = Math.min(len, limit - pos);
+        doReadBytes(b, off, n);
+        return n;
+      }
+
+      @Override
+      public long skip(long n) {
+        long skipped = Math.max(0, Math.min(n, limit - pos));
+        pos += (int) skipped;
+        return skipped;
+      }
+
+      @Override
+      public int available() {
+        return limit - pos;
+      }
+    };
+  }
+}
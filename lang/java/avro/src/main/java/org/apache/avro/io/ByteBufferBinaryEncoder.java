@@ -0,0 +1,256 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.io;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Objects;
+
+/**
+ * A {@link BinaryEncoder} that writes straight into a {@link ByteBuffer}, which
+ * may be a direct buffer, using absolute puts and without an intermediate
+ * array.
+ * <p/>
+ * The encoder either writes into a buffer supplied by the caller, whose
+ * position is advanced on {@link #flush()} and which throws
+ * {@link BufferOverflowException} once full, or into a buffer of its own that
+ * grows as needed. In both cases the bytes written so far are available from
+ * {@link #getByteBuffer()}.
+ * <p/>
+ * To construct or reconfigure, use
+ * {@link EncoderFactory#byteBufferBinaryEncoder(ByteBuffer, BinaryEncoder)} or
+ * {@link EncoderFactory#growableBinaryEncoder(int, boolean, BinaryEncoder)}.
+ *
+ * @see Encoder
+ * @see EncoderFactory
+ */
+public class ByteBufferBinaryEncoder extends BinaryEncoder {
+  /** Items of a bulk write made room for at a time. */
+  private static final int BULK_ITEMS = 8192;
+
+  private ByteBuffer buf;
+  /** The caller's buffer, or null when growable. */
+  private ByteBuffer target;
+  private int start;
+  private int pos;
+  private int limit;
+  private int flushed;
+
+  ByteBufferBinaryEncoder(ByteBuffer out) {
+    configure(out);
+  }
+
+  ByteBufferBinaryEncoder(int initialCapacity, boolean direct) {
+    configure(initialCapacity, direct);
+  }
+
+  ByteBufferBinaryEncoder configure(ByteBuffer out) {
+    Objects.requireNonNull(out, "ByteBuffer cannot be null");
+    if (out.isReadOnly()) {
+      throw new IllegalArgumentException("ByteBuffer cannot be read-only");
+    }
+    this.target = out;
+    this.buf = out.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+    this.start = out.position();
+    this.pos = start;
+    this.flushed = start;
+    this.limit = out.limit();
+    return this;
+  }
+
+  ByteBufferBinaryEncoder configure(int initialCapacity, boolean direct) {
+    if (initialCapacity < 1) {
+      throw new IllegalArgumentException("Invalid initial capacity: " + initialCapacity);
+    }
+    // keep the buffer grown by earlier use when it is of the requested kind
+    if (target != null || buf == null || buf.isDirect() != direct || buf.capacity() < initialCapacity) {
+      buf = allocate(initialCapacity, direct);
+    }
+    this.target = null;
+    this.start = 0;
+    this.pos = 0;
+    this.flushed = 0;
+    this.limit = buf.capacity();
+    return this;
+  }
+
+  private static ByteBuffer allocate(int capacity, boolean direct) {
+    ByteBuffer b = direct ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+    return b.order(ByteOrder.LITTLE_ENDIAN);
+  }
+
+  /**
+   * Returns the bytes written so far, from the start of the output up to the
+   * current write position. The returned buffer shares its content with the
+   * encoder, so it is only valid until the encoder is written to or reconfigured.
+   */
+  public ByteBuffer getByteBuffer() {
+    ByteBuffer written = buf.duplicate();
+    ((Buffer) written).limit(pos);
+    ((Buffer) written).position(start);
+    return written.slice();
+  }
+
+  /**
+   * Ensures that at least num bytes can be written at the current position,
+   * growing the buffer if the encoder owns it.
+   */
+  private void ensureBounds(int num) {
+    if (limit - pos < num) {
+      grow(num);
+    }
+  }
+
+  private void grow(int num) {
+    if (target != null) {
+      throw new BufferOverflowException();
+    }
+    int required = pos + num;
+    if (required < 0) {
+      throw new BufferOverflowException();
+    }
+    int capacity = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(2L * buf.capacity(), required));
+    if (capacity < required) {
+      throw new BufferOverflowException();
+    }
+    ByteBuffer grown = allocate(capacity, buf.isDirect());
+    ((Buffer) buf).limit(pos);
+    ((Buffer) buf).position(0);
+    grown.put(buf);
+    buf = grown;
+    limit = capacity;
+  }
+
+  @Override
+  public void flush() throws IOException {
+    if (target != null) {
+      ((Buffer) target).position(pos);
+    }
+    flushed = pos;
+  }
+
+  @Override
+  public void writeBoolean(boolean b) throws IOException {
+    ensureBounds(1);
+    buf.put(pos++, b ? (byte) 1 : (byte) 0);
+  }
+
+  @Override
+  public void writeInt(int n) throws IOException {
+    // move sign to low-order bit, and flip others if negative
+    n = (n << 1) ^ (n >> 31);
+    if (limit - pos < 5) {
+      // near the end of the buffer, so ask for the exact encoded length
+      ensureBounds((38 - Integer.numberOfLeadingZeros(n | 1)) / 7);
+    }
+    int p = pos;
+    while ((n & ~0x7F) != 0) {
+      buf.put(p++, (byte) ((n | 0x80) & 0xFF));
+      n >>>= 7;
+    }
+    buf.put(p++, (byte) n);
+    pos = p;
+  }
+
+  @Override
+  public void writeLong(long n) throws IOException {
+    // move sign to low-order bit, and flip others if negative
+    n = (n << 1) ^ (n >> 63);
+    if (limit - pos < 10) {
+      ensureBounds((70 - Long.numberOfLeadingZeros(n | 1)) / 7);
+    }
+    int p = pos;
+    while ((n & ~0x7FL) != 0) {
+      buf.put(p++, (byte) ((n | 0x80) & 0xFF));
+      n >>>= 7;
+    }
+    buf.put(p++, (byte) n);
+    pos = p;
+  }
+
+  @Override
+  public void writeFloat(float f) throws IOException {
+    ensureBounds(4);
+    buf.putInt(pos, Float.floatToRawIntBits(f));
+    pos += 4;
+  }
+
+  @Override
+  public void writeDouble(double d) throws IOException {
+    ensureBounds(8);
+    buf.putLong(pos, Double.doubleToRawLongBits(d));
+    pos += 8;
+  }
+
+  @Override
+  public void writeFloats(float[] values, int offset, int length) throws IOException {
+    for (int end = offset + length; offset < end;) {
+      int n = Math.min(end - offset, BULK_ITEMS);
+      ensureBounds(n << 2);
+      ByteBuffer view = buf.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+      ((Buffer) view).position(pos);
+      view.asFloatBuffer().put(values, offset, n);
+      pos += n << 2;
+      offset += n;
+    }
+  }
+
+  @Override
+  public void writeDoubles(double[] values, int offset, int length) throws IOException {
+    for (int end = offset + length; offset < end;) {
+      int n = Math.min(end - offset, BULK_ITEMS);
+      ensureBounds(n << 3);
+      ByteBuffer view = buf.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+      ((Buffer) view).position(pos);
+      view.asDoubleBuffer().put(values, offset, n);
+      pos += n << 3;
+      offset += n;
+    }
+  }
+
+  @Override
+  public void writeFixed(byte[] bytes, int start, int len) throws IOException {
+    ensureBounds(len);
+    ((Buffer) buf).position(pos);
+    buf.put(bytes, start, len);
+    pos += len;
+  }
+
+  @Override
+  public void writeFixed(ByteBuffer bytes) throws IOException {
+    int len = bytes.remaining();
+    ensureBounds(len);
+    ((Buffer) buf).position(pos);
+    buf.put(bytes.duplicate());
+    pos += len;
+  }
+
+  @Override
+  protected void writeZero() throws IOException {
+    ensureBounds(1);
+    buf.put(pos++, (byte) 0);
+  }
+
+  @Override
+  public int bytesBuffered() {
+    return pos - flushed;
+  }
+}
@@ -0,0 +1,318 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.io;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.apache.avro.Schema;
+import org.apache.avro.SystemLimitException;
+import org.apache.avro.util.Utf8;
+
+/**
+ * A batch of records decoded column by column, as read by
+ * {@link ColumnarBatchReader}. Each column holds the values of one record field
+ * for every row of the batch in a primitive array.
+ * <p/>
+ * Arrays are reused by later reads into the same batch and may be longer than
+ * the batch; only the first {@link #size()} rows are valid.
+ */
+public class ColumnBatch {
+  private final Vector[] columns;
+  private int size;
+
+  ColumnBatch(Vector[] columns) {
+    this.columns = columns;
+  }
+
+  /** Returns the number of rows in the batch. */
+  public int size() {
+    return size;
+  }
+
+  void setSize(int size) {
+    this.size = size;
+  }
+
+  public int getColumnCount() {
+    return columns.length;
+  }
+
+  public Vector getColumn(int i) {
+    return columns[i];
+  }
+
+  /** Returns the column of a field, or null if the field was not read. */
+  public Vector getColumn(String name) {
+    for (Vector column : columns) {
+      if (column.name.equals(name)) {
+        return column;
+      }
+    }
+    return null;
+  }
+
+  Vector[] columns() {
+    return columns;
+  }
+
+  /**
+   * The values of one field. Rows whose value is null, which is only possible for
+   * fields of a union with null, are marked in a bitmap.
+   */
+  public abstract static class Vector {
+    private final String name;
+    private final Schema schema;
+    private long[] nulls = new long[0];
+    private boolean hasNulls;
+
+    Vector(String name, Schema schema) {
+      this.name = name;
+      this.schema = schema;
+    }
+
+    /** Returns the name of the field. */
+    public String getName() {
+      return name;
+    }
+
+    /** Returns the schema of the field. */
+    public Schema getSchema() {
+      return schema;
+    }
+
+    /**
+     * Returns whether a row is null. The value a column holds for a null row is
+     * undefined.
+     */
+    public boolean isNull(int row) {
+      return hasNulls && (nulls[row >>> 6] & (1L << row)) != 0;
+    }
+
+    /** Returns whether any row of the batch is null. */
+    public boolean hasNulls() {
+      return hasNulls;
+    }
+
+    /**
+     * Returns the null bitmap: bit <tt>row % 64</tt> of word <tt>row / 64</tt> is
+     * set when the row is null.
+     */
+    public long[] getNulls() {
+      return nulls;
+    }
+
+    void reset(int capacity) {
+      int words = (capacity + 63) >>> 6;
+      if (nulls.length < words) {
+        nulls = new long[words];
+      } else if (hasNulls) {
+        Arrays.fill(nulls, 0L);
+      }
+      hasNulls = false;
+    }
+
+    void setNull(int row) {
+      nulls[row >>> 6] |= 1L << row;
+      hasNulls = true;
+    }
+  }
+
+  /** Values of boolean fields. */
+  public static class BooleanVector extends Vector {
+    boolean[] values = new boolean[0];
+
+    BooleanVector(String name, Schema schema) {
+      super(name, schema);
+    }
+
+    public boolean[] getValues() {
+      return values;
+    }
+
+    public boolean get(int row) {
+      return values[row];
+    }
+
+    @Override
+    void reset(int capacity) {
+      super.reset(capacity);
+      if (values.length < capacity) {
+        values = new boolean[capacity];
+      }
+    }
+  }
+
+  /** Values of int fields, and the ordinals of enum fields. */
+  public static class IntVector extends Vector {
+    int[] values = new int[0];
+
+    IntVector(String name, Schema schema) {
+      super(name, schema);
+    }
+
+    public int[] getValues() {
+      return values;
+    }
+
+    public int get(int row) {
+      return values[row];
+    }
+
+    @Override
+    void reset(int capacity) {
+      super.reset(capacity);
+      if (values.length < capacity) {
+        values = new int[capacity];
+      }
+    }
+  }
+
+  /** Values of long fields. */
+  public static class LongVector extends Vector {
+    long[] values = new long[0];
+
+    LongVector(String name, Schema schema) {
+      super(name, schema);
+    }
+
+    public long[] getValues() {
+      return values;
+    }
+
+    public long get(int row) {
+      return values[row];
+    }
+
+    @Override
+    void reset(int capacity) {
+      super.reset(capacity);
+      if (values.length < capacity) {
+        values = new long[capacity];
+      }
+    }
+  }
+
+  /** Values of float fields. */
+  public static class FloatVector extends Vector {
+    float[] values = new float[0];
+
+    FloatVector(String name, Schema schema) {
+      super(name, schema);
+    }
+
+    public float[] getValues() {
+      return values;
+    }
+
+    public float get(int row) {
+      return values[row];
+    }
+
+    @Override
+    void reset(int capacity) {
+      super.reset(capacity);
+      if (values.length < capacity) {
+        values = new float[capacity];
+      }
+    }
+  }
+
+  /** Values of double fields. */
+  public static class DoubleVector extends Vector {
+    double[] values = new double[0];
+
+    DoubleVector(String name, Schema schema) {
+      super(name, schema);
+    }
+
+    public double[] getValues() {
+      return values;
+    }
+
+    public double get(int row) {
+      return values[row];
+    }
+
+    @Override
+    void reset(int capacity) {
+      super.reset(capacity);
+      if (values.length < capacity) {
+        values = new double[capacity];
+      }
+    }
+  }
+
+  /**
+   * Values of string, bytes and fixed fields, stored one after the other in a
+   * single byte array. The value of a row starts at offset <tt>row</tt> and ends
+   * at offset <tt>row + 1</tt>.
+   */
+  public static class BytesVector extends Vector {
+    int[] offsets = new int[1];
+    byte[] data = new byte[0];
+
+    BytesVector(String name, Schema schema) {
+      super(name, schema);
+    }
+
+    public int[] getOffsets() {
+      return offsets;
+    }
+
+    public byte[] getData() {
+      return data;
+    }
+
+    public int getLength(int row) {
+      return offsets[row + 1] - offsets[row];
+    }
+
+    /** Returns the value of a row as a new Utf8. */
+    public Utf8 getUtf8(int row) {
+      return new Utf8(Arrays.copyOfRange(data, offsets[row], offsets[row + 1]));
+    }
+
+    /** Returns the value of a row as a buffer sharing the data of the vector. */
+    public ByteBuffer getBytes(int row) {
+      return ByteBuffer.wrap(data, offsets[row], getLength(row)).slice();
+    }
+
+    @Override
+    void reset(int capacity) {
+      super.reset(capacity);
+      if (offsets.length < capacity + 1) {
+        offsets = new int[capacity + 1];
+      }
+    }
+
+    /** Makes room for length more bytes after the value of the previous row. */
+    int reserve(int row, int length) {
+      int start = offsets[row];
+      if (data.length - start < length) {
+        long required = (long) start + length;
+        if (required > Integer.MAX_VALUE - 8) {
+          throw new SystemLimitException("Cannot hold more than 2GB of data in a column: " + getName());
+        }
+        data = Arrays.copyOf(data, (int) Math.min(Integer.MAX_VALUE - 8, Math.max(required, 2L * data.length)));
+      }
+      offsets[row + 1] = start + length;
+      return start;
+    }
+  }
+}
@@ -0,0 +1,265 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.io;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.Schema;
+import org.apache.avro.Schema.Field;
+import org.apache.avro.SystemLimitException;
+
+/**
+ * Decodes batches of binary-encoded records straight into the primitive
+ * columns of a {@link ColumnBatch}, without creating an object per record.
+ * <p/>
+ * Columns can be read for record fields of a primitive, enum or fixed type, or
+ * of a union of one of these with null. Fields that are not read are skipped
+ * with a {@link SkipPlan}. Logical types are not converted: a date is read as
+ * its int value, a decimal as its bytes. A batch is typically a block of a data
+ * file:
+ *
+ * <pre>
+ * ColumnarBatchReader reader = new ColumnarBatchReader(stream.getSchema(), Arrays.asList("id", "price"));
+ * ColumnBatch batch = null;
+ * BinaryDecoder decoder = null;
+ * while (stream.hasNext()) {
+ *   ByteBuffer block = stream.nextBlock();
+ *   decoder = DecoderFactory.get().binaryDecoder(block, decoder);
+ *   batch = reader.read(decoder, (int) stream.getBlockCount(), batch);
+ * }
+ * </pre>
+ * <p/>
+ * Readers are thread-safe, batches are not.
+ */
+public class ColumnarBatchReader {
+  private static final int SKIP = -1;
+
+  private final Schema schema;
+  private final List<Field> columns = new ArrayList<>();
+  /** Column read by each step, or SKIP. */
+  private final int[] steps;
+  private final SkipPlan[] skips;
+  /** Index of the null branch of each column's union, or -1. */
+  private final int[] nullIndexes;
+  private final Schema.Type[] types;
+  private final int[] fixedSizes;
+
+  /** Reads every field of a record schema. */
+  public ColumnarBatchReader(Schema schema) {
+    this(schema, null);
+  }
+
+  /**
+   * Reads the named fields of a record schema, in that order, skipping the
+   * others. All fields are read if <i>fieldNames</i> is null.
+   */
+  public ColumnarBatchReader(Schema schema, List<String> fieldNames) {
+    if (schema.getType() != Schema.Type.RECORD) {
+      throw new IllegalArgumentException("Not a record schema: " + schema);
+    }
+    this.schema = schema;
+    int[] columnOf = new int[schema.getFields().size()];
+    Arrays.fill(columnOf, SKIP);
+    if (fieldNames == null) {
+      columns.addAll(schema.getFields());
+    } else {
+      for (String name : fieldNames) {
+        Field field = schema.getField(name);
+        if (field == null) {
+          throw new IllegalArgumentException("Not a valid schema field: " + name);
+        }
+        columns.add(field);
+      }
+    }
+    this.nullIndexes = new int[columns.size()];
+    this.types = new Schema.Type[columns.size()];
+    this.fixedSizes = new int[columns.size()];
+    for (int c = 0; c < columns.size(); c++) {
+      Field field = columns.get(c);
+      if (columnOf[field.pos()] != SKIP) {
+        throw new IllegalArgumentException("Field read twice: " + field.name());
+      }
+      columnOf[field.pos()] = c;
+      Schema valueSchema = field.schema();
+      nullIndexes[c] = -1;
+      if (valueSchema.getType() == Schema.Type.UNION) {
+        List<Schema> branches = valueSchema.getTypes();
+        if (branches.size() != 2 || valueSchema.getIndexNamed(Schema.Type.NULL.getName()) == null) {
+          throw new IllegalArgumentException("Not a columnar type: " + valueSchema + " of field " + field.name());
+        }
+        nullIndexes[c] = valueSchema.getIndexNamed(Schema.Type.NULL.getName());
+        valueSchema = branches.get(1 - nullIndexes[c]);
+      }
+      types[c] = valueSchema.getType();
+      if (types[c] == Schema.Type.FIXED) {
+        fixedSizes[c] = valueSchema.getFixedSize();
+      }
+      vector(field, valueSchema); // fails early for unsupported types
+    }
+
+    // one step per column read, and one per run of fields skipped in between
+    List<Integer> stepList = new ArrayList<>();
+    List<SkipPlan> skipList = new ArrayList<>();
+    List<Schema> skipped = new ArrayList<>();
+    for (Field field : schema.getFields()) {
+      if (columnOf[field.pos()] == SKIP) {
+        skipped.add(field.schema());
+      } else {
+        if (!skipped.isEmpty()) {
+          stepList.add(SKIP);
+          skipList.add(SkipPlan.of(skipped));
+          skipped.clear();
+        }
+        stepList.add(columnOf[field.pos()]);
+        skipList.add(null);
+      }
+    }
+    if (!skipped.isEmpty()) {
+      stepList.add(SKIP);
+      skipList.add(SkipPlan.of(skipped));
+    }
+    this.steps = stepList.stream().mapToInt(Integer::intValue).toArray();
+    this.skips = skipList.toArray(new SkipPlan[0]);
+  }
+
+  /** Returns an empty vector for a column, checking its type is supported. */
+  private static ColumnBatch.Vector vector(Field field, Schema valueSchema) {
+    switch (valueSchema.getType()) {
+    case BOOLEAN:
+      return new ColumnBatch.BooleanVector(field.name(), field.schema());
+    case INT:
+    case ENUM:
+      return new ColumnBatch.IntVector(field.name(), field.schema());
+    case LONG:
+      return new ColumnBatch.LongVector(field.name(), field.schema());
+    case FLOAT:
+      return new ColumnBatch.FloatVector(field.name(), field.schema());
+    case DOUBLE:
+      return new ColumnBatch.DoubleVector(field.name(), field.schema());
+    case STRING:
+    case BYTES:
+    case FIXED:
+      return new ColumnBatch.BytesVector(field.name(), field.schema());
+    default:
+      throw new IllegalArgumentException("Not a columnar type: " + field.schema() + " of field " + field.name());
+    }
+  }
+
+  /** Returns the record schema this reader decodes. */
+  public Schema getSchema() {
+    return schema;
+  }
+
+  /** Returns a new, empty batch for the columns of this reader. */
+  public ColumnBatch newBatch() {
+    ColumnBatch.Vector[] vectors = new ColumnBatch.Vector[columns.size()];
+    for (int c = 0; c < vectors.length; c++) {
+      Field field = columns.get(c);
+      Schema valueSchema = nullIndexes[c] < 0 ? field.schema() : field.schema().getTypes().get(1 - nullIndexes[c]);
+      vectors[c] = vector(field, valueSchema);
+    }
+    return new ColumnBatch(vectors);
+  }
+
+  /**
+   * Decodes <i>count</i> records into a batch.
+   *
+   * @param in    The decoder to read from.
+   * @param count The number of records to decode.
+   * @param reuse A batch created by this reader to decode into, or null for a
+   *              new batch.
+   * @return The batch holding the records.
+   */
+  public ColumnBatch read(Decoder in, int count, ColumnBatch reuse) throws IOException {
+    if (count < 0) {
+      throw new IllegalArgumentException("Invalid count value: " + count);
+    }
+    ColumnBatch batch = reuse != null ? reuse : newBatch();
+    ColumnBatch.Vector[] vectors = batch.columns();
+    if (vectors.length != columns.size()) {
+      throw new IllegalArgumentException("Batch was not created by this reader");
+    }
+    for (ColumnBatch.Vector vector : vectors) {
+      vector.reset(count);
+    }
+    batch.setSize(0);
+    for (int row = 0; row < count; row++) {
+      for (int s = 0; s < steps.length; s++) {
+        int c = steps[s];
+        if (c == SKIP) {
+          skips[s].skip(in);
+        } else if (nullIndexes[c] >= 0 && in.readIndex() == nullIndexes[c]) {
+          setNull(vectors[c], row);
+        } else {
+          readValue(in, c, vectors[c], row);
+        }
+      }
+    }
+    batch.setSize(count);
+    return batch;
+  }
+
+  private void readValue(Decoder in, int c, ColumnBatch.Vector vector, int row) throws IOException {
+    switch (types[c]) {
+    case BOOLEAN:
+      ((ColumnBatch.BooleanVector) vector).values[row] = in.readBoolean();
+      break;
+    case INT:
+      ((ColumnBatch.IntVector) vector).values[row] = in.readInt();
+      break;
+    case ENUM:
+      ((ColumnBatch.IntVector) vector).values[row] = in.readEnum();
+      break;
+    case LONG:
+      ((ColumnBatch.LongVector) vector).values[row] = in.readLong();
+      break;
+    case FLOAT:
+      ((ColumnBatch.FloatVector) vector).values[row] = in.readFloat();
+      break;
+    case DOUBLE:
+      ((ColumnBatch.DoubleVector) vector).values[row] = in.readDouble();
+      break;
+    case STRING:
+    case BYTES:
+      ColumnBatch.BytesVector bytes = (ColumnBatch.BytesVector) vector;
+      int length = SystemLimitException.checkMaxBytesLength(in.readLong());
+      int start = bytes.reserve(row, length);
+      in.readFixed(bytes.data, start, length);
+      break;
+    case FIXED:
+      ColumnBatch.BytesVector fixed = (ColumnBatch.BytesVector) vector;
+      int size = fixedSizes[c];
+      int offset = fixed.reserve(row, size);
+      in.readFixed(fixed.data, offset, size);
+      break;
+    default:
+      throw new AvroRuntimeException("Not a columnar type: " + types[c]);
+    }
+  }
+
+  private static void setNull(ColumnBatch.Vector vector, int row) {
+    vector.setNull(row);
+    if (vector instanceof ColumnBatch.BytesVector) {
+      ((ColumnBatch.BytesVector) vector).reserve(row, 0);
+    }
+  }
+}
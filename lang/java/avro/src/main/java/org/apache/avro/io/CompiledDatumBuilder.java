@@ -0,0 +1,827 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.io;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.MutableCallSite;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.AvroTypeException;
+import org.apache.avro.Conversion;
+import org.apache.avro.Conversions;
+import org.apache.avro.LogicalType;
+import org.apache.avro.Resolver;
+import org.apache.avro.Resolver.Action;
+import org.apache.avro.Resolver.Container;
+import org.apache.avro.Resolver.EnumAdjust;
+import org.apache.avro.Resolver.ReaderUnion;
+import org.apache.avro.Resolver.RecordAdjust;
+import org.apache.avro.Resolver.Skip;
+import org.apache.avro.Resolver.WriterUnion;
+import org.apache.avro.Schema;
+import org.apache.avro.Schema.Field;
+import org.apache.avro.generic.GenericArray;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericEnumSymbol;
+import org.apache.avro.generic.GenericFixed;
+import org.apache.avro.generic.IndexedRecord;
+import org.apache.avro.specific.SpecificData;
+import org.apache.avro.specific.SpecificRecordBase;
+import org.apache.avro.util.SchemaUtil;
+import org.apache.avro.util.WeakIdentityHashMap;
+import org.apache.avro.util.internal.Accessor;
+
+/**
+ * Builds {@link DatumReader}s and {@link DatumWriter}s compiled for a schema.
+ * Where {@link FastReaderBuilder} and {@link FastWriterBuilder} walk a tree of
+ * field readers and writers, this builder composes the reading or writing of
+ * each record into one {@link MethodHandle}: fields are read and written in
+ * sequence with their record's own {@code get} and {@code put} methods, at
+ * constant positions, and unions select their branch with a chain of tests.
+ * Once hot, the JVM compiles each handle tree into straight-line code in which
+ * the calls to the encoder, decoder and record accessors are inlined.
+ * <p/>
+ * The readers resolve the writer's schema to the reader's like
+ * {@link FastReaderBuilder}, whose readers are used for type promotions and
+ * classes named by schema properties. The writers write like
+ * {@link FastWriterBuilder}, except that failures are not traced to the path of
+ * the failing value. Record readers and writers are cached by schema identity,
+ * and are shared between the readers and writers built.
+ */
+public class CompiledDatumBuilder {
+  private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+  /** The type of writer handles, {@code (Object datum, Encoder out)void}. */
+  private static final MethodType WRITER = MethodType.methodType(void.class, Object.class, Encoder.class);
+  /** The type of reader handles, {@code (Object reuse, Decoder in)Object}. */
+  private static final MethodType READER = MethodType.methodType(Object.class, Object.class, Decoder.class);
+
+  private static final MethodHandle INDEXED_GET;
+  private static final MethodHandle INDEXED_PUT;
+  private static final MethodHandle IS_INSTANCE;
+  private static final MethodHandle INT_EQUALS;
+  private static final MethodHandle CONVERT_TO_RAW;
+  private static final MethodHandle CONVERT_BY_CLASS;
+  private static final MethodHandle CONVERT_TO_LOGICAL;
+  private static final MethodHandle USE_CUSTOM_CODERS;
+  private static final MethodHandle CUSTOM_ENCODE;
+  private static final MethodHandle RESOLVE_UNION;
+  private static final MethodHandle WRITE_INDEX;
+  private static final MethodHandle READ_INDEX;
+  private static final MethodHandle NEW_INSTANCE;
+  private static final MethodHandle DATUM_READ;
+  private static final MethodHandle SKIP;
+  private static final MethodHandle COPY_DEFAULT;
+
+  static {
+    try {
+      INDEXED_GET = LOOKUP.findVirtual(IndexedRecord.class, "get", MethodType.methodType(Object.class, int.class));
+      INDEXED_PUT = LOOKUP.findVirtual(IndexedRecord.class, "put",
+          MethodType.methodType(void.class, int.class, Object.class));
+      IS_INSTANCE = LOOKUP.findVirtual(Class.class, "isInstance", MethodType.methodType(boolean.class, Object.class));
+      INT_EQUALS = helper("intEquals", boolean.class, int.class, int.class);
+      CONVERT_TO_RAW = LOOKUP.findStatic(FastWriterBuilder.class, "convert",
+          MethodType.methodType(Object.class, Schema.class, LogicalType.class, Conversion.class, Object.class));
+      CONVERT_BY_CLASS = LOOKUP.findVirtual(FastWriterBuilder.ClassConverter.class, "convert",
+          MethodType.methodType(Object.class, Object.class));
+      CONVERT_TO_LOGICAL = LOOKUP.findStatic(Conversions.class, "convertToLogicalType",
+          MethodType.methodType(Object.class, Object.class, Schema.class, LogicalType.class, Conversion.class));
+      USE_CUSTOM_CODERS = LOOKUP.findVirtual(SpecificData.class, "useCustomCoders",
+          MethodType.methodType(boolean.class));
+      CUSTOM_ENCODE = LOOKUP.findVirtual(SpecificRecordBase.class, "customEncode",
+          MethodType.methodType(void.class, Encoder.class));
+      RESOLVE_UNION = LOOKUP.findVirtual(FastWriterBuilder.UnionResolver.class, "resolve",
+          MethodType.methodType(int.class, Object.class));
+      WRITE_INDEX = helper("writeIndex", void.class, int.class, Object.class, Encoder.class);
+      READ_INDEX = LOOKUP.findVirtual(Decoder.class, "readIndex", MethodType.methodType(int.class));
+      NEW_INSTANCE = LOOKUP.findVirtual(GenericData.InstanceSupplier.class, "newInstance",
+          MethodType.methodType(Object.class, Object.class, Schema.class));
+      DATUM_READ = LOOKUP.findVirtual(DatumReader.class, "read",
+          MethodType.methodType(Object.class, Object.class, Decoder.class));
+      SKIP = LOOKUP.findVirtual(SkipPlan.class, "skip", MethodType.methodType(void.class, Decoder.class));
+      COPY_DEFAULT = helper("copyDefault", Object.class, GenericData.class, Schema.class, Object.class);
+    } catch (ReflectiveOperationException e) {
+      throw new ExceptionInInitializerError(e);
+    }
+  }
+
+  private static MethodHandle helper(String name, Class<?> returnType, Class<?>... parameterTypes)
+      throws ReflectiveOperationException {
+    return LOOKUP.findStatic(CompiledDatumBuilder.class, name, MethodType.methodType(returnType, parameterTypes));
+  }
+
+  /**
+   * Generic/SpecificData instance that contains basic functionalities like
+   * conversions and union resolution
+   */
+  private final GenericData data;
+
+  /** Whether records, enums and strings are written like specific data. */
+  private final boolean specific;
+
+  /** Record writers, by schema identity. */
+  private final Map<Schema, MutableCallSite> writerSites = new WeakIdentityHashMap<>();
+
+  /** Record readers, by reader and writer schema identity. */
+  private final Map<Schema, Map<Schema, MutableCallSite>> readerSites = new WeakIdentityHashMap<>();
+
+  /** The call sites created by the build in progress, initialized at its end. */
+  private final List<MutableCallSite> building = new ArrayList<>();
+  private final List<Runnable> rollback = new ArrayList<>();
+
+  public static CompiledDatumBuilder get() {
+    return new CompiledDatumBuilder(GenericData.get());
+  }
+
+  public static CompiledDatumBuilder getSpecific() {
+    return new CompiledDatumBuilder(SpecificData.get());
+  }
+
+  public static boolean isSupportedData(GenericData data) {
+    return FastWriterBuilder.isSupportedData(data);
+  }
+
+  public CompiledDatumBuilder(GenericData parentData) {
+    if (!isSupportedData(parentData)) {
+      throw new IllegalArgumentException("Unsupported data model: " + parentData.getClass().getName());
+    }
+    this.data = parentData;
+    this.specific = parentData instanceof SpecificData;
+  }
+
+  /** Return a writer of data of a schema. */
+  public synchronized <D> DatumWriter<D> createDatumWriter(Schema schema) {
+    return new CompiledWriter<>(build(() -> getWriterFor(schema)));
+  }
+
+  /** Return a reader of data written and read with the same schema. */
+  public <D> DatumReader<D> createDatumReader(Schema schema) {
+    return createDatumReader(schema, schema);
+  }
+
+  /** Return a reader of data written with a schema, resolved to another. */
+  public synchronized <D> DatumReader<D> createDatumReader(Schema writerSchema, Schema readerSchema) {
+    Schema resolvedWriterSchema = Schema.applyAliases(writerSchema, readerSchema);
+    Action action = Resolver.resolve(resolvedWriterSchema, readerSchema, data);
+    return new CompiledReader<>(build(() -> getReaderFor(action, null)));
+  }
+
+  private interface HandleFactory {
+    MethodHandle create() throws ReflectiveOperationException, IOException;
+  }
+
+  /**
+   * Create a handle, and then initialize the record call sites it created. On
+   * failure the call sites are dropped again, so that no handle in the caches
+   * refers to a call site left uninitialized.
+   */
+  private MethodHandle build(HandleFactory factory) {
+    try {
+      MethodHandle handle = factory.create();
+      MutableCallSite.syncAll(building.toArray(new MutableCallSite[0]));
+      return handle;
+    } catch (ReflectiveOperationException | IOException e) {
+      rollback.forEach(Runnable::run);
+      throw new AvroRuntimeException("Could not compile handle", e);
+    } catch (RuntimeException | Error e) {
+      rollback.forEach(Runnable::run);
+      throw e;
+    } finally {
+      building.clear();
+      rollback.clear();
+    }
+  }
+
+  private MethodHandle getWriterFor(Schema schema) throws ReflectiveOperationException {
+    MethodHandle writer = getNonConvertedWriter(schema);
+    LogicalType logicalType = schema.getLogicalType();
+    if (logicalType == null) {
+      return writer;
+    }
+    FastWriterBuilder.ClassConverter converter = new FastWriterBuilder.ClassConverter(data, schema, logicalType);
+    return MethodHandles.filterArguments(writer, 0, CONVERT_BY_CLASS.bindTo(converter));
+  }
+
+  private MethodHandle getNonConvertedWriter(Schema schema) throws ReflectiveOperationException {
+    switch (schema.getType()) {
+    case RECORD:
+      return getRecordWriter(schema);
+    case ENUM:
+      return MethodHandles.insertArguments(helper("writeEnum", void.class, Schema.class, boolean.class, Object.class,
+          Encoder.class), 0, schema, specific);
+    case ARRAY:
+      return helper("writeArray", void.class, MethodHandle.class, Object.class, Encoder.class)
+          .bindTo(getWriterFor(schema.getElementType()));
+    case MAP:
+      return helper("writeMap", void.class, MethodHandle.class, Object.class, Encoder.class)
+          .bindTo(getWriterFor(schema.getValueType()));
+    case UNION:
+      return createUnionWriter(schema);
+    case FIXED:
+      return MethodHandles.insertArguments(helper("writeFixed", void.class, int.class, Object.class, Encoder.class),
+          0, schema.getFixedSize());
+    case STRING:
+      if (specific) {
+        return helper("writeStringable", void.class, SpecificData.class, Object.class, Encoder.class).bindTo(data);
+      }
+      return helper("writeString", void.class, Object.class, Encoder.class);
+    case BYTES:
+      return helper("writeBytes", void.class, Object.class, Encoder.class);
+    case INT:
+      return helper("writeInt", void.class, Object.class, Encoder.class);
+    case LONG:
+      return helper("writeLong", void.class, Object.class, Encoder.class);
+    case FLOAT:
+      return helper("writeFloat", void.class, Object.class, Encoder.class);
+    case DOUBLE:
+      return helper("writeDouble", void.class, Object.class, Encoder.class);
+    case BOOLEAN:
+      return helper("writeBoolean", void.class, Object.class, Encoder.class);
+    case NULL:
+      return helper("writeNull", void.class, Object.class, Encoder.class);
+    default:
+      throw new IllegalStateException("Error getting writer for type " + schema.getFullName());
+    }
+  }
+
+  /**
+   * Return the writer of a record schema, through a call site so that recursive
+   * records can refer to their own writer.
+   */
+  private MethodHandle getRecordWriter(Schema schema) throws ReflectiveOperationException {
+    MutableCallSite site = writerSites.get(schema);
+    if (site == null) {
+      MutableCallSite created = new MutableCallSite(WRITER);
+      writerSites.put(schema, created);
+      rollback.add(() -> writerSites.remove(schema));
+      building.add(created);
+      created.setTarget(createRecordWriter(schema));
+      site = created;
+    }
+    return site.dynamicInvoker();
+  }
+
+  private MethodHandle createRecordWriter(Schema schema) throws ReflectiveOperationException {
+    List<Field> fields = schema.getFields();
+    MethodHandle[] rawWriters = new MethodHandle[fields.size()];
+    for (int i = 0; i < rawWriters.length; i++) {
+      rawWriters[i] = getNonConvertedWriter(fields.get(i).schema());
+    }
+
+    MethodHandle writer = MethodHandles.empty(WRITER);
+    for (int i = rawWriters.length - 1; i >= 0; i--) {
+      Schema fieldSchema = fields.get(i).schema();
+      LogicalType logicalType = fieldSchema.getLogicalType();
+      MethodHandle fieldWriter = rawWriters[i];
+      if (logicalType != null) {
+        FastWriterBuilder.ClassConverter converter = new FastWriterBuilder.ClassConverter(data, fieldSchema,
+            logicalType);
+        fieldWriter = MethodHandles.filterArguments(fieldWriter, 0, CONVERT_BY_CLASS.bindTo(converter));
+      }
+      writer = writeField(writer, fieldWriter, INDEXED_GET, fields.get(i).pos());
+    }
+
+    Class<?> recordClass = specific ? ((SpecificData) data).getClass(schema) : null;
+    if (recordClass == null || !SpecificRecordBase.class.isAssignableFrom(recordClass)) {
+      return writer;
+    }
+
+    // records of the specific class are written with its own accessors and
+    // conversions, like SpecificDatumWriter
+    SpecificRecordBase prototype = (SpecificRecordBase) SpecificData.newInstance(recordClass, schema);
+    MethodHandle get = accessor(recordClass, INDEXED_GET, "get");
+    MethodHandle specificWriter = MethodHandles.empty(WRITER);
+    for (int i = rawWriters.length - 1; i >= 0; i--) {
+      Schema fieldSchema = fields.get(i).schema();
+      LogicalType logicalType = fieldSchema.getLogicalType();
+      Conversion<?> conversion = prototype.getConversion(fields.get(i).pos());
+      MethodHandle fieldWriter = rawWriters[i];
+      if (conversion != null && logicalType != null) {
+        MethodHandle convert = MethodHandles.insertArguments(CONVERT_TO_RAW, 0, fieldSchema, logicalType, conversion);
+        fieldWriter = MethodHandles.filterArguments(fieldWriter, 0, convert);
+      }
+      specificWriter = writeField(specificWriter, fieldWriter, get, fields.get(i).pos());
+    }
+    if (Accessor.hasCustomCoders(prototype)) {
+      MethodHandle useCustomCoders = MethodHandles.dropArguments(USE_CUSTOM_CODERS.bindTo(data), 0, Object.class,
+          Encoder.class);
+      specificWriter = MethodHandles.guardWithTest(useCustomCoders, CUSTOM_ENCODE.asType(WRITER), specificWriter);
+    }
+    MethodHandle isSpecific = MethodHandles.dropArguments(IS_INSTANCE.bindTo(recordClass), 1, Encoder.class);
+    return MethodHandles.guardWithTest(isSpecific, specificWriter, writer);
+  }
+
+  /** Return a writer of a field of a record, followed by the given writer. */
+  private static MethodHandle writeField(MethodHandle next, MethodHandle fieldWriter, MethodHandle get, int pos) {
+    MethodHandle getField = MethodHandles.insertArguments(get, 1, pos)
+        .asType(MethodType.methodType(Object.class, Object.class));
+    return MethodHandles.foldArguments(next, MethodHandles.filterArguments(fieldWriter, 0, getField));
+  }
+
+  private MethodHandle createUnionWriter(Schema schema) throws ReflectiveOperationException {
+    List<Schema> types = schema.getTypes();
+    // (int index, Object datum, Encoder out) -> the writer of branch index
+    MethodHandle select = null;
+    for (int i = types.size() - 1; i >= 0; i--) {
+      MethodHandle branch = MethodHandles.dropArguments(getWriterFor(types.get(i)), 0, int.class);
+      select = select == null ? branch
+          : MethodHandles.guardWithTest(MethodHandles.insertArguments(INT_EQUALS, 1, i), branch, select);
+    }
+    if (select == null) {
+      throw new AvroTypeException("Empty union: " + schema);
+    }
+    MethodHandle resolve = MethodHandles.dropArguments(
+        RESOLVE_UNION.bindTo(new FastWriterBuilder.UnionResolver(data, schema)), 1, Encoder.class);
+    return MethodHandles.foldArguments(MethodHandles.foldArguments(select, WRITE_INDEX), resolve);
+  }
+
+  private MethodHandle getReaderFor(Action action, Conversion<?> explicitConversion)
+      throws ReflectiveOperationException, IOException {
+    switch (action.type) {
+    case PROMOTE:
+    case ERROR:
+      // converted by the delegate
+      return getFastReader(action);
+    default:
+    }
+    if (action.reader.getType() == Schema.Type.STRING && hasClassProp(action.reader)) {
+      return getFastReader(action);
+    }
+    MethodHandle reader = getNonConvertedReader(action);
+    Conversion<?> conversion = explicitConversion;
+    if (conversion == null) {
+      if (action.reader.getLogicalType() == null) {
+        return reader;
+      }
+      conversion = data.getConversionFor(action.reader.getLogicalType());
+      if (conversion == null) {
+        return reader;
+      }
+    }
+    MethodHandle convert = MethodHandles.insertArguments(CONVERT_TO_LOGICAL, 1, action.reader,
+        action.reader.getLogicalType(), conversion);
+    return MethodHandles.filterReturnValue(reader, convert);
+  }
+
+  private boolean hasClassProp(Schema schema) {
+    FastReaderBuilder fastReaderBuilder = data.getFastReaderBuilder();
+    return (fastReaderBuilder.isClassPropEnabled() && schema.getProp(SpecificData.CLASS_PROP) != null)
+        || (fastReaderBuilder.isKeyClassEnabled() && schema.getProp(SpecificData.KEY_CLASS_PROP) != null);
+  }
+
+  /** Return a handle to a reader of the {@link FastReaderBuilder}. */
+  private MethodHandle getFastReader(Action action) throws IOException {
+    DatumReader<Object> reader = data.getFastReaderBuilder().createDatumReader(action.writer, action.reader);
+    return MethodHandles.dropArguments(MethodHandles.insertArguments(DATUM_READ, 0, reader, null), 0, Object.class);
+  }
+
+  private MethodHandle getNonConvertedReader(Action action) throws ReflectiveOperationException, IOException {
+    switch (action.type) {
+    case CONTAINER:
+      Container container = (Container) action;
+      switch (action.reader.getType()) {
+      case MAP:
+        if (hasClassProp(action.reader)) {
+          return getFastReader(action);
+        }
+        return MethodHandles.insertArguments(
+            helper("readMap", Object.class, GenericData.class, MethodHandle.class, MethodHandle.class, Object.class,
+                Decoder.class),
+            0, data, getStringReader(action.reader), getReaderFor(container.elementAction, null));
+      case ARRAY:
+        return MethodHandles.insertArguments(
+            helper("readArray", Object.class, GenericData.class, MethodHandle.class, Schema.class, Object.class,
+                Decoder.class),
+            0, data, getReaderFor(container.elementAction, null), action.reader);
+      default:
+        throw new IllegalStateException("Error getting reader for action type " + action.getClass());
+      }
+    case DO_NOTHING:
+      return getReaderForBaseType(action.reader);
+    case RECORD:
+      return getRecordReader((RecordAdjust) action);
+    case ENUM:
+      return MethodHandles.insertArguments(
+          helper("readEnum", Object.class, EnumAdjust.class, Object.class, Decoder.class), 0, action);
+    case WRITER_UNION:
+      return createUnionReader((WriterUnion) action);
+    case READER_UNION:
+      return getReaderFor(((ReaderUnion) action).actualAction, null);
+    default:
+      throw new IllegalStateException("Error getting reader for action type " + action.getClass());
+    }
+  }
+
+  private MethodHandle getReaderForBaseType(Schema readerSchema) throws ReflectiveOperationException {
+    switch (readerSchema.getType()) {
+    case NULL:
+      return helper("readNull", Object.class, Object.class, Decoder.class);
+    case BOOLEAN:
+      return decoderMethod("readBoolean", boolean.class);
+    case STRING:
+      return getStringReader(readerSchema);
+    case INT:
+      return decoderMethod("readInt", int.class);
+    case LONG:
+      return decoderMethod("readLong", long.class);
+    case FLOAT:
+      return decoderMethod("readFloat", float.class);
+    case DOUBLE:
+      return decoderMethod("readDouble", double.class);
+    case BYTES:
+      return helper("readBytes", Object.class, Object.class, Decoder.class);
+    case FIXED:
+      return MethodHandles.insertArguments(
+          helper("readFixed", Object.class, GenericData.class, Schema.class, Object.class, Decoder.class), 0, data,
+          readerSchema);
+    default:
+      throw new IllegalStateException("Error getting reader for type " + readerSchema.getFullName());
+    }
+  }
+
+  /**
+   * Return a reader of strings, or of map keys when given a map schema, as
+   * {@link String} or {@link org.apache.avro.util.Utf8} depending on the schema's
+   * {@link GenericData#STRING_PROP}.
+   */
+  private static MethodHandle getStringReader(Schema readerSchema) throws ReflectiveOperationException {
+    if (GenericData.StringType.String.name().equals(readerSchema.getProp(GenericData.STRING_PROP))) {
+      return decoderMethod("readString", String.class);
+    }
+    return helper("readUtf8", Object.class, Object.class, Decoder.class);
+  }
+
+  /** Return a reader calling a method of the decoder, boxing its value. */
+  private static MethodHandle decoderMethod(String name, Class<?> type) throws ReflectiveOperationException {
+    MethodHandle read = LOOKUP.findVirtual(Decoder.class, name, MethodType.methodType(type))
+        .asType(MethodType.methodType(Object.class, Decoder.class));
+    return MethodHandles.dropArguments(read, 0, Object.class);
+  }
+
+  private MethodHandle createUnionReader(WriterUnion action) throws ReflectiveOperationException, IOException {
+    // (int index, Object reuse, Decoder in) -> the reader of branch index
+    MethodHandle select = null;
+    for (int i = action.actions.length - 1; i >= 0; i--) {
+      MethodHandle branch = MethodHandles.insertArguments(getReaderFor(action.actions[i], null), 0, (Object) null);
+      branch = MethodHandles.dropArguments(branch, 0, int.class, Object.class);
+      select = select == null ? branch
+          : MethodHandles.guardWithTest(MethodHandles.insertArguments(INT_EQUALS, 1, i), branch, select);
+    }
+    if (select == null) {
+      throw new AvroTypeException("Empty union: " + action.writer);
+    }
+    return MethodHandles.foldArguments(select, MethodHandles.dropArguments(READ_INDEX, 0, Object.class));
+  }
+
+  /**
+   * Return the reader of a record action, through a call site so that recursive
+   * records can refer to their own reader.
+   */
+  private MethodHandle getRecordReader(RecordAdjust action) throws ReflectiveOperationException, IOException {
+    Map<Schema, MutableCallSite> sites = readerSites.computeIfAbsent(action.reader, k -> new WeakIdentityHashMap<>());
+    MutableCallSite site = sites.get(action.writer);
+    if (site == null) {
+      MutableCallSite created = new MutableCallSite(READER);
+      sites.put(action.writer, created);
+      rollback.add(() -> sites.remove(action.writer));
+      building.add(created);
+      created.setTarget(createRecordReader(action));
+      site = created;
+    }
+    return site.dynamicInvoker();
+  }
+
+  /** Adds a single step skipping a run of writer fields, compiled together. */
+  private static void addSkipStep(List<MethodHandle> steps, List<Schema> skipped) {
+    if (!skipped.isEmpty()) {
+      steps.add(MethodHandles.dropArguments(SKIP.bindTo(SkipPlan.of(skipped)), 0, Object.class));
+      skipped.clear();
+    }
+  }
+
+  private MethodHandle createRecordReader(RecordAdjust action) throws ReflectiveOperationException, IOException {
+    Object prototype = action.instanceSupplier.newInstance(null, action.reader);
+    MethodHandle get = accessor(prototype.getClass(), INDEXED_GET, "get");
+    MethodHandle put = accessor(prototype.getClass(), INDEXED_PUT, "put");
+
+    // (Object record, Decoder in) -> each field read in turn, returning the record
+    List<MethodHandle> steps = new ArrayList<>();
+    List<Schema> skipped = new ArrayList<>();
+    int fieldCounter = 0;
+    for (Action fieldAction : action.fieldActions) {
+      if (fieldAction instanceof Skip) {
+        skipped.add(fieldAction.writer);
+      } else {
+        addSkipStep(steps, skipped);
+        Field field = action.readerOrder[fieldCounter++];
+        Conversion<?> conversion = prototype instanceof SpecificRecordBase
+            ? ((SpecificRecordBase) prototype).getConversion(field.pos())
+            : null;
+        MethodHandle fieldReader = getReaderFor(fieldAction, conversion);
+        MethodHandle getField = MethodHandles.insertArguments(get, 1, field.pos())
+            .asType(MethodType.methodType(Object.class, Object.class));
+        steps.add(setField(put, field.pos(), MethodHandles.filterArguments(fieldReader, 0, getField)));
+      }
+    }
+    addSkipStep(steps, skipped);
+    for (int i = action.firstDefault; i < action.readerOrder.length; i++) {
+      Field field = action.readerOrder[i];
+      Object defaultValue = action.defaults[i - action.firstDefault];
+      MethodHandle value = isImmutable(defaultValue)
+          ? MethodHandles.constant(Object.class, defaultValue)
+          : MethodHandles.insertArguments(COPY_DEFAULT, 0, data, field.schema(), defaultValue);
+      steps.add(setField(put, field.pos(), MethodHandles.dropArguments(value, 0, Object.class, Decoder.class)));
+    }
+
+    MethodHandle reader = MethodHandles.dropArguments(MethodHandles.identity(Object.class), 1, Decoder.class);
+    for (int i = steps.size() - 1; i >= 0; i--) {
+      reader = MethodHandles.foldArguments(reader, steps.get(i));
+    }
+    MethodHandle newInstance = MethodHandles.insertArguments(NEW_INSTANCE.bindTo(action.instanceSupplier), 1,
+        action.reader);
+    return MethodHandles.foldArguments(MethodHandles.dropArguments(reader, 1, Object.class),
+        MethodHandles.dropArguments(newInstance, 1, Decoder.class));
+  }
+
+  /**
+   * Return a step setting a field of a record to the value read by
+   * {@code (Object record, Decoder in)Object}.
+   */
+  private static MethodHandle setField(MethodHandle put, int pos, MethodHandle value) {
+    MethodHandle setter = MethodHandles.insertArguments(put, 1, pos)
+        .asType(MethodType.methodType(void.class, Object.class, Object.class));
+    return MethodHandles.permuteArguments(MethodHandles.collectArguments(setter, 1, value),
+        MethodType.methodType(void.class, Object.class, Decoder.class), 0, 0, 1);
+  }
+
+  private static boolean isImmutable(Object object) {
+    return object == null || object instanceof Number || object instanceof String || object instanceof Boolean
+        || object instanceof GenericEnumSymbol || object.getClass().isEnum();
+  }
+
+  /**
+   * Return the {@code get} or {@code put} method of a record class, called
+   * directly rather than through {@link IndexedRecord}.
+   */
+  private static MethodHandle accessor(Class<?> recordClass, MethodHandle method, String name) {
+    if (!IndexedRecord.class.isAssignableFrom(recordClass)) {
+      throw new AvroTypeException(recordClass.getName() + " is not an IndexedRecord");
+    }
+    try {
+      return LOOKUP.findVirtual(recordClass, name, method.type().dropParameterTypes(0, 1));
+    } catch (ReflectiveOperationException e) {
+      return method;
+    }
+  }
+
+  private static boolean intEquals(int index, int expected) {
+    return index == expected;
+  }
+
+  private static void writeIndex(int index, Object datum, Encoder out) throws IOException {
+    out.writeIndex(index);
+  }
+
+  private static void writeNull(Object datum, Encoder out) throws IOException {
+    out.writeNull();
+  }
+
+  private static void writeBoolean(Object datum, Encoder out) throws IOException {
+    out.writeBoolean((Boolean) datum);
+  }
+
+  private static void writeInt(Object datum, Encoder out) throws IOException {
+    out.writeInt(((Number) datum).intValue());
+  }
+
+  private static void writeLong(Object datum, Encoder out) throws IOException {
+    out.writeLong(((Number) datum).longValue());
+  }
+
+  private static void writeFloat(Object datum, Encoder out) throws IOException {
+    out.writeFloat(((Number) datum).floatValue());
+  }
+
+  private static void writeDouble(Object datum, Encoder out) throws IOException {
+    out.writeDouble(((Number) datum).doubleValue());
+  }
+
+  private static void writeBytes(Object datum, Encoder out) throws IOException {
+    out.writeBytes((ByteBuffer) datum);
+  }
+
+  private static void writeString(Object datum, Encoder out) throws IOException {
+    out.writeString((CharSequence) datum);
+  }
+
+  private static void writeStringable(SpecificData data, Object datum, Encoder out) throws IOException {
+    if (!(datum instanceof CharSequence) && Accessor.isStringable(data, datum.getClass())) {
+      datum = datum.toString();
+    }
+    out.writeString((CharSequence) datum);
+  }
+
+  private static void writeFixed(int size, Object datum, Encoder out) throws IOException {
+    out.writeFixed(((GenericFixed) datum).bytes(), 0, size);
+  }
+
+  private static void writeEnum(Schema schema, boolean specific, Object datum, Encoder out) throws IOException {
+    if (specific && datum instanceof Enum) {
+      out.writeEnum(((Enum<?>) datum).ordinal());
+      return;
+    }
+    if (!(datum instanceof GenericEnumSymbol)) {
+      throw new AvroTypeException("value " + SchemaUtil.describe(datum) + " is not a " + SchemaUtil.describe(schema));
+    }
+    out.writeEnum(schema.getEnumOrdinal(datum.toString()));
+  }
+
+  private static void writeArray(MethodHandle elementWriter, Object datum, Encoder out) throws Throwable {
+    Collection<?> array = (Collection<?>) datum;
+    long size = array.size();
+    long actualSize = 0;
+    out.writeArrayStart();
+    out.setItemCount(size);
+    for (Object element : array) {
+      out.startItem();
+      elementWriter.invokeExact(element, out);
+      actualSize++;
+    }
+    out.writeArrayEnd();
+    if (actualSize != size) {
+      throw new ConcurrentModificationException(
+          "Size of array written was " + size + ", but number of elements written was " + actualSize + ". ");
+    }
+  }
+
+  private static void writeMap(MethodHandle valueWriter, Object datum, Encoder out) throws Throwable {
+    Map<?, ?> map = (Map<?, ?>) datum;
+    int size = map.size();
+    int actualSize = 0;
+    out.writeMapStart();
+    out.setItemCount(size);
+    for (Map.Entry<?, ?> entry : map.entrySet()) {
+      out.startItem();
+      out.writeString(entry.getKey().toString());
+      valueWriter.invokeExact((Object) entry.getValue(), out);
+      actualSize++;
+    }
+    out.writeMapEnd();
+    if (actualSize != size) {
+      throw new ConcurrentModificationException(
+          "Size of map written was " + size + ", but number of entries written was " + actualSize + ". ");
+    }
+  }
+
+  private static Object readNull(Object reuse, Decoder in) throws IOException {
+    in.readNull();
+    return null;
+  }
+
+  private static Object readUtf8(Object reuse, Decoder in) throws IOException {
+    return in.readString(null);
+  }
+
+  private static Object readBytes(Object reuse, Decoder in) throws IOException {
+    return in.readBytes(reuse instanceof ByteBuffer ? (ByteBuffer) reuse : null);
+  }
+
+  private static Object readFixed(GenericData data, Schema schema, Object reuse, Decoder in) throws IOException {
+    GenericFixed fixed = (GenericFixed) data.createFixed(reuse, schema);
+    in.readFixed(fixed.bytes(), 0, schema.getFixedSize());
+    return fixed;
+  }
+
+  private static Object readEnum(EnumAdjust action, Object reuse, Decoder in) throws IOException {
+    int index = in.readEnum();
+    Object value = action.values[index];
+    if (value == null) {
+      throw new AvroTypeException("No match for " + action.writer.getEnumSymbols().get(index));
+    }
+    return value;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Object readArray(GenericData data, MethodHandle elementReader, Schema schema, Object reuse,
+      Decoder in) throws Throwable {
+    long l = in.readArrayStart();
+    Object array = data.newArray(reuse, (int) l, schema);
+    if (array instanceof GenericArray) {
+      GenericArray<Object> genericArray = (GenericArray<Object>) array;
+      while (l > 0) {
+        for (long i = 0; i < l; i++) {
+          genericArray.add((Object) elementReader.invokeExact(genericArray.peek(), in));
+        }
+        l = in.arrayNext();
+      }
+      return genericArray;
+    }
+    Collection<Object> collection = (Collection<Object>) array;
+    while (l > 0) {
+      for (long i = 0; i < l; i++) {
+        collection.add((Object) elementReader.invokeExact((Object) null, in));
+      }
+      l = in.arrayNext();
+    }
+    return collection;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Object readMap(GenericData data, MethodHandle keyReader, MethodHandle valueReader, Object reuse,
+      Decoder in) throws Throwable {
+    long l = in.readMapStart();
+    Map<Object, Object> map = (Map<Object, Object>) data.newMap(reuse, (int) l);
+    while (l > 0) {
+      for (long i = 0; i < l; i++) {
+        Object key = (Object) keyReader.invokeExact((Object) null, in);
+        map.put(key, (Object) valueReader.invokeExact((Object) null, in));
+      }
+      l = in.mapNext();
+    }
+    return map;
+  }
+
+  private static Object copyDefault(GenericData data, Schema schema, Object defaultValue) {
+    return data.deepCopy(schema, defaultValue);
+  }
+
+  private static IOException rethrow(Throwable t) {
+    if (t instanceof IOException) {
+      return (IOException) t;
+    } else if (t instanceof RuntimeException) {
+      throw (RuntimeException) t;
+    } else if (t instanceof Error) {
+      throw (Error) t;
+    }
+    throw new AvroRuntimeException(t);
+  }
+
+  private static final class CompiledWriter<D> implements DatumWriter<D> {
+    private final MethodHandle writer;
+
+    CompiledWriter(MethodHandle writer) {
+      this.writer = writer;
+    }
+
+    @Override
+    public void setSchema(Schema schema) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void write(D datum, Encoder out) throws IOException {
+      try {
+        writer.invokeExact((Object) datum, out);
+      } catch (Throwable t) {
+        throw rethrow(t);
+      }
+    }
+  }
+
+  private static final class CompiledReader<D> implements DatumReader<D> {
+    private final MethodHandle reader;
+
+    CompiledReader(MethodHandle reader) {
+      this.reader = reader;
+    }
+
+    @Override
+    public void setSchema(Schema schema) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public D read(D reuse, Decoder in) throws IOException {
+      try {
+        return (D) (Object) reader.invokeExact((Object) reuse, in);
+      } catch (Throwable t) {
+        throw rethrow(t);
+      }
+    }
+  }
+}
@@ -92,6 +92,58 @@ public abstract class Decoder {
    */
   public abstract double readDouble() throws IOException;
 
+  /**
+   * Reads <tt>length</tt> ints, the next items of an array, into
+   * <tt>values</tt> starting at <tt>offset</tt>. The caller reads the block
+   * counts of the array as usual, with {@link #readArrayStart} and
+   * {@link #arrayNext}; the default implementation calls {@link #readInt} for
+   * each item, decoders override it to read the items in bulk.
+   *
+   * @throws AvroTypeException If this is a stateful reader and ints are not the
+   *                           items to be read
+   */
+  public void readInts(int[] values, int offset, int length) throws IOException {
+    for (int i = offset, end = offset + length; i < end; i++) {
+      values[i] = readInt();
+    }
+  }
+
+  /**
+   * Reads <tt>length</tt> longs, the next items of an array, into
+   * <tt>values</tt> starting at <tt>offset</tt>.
+   *
+   * @see #readInts(int[], int, int)
+   */
+  public void readLongs(long[] values, int offset, int length) throws IOException {
+    for (int i = offset, end = offset + length; i < end; i++) {
+      values[i] = readLong();
+    }
+  }
+
+  /**
+   * Reads <tt>length</tt> floats, the next items of an array, into
+   * <tt>values</tt> starting at <tt>offset</tt>.
+   *
+   * @see #readInts(int[], int, int)
+   */
+  public void readFloats(float[] values, int offset, int length) throws IOException {
+    for (int i = offset, end = offset + length; i < end; i++) {
+      values[i] = readFloat();
+    }
+  }
+
+  /**
+   * Reads <tt>length</tt> doubles, the next items of an array, into
+   * <tt>values</tt> starting at <tt>offset</tt>.
+   *
+   * @see #readInts(int[], int, int)
+   */
+  public void readDoubles(double[] values, int offset, int length) throws IOException {
+    for (int i = offset, end = offset + length; i < end; i++) {
+      values[i] = readDouble();
+    }
+  }
+
   /**
    * Reads a char-string written by {@link Encoder#writeString}.
    *
@@ -19,6 +19,7 @@ package org.apache.avro.io;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 import org.apache.avro.Schema;
 
@@ -242,6 +243,29 @@ public class DecoderFactory {
     return binaryDecoder(bytes, 0, bytes.length, reuse);
   }
 
+  /**
+   * Creates or reinitializes a {@link BinaryDecoder} that reads the remaining
+   * bytes of the {@link ByteBuffer} provided. Heap, direct and memory-mapped
+   * buffers are read in place, without copying them to an intermediate array.
+   * The position of <i>data</i> is not modified.
+   *
+   * @param data  The ByteBuffer to read from
+   * @param reuse The BinaryDecoder to attempt to reinitialize. if null a new
+   *              BinaryDecoder is created.
+   * @return A BinaryDecoder that uses <i>data</i> as its source of data. If
+   *         <i>reuse</i> is null, this will be a new instance. <i>reuse</i> may
+   *         be reinitialized if appropriate, otherwise a new instance is
+   *         returned. Clients must not assume that <i>reuse</i> is reinitialized
+   *         and returned.
+   */
+  public BinaryDecoder binaryDecoder(ByteBuffer data, BinaryDecoder reuse) {
+    if (null == reuse || !reuse.getClass().equals(ByteBufferBinaryDecoder.class)) {
+      return new ByteBufferBinaryDecoder(data);
+    } else {
+      return ((ByteBufferBinaryDecoder) reuse).configure(data);
+    }
+  }
+
   /**
    * Creates a {@link JsonDecoder} using the InputStream provided for reading data
    * that conforms to the Schema provided.
@@ -287,7 +311,8 @@ public class DecoderFactory {
   /**
    * Creates a {@link ResolvingDecoder} wrapping the Decoder provided. This
    * ResolvingDecoder will resolve input conforming to the <i>writer</i> schema
-   * from the wrapped Decoder, and present it as the <i>reader</i> schema.
+   * from the wrapped Decoder, and present it as the <i>reader</i> schema. The
+   * resolution is shared through {@link ResolverCache#get()}.
    *
    * @param writer  The Schema that the source data is in. Cannot be null.
    * @param reader  The Schema that the reader wishes to read the data as. Cannot
@@ -296,9 +321,10 @@ public class DecoderFactory {
    * @return A ResolvingDecoder configured to resolve <i>writer</i> to
    *         <i>reader</i> from <i>in</i>
    * @throws IOException
+   * @see ResolverCache
    */
   public ResolvingDecoder resolvingDecoder(Schema writer, Schema reader, Decoder wrapped) throws IOException {
-    return new ResolvingDecoder(writer, reader, wrapped);
+    return ResolverCache.get().resolvingDecoder(writer, reader, wrapped);
   }
 
   private static class DefaultDecoderFactory extends DecoderFactory {
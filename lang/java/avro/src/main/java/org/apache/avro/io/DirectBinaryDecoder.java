@@ -21,6 +21,7 @@ import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 
 import org.apache.avro.InvalidNumberEncodingException;
 import org.apache.avro.SystemLimitException;
@@ -153,6 +154,57 @@ class DirectBinaryDecoder extends BinaryDecoder {
     return Double.longBitsToDouble(n);
   }
 
+  /** Scratch space for bulk reads, allocated on the first one. */
+  private byte[] chunk;
+
+  @Override
+  public void readInts(int[] values, int offset, int length) throws IOException {
+    // varints can only be read a byte at a time without reading ahead
+    for (int i = offset, end = offset + length; i < end; i++) {
+      values[i] = readInt();
+    }
+  }
+
+  @Override
+  public void readLongs(long[] values, int offset, int length) throws IOException {
+    for (int i = offset, end = offset + length; i < end; i++) {
+      values[i] = readLong();
+    }
+  }
+
+  @Override
+  public void readFloats(float[] values, int offset, int length) throws IOException {
+    while (length > 0) {
+      int n = readChunk(length, 4);
+      ByteBuffer.wrap(chunk, 0, n << 2).order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer().get(values, offset, n);
+      offset += n;
+      length -= n;
+    }
+  }
+
+  @Override
+  public void readDoubles(double[] values, int offset, int length) throws IOException {
+    while (length > 0) {
+      int n = readChunk(length, 8);
+      ByteBuffer.wrap(chunk, 0, n << 3).order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer().get(values, offset, n);
+      offset += n;
+      length -= n;
+    }
+  }
+
+  /**
+   * Reads as many of the next <tt>count</tt> items of <tt>size</tt> bytes each as
+   * fit in the scratch space, and returns how many were read.
+   */
+  private int readChunk(int count, int size) throws IOException {
+    if (chunk == null) {
+      chunk = new byte[4096];
+    }
+    int n = Math.min(count, chunk.length / size);
+    doReadBytes(chunk, 0, n * size);
+    return n;
+  }
+
   @Override
   public ByteBuffer readBytes(ByteBuffer old) throws IOException {
     long length = readLong();
@@ -95,6 +95,62 @@ public abstract class Encoder implements Flushable {
    */
   public abstract void writeDouble(double d) throws IOException;
 
+  /**
+   * Writes <tt>length</tt> ints from <tt>values</tt>, starting at
+   * <tt>offset</tt>, as the next items of an array. The caller writes the
+   * array start, item count and end as usual; the default implementation calls
+   * {@link #startItem} and {@link #writeInt} for each item, encoders override it
+   * to write the items in bulk.
+   *
+   * @throws AvroTypeException If this is a stateful writer and ints are not
+   *                           expected
+   */
+  public void writeInts(int[] values, int offset, int length) throws IOException {
+    for (int i = offset, end = offset + length; i < end; i++) {
+      startItem();
+      writeInt(values[i]);
+    }
+  }
+
+  /**
+   * Writes <tt>length</tt> longs from <tt>values</tt>, starting at
+   * <tt>offset</tt>, as the next items of an array.
+   *
+   * @see #writeInts(int[], int, int)
+   */
+  public void writeLongs(long[] values, int offset, int length) throws IOException {
+    for (int i = offset, end = offset + length; i < end; i++) {
+      startItem();
+      writeLong(values[i]);
+    }
+  }
+
+  /**
+   * Writes <tt>length</tt> floats from <tt>values</tt>, starting at
+   * <tt>offset</tt>, as the next items of an array.
+   *
+   * @see #writeInts(int[], int, int)
+   */
+  public void writeFloats(float[] values, int offset, int length) throws IOException {
+    for (int i = offset, end = offset + length; i < end; i++) {
+      startItem();
+      writeFloat(values[i]);
+    }
+  }
+
+  /**
+   * Writes <tt>length</tt> doubles from <tt>values</tt>, starting at
+   * <tt>offset</tt>, as the next items of an array.
+   *
+   * @see #writeInts(int[], int, int)
+   */
+  public void writeDoubles(double[] values, int offset, int length) throws IOException {
+    for (int i = offset, end = offset + length; i < end; i++) {
+      startItem();
+      writeDouble(values[i]);
+    }
+  }
+
   /**
    * Write a Unicode character string.
    *
@@ -19,6 +19,7 @@ package org.apache.avro.io;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.util.EnumSet;
 
 import org.apache.avro.AvroRuntimeException;
@@ -177,6 +178,63 @@ public class EncoderFactory {
     }
   }
 
+  /**
+   * Creates or reinitializes a {@link BinaryEncoder} that writes into the
+   * ByteBuffer provided, starting at its position. If <i>reuse</i> is provided,
+   * an attempt will be made to reconfigure <i>reuse</i> rather than construct a
+   * new instance, but this is not guaranteed, a new instance may be returned.
+   * <p/>
+   * Direct buffers are written in place with absolute puts, without an
+   * intermediate array. The position of <i>out</i> is advanced when
+   * {@link Encoder#flush()} is called. Writing past the limit of <i>out</i>
+   * throws {@link java.nio.BufferOverflowException}; use
+   * {@link #growableBinaryEncoder(int, boolean, BinaryEncoder)} when the size of
+   * the output is not known in advance.
+   * <p/>
+   * {@link BinaryEncoder} instances returned by this method are not thread-safe.
+   *
+   * @param out   The ByteBuffer to write to. Cannot be null or read-only.
+   * @param reuse The BinaryEncoder to <i>attempt</i> to reuse. If null, a new
+   *              instance is returned.
+   * @return A BinaryEncoder that uses <i>out</i> as its data output. If
+   *         <i>reuse</i> is null, this will be a new instance. If <i>reuse</i> is
+   *         not null, then the returned instance may be a new instance or
+   *         <i>reuse</i> reconfigured to use <i>out</i>.
+   * @see ByteBufferBinaryEncoder
+   */
+  public BinaryEncoder byteBufferBinaryEncoder(ByteBuffer out, BinaryEncoder reuse) {
+    if (null == reuse || !reuse.getClass().equals(ByteBufferBinaryEncoder.class)) {
+      return new ByteBufferBinaryEncoder(out);
+    } else {
+      return ((ByteBufferBinaryEncoder) reuse).configure(out);
+    }
+  }
+
+  /**
+   * Creates or reinitializes a {@link ByteBufferBinaryEncoder} that writes into
+   * a ByteBuffer of its own, heap or direct, that grows as needed. The bytes
+   * written are available from {@link ByteBufferBinaryEncoder#getByteBuffer()}.
+   * If <i>reuse</i> is provided, an attempt will be made to reconfigure
+   * <i>reuse</i>, keeping its buffer, rather than construct a new instance, but
+   * this is not guaranteed, a new instance may be returned.
+   * <p/>
+   * {@link BinaryEncoder} instances returned by this method are not thread-safe.
+   *
+   * @param initialCapacity The initial capacity of the buffer, in bytes.
+   * @param direct          Whether to allocate a direct buffer.
+   * @param reuse           The BinaryEncoder to <i>attempt</i> to reuse. If null,
+   *                        a new instance is returned.
+   * @return A ByteBufferBinaryEncoder positioned at the start of its buffer.
+   * @see ByteBufferBinaryEncoder
+   */
+  public ByteBufferBinaryEncoder growableBinaryEncoder(int initialCapacity, boolean direct, BinaryEncoder reuse) {
+    if (null == reuse || !reuse.getClass().equals(ByteBufferBinaryEncoder.class)) {
+      return new ByteBufferBinaryEncoder(initialCapacity, direct);
+    } else {
+      return ((ByteBufferBinaryEncoder) reuse).configure(initialCapacity, direct);
+    }
+  }
+
   /**
    * Creates or reinitializes a {@link BinaryEncoder} with the OutputStream
    * provided as the destination for written data. If <i>reuse</i> is provided, an
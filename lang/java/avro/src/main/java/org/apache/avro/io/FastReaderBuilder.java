@@ -18,6 +18,7 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -43,10 +44,11 @@ import org.apache.avro.Schema.Field;
 import org.apache.avro.generic.GenericArray;
 import org.apache.avro.generic.GenericData;
 import org.apache.avro.generic.GenericData.InstanceSupplier;
-import org.apache.avro.generic.GenericDatumReader;
 import org.apache.avro.generic.GenericEnumSymbol;
 import org.apache.avro.generic.GenericFixed;
 import org.apache.avro.generic.IndexedRecord;
+import org.apache.avro.generic.PrimitivesArrays;
+import org.apache.avro.generic.PrimitivesArrays.PrimitiveArray;
 import org.apache.avro.io.FastReaderBuilder.RecordReader.Stage;
 import org.apache.avro.io.parsing.ResolvingGrammarGenerator;
 import org.apache.avro.reflect.ReflectionUtil;
@@ -148,30 +150,40 @@ public class FastReaderBuilder {
     Object testInstance = action.instanceSupplier.newInstance(null, action.reader);
     IntFunction<Conversion<?>> conversionSupplier = getConversionSupplier(testInstance);
 
-    ExecutionStep[] readSteps = new ExecutionStep[action.fieldActions.length + action.readerOrder.length
-        - action.firstDefault];
+    List<ExecutionStep> readSteps = new ArrayList<>();
+    List<Schema> skipped = new ArrayList<>();
 
-    int i = 0;
     int fieldCounter = 0;
     // compute what to do with writer's fields
-    for (; i < action.fieldActions.length; i++) {
-      Action fieldAction = action.fieldActions[i];
+    for (Action fieldAction : action.fieldActions) {
       if (fieldAction instanceof Skip) {
-        readSteps[i] = (r, decoder) -> GenericDatumReader.skip(fieldAction.writer, decoder);
+        skipped.add(fieldAction.writer);
       } else {
+        addSkipStep(readSteps, skipped);
         Field readerField = action.readerOrder[fieldCounter++];
         Conversion<?> conversion = conversionSupplier.apply(readerField.pos());
         FieldReader reader = getReaderFor(fieldAction, conversion);
-        readSteps[i] = createFieldSetter(readerField, reader);
+        readSteps.add(createFieldSetter(readerField, reader));
       }
     }
+    addSkipStep(readSteps, skipped);
 
     // add defaulting if required
-    for (; i < readSteps.length; i++) {
-      readSteps[i] = getDefaultingStep(action.readerOrder[fieldCounter++]);
+    while (fieldCounter < action.readerOrder.length) {
+      readSteps.add(getDefaultingStep(action.readerOrder[fieldCounter++]));
     }
 
-    recordReader.finishInitialization(readSteps, action.reader, action.instanceSupplier);
+    recordReader.finishInitialization(readSteps.toArray(new ExecutionStep[0]), action.reader,
+        action.instanceSupplier);
+  }
+
+  /** Adds a single step skipping a run of writer fields, compiled together. */
+  private static void addSkipStep(List<ExecutionStep> readSteps, List<Schema> skipped) {
+    if (!skipped.isEmpty()) {
+      SkipPlan plan = SkipPlan.of(skipped);
+      readSteps.add((r, decoder) -> plan.skip(decoder));
+      skipped.clear();
+    }
   }
 
   private ExecutionStep createFieldSetter(Field field, FieldReader reader) {
@@ -466,10 +478,25 @@ public class FastReaderBuilder {
     }
   }
 
-  @SuppressWarnings("unchecked")
   private FieldReader createArrayReader(Schema readerSchema, Container action) throws IOException {
-    FieldReader elementReader = getReaderFor(action.elementAction, null);
+    Action elementAction = action.elementAction;
+    FieldReader listReader = createListReader(readerSchema, getReaderFor(elementAction, null));
+    if (elementAction.type == Action.Type.DO_NOTHING && elementAction.reader.getLogicalType() == null) {
+      switch (elementAction.reader.getType()) {
+      case INT:
+      case LONG:
+      case FLOAT:
+      case DOUBLE:
+        return createPrimitiveArrayReader(readerSchema, elementAction.reader.getType(), listReader);
+      default:
+        break;
+      }
+    }
+    return listReader;
+  }
 
+  @SuppressWarnings("unchecked")
+  private FieldReader createListReader(Schema readerSchema, FieldReader elementReader) {
     return reusingReader((reuse, decoder) -> {
       if (reuse instanceof GenericArray) {
         GenericArray<Object> reuseArray = (GenericArray<Object>) reuse;
@@ -499,6 +526,27 @@ public class FastReaderBuilder {
     });
   }
 
+  /**
+   * Reads arrays of unboxed numbers a block at a time into a primitive array,
+   * unless given another kind of list to reuse.
+   */
+  private FieldReader createPrimitiveArrayReader(Schema readerSchema, Schema.Type type, FieldReader fallback) {
+    return reusingReader((reuse, decoder) -> {
+      if (reuse != null && !(reuse instanceof PrimitiveArray && ((PrimitiveArray<?>) reuse).valueType() == type)) {
+        return fallback.read(reuse, decoder);
+      }
+      long l = decoder.readArrayStart();
+      PrimitiveArray<?> array = reuse != null ? (PrimitiveArray<?>) reuse
+          : (PrimitiveArray<?>) PrimitivesArrays.createOptimizedArray((int) l, readerSchema, type);
+      array.clear();
+      while (l > 0) {
+        array.readItems(decoder, (int) l);
+        l = decoder.arrayNext();
+      }
+      return array;
+    });
+  }
+
   private FieldReader createEnumReader(EnumAdjust action) {
     return reusingReader((reuse, decoder) -> {
       int index = decoder.readEnum();
@@ -0,0 +1,632 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.AvroTypeException;
+import org.apache.avro.Conversion;
+import org.apache.avro.Conversions;
+import org.apache.avro.LogicalType;
+import org.apache.avro.Schema;
+import org.apache.avro.Schema.Field;
+import org.apache.avro.UnresolvedUnionException;
+import org.apache.avro.generic.GenericContainer;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericEnumSymbol;
+import org.apache.avro.generic.GenericFixed;
+import org.apache.avro.generic.IndexedRecord;
+import org.apache.avro.io.FastWriterBuilder.RecordWriter.Stage;
+import org.apache.avro.path.ArrayPositionPredicate;
+import org.apache.avro.path.LocationStep;
+import org.apache.avro.path.MapKeyPredicate;
+import org.apache.avro.path.TracingAvroTypeException;
+import org.apache.avro.path.TracingClassCastException;
+import org.apache.avro.path.TracingNullPointException;
+import org.apache.avro.path.UnionTypePredicate;
+import org.apache.avro.specific.SpecificData;
+import org.apache.avro.specific.SpecificFixed;
+import org.apache.avro.specific.SpecificRecord;
+import org.apache.avro.specific.SpecificRecordBase;
+import org.apache.avro.util.SchemaUtil;
+import org.apache.avro.util.WeakIdentityHashMap;
+import org.apache.avro.util.internal.Accessor;
+
+/**
+ * Builds {@link DatumWriter}s that write like {@link GenericDatumWriter} and
+ * {@link org.apache.avro.specific.SpecificDatumWriter}, but from a tree of
+ * {@link FieldWriter}s computed once per schema, so that writing a datum does
+ * not walk its schema. Logical type conversions and union branches are looked
+ * up once per datum class rather than for every value.
+ *
+ * @see GenericData#setFastWriterEnabled(boolean)
+ */
+public class FastWriterBuilder {
+
+  /**
+   * Generic/SpecificData instance that contains basic functionalities like
+   * conversions and union resolution
+   */
+  private final GenericData data;
+
+  /** Whether records, enums and strings are written like specific data. */
+  private final boolean specific;
+
+  private final Map<Schema, RecordWriter> writerCache = Collections.synchronizedMap(new WeakIdentityHashMap<>());
+
+  public static FastWriterBuilder get() {
+    return new FastWriterBuilder(GenericData.get());
+  }
+
+  public static FastWriterBuilder getSpecific() {
+    return new FastWriterBuilder(SpecificData.get());
+  }
+
+  public static boolean isSupportedData(GenericData data) {
+    return data.getClass() == GenericData.class || data.getClass() == SpecificData.class;
+  }
+
+  public FastWriterBuilder(GenericData parentData) {
+    this.data = parentData;
+    this.specific = parentData instanceof SpecificData;
+  }
+
+  public <D> DatumWriter<D> createDatumWriter(Schema schema) {
+    return new RootWriter<>(schema, getWriterFor(schema));
+  }
+
+  private FieldWriter getWriterFor(Schema schema) {
+    FieldWriter writer = getNonConvertedWriter(schema);
+    LogicalType logicalType = schema.getLogicalType();
+    if (logicalType == null) {
+      return writer;
+    }
+    return new ConvertingWriter(data, schema, logicalType, writer);
+  }
+
+  /** Return a writer of values already in their raw representation. */
+  private FieldWriter getNonConvertedWriter(Schema schema) {
+    return traced(schema, getWriterForType(schema));
+  }
+
+  private FieldWriter getWriterForType(Schema schema) {
+    switch (schema.getType()) {
+    case RECORD:
+      return createRecordWriter(schema);
+    case ENUM:
+      return createEnumWriter(schema);
+    case ARRAY:
+      return createArrayWriter(schema);
+    case MAP:
+      return createMapWriter(schema);
+    case UNION:
+      return createUnionWriter(schema);
+    case FIXED:
+      int size = schema.getFixedSize();
+      return (datum, out) -> out.writeFixed(((GenericFixed) datum).bytes(), 0, size);
+    case STRING:
+      return createStringWriter();
+    case BYTES:
+      return (datum, out) -> out.writeBytes((ByteBuffer) datum);
+    case INT:
+      return (datum, out) -> out.writeInt(((Number) datum).intValue());
+    case LONG:
+      return (datum, out) -> out.writeLong(((Number) datum).longValue());
+    case FLOAT:
+      return (datum, out) -> out.writeFloat(((Number) datum).floatValue());
+    case DOUBLE:
+      return (datum, out) -> out.writeDouble(((Number) datum).doubleValue());
+    case BOOLEAN:
+      return (datum, out) -> out.writeBoolean((Boolean) datum);
+    case NULL:
+      return (datum, out) -> out.writeNull();
+    default:
+      throw new IllegalStateException("Error getting writer for type " + schema.getFullName());
+    }
+  }
+
+  /**
+   * Report failures of a writer like
+   * {@link GenericDatumWriter#writeWithoutConversion}, so that the path to the
+   * failing value can be traced.
+   */
+  private static FieldWriter traced(Schema schema, FieldWriter writer) {
+    return (datum, out) -> {
+      try {
+        writer.write(datum, out);
+      } catch (TracingNullPointException | TracingClassCastException | TracingAvroTypeException e) {
+        throw e;
+      } catch (NullPointerException e) {
+        throw new TracingNullPointException(e, schema, false);
+      } catch (ClassCastException e) {
+        throw new TracingClassCastException(e, datum, schema, false);
+      } catch (AvroTypeException e) {
+        throw new TracingAvroTypeException(e);
+      }
+    };
+  }
+
+  private RecordWriter createRecordWriter(Schema schema) {
+    // record writers are registered before they are initialized, to support
+    // recursive types
+    RecordWriter recordWriter = writerCache.computeIfAbsent(schema, k -> new RecordWriter());
+    synchronized (recordWriter) {
+      if (recordWriter.getInitializationStage() == Stage.NEW) {
+        recordWriter.startInitialization();
+        List<Field> fields = schema.getFields();
+        FieldWriter[] rawWriters = new FieldWriter[fields.size()];
+        FieldWriter[] writers = new FieldWriter[fields.size()];
+        for (int i = 0; i < writers.length; i++) {
+          Schema fieldSchema = fields.get(i).schema();
+          rawWriters[i] = getNonConvertedWriter(fieldSchema);
+          LogicalType logicalType = fieldSchema.getLogicalType();
+          writers[i] = logicalType == null ? rawWriters[i]
+              : new ConvertingWriter(data, fieldSchema, logicalType, rawWriters[i]);
+        }
+        recordWriter.finishInitialization(schema, writers, rawWriters, specific ? (SpecificData) data : null);
+      }
+    }
+    return recordWriter;
+  }
+
+  private FieldWriter createEnumWriter(Schema schema) {
+    return (datum, out) -> {
+      if (specific && datum instanceof Enum) {
+        out.writeEnum(((Enum<?>) datum).ordinal());
+        return;
+      }
+      if (!(datum instanceof GenericEnumSymbol)) {
+        AvroTypeException cause = new AvroTypeException(
+            "value " + SchemaUtil.describe(datum) + " is not a " + SchemaUtil.describe(schema));
+        throw new TracingAvroTypeException(cause);
+      }
+      out.writeEnum(schema.getEnumOrdinal(datum.toString()));
+    };
+  }
+
+  private FieldWriter createArrayWriter(Schema schema) {
+    FieldWriter elementWriter = getWriterFor(schema.getElementType());
+    return (datum, out) -> {
+      Collection<?> array = (Collection<?>) datum;
+      long size = array.size();
+      long actualSize = 0;
+      out.writeArrayStart();
+      out.setItemCount(size);
+      if (array instanceof List && array instanceof RandomAccess) {
+        List<?> list = (List<?>) array;
+        for (int i = 0, n = list.size(); i < n; i++) {
+          out.startItem();
+          writeElement(elementWriter, list.get(i), i, out);
+          actualSize++;
+        }
+      } else {
+        for (Object element : array) {
+          out.startItem();
+          writeElement(elementWriter, element, actualSize, out);
+          actualSize++;
+        }
+      }
+      out.writeArrayEnd();
+      if (actualSize != size) {
+        throw new ConcurrentModificationException(
+            "Size of array written was " + size + ", but number of elements written was " + actualSize + ". ");
+      }
+    };
+  }
+
+  private static void writeElement(FieldWriter writer, Object element, long position, Encoder out)
+      throws IOException {
+    try {
+      writer.write(element, out);
+    } catch (TracingNullPointException | TracingClassCastException | TracingAvroTypeException e) {
+      e.tracePath(new ArrayPositionPredicate(position));
+      throw e;
+    }
+  }
+
+  private FieldWriter createMapWriter(Schema schema) {
+    FieldWriter valueWriter = getWriterFor(schema.getValueType());
+    return (datum, out) -> {
+      Map<?, ?> map = (Map<?, ?>) datum;
+      int size = map.size();
+      int actualSize = 0;
+      out.writeMapStart();
+      out.setItemCount(size);
+      for (Map.Entry<?, ?> entry : map.entrySet()) {
+        out.startItem();
+        String key;
+        try {
+          key = entry.getKey().toString();
+        } catch (NullPointerException npe) {
+          TracingNullPointException tnpe = new TracingNullPointException(npe, Schema.create(Schema.Type.STRING),
+              false);
+          tnpe.tracePath(new MapKeyPredicate(null));
+          throw tnpe;
+        }
+        out.writeString(key);
+        try {
+          valueWriter.write(entry.getValue(), out);
+        } catch (TracingNullPointException | TracingClassCastException | TracingAvroTypeException e) {
+          e.tracePath(new MapKeyPredicate(key));
+          throw e;
+        }
+        actualSize++;
+      }
+      out.writeMapEnd();
+      if (actualSize != size) {
+        throw new ConcurrentModificationException(
+            "Size of map written was " + size + ", but number of entries written was " + actualSize + ". ");
+      }
+    };
+  }
+
+  private FieldWriter createUnionWriter(Schema schema) {
+    List<Schema> types = schema.getTypes();
+    FieldWriter[] branchWriters = new FieldWriter[types.size()];
+    for (int i = 0; i < branchWriters.length; i++) {
+      branchWriters[i] = getWriterFor(types.get(i));
+    }
+    return new UnionWriter(data, schema, branchWriters);
+  }
+
+  private FieldWriter createStringWriter() {
+    if (specific) {
+      // stringable classes, such as BigDecimal, are written as their string form
+      SpecificData specificData = (SpecificData) data;
+      return (datum, out) -> {
+        if (!(datum instanceof CharSequence) && Accessor.isStringable(specificData, datum.getClass())) {
+          datum = datum.toString();
+        }
+        out.writeString((CharSequence) datum);
+      };
+    }
+    return (datum, out) -> out.writeString((CharSequence) datum);
+  }
+
+  /** Like {@link GenericDatumWriter#convert}. */
+  static <T> Object convert(Schema schema, LogicalType logicalType, Conversion<T> conversion, Object datum) {
+    try {
+      if (conversion == null) {
+        return datum;
+      }
+      return Conversions.convertToRawType(datum, schema, logicalType, conversion);
+    } catch (AvroRuntimeException e) {
+      Throwable cause = e.getCause();
+      if (cause != null && cause.getClass() == ClassCastException.class) {
+        throw (ClassCastException) cause;
+      }
+      throw e;
+    }
+  }
+
+  public interface FieldWriter extends DatumWriter<Object> {
+    @Override
+    void write(Object datum, Encoder out) throws IOException;
+
+    @Override
+    default void setSchema(Schema schema) {
+      throw new UnsupportedOperationException();
+    }
+  }
+
+  /** Converts values of logical types with the conversion for their class. */
+  private static final class ConvertingWriter implements FieldWriter {
+    private final ClassConverter converter;
+    private final FieldWriter writer;
+
+    ConvertingWriter(GenericData data, Schema schema, LogicalType logicalType, FieldWriter writer) {
+      this.converter = new ClassConverter(data, schema, logicalType);
+      this.writer = writer;
+    }
+
+    @Override
+    public void write(Object datum, Encoder out) throws IOException {
+      writer.write(converter.convert(datum), out);
+    }
+  }
+
+  /**
+   * Converts values of a logical type to their raw representation, remembering
+   * the conversion of the last datum class converted.
+   */
+  static final class ClassConverter {
+    private final GenericData data;
+    private final Schema schema;
+    private final LogicalType logicalType;
+    private ClassConversion last = new ClassConversion(null, null);
+
+    ClassConverter(GenericData data, Schema schema, LogicalType logicalType) {
+      this.data = data;
+      this.schema = schema;
+      this.logicalType = logicalType;
+    }
+
+    Object convert(Object datum) {
+      if (datum == null) {
+        return null;
+      }
+      ClassConversion cached = last;
+      if (cached.type != datum.getClass()) {
+        cached = new ClassConversion(datum.getClass(), data.getConversionByClass(datum.getClass(), logicalType));
+        last = cached;
+      }
+      return FastWriterBuilder.convert(schema, logicalType, cached.conversion, datum);
+    }
+  }
+
+  private static final class ClassConversion {
+    private final Class<?> type;
+    private final Conversion<?> conversion;
+
+    ClassConversion(Class<?> type, Conversion<?> conversion) {
+      this.type = type;
+      this.conversion = conversion;
+    }
+  }
+
+  /** Writes the branch of a union chosen by a {@link UnionResolver}. */
+  private static final class UnionWriter implements FieldWriter {
+    private final UnionResolver resolver;
+    private final FieldWriter[] branchWriters;
+    private final String[] branchNames;
+
+    UnionWriter(GenericData data, Schema schema, FieldWriter[] branchWriters) {
+      this.resolver = new UnionResolver(data, schema);
+      this.branchWriters = branchWriters;
+      this.branchNames = new String[branchWriters.length];
+      for (int i = 0; i < branchNames.length; i++) {
+        branchNames[i] = schema.getTypes().get(i).getName();
+      }
+    }
+
+    @Override
+    public void write(Object datum, Encoder out) throws IOException {
+      int index = resolver.resolve(datum);
+      out.writeIndex(index);
+      try {
+        branchWriters[index].write(datum, out);
+      } catch (TracingNullPointException | TracingClassCastException | TracingAvroTypeException e) {
+        e.tracePath(new UnionTypePredicate(branchNames[index]));
+        throw e;
+      }
+    }
+  }
+
+  /**
+   * Chooses the branch of a union with {@link GenericData#resolveUnion},
+   * remembering the branch of the last datum class whose branch only depends on
+   * its class.
+   */
+  static final class UnionResolver {
+    private final GenericData data;
+    private final Schema schema;
+    private final Integer nullIndex;
+    private ClassBranch last = new ClassBranch(null, -1);
+
+    UnionResolver(GenericData data, Schema schema) {
+      this.data = data;
+      this.schema = schema;
+      this.nullIndex = schema.getIndexNamed(Schema.Type.NULL.getName());
+    }
+
+    int resolve(Object datum) {
+      if (datum == null && nullIndex != null) {
+        return nullIndex;
+      }
+      if (datum == null || !resolvedByClass(datum)) {
+        return data.resolveUnion(schema, datum);
+      }
+      ClassBranch cached = last;
+      if (cached.type != datum.getClass()) {
+        cached = new ClassBranch(datum.getClass(), data.resolveUnion(schema, datum));
+        last = cached;
+      }
+      return cached.index;
+    }
+
+    /** Generic records, enums and fixed carry their own schema. */
+    private static boolean resolvedByClass(Object datum) {
+      return !(datum instanceof GenericContainer) || datum instanceof SpecificRecord || datum instanceof SpecificFixed
+          || datum instanceof Enum || datum instanceof Collection;
+    }
+  }
+
+  private static final class ClassBranch {
+    private final Class<?> type;
+    private final int index;
+
+    ClassBranch(Class<?> type, int index) {
+      this.type = type;
+      this.index = index;
+    }
+  }
+
+  public static class RecordWriter implements FieldWriter {
+    public enum Stage {
+      NEW, INITIALIZING, INITIALIZED
+    }
+
+    private Schema schema;
+    private Field[] fields;
+    /** Writers of each field, converting values of logical types by class. */
+    private FieldWriter[] writers;
+    /** Writers of each field, of values already in their raw representation. */
+    private FieldWriter[] rawWriters;
+    /** The specific data to write specific records with, or null. */
+    private SpecificData specificData;
+    /** Writers of each field of the last specific record class written. */
+    private SpecificWriters specificWriters = new SpecificWriters(null, null);
+    private Stage stage = Stage.NEW;
+
+    public Stage getInitializationStage() {
+      return this.stage;
+    }
+
+    public void startInitialization() {
+      this.stage = Stage.INITIALIZING;
+    }
+
+    void finishInitialization(Schema schema, FieldWriter[] writers, FieldWriter[] rawWriters,
+        SpecificData specificData) {
+      this.schema = schema;
+      this.fields = schema.getFields().toArray(new Field[0]);
+      this.writers = writers;
+      this.rawWriters = rawWriters;
+      this.specificData = specificData;
+      this.stage = Stage.INITIALIZED;
+    }
+
+    @Override
+    public void write(Object datum, Encoder out) throws IOException {
+      if (specificData != null && datum instanceof SpecificRecordBase) {
+        SpecificRecordBase record = (SpecificRecordBase) datum;
+        if (specificData.useCustomCoders() && Accessor.hasCustomCoders(record)) {
+          try {
+            record.customEncode(out);
+          } catch (NullPointerException e) {
+            throw new TracingNullPointException(e, null, true);
+          }
+          return;
+        }
+        FieldWriter[] fieldWriters = specificWriters(record);
+        for (int i = 0; i < fieldWriters.length; i++) {
+          writeSpecificField(record, fields[i], fieldWriters[i], out);
+        }
+        return;
+      }
+      IndexedRecord record = (IndexedRecord) datum;
+      for (int i = 0; i < writers.length; i++) {
+        writeField(record, fields[i], writers[i], out);
+      }
+    }
+
+    /** Like {@link org.apache.avro.specific.SpecificDatumWriter#writeField}. */
+    private static void writeSpecificField(SpecificRecordBase record, Field field, FieldWriter writer, Encoder out)
+        throws IOException {
+      try {
+        writer.write(record.get(field.pos()), out);
+      } catch (TracingNullPointException | TracingClassCastException | TracingAvroTypeException e) {
+        e.tracePath(new LocationStep(".", field.name()));
+        throw e;
+      } catch (AvroTypeException e) {
+        throw new AvroTypeException(e.getMessage() + " in field '" + field.name() + "'",
+            e.getCause() == null ? e : e.getCause());
+      }
+    }
+
+    /** Like {@link GenericDatumWriter#writeField}. */
+    private static void writeField(IndexedRecord record, Field field, FieldWriter writer, Encoder out)
+        throws IOException {
+      Object value = record.get(field.pos());
+      try {
+        writer.write(value, out);
+      } catch (final UnresolvedUnionException uue) { // recreate it with the right field info
+        final UnresolvedUnionException unresolvedUnionException = new UnresolvedUnionException(field.schema(), field,
+            value);
+        unresolvedUnionException.addSuppressed(uue);
+        throw unresolvedUnionException;
+      } catch (TracingNullPointException | TracingClassCastException | TracingAvroTypeException e) {
+        e.tracePath(new LocationStep(".", field.name()));
+        throw e;
+      } catch (NullPointerException e) {
+        NullPointerException result = new NullPointerException(e.getMessage() + " in field " + field.name());
+        result.initCause(e.getCause() == null ? e : e.getCause());
+        throw result;
+      } catch (ClassCastException e) {
+        ClassCastException result = new ClassCastException(e.getMessage() + " in field " + field.name());
+        result.initCause(e.getCause() == null ? e : e.getCause());
+        throw result;
+      } catch (AvroTypeException e) {
+        throw new AvroTypeException(e.getMessage() + " in field " + field.name(),
+            e.getCause() == null ? e : e.getCause());
+      }
+    }
+
+    /**
+     * Return the writers of the fields of a specific record, which converts values
+     * with the conversions of its class, like
+     * {@link org.apache.avro.specific.SpecificDatumWriter}.
+     */
+    private FieldWriter[] specificWriters(SpecificRecordBase record) {
+      SpecificWriters cached = specificWriters;
+      if (cached.type != record.getClass()) {
+        FieldWriter[] fieldWriters = new FieldWriter[fields.length];
+        for (int i = 0; i < fieldWriters.length; i++) {
+          Conversion<?> conversion = record.getConversion(fields[i].pos());
+          Schema fieldSchema = fields[i].schema();
+          LogicalType logicalType = fieldSchema.getLogicalType();
+          FieldWriter raw = rawWriters[i];
+          fieldWriters[i] = conversion == null || logicalType == null ? raw
+              : (value, out) -> raw.write(convert(fieldSchema, logicalType, conversion, value), out);
+        }
+        cached = new SpecificWriters(record.getClass(), fieldWriters);
+        specificWriters = cached;
+      }
+      return cached.writers;
+    }
+
+    @Override
+    public String toString() {
+      return "RecordWriter[" + (schema == null ? "uninitialized" : schema.getFullName()) + "]";
+    }
+  }
+
+  private static final class SpecificWriters {
+    private final Class<?> type;
+    private final FieldWriter[] writers;
+
+    SpecificWriters(Class<?> type, FieldWriter[] writers) {
+      this.type = type;
+      this.writers = writers;
+    }
+  }
+
+  /** Reports failures like {@link GenericDatumWriter#write(Object, Encoder)}. */
+  private static final class RootWriter<D> implements DatumWriter<D> {
+    private final Schema root;
+    private final FieldWriter writer;
+
+    RootWriter(Schema root, FieldWriter writer) {
+      this.root = root;
+      this.writer = writer;
+    }
+
+    @Override
+    public void setSchema(Schema schema) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void write(D datum, Encoder out) throws IOException {
+      try {
+        writer.write(datum, out);
+      } catch (TracingNullPointException | TracingClassCastException | TracingAvroTypeException e) {
+        throw e.summarize(root);
+      }
+    }
+  }
+}
@@ -0,0 +1,241 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.io;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.avro.Schema;
+
+/**
+ * A bounded cache of the resolvers returned by
+ * {@link ResolvingDecoder#resolve(Schema, Schema)}, shared by all threads.
+ * <p/>
+ * Resolvers are immutable, so one is built for each pair of writer's and
+ * reader's schema instances, and every {@link ResolvingDecoder} created from it
+ * only holds its own parse stack. Once more than {@link #getMaximumSize()}
+ * resolvers are cached, the least recently used ones are evicted. The cache
+ * counts its hits, misses, evictions and the time spent building resolvers.
+ * <p/>
+ * Cached resolvers, and the schemas they were built for, are held strongly
+ * until they are evicted or {@link #clear() cleared}. An application that
+ * reads with many short-lived schemas keeps up to the maximum size of them
+ * reachable, and may want a smaller cache or to clear it.
+ * <p/>
+ * The size of the default instance, used by
+ * {@link DecoderFactory#resolvingDecoder(Schema, Schema, Decoder)}, may be set
+ * with the <tt>org.apache.avro.io.resolver_cache_size</tt> system property.
+ */
+public final class ResolverCache {
+  /** The default maximum number of cached resolvers. */
+  public static final int DEFAULT_MAXIMUM_SIZE = 1024;
+
+  private static final ResolverCache DEFAULT = new ResolverCache(
+      Integer.getInteger("org.apache.avro.io.resolver_cache_size", DEFAULT_MAXIMUM_SIZE));
+
+  private final Map<Key, Entry> resolvers = new ConcurrentHashMap<>();
+  private volatile int maximumSize;
+
+  // a racy clock is precise enough to tell recently used resolvers apart
+  private long clock;
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+  private final LongAdder buildNanos = new LongAdder();
+
+  /** Returns the cache shared by default. */
+  public static ResolverCache get() {
+    return DEFAULT;
+  }
+
+  /** Creates a cache holding at most <tt>maximumSize</tt> resolvers. */
+  public ResolverCache(int maximumSize) {
+    setMaximumSize(maximumSize);
+  }
+
+  /**
+   * Returns the resolver for data written with <tt>writer</tt> and read with
+   * <tt>reader</tt>, building it on the first request for this pair of schema
+   * instances.
+   *
+   * @see ResolvingDecoder#resolve(Schema, Schema)
+   */
+  public Object resolve(Schema writer, Schema reader) throws IOException {
+    Key key = new Key(writer, reader);
+    Entry entry = resolvers.get(key);
+    if (entry != null) {
+      hits.increment();
+      // most hits are on a resolver that is already the most recently used
+      if (entry.lastUsed != clock) {
+        entry.lastUsed = ++clock;
+      }
+    } else {
+      // built outside the map, so that other pairs can be looked up meanwhile;
+      // racing threads may build the same resolver, and only one is kept
+      entry = build(key);
+      Entry raced = resolvers.putIfAbsent(key, entry);
+      if (raced != null) {
+        entry = raced;
+      }
+      entry.lastUsed = ++clock;
+      if (resolvers.size() > maximumSize) {
+        evict();
+      }
+    }
+    return entry.resolver;
+  }
+
+  /**
+   * Creates a {@link ResolvingDecoder} from the cached resolver for
+   * <tt>writer</tt> and <tt>reader</tt>.
+   */
+  public ResolvingDecoder resolvingDecoder(Schema writer, Schema reader, Decoder in) throws IOException {
+    return new ResolvingDecoder(resolve(writer, reader), in);
+  }
+
+  private Entry build(Key key) throws IOException {
+    misses.increment();
+    long start = System.nanoTime();
+    try {
+      return new Entry(ResolvingDecoder.resolve(key.writer, key.reader));
+    } finally {
+      buildNanos.add(System.nanoTime() - start);
+    }
+  }
+
+  /** Drops the least recently used resolvers, leaving room for new ones. */
+  private synchronized void evict() {
+    int size = resolvers.size();
+    if (size <= maximumSize) {
+      return;
+    }
+    // evict an eighth more than needed, so that evictions are not run per miss
+    int count = size - (maximumSize - maximumSize / 8);
+    long[] stamps = new long[size];
+    int n = 0;
+    for (Entry entry : resolvers.values()) {
+      if (n == stamps.length) {
+        break;
+      }
+      stamps[n++] = entry.lastUsed;
+    }
+    if (n == 0) {
+      return;
+    }
+    Arrays.sort(stamps, 0, n);
+    long cutoff = stamps[Math.min(count, n) - 1];
+    for (Iterator<Entry> i = resolvers.values().iterator(); i.hasNext();) {
+      if (i.next().lastUsed <= cutoff) {
+        i.remove();
+        evictions.increment();
+      }
+    }
+  }
+
+  /** Returns the maximum number of cached resolvers. */
+  public int getMaximumSize() {
+    return maximumSize;
+  }
+
+  /**
+   * Sets the maximum number of cached resolvers, evicting resolvers if more are
+   * cached.
+   */
+  public void setMaximumSize(int maximumSize) {
+    if (maximumSize < 1) {
+      throw new IllegalArgumentException("Invalid maximum size: " + maximumSize);
+    }
+    this.maximumSize = maximumSize;
+    evict();
+  }
+
+  /** Returns the number of cached resolvers. */
+  public int size() {
+    return resolvers.size();
+  }
+
+  /** Drops all cached resolvers. The statistics are kept. */
+  public void clear() {
+    resolvers.clear();
+  }
+
+  /** Returns the number of requests answered with a cached resolver. */
+  public long getHitCount() {
+    return hits.sum();
+  }
+
+  /** Returns the number of resolvers built. */
+  public long getMissCount() {
+    return misses.sum();
+  }
+
+  /** Returns the number of resolvers evicted. */
+  public long getEvictionCount() {
+    return evictions.sum();
+  }
+
+  /** Returns the total time, in nanoseconds, spent building resolvers. */
+  public long getBuildTimeNanos() {
+    return buildNanos.sum();
+  }
+
+  @Override
+  public String toString() {
+    return "ResolverCache{size=" + size() + ", maximumSize=" + maximumSize + ", hits=" + getHitCount() + ", misses="
+        + getMissCount() + ", evictions=" + getEvictionCount() + ", buildTimeNanos=" + getBuildTimeNanos() + "}";
+  }
+
+  /** A pair of schemas, compared by identity. */
+  private static final class Key {
+    private final Schema writer;
+    private final Schema reader;
+
+    Key(Schema writer, Schema reader) {
+      this.writer = writer;
+      this.reader = reader;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key that = (Key) o;
+      return writer == that.writer && reader == that.reader;
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * System.identityHashCode(writer) + System.identityHashCode(reader);
+    }
+  }
+
+  private static final class Entry {
+    private final Object resolver;
+    private volatile long lastUsed;
+
+    Entry(Object resolver) {
+      this.resolver = resolver;
+    }
+  }
+}
@@ -59,8 +59,9 @@ public class ResolvingDecoder extends ValidatingDecoder {
    * @param resolver The resolver to use.
    * @param in       The underlying decoder.
    * @throws IOException
+   * @see ResolverCache
    */
-  private ResolvingDecoder(Object resolver, Decoder in) throws IOException {
+  ResolvingDecoder(Object resolver, Decoder in) throws IOException {
     super((Symbol) resolver, in);
   }
 
@@ -69,7 +70,7 @@ public class ResolvingDecoder extends ValidatingDecoder {
    * {@link ResolvingDecoder#ResolvingDecoder(Object, Decoder)}. The returned
    * Object is immutable and hence can be simultaneously used in many
    * ResolvingDecoders. This method is reasonably expensive, the users are
-   * encouraged to cache the result.
+   * encouraged to cache the result, as {@link ResolverCache} does.
    *
    * @param writer The writer's schema. Cannot be null.
    * @param reader The reader's schema. Cannot be null.
@@ -198,6 +199,66 @@ public class ResolvingDecoder extends ValidatingDecoder {
     }
   }
 
+  /**
+   * Returns the writer's symbol of each item when about to read the items of an
+   * array whose items a reader of <tt>type</tt> promotes from another type, or
+   * null.
+   */
+  private Symbol promotedItem(Symbol type) {
+    Symbol item = repeatedItem();
+    if (item instanceof Symbol.ResolvingAction && ((Symbol.ResolvingAction) item).reader == type) {
+      return ((Symbol.ResolvingAction) item).writer;
+    }
+    return null;
+  }
+
+  @Override
+  public void readLongs(long[] values, int offset, int length) throws IOException {
+    if (promotedItem(Symbol.LONG) == Symbol.INT) {
+      for (int i = offset, end = offset + length; i < end; i++) {
+        values[i] = in.readInt();
+      }
+    } else {
+      super.readLongs(values, offset, length);
+    }
+  }
+
+  @Override
+  public void readFloats(float[] values, int offset, int length) throws IOException {
+    Symbol writer = promotedItem(Symbol.FLOAT);
+    if (writer == Symbol.INT) {
+      for (int i = offset, end = offset + length; i < end; i++) {
+        values[i] = (float) in.readInt();
+      }
+    } else if (writer == Symbol.LONG) {
+      for (int i = offset, end = offset + length; i < end; i++) {
+        values[i] = (float) in.readLong();
+      }
+    } else {
+      super.readFloats(values, offset, length);
+    }
+  }
+
+  @Override
+  public void readDoubles(double[] values, int offset, int length) throws IOException {
+    Symbol writer = promotedItem(Symbol.DOUBLE);
+    if (writer == Symbol.INT) {
+      for (int i = offset, end = offset + length; i < end; i++) {
+        values[i] = in.readInt();
+      }
+    } else if (writer == Symbol.LONG) {
+      for (int i = offset, end = offset + length; i < end; i++) {
+        values[i] = (double) in.readLong();
+      }
+    } else if (writer == Symbol.FLOAT) {
+      for (int i = offset, end = offset + length; i < end; i++) {
+        values[i] = in.readFloat();
+      }
+    } else {
+      super.readDoubles(values, offset, length);
+    }
+  }
+
   @Override
   public Utf8 readString(Utf8 old) throws IOException {
     Symbol actual = parser.advance(Symbol.STRING);
@@ -299,8 +360,12 @@ public class ResolvingDecoder extends ValidatingDecoder {
         return t.writer;
       }
     } else if (top instanceof Symbol.SkipAction) {
-      Symbol symToSkip = ((Symbol.SkipAction) top).symToSkip;
-      parser.skipSymbol(symToSkip);
+      Symbol.SkipAction action = (Symbol.SkipAction) top;
+      if (action.plan != null && in instanceof BinaryDecoder) {
+        action.plan.skip(in);
+      } else {
+        parser.skipSymbol(action.symToSkip);
+      }
     } else if (top instanceof Symbol.WriterUnionAction) {
       Symbol.Alternative branches = (Symbol.Alternative) parser.popSymbol();
       parser.pushSymbol(branches.getSymbol(in.readIndex()));
@@ -324,7 +389,12 @@ public class ResolvingDecoder extends ValidatingDecoder {
     if (top instanceof Symbol.ResolvingAction) {
       parser.pushSymbol(((Symbol.ResolvingAction) top).writer);
     } else if (top instanceof Symbol.SkipAction) {
-      parser.pushSymbol(((Symbol.SkipAction) top).symToSkip);
+      Symbol.SkipAction action = (Symbol.SkipAction) top;
+      if (action.plan != null && in instanceof BinaryDecoder) {
+        action.plan.skip(in);
+      } else {
+        parser.pushSymbol(action.symToSkip);
+      }
     } else if (top instanceof Symbol.WriterUnionAction) {
       Symbol.Alternative branches = (Symbol.Alternative) parser.popSymbol();
       parser.pushSymbol(branches.getSymbol(in.readIndex()));
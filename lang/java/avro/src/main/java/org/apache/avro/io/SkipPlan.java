@@ -0,0 +1,327 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.io;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.util.springframework.ConcurrentReferenceHashMap;
+
+import static org.apache.avro.util.springframework.ConcurrentReferenceHashMap.ReferenceType.WEAK;
+
+/**
+ * A program, compiled once per writer schema, that skips binary-encoded data
+ * of that schema without walking the schema for every datum.
+ * <p/>
+ * Records are flattened into their fields, runs of fixed-width values are
+ * merged into a single skip of their total size, and arrays and maps of
+ * fixed-width items are skipped a block at a time. Blocks written with their
+ * size in bytes, as {@link BlockingBinaryEncoder} does, are jumped over without
+ * reading their items.
+ * <p/>
+ * Plans only apply to {@link BinaryDecoder}s; other decoders are skipped with
+ * {@link GenericDatumReader#skip(Schema, Decoder)}.
+ * <p/>
+ * Plans are cached by schema, so equal schemas share a plan, and are looked up
+ * without locking. The cache holds its entries weakly, so that it does not keep
+ * alive the schemas it is keyed by.
+ */
+public final class SkipPlan {
+  private static final ConcurrentMap<Schema, SkipPlan> CACHE = new ConcurrentReferenceHashMap<>(16, WEAK);
+
+  /** The schemas skipped by other decoders. */
+  private final List<Schema> schemas;
+  private final Program program;
+
+  private SkipPlan(List<Schema> schemas) {
+    this.schemas = schemas;
+    this.program = new Compiler().compile(schemas);
+  }
+
+  /** Returns the plan for a writer schema, compiling it on first use. */
+  public static SkipPlan get(Schema schema) {
+    SkipPlan plan = CACHE.get(schema);
+    if (plan == null) {
+      plan = new SkipPlan(Collections.singletonList(schema));
+      SkipPlan raced = CACHE.putIfAbsent(schema, plan);
+      if (raced != null) {
+        plan = raced;
+      }
+    }
+    return plan;
+  }
+
+  /**
+   * Returns an uncached plan skipping a datum of each schema in turn, such as a
+   * run of record fields a reader does not read.
+   */
+  static SkipPlan of(List<Schema> schemas) {
+    return new SkipPlan(new ArrayList<>(schemas));
+  }
+
+  /**
+   * Returns the encoded size of every datum of the schema, or -1 if it varies.
+   */
+  public int getFixedSize() {
+    return program.fixedSize;
+  }
+
+  /** Skips one datum of the schema. */
+  public void skip(Decoder in) throws IOException {
+    if (in instanceof BinaryDecoder) {
+      program.run((BinaryDecoder) in);
+    } else {
+      for (Schema schema : schemas) {
+        GenericDatumReader.skip(schema, in);
+      }
+    }
+  }
+
+  private static final int SKIP_BYTES = 0;
+  private static final int SKIP_VARINTS = 1;
+  private static final int SKIP_STRINGS = 2;
+  private static final int SKIP_UNION = 3;
+  private static final int SKIP_ARRAY = 4;
+  private static final int SKIP_MAP = 5;
+  private static final int CALL = 6;
+
+  /**
+   * Pairs of opcode and operand. The operand is a byte count, a repeat count, or
+   * the index of a sub-program in refs.
+   */
+  private static final class Program {
+    private int[] code;
+    private Object[] refs;
+    private int fixedSize;
+
+    void run(BinaryDecoder in) throws IOException {
+      final int[] code = this.code;
+      for (int pc = 0; pc < code.length; pc += 2) {
+        final int operand = code[pc + 1];
+        switch (code[pc]) {
+        case SKIP_BYTES:
+          in.skipFixed(operand);
+          break;
+        case SKIP_VARINTS:
+          for (int i = 0; i < operand; i++) {
+            in.readLong();
+          }
+          break;
+        case SKIP_STRINGS:
+          for (int i = 0; i < operand; i++) {
+            in.skipBytes();
+          }
+          break;
+        case SKIP_UNION:
+          Program[] branches = (Program[]) refs[operand];
+          int index = in.readIndex();
+          if (index < 0 || index >= branches.length) {
+            throw new AvroRuntimeException("Malformed data. Union index out of range: " + index);
+          }
+          branches[index].run(in);
+          break;
+        case SKIP_ARRAY:
+          Program items = (Program) refs[operand];
+          for (long n = in.skipArray(); n > 0; n = in.skipArray()) {
+            items.repeat(in, n);
+          }
+          break;
+        case SKIP_MAP:
+          Program entries = (Program) refs[operand];
+          for (long n = in.skipMap(); n > 0; n = in.skipMap()) {
+            entries.repeat(in, n);
+          }
+          break;
+        default:
+          ((Program) refs[operand]).run(in);
+        }
+      }
+    }
+
+    void repeat(BinaryDecoder in, long n) throws IOException {
+      if (fixedSize == 0) {
+        return;
+      }
+      if (fixedSize > 0) {
+        long max = Integer.MAX_VALUE / fixedSize;
+        for (; n > max; n -= max) {
+          in.skipFixed((int) max * fixedSize);
+        }
+        in.skipFixed((int) n * fixedSize);
+        return;
+      }
+      for (long i = 0; i < n; i++) {
+        run(in);
+      }
+    }
+  }
+
+  /** Emits code, merging adjacent operations of the same kind. */
+  private static final class Builder {
+    private final List<Integer> code = new ArrayList<>();
+    private final List<Object> refs = new ArrayList<>();
+
+    void emit(int op, int operand) {
+      int last = code.size() - 2;
+      if (last >= 0 && op < SKIP_UNION && code.get(last) == op) {
+        code.set(last + 1, code.get(last + 1) + operand);
+      } else if (op != SKIP_BYTES || operand != 0) {
+        code.add(op);
+        code.add(operand);
+      }
+    }
+
+    void emit(int op, Object ref) {
+      code.add(op);
+      code.add(refs.size());
+      refs.add(ref);
+    }
+
+    /** Emits the code of another builder, merging it with this one. */
+    void append(Builder other) {
+      for (int i = 0; i < other.code.size(); i += 2) {
+        int op = other.code.get(i);
+        int operand = other.code.get(i + 1);
+        if (op < SKIP_UNION) {
+          emit(op, operand);
+        } else {
+          emit(op, other.refs.get(operand));
+        }
+      }
+    }
+
+    Program build(Program program) {
+      program.code = new int[code.size()];
+      for (int i = 0; i < program.code.length; i++) {
+        program.code[i] = code.get(i);
+      }
+      program.refs = refs.toArray();
+      if (code.isEmpty()) {
+        program.fixedSize = 0;
+      } else if (code.size() == 2 && code.get(0) == SKIP_BYTES) {
+        program.fixedSize = code.get(1);
+      } else {
+        program.fixedSize = -1;
+      }
+      return program;
+    }
+  }
+
+  private static final class Compiler {
+    /**
+     * Records being compiled, mapped to the program recursive references call,
+     * or to null while no such reference has been found.
+     */
+    private final Map<Schema, Program> active = new IdentityHashMap<>();
+
+    Program compile(List<Schema> schemas) {
+      Builder builder = new Builder();
+      for (Schema schema : schemas) {
+        compile(schema, builder);
+      }
+      return builder.build(new Program());
+    }
+
+    private Program compile(Schema schema) {
+      return compile(Collections.singletonList(schema));
+    }
+
+    private void compile(Schema schema, Builder out) {
+      switch (schema.getType()) {
+      case NULL:
+        break;
+      case BOOLEAN:
+        out.emit(SKIP_BYTES, 1);
+        break;
+      case FLOAT:
+        out.emit(SKIP_BYTES, 4);
+        break;
+      case DOUBLE:
+        out.emit(SKIP_BYTES, 8);
+        break;
+      case FIXED:
+        out.emit(SKIP_BYTES, schema.getFixedSize());
+        break;
+      case INT:
+      case LONG:
+      case ENUM:
+        out.emit(SKIP_VARINTS, 1);
+        break;
+      case STRING:
+      case BYTES:
+        out.emit(SKIP_STRINGS, 1);
+        break;
+      case RECORD:
+        compileRecord(schema, out);
+        break;
+      case ARRAY:
+        out.emit(SKIP_ARRAY, compile(schema.getElementType()));
+        break;
+      case MAP:
+        Builder entry = new Builder();
+        entry.emit(SKIP_STRINGS, 1);
+        compile(schema.getValueType(), entry);
+        out.emit(SKIP_MAP, entry.build(new Program()));
+        break;
+      case UNION:
+        List<Schema> types = schema.getTypes();
+        Program[] branches = new Program[types.size()];
+        for (int i = 0; i < branches.length; i++) {
+          branches[i] = compile(types.get(i));
+        }
+        out.emit(SKIP_UNION, branches);
+        break;
+      default:
+        throw new AvroRuntimeException("Unknown type: " + schema);
+      }
+    }
+
+    private void compileRecord(Schema schema, Builder out) {
+      if (active.containsKey(schema)) {
+        // a recursive reference: call the record's own program, built below
+        Program called = active.get(schema);
+        if (called == null) {
+          called = new Program();
+          active.put(schema, called);
+        }
+        out.emit(CALL, called);
+        return;
+      }
+      active.put(schema, null);
+      Builder own = new Builder();
+      for (Schema.Field field : schema.getFields()) {
+        compile(field.schema(), own);
+      }
+      Program called = active.remove(schema);
+      if (called == null) {
+        out.append(own);
+      } else {
+        // compiled once, and called by the references within and this one
+        out.emit(CALL, own.build(called));
+      }
+    }
+  }
+}
@@ -100,6 +100,53 @@ public class ValidatingDecoder extends ParsingDecoder implements Parser.ActionHa
     return in.readDouble();
   }
 
+  /**
+   * Returns the symbol of each item when about to read the items of an array
+   * whose items are that single symbol, or null. The parser is back in the same
+   * state after every such item, so runs of them can be read from the
+   * underlying decoder directly.
+   */
+  protected Symbol repeatedItem() {
+    Symbol top = parser.topSymbol();
+    return top.kind == Symbol.Kind.REPEATER && top.production.length == 2 ? top.production[1] : null;
+  }
+
+  @Override
+  public void readInts(int[] values, int offset, int length) throws IOException {
+    if (repeatedItem() == Symbol.INT) {
+      in.readInts(values, offset, length);
+    } else {
+      super.readInts(values, offset, length);
+    }
+  }
+
+  @Override
+  public void readLongs(long[] values, int offset, int length) throws IOException {
+    if (repeatedItem() == Symbol.LONG) {
+      in.readLongs(values, offset, length);
+    } else {
+      super.readLongs(values, offset, length);
+    }
+  }
+
+  @Override
+  public void readFloats(float[] values, int offset, int length) throws IOException {
+    if (repeatedItem() == Symbol.FLOAT) {
+      in.readFloats(values, offset, length);
+    } else {
+      super.readFloats(values, offset, length);
+    }
+  }
+
+  @Override
+  public void readDoubles(double[] values, int offset, int length) throws IOException {
+    if (repeatedItem() == Symbol.DOUBLE) {
+      in.readDoubles(values, offset, length);
+    } else {
+      super.readDoubles(values, offset, length);
+    }
+  }
+
   @Override
   public Utf8 readString(Utf8 old) throws IOException {
     parser.advance(Symbol.STRING);
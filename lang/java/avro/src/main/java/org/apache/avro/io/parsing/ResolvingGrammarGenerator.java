@@ -32,6 +32,7 @@ import org.apache.avro.Schema;
 import org.apache.avro.Schema.Field;
 import org.apache.avro.io.Encoder;
 import org.apache.avro.io.EncoderFactory;
+import org.apache.avro.io.SkipPlan;
 import org.apache.avro.util.internal.Accessor;
 import org.apache.avro.util.internal.Accessor.ResolvingGrammarGeneratorAccessor;
 
@@ -86,7 +87,7 @@ public class ResolvingGrammarGenerator extends ValidatingGrammarGenerator {
       return Symbol.error(action.toString());
 
     } else if (action instanceof Resolver.Skip) {
-      return Symbol.skipAction(simpleGen(action.writer, seen));
+      return Symbol.skipAction(simpleGen(action.writer, seen), SkipPlan.get(action.writer));
 
     } else if (action instanceof Resolver.Promote) {
       return Symbol.resolve(simpleGen(action.writer, seen), simpleGen(action.reader, seen));
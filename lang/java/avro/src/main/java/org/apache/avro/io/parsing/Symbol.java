@@ -27,6 +27,7 @@ import java.util.NoSuchElementException;
 import java.util.Set;
 
 import org.apache.avro.Schema;
+import org.apache.avro.io.SkipPlan;
 
 /**
  * Symbol is the base of all symbols (terminals and non-terminals) of the
@@ -563,18 +564,33 @@ public abstract class Symbol {
     return new SkipAction(symToSkip);
   }
 
+  /**
+   * A skip action that binary decoders may perform with the compiled plan of the
+   * writer schema instead of walking <tt>symToSkip</tt>.
+   */
+  public static SkipAction skipAction(Symbol symToSkip, SkipPlan plan) {
+    return new SkipAction(symToSkip, plan);
+  }
+
   public static class SkipAction extends ImplicitAction {
     public final Symbol symToSkip;
+    /** The compiled plan of the skipped schema, or null. */
+    public final SkipPlan plan;
 
     @Deprecated
     public SkipAction(Symbol symToSkip) {
+      this(symToSkip, null);
+    }
+
+    private SkipAction(Symbol symToSkip, SkipPlan plan) {
       super(true);
       this.symToSkip = symToSkip;
+      this.plan = plan;
     }
 
     @Override
     public SkipAction flatten(Map<Sequence, Sequence> map, Map<Sequence, List<Fixup>> map2) {
-      return new SkipAction(symToSkip.flatten(map, map2));
+      return new SkipAction(symToSkip.flatten(map, map2), plan);
     }
 
   }
@@ -25,8 +25,8 @@ import org.apache.avro.util.internal.ThreadLocalWithInitial;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.Buffer;
 import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -48,12 +48,10 @@ import java.util.concurrent.ConcurrentHashMap;
  */
 public class BinaryMessageDecoder<D> extends MessageDecoder.BaseDecoder<D> {
 
-  private static final ThreadLocal<byte[]> HEADER_BUFFER = ThreadLocalWithInitial.of(() -> new byte[10]);
+  private static final int HEADER_LENGTH = BinaryMessageEncoder.V1_HEADER.length + 8;
 
-  private static final ThreadLocal<ByteBuffer> FP_BUFFER = ThreadLocalWithInitial.of(() -> {
-    byte[] header = HEADER_BUFFER.get();
-    return ByteBuffer.wrap(header).order(ByteOrder.LITTLE_ENDIAN);
-  });
+  private static final ThreadLocal<byte[]> HEADER_BUFFER = ThreadLocalWithInitial
+      .scratch(() -> new byte[HEADER_LENGTH]);
 
   private final GenericData model;
   private final Schema readSchema;
@@ -61,6 +59,10 @@ public class BinaryMessageDecoder<D> extends MessageDecoder.BaseDecoder<D> {
 
   private final Map<Long, RawMessageDecoder<D>> codecByFingerprint = new ConcurrentHashMap<>();
 
+  // most streams carry messages of a single schema, so its decoder is kept
+  // where it can be found without boxing the fingerprint
+  private volatile LastDecoder<D> last;
+
   /**
    * Creates a new {@link BinaryMessageEncoder} that uses the given
    * {@link GenericData data model} to construct datum instances described by the
@@ -123,11 +125,17 @@ public class BinaryMessageDecoder<D> extends MessageDecoder.BaseDecoder<D> {
     long fp = SchemaNormalization.parsingFingerprint64(writeSchema);
     final Schema actualReadSchema = this.readSchema != null ? this.readSchema : writeSchema;
     codecByFingerprint.put(fp, new RawMessageDecoder<>(model, writeSchema, actualReadSchema));
+    last = null;
   }
 
   private RawMessageDecoder<D> getDecoder(long fp) {
+    LastDecoder<D> cached = last;
+    if (cached != null && cached.fingerprint == fp) {
+      return cached.decoder;
+    }
     RawMessageDecoder<D> decoder = codecByFingerprint.get(fp);
     if (decoder != null) {
+      last = new LastDecoder<>(fp, decoder);
       return decoder;
     }
 
@@ -152,14 +160,48 @@ public class BinaryMessageDecoder<D> extends MessageDecoder.BaseDecoder<D> {
     } catch (IOException e) {
       throw new IOException("Failed to read header and fingerprint bytes", e);
     }
+    return getDecoder(header, 0).decode(stream, reuse);
+  }
+
+  @Override
+  public D decode(byte[] encoded, D reuse) throws IOException {
+    return decode(encoded, 0, encoded.length, reuse);
+  }
 
-    if (BinaryMessageEncoder.V1_HEADER[0] != header[0] || BinaryMessageEncoder.V1_HEADER[1] != header[1]) {
-      throw new BadHeaderException(String.format("Unrecognized header bytes: 0x%02X 0x%02X", header[0], header[1]));
+  @Override
+  public D decode(ByteBuffer encoded, D reuse) throws IOException {
+    if (encoded.hasArray()) {
+      return decode(encoded.array(), encoded.arrayOffset() + encoded.position(), encoded.remaining(), reuse);
     }
+    if (encoded.remaining() < HEADER_LENGTH) {
+      throw new BadHeaderException("Not enough header bytes");
+    }
+    byte[] header = HEADER_BUFFER.get();
+    encoded.duplicate().get(header);
+    ByteBuffer payload = encoded.duplicate();
+    ((Buffer) payload).position(encoded.position() + HEADER_LENGTH);
+    return getDecoder(header, 0).decode(payload, reuse);
+  }
 
-    RawMessageDecoder<D> decoder = getDecoder(FP_BUFFER.get().getLong(2));
+  private D decode(byte[] encoded, int offset, int length, D reuse) {
+    if (length < HEADER_LENGTH) {
+      throw new BadHeaderException("Not enough header bytes");
+    }
+    return getDecoder(encoded, offset).decode(encoded, offset + HEADER_LENGTH, length - HEADER_LENGTH, reuse);
+  }
 
-    return decoder.decode(stream, reuse);
+  /** Checks the header at <tt>offset</tt> and finds the decoder for its fingerprint. */
+  private RawMessageDecoder<D> getDecoder(byte[] header, int offset) {
+    byte b0 = header[offset];
+    byte b1 = header[offset + 1];
+    if (BinaryMessageEncoder.V1_HEADER[0] != b0 || BinaryMessageEncoder.V1_HEADER[1] != b1) {
+      throw new BadHeaderException(String.format("Unrecognized header bytes: 0x%02X 0x%02X", b0, b1));
+    }
+    long fp = 0;
+    for (int i = HEADER_LENGTH - 1; i >= BinaryMessageEncoder.V1_HEADER.length; i--) {
+      fp = (fp << 8) | (header[offset + i] & 0xFF); // little endian
+    }
+    return getDecoder(fp);
   }
 
   /**
@@ -178,4 +220,14 @@ public class BinaryMessageDecoder<D> extends MessageDecoder.BaseDecoder<D> {
     }
     return (pos == bytes.length);
   }
+
+  private static final class LastDecoder<D> {
+    private final long fingerprint;
+    private final RawMessageDecoder<D> decoder;
+
+    LastDecoder(long fingerprint, RawMessageDecoder<D> decoder) {
+      this.fingerprint = fingerprint;
+      this.decoder = decoder;
+    }
+  }
 }
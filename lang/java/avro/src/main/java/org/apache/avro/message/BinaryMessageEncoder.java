@@ -22,11 +22,13 @@ package org.apache.avro.message;
 import org.apache.avro.AvroRuntimeException;
 import org.apache.avro.Schema;
 import org.apache.avro.SchemaNormalization;
+import org.apache.avro.file.BlockBufferPool;
 import org.apache.avro.generic.GenericData;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
 import java.security.NoSuchAlgorithmException;
+import java.util.List;
 
 /**
  * A {@link MessageEncoder} that adds a header and 8-byte schema fingerprint to
@@ -88,6 +90,25 @@ public class BinaryMessageEncoder<D> implements MessageEncoder<D> {
     writeCodec.encode(datum, stream);
   }
 
+  @Override
+  public void encode(D datum, ByteBuffer buffer) throws IOException {
+    writeCodec.encode(datum, buffer);
+  }
+
+  /**
+   * Serialize a single datum into a buffer acquired from a pool.
+   *
+   * @see RawMessageEncoder#encode(Object, BlockBufferPool)
+   */
+  public ByteBuffer encode(D datum, BlockBufferPool pool) throws IOException {
+    return writeCodec.encode(datum, pool);
+  }
+
+  @Override
+  public List<ByteBuffer> encodeAll(List<? extends D> datums) throws IOException {
+    return writeCodec.encodeAll(datums);
+  }
+
   /**
    * This is a RawDatumEncoder that adds the V1 header to the outgoing buffer.
    * BinaryDatumEncoder wraps this class to avoid confusion over what it does. It
@@ -103,9 +124,8 @@ public class BinaryMessageEncoder<D> implements MessageEncoder<D> {
     }
 
     @Override
-    public void encode(D datum, OutputStream stream) throws IOException {
-      stream.write(headerBytes);
-      super.encode(datum, stream);
+    byte[] getHeader() {
+      return headerBytes;
     }
 
     private static byte[] getWriteHeader(Schema schema) {
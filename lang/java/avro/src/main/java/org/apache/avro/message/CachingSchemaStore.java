@@ -0,0 +1,321 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.avro.message;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaNormalization;
+
+/**
+ * A bounded cache in front of another {@link SchemaStore}, such as a schema
+ * registry client or a {@link DirectorySchemaStore}.
+ * <p>
+ * Schemas are kept in an open-addressing table keyed by the primitive
+ * AVRO-CRC-64 fingerprint, which is read without locking or boxing. Once more
+ * than {@link #getMaximumSize()} fingerprints are cached, the least recently
+ * used ones are evicted. Fingerprints the loader does not know are remembered
+ * for a while too, so that messages with an unknown schema do not query the
+ * loader every time. Concurrent requests for the same fingerprint share a single
+ * load, and {@link #prefetch(long)} loads a schema in the background.
+ * <p>
+ * This class is thread-safe.
+ */
+public class CachingSchemaStore implements SchemaStore {
+  /** The default maximum number of cached fingerprints. */
+  public static final int DEFAULT_MAXIMUM_SIZE = 1024;
+
+  /** How long unknown fingerprints are remembered by default. */
+  public static final Duration DEFAULT_MISS_TIME_TO_LIVE = Duration.ofMinutes(1);
+
+  private static final Entry TOMBSTONE = new Entry(0, null, 0);
+  private static final Executor DIRECT = Runnable::run;
+
+  private final SchemaStore loader;
+  private final int maximumSize;
+  private final long missNanos;
+  private final Executor executor;
+  private final Map<Long, CompletableFuture<Schema>> loads = new ConcurrentHashMap<>();
+
+  // open addressing with linear probing, modified in place only while locked
+  private volatile Entry[] table = new Entry[16];
+  private int size;
+  private int used;
+
+  // a racy clock is precise enough to tell recently used schemas apart
+  private long clock;
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+
+  /**
+   * Creates a cache in front of <tt>loader</tt>, with the default size and time
+   * to live of unknown fingerprints, that prefetches on the common pool.
+   */
+  public CachingSchemaStore(SchemaStore loader) {
+    this(loader, DEFAULT_MAXIMUM_SIZE, DEFAULT_MISS_TIME_TO_LIVE, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Creates a cache in front of <tt>loader</tt>.
+   *
+   * @param loader         finds the schemas that are not cached
+   * @param maximumSize    the maximum number of cached fingerprints, known or
+   *                       not
+   * @param missTimeToLive how long to remember that the loader does not know a
+   *                       fingerprint, or zero to always ask it again
+   * @param executor       runs the loads started by {@link #prefetch(long)}
+   */
+  public CachingSchemaStore(SchemaStore loader, int maximumSize, Duration missTimeToLive, Executor executor) {
+    if (maximumSize < 1) {
+      throw new IllegalArgumentException("Invalid maximum size: " + maximumSize);
+    }
+    if (missTimeToLive.isNegative()) {
+      throw new IllegalArgumentException("Invalid time to live: " + missTimeToLive);
+    }
+    this.loader = Objects.requireNonNull(loader, "loader cannot be null");
+    this.maximumSize = maximumSize;
+    this.missNanos = missTimeToLive.toNanos();
+    this.executor = Objects.requireNonNull(executor, "executor cannot be null");
+  }
+
+  /**
+   * Adds a schema to this cache that can be retrieved using its AVRO-CRC-64
+   * fingerprint, without asking the loader.
+   *
+   * @param schema a {@link Schema}
+   */
+  public void addSchema(Schema schema) {
+    put(new Entry(SchemaNormalization.parsingFingerprint64(schema), schema, 0));
+  }
+
+  @Override
+  public Schema findByFingerprint(long fingerprint) {
+    Entry entry = find(fingerprint);
+    if (entry != null) {
+      if (entry.schema != null) {
+        hits.increment();
+        // most hits are on a schema that is already the most recently used
+        if (entry.lastUsed != clock) {
+          entry.lastUsed = ++clock;
+        }
+        return entry.schema;
+      }
+      if (entry.expires - System.nanoTime() > 0) {
+        hits.increment();
+        return null;
+      }
+    }
+    try {
+      return load(fingerprint, DIRECT).join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new AvroRuntimeException("Cannot load schema for fingerprint: " + fingerprint, e.getCause());
+    }
+  }
+
+  /**
+   * Loads the schema for a fingerprint in the background, unless it is already
+   * cached. The future completes with the schema, or null if it is unknown.
+   */
+  public CompletableFuture<Schema> prefetch(long fingerprint) {
+    Entry entry = find(fingerprint);
+    if (entry != null && (entry.schema != null || entry.expires - System.nanoTime() > 0)) {
+      return CompletableFuture.completedFuture(entry.schema);
+    }
+    return load(fingerprint, executor);
+  }
+
+  private CompletableFuture<Schema> load(long fingerprint, Executor runner) {
+    CompletableFuture<Schema> future = new CompletableFuture<>();
+    CompletableFuture<Schema> running = loads.putIfAbsent(fingerprint, future);
+    if (running != null) {
+      return running;
+    }
+    runner.execute(() -> {
+      try {
+        misses.increment();
+        Schema schema = loader.findByFingerprint(fingerprint);
+        if (schema != null) {
+          put(new Entry(fingerprint, schema, 0));
+        } else if (missNanos > 0) {
+          put(new Entry(fingerprint, null, System.nanoTime() + missNanos));
+        }
+        future.complete(schema);
+      } catch (Throwable e) {
+        future.completeExceptionally(e);
+      } finally {
+        loads.remove(fingerprint, future);
+      }
+    });
+    return future;
+  }
+
+  private static int index(long fingerprint, int mask) {
+    // fingerprints are already well mixed
+    return (int) (fingerprint ^ (fingerprint >>> 32)) & mask;
+  }
+
+  private Entry find(long fingerprint) {
+    Entry[] t = table;
+    int mask = t.length - 1;
+    for (int i = index(fingerprint, mask);; i = (i + 1) & mask) {
+      Entry entry = t[i];
+      if (entry == null) {
+        return null;
+      }
+      if (entry.fingerprint == fingerprint && entry != TOMBSTONE) {
+        return entry;
+      }
+    }
+  }
+
+  private synchronized void put(Entry entry) {
+    entry.lastUsed = ++clock;
+    Entry[] t = table;
+    if (2 * (used + 1) > t.length) {
+      t = rehash();
+    }
+    int mask = t.length - 1;
+    int free = -1;
+    int i = index(entry.fingerprint, mask);
+    for (; t[i] != null; i = (i + 1) & mask) {
+      if (t[i] == TOMBSTONE) {
+        if (free < 0) {
+          free = i;
+        }
+      } else if (t[i].fingerprint == entry.fingerprint) {
+        t[i] = entry;
+        return;
+      }
+    }
+    if (free < 0) {
+      free = i;
+      used++;
+    }
+    t[free] = entry;
+    if (++size > maximumSize) {
+      evict();
+    }
+  }
+
+  /** Copies the live entries to a new table, with room to grow. */
+  private Entry[] rehash() {
+    int capacity = 16;
+    while (capacity < 4 * (size + 1)) {
+      capacity <<= 1;
+    }
+    Entry[] t = new Entry[capacity];
+    int mask = capacity - 1;
+    for (Entry entry : table) {
+      if (entry != null && entry != TOMBSTONE) {
+        int i = index(entry.fingerprint, mask);
+        while (t[i] != null) {
+          i = (i + 1) & mask;
+        }
+        t[i] = entry;
+      }
+    }
+    used = size;
+    table = t;
+    return t;
+  }
+
+  /** Drops the least recently used entries, leaving room for new ones. */
+  private void evict() {
+    // evict an eighth more than needed, so that evictions are not run per load
+    int count = size - (maximumSize - maximumSize / 8);
+    Entry[] t = table;
+    long[] stamps = new long[size];
+    int n = 0;
+    for (Entry entry : t) {
+      if (entry != null && entry != TOMBSTONE) {
+        stamps[n++] = entry.lastUsed;
+      }
+    }
+    Arrays.sort(stamps, 0, n);
+    long cutoff = stamps[count - 1];
+    for (int i = 0; i < t.length; i++) {
+      if (t[i] != null && t[i] != TOMBSTONE && t[i].lastUsed <= cutoff) {
+        t[i] = TOMBSTONE;
+        size--;
+        evictions.increment();
+      }
+    }
+  }
+
+  /** Returns the maximum number of cached fingerprints. */
+  public int getMaximumSize() {
+    return maximumSize;
+  }
+
+  /** Returns the number of cached fingerprints, known or not. */
+  public synchronized int size() {
+    return size;
+  }
+
+  /** Drops all cached schemas and unknown fingerprints. */
+  public synchronized void clear() {
+    table = new Entry[16];
+    size = 0;
+    used = 0;
+  }
+
+  /** Returns the number of lookups answered from the cache. */
+  public long getHitCount() {
+    return hits.sum();
+  }
+
+  /** Returns the number of lookups passed on to the loader. */
+  public long getMissCount() {
+    return misses.sum();
+  }
+
+  /** Returns the number of fingerprints evicted. */
+  public long getEvictionCount() {
+    return evictions.sum();
+  }
+
+  /** A schema, or an unknown fingerprint if the schema is null. */
+  private static final class Entry {
+    private final long fingerprint;
+    private final Schema schema;
+    private final long expires;
+    private volatile long lastUsed;
+
+    Entry(long fingerprint, Schema schema, long expires) {
+      this.fingerprint = fingerprint;
+      this.schema = schema;
+      this.expires = expires;
+    }
+  }
+}
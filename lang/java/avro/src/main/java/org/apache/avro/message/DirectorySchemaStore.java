@@ -0,0 +1,99 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.avro.message;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaNormalization;
+import org.apache.avro.SchemaParseException;
+import org.apache.avro.SchemaParser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link SchemaStore} that finds schemas in the <tt>.avsc</tt> files of a
+ * local directory.
+ * <p>
+ * When a fingerprint is not known, the files added to the directory or modified
+ * since the last lookup are parsed. Files that cannot be parsed are skipped
+ * until they are modified again. Schemas stay known once found, even if their
+ * file is later changed or removed, as messages written with them may remain.
+ * This store is best used behind a {@link CachingSchemaStore}, which limits how
+ * often unknown fingerprints cause the directory to be listed.
+ * <p>
+ * This class is thread-safe.
+ */
+public class DirectorySchemaStore implements SchemaStore {
+  private static final Logger LOG = LoggerFactory.getLogger(DirectorySchemaStore.class);
+
+  private final Path directory;
+  private final Map<Long, Schema> schemas = new ConcurrentHashMap<>();
+  /** The modification time of each file when it was last parsed. */
+  private final Map<Path, FileTime> parsed = new HashMap<>();
+
+  /**
+   * Creates a store for the schemas in a directory.
+   *
+   * @param directory a directory of <tt>.avsc</tt> files
+   */
+  public DirectorySchemaStore(Path directory) {
+    this.directory = directory;
+  }
+
+  @Override
+  public Schema findByFingerprint(long fingerprint) {
+    Schema schema = schemas.get(fingerprint);
+    if (schema == null) {
+      scan();
+      schema = schemas.get(fingerprint);
+    }
+    return schema;
+  }
+
+  /** Parses the files added or modified since the last scan. */
+  private synchronized void scan() {
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*.avsc")) {
+      for (Path file : files) {
+        try {
+          FileTime modified = Files.getLastModifiedTime(file);
+          if (modified.equals(parsed.put(file, modified))) {
+            continue;
+          }
+          Schema schema = new SchemaParser().parse(file).mainSchema();
+          if (schema != null) {
+            schemas.put(SchemaNormalization.parsingFingerprint64(schema), schema);
+          }
+        } catch (IOException | SchemaParseException e) {
+          LOG.warn("Skipping schema file {}: {}", file, e.getMessage());
+        }
+      }
+    } catch (IOException e) {
+      throw new AvroRuntimeException("Cannot list schema directory: " + directory, e);
+    }
+  }
+}
@@ -21,14 +21,15 @@ package org.apache.avro.message;
 
 import org.apache.avro.util.ReusableByteArrayInputStream;
 import org.apache.avro.util.ReusableByteBufferInputStream;
-import org.apache.avro.util.internal.ThreadLocalWithInitial;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.ByteBuffer;
+import java.util.List;
 
 /**
- * Deserializes a single datum from a ByteBuffer, byte array, or InputStream.
+ * Deserializes a single datum from a ByteBuffer, byte array, or InputStream,
+ * or a batch of datums from a list of ByteBuffers.
  * 
  * @param <D> a datum class
  */
@@ -103,6 +104,36 @@ public interface MessageDecoder<D> {
    */
   D decode(byte[] encoded, D reuse) throws IOException;
 
+  /**
+   * Deserialize a batch of datums, one from each ByteBuffer.
+   * <p>
+   * The datums already in {@code datums} are reused for the buffer at the same
+   * index, and are replaced by the datums read. The list is then cut or extended
+   * to the number of buffers, so that passing the same list for every batch
+   * recycles the datums of the previous batch.
+   *
+   * @param encoded ByteBuffers each containing an encoded datum
+   * @param datums  a modifiable list of datums to reuse and to fill
+   * @return {@code datums}, holding one datum per buffer
+   * @throws BadHeaderException     If a payload's header is not recognized.
+   * @throws MissingSchemaException If a payload's schema cannot be found.
+   * @throws IOException
+   */
+  default List<D> decodeAll(List<ByteBuffer> encoded, List<D> datums) throws IOException {
+    int count = encoded.size();
+    for (int i = 0; i < count; i++) {
+      if (i < datums.size()) {
+        datums.set(i, decode(encoded.get(i), datums.get(i)));
+      } else {
+        datums.add(decode(encoded.get(i), null));
+      }
+    }
+    if (datums.size() > count) {
+      datums.subList(count, datums.size()).clear();
+    }
+    return datums;
+  }
+
   /**
    * Base class for {@link MessageEncoder} implementations that provides default
    * implementations for most of the {@code DatumEncoder} API.
@@ -113,12 +144,6 @@ public interface MessageDecoder<D> {
    */
   abstract class BaseDecoder<D> implements MessageDecoder<D> {
 
-    private static final ThreadLocal<ReusableByteArrayInputStream> BYTE_ARRAY_IN = ThreadLocalWithInitial
-        .of(ReusableByteArrayInputStream::new);
-
-    private static final ThreadLocal<ReusableByteBufferInputStream> BYTE_BUFFER_IN = ThreadLocalWithInitial
-        .of(ReusableByteBufferInputStream::new);
-
     @Override
     public D decode(InputStream stream) throws IOException {
       return decode(stream, null);
@@ -136,14 +161,14 @@ public interface MessageDecoder<D> {
 
     @Override
     public D decode(ByteBuffer encoded, D reuse) throws IOException {
-      ReusableByteBufferInputStream in = BYTE_BUFFER_IN.get();
+      ReusableByteBufferInputStream in = new ReusableByteBufferInputStream();
       in.setByteBuffer(encoded);
       return decode(in, reuse);
     }
 
     @Override
     public D decode(byte[] encoded, D reuse) throws IOException {
-      ReusableByteArrayInputStream in = BYTE_ARRAY_IN.get();
+      ReusableByteArrayInputStream in = new ReusableByteArrayInputStream();
       in.setByteArray(encoded, 0, encoded.length);
       return decode(in, reuse);
     }
@@ -21,10 +21,14 @@ package org.apache.avro.message;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.BufferOverflowException;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
- * Serializes an individual datum as a ByteBuffer or to an OutputStream.
+ * Serializes an individual datum as a ByteBuffer, into a ByteBuffer or to an
+ * OutputStream, or serializes a batch of datums.
  * 
  * @param <D> a datum class
  */
@@ -48,4 +52,41 @@ public interface MessageEncoder<D> {
    */
   void encode(D datum, OutputStream stream) throws IOException;
 
+  /**
+   * Serialize a single datum into a ByteBuffer, starting at its position. The
+   * position is advanced past the serialized datum.
+   * <p>
+   * If the datum does not fit, {@link BufferOverflowException} is thrown and the
+   * position is left unchanged, but the bytes after it may have been
+   * overwritten.
+   *
+   * @param datum  a datum
+   * @param buffer a ByteBuffer to serialize the datum into
+   * @throws IOException
+   */
+  default void encode(D datum, ByteBuffer buffer) throws IOException {
+    ByteBuffer encoded = encode(datum);
+    if (encoded.remaining() > buffer.remaining()) {
+      throw new BufferOverflowException();
+    }
+    buffer.put(encoded);
+  }
+
+  /**
+   * Serialize a batch of datums, each to its own ByteBuffer. The buffers are
+   * returned in the order of the datums, and are only valid as long as a buffer
+   * returned by {@link #encode(Object)} would be.
+   *
+   * @param datums a list of datums
+   * @return a list of ByteBuffers, each containing one serialized datum
+   * @throws IOException
+   */
+  default List<ByteBuffer> encodeAll(List<? extends D> datums) throws IOException {
+    List<ByteBuffer> encoded = new ArrayList<>(datums.size());
+    for (D datum : datums) {
+      encoded.add(encode(datum));
+    }
+    return encoded;
+  }
+
 }
@@ -27,6 +27,8 @@ import org.apache.avro.io.DatumReader;
 import org.apache.avro.io.DecoderFactory;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.List;
 
 /**
  * A {@link MessageDecoder} that deserializes from raw datum bytes.
@@ -43,8 +45,6 @@ import java.io.InputStream;
  */
 public class RawMessageDecoder<D> extends MessageDecoder.BaseDecoder<D> {
 
-  private static final ThreadLocal<BinaryDecoder> DECODER = new ThreadLocal<>();
-
   private final DatumReader<D> reader;
 
   /**
@@ -83,8 +83,44 @@ public class RawMessageDecoder<D> extends MessageDecoder.BaseDecoder<D> {
 
   @Override
   public D decode(InputStream stream, D reuse) {
-    BinaryDecoder decoder = DecoderFactory.get().directBinaryDecoder(stream, DECODER.get());
-    DECODER.set(decoder);
+    return read(DecoderFactory.get().directBinaryDecoder(stream, null), reuse);
+  }
+
+  @Override
+  public D decode(ByteBuffer encoded, D reuse) {
+    return read(DecoderFactory.get().binaryDecoder(encoded, null), reuse);
+  }
+
+  @Override
+  public D decode(byte[] encoded, D reuse) {
+    return decode(encoded, 0, encoded.length, reuse);
+  }
+
+  /** Decodes a datum from part of an array, without wrapping it in a stream. */
+  D decode(byte[] encoded, int offset, int length, D reuse) {
+    return read(DecoderFactory.get().binaryDecoder(encoded, offset, length, null), reuse);
+  }
+
+  /** Decodes a batch of datums with a single {@link BinaryDecoder}. */
+  @Override
+  public List<D> decodeAll(List<ByteBuffer> encoded, List<D> datums) {
+    int count = encoded.size();
+    BinaryDecoder decoder = null;
+    for (int i = 0; i < count; i++) {
+      decoder = DecoderFactory.get().binaryDecoder(encoded.get(i), decoder);
+      if (i < datums.size()) {
+        datums.set(i, read(decoder, datums.get(i)));
+      } else {
+        datums.add(read(decoder, null));
+      }
+    }
+    if (datums.size() > count) {
+      datums.subList(count, datums.size()).clear();
+    }
+    return datums;
+  }
+
+  private D read(BinaryDecoder decoder, D reuse) {
     try {
       return reader.read(reuse, decoder);
     } catch (IOException e) {
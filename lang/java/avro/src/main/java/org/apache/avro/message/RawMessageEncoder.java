@@ -20,6 +20,7 @@
 package org.apache.avro.message;
 
 import org.apache.avro.Schema;
+import org.apache.avro.file.BlockBufferPool;
 import org.apache.avro.generic.GenericData;
 import org.apache.avro.io.BinaryEncoder;
 import org.apache.avro.io.DatumWriter;
@@ -29,7 +30,11 @@ import org.apache.avro.util.internal.ThreadLocalWithInitial;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.Buffer;
+import java.nio.BufferOverflowException;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * A {@link MessageEncoder} that encodes only a datum's bytes, without
@@ -39,9 +44,19 @@ import java.nio.ByteBuffer;
  */
 public class RawMessageEncoder<D> implements MessageEncoder<D> {
 
-  private static final ThreadLocal<BufferOutputStream> TEMP = ThreadLocalWithInitial.of(BufferOutputStream::new);
+  private static final ThreadLocal<BufferOutputStream> TEMP = ThreadLocalWithInitial.scratch(BufferOutputStream::new);
 
-  private static final ThreadLocal<BinaryEncoder> ENCODER = new ThreadLocal<>();
+  private static final ThreadLocal<BinaryEncoder> ENCODER = ThreadLocalWithInitial.scratch(() -> null);
+
+  private static final ThreadLocal<BinaryEncoder> BUFFER_ENCODER = ThreadLocalWithInitial.scratch(() -> null);
+
+  private static final byte[] NO_HEADER = new byte[0];
+
+  /** Given to the cached buffer encoder between calls, in place of the caller's. */
+  private static final ByteBuffer NO_BUFFER = ByteBuffer.allocate(0);
+
+  /** The initial size of buffers taken from a pool. */
+  private static final int POOLED_BUFFER_SIZE = 4096;
 
   private final boolean copyOutputBytes;
   private final DatumWriter<D> writer;
@@ -72,9 +87,9 @@ public class RawMessageEncoder<D> implements MessageEncoder<D> {
    * <p>
    * If {@code shouldCopy} is false, then buffers returned by {@code encode} wrap
    * a thread-local buffer that can be reused by future calls to {@code encode},
-   * but may not be. Callers should only set {@code shouldCopy} to false if the
-   * buffer will be copied before the current thread's next call to
-   * {@code encode}.
+   * but may not be, as on virtual threads. Callers should only set
+   * {@code shouldCopy} to false if the buffer will be copied before the current
+   * thread's next call to {@code encode}.
    *
    * @param model      the {@link GenericData data model} for datum instances
    * @param schema     the {@link Schema} for datum instances
@@ -103,6 +118,94 @@ public class RawMessageEncoder<D> implements MessageEncoder<D> {
   public void encode(D datum, OutputStream stream) throws IOException {
     BinaryEncoder encoder = EncoderFactory.get().directBinaryEncoder(stream, ENCODER.get());
     ENCODER.set(encoder);
+    write(datum, encoder);
+  }
+
+  @Override
+  public void encode(D datum, ByteBuffer buffer) throws IOException {
+    BinaryEncoder encoder = EncoderFactory.get().byteBufferBinaryEncoder(buffer, BUFFER_ENCODER.get());
+    try {
+      write(datum, encoder);
+    } finally {
+      // don't keep the caller's buffer, which may go back to a pool
+      BUFFER_ENCODER.set(EncoderFactory.get().byteBufferBinaryEncoder(NO_BUFFER, encoder));
+    }
+  }
+
+  /**
+   * Serialize a single datum into a buffer acquired from a pool. The returned
+   * buffer holds the serialized datum from position 0 to its limit, and should be
+   * released to the pool once its content has been used.
+   * <p>
+   * Datums are written straight into the pooled buffer, which is swapped for a
+   * larger one when the datum does not fit.
+   *
+   * @param datum a datum
+   * @param pool  the pool to acquire the buffer from
+   * @return a pooled ByteBuffer containing the serialized datum
+   * @throws IOException
+   */
+  public ByteBuffer encode(D datum, BlockBufferPool pool) throws IOException {
+    ByteBuffer buffer = pool.acquire(POOLED_BUFFER_SIZE);
+    boolean encoded = false;
+    try {
+      while (true) {
+        try {
+          encode(datum, buffer);
+          ((Buffer) buffer).flip();
+          encoded = true;
+          return buffer;
+        } catch (BufferOverflowException e) {
+          int capacity = (int) Math.min(Integer.MAX_VALUE - 8, 2L * buffer.capacity());
+          if (capacity <= buffer.capacity()) {
+            throw e;
+          }
+          ByteBuffer larger = pool.acquire(capacity);
+          pool.release(buffer);
+          buffer = larger;
+        }
+      }
+    } finally {
+      if (!encoded) {
+        pool.release(buffer);
+      }
+    }
+  }
+
+  /**
+   * Serialize a batch of datums into a single array, returning a slice of it for
+   * each datum. Buffers are copied, or reused by future calls, as a whole batch.
+   */
+  @Override
+  public List<ByteBuffer> encodeAll(List<? extends D> datums) throws IOException {
+    // a new array is only shared by the slices of this batch, so needs no copy
+    BufferOutputStream out = copyOutputBytes ? new BufferOutputStream() : TEMP.get();
+    out.reset();
+    BinaryEncoder encoder = EncoderFactory.get().directBinaryEncoder(out, ENCODER.get());
+    ENCODER.set(encoder);
+
+    int[] ends = new int[datums.size()];
+    for (int i = 0; i < ends.length; i++) {
+      write(datums.get(i), encoder);
+      ends[i] = out.size();
+    }
+
+    List<ByteBuffer> encoded = new ArrayList<>(ends.length);
+    int start = 0;
+    for (int end : ends) {
+      encoded.add(out.slice(start, end));
+      start = end;
+    }
+    return encoded;
+  }
+
+  /** Returns the bytes written before each datum. */
+  byte[] getHeader() {
+    return NO_HEADER;
+  }
+
+  private void write(D datum, BinaryEncoder encoder) throws IOException {
+    encoder.writeFixed(getHeader());
     writer.write(datum, encoder);
     encoder.flush();
   }
@@ -118,5 +221,9 @@ public class RawMessageEncoder<D> implements MessageEncoder<D> {
     ByteBuffer toBufferWithCopy() {
       return ByteBuffer.wrap(toByteArray());
     }
+
+    ByteBuffer slice(int start, int end) {
+      return ByteBuffer.wrap(buf, start, end - start).slice();
+    }
   }
 }
@@ -41,6 +41,8 @@ public interface SchemaStore {
    * A map-based cache of schemas by AVRO-CRC-64 fingerprint.
    * <p>
    * This class is thread-safe.
+   *
+   * @see CachingSchemaStore
    */
   class Cache implements SchemaStore {
     private final Map<Long, Schema> schemas = new ConcurrentHashMap<>();
@@ -59,39 +59,23 @@ class ArrayAccessor {
   }
 
   static void writeArray(int[] data, Encoder out) throws IOException {
-    int size = data.length;
-    out.setItemCount(size);
-    for (int datum : data) {
-      out.startItem();
-      out.writeInt(datum);
-    }
+    out.setItemCount(data.length);
+    out.writeInts(data, 0, data.length);
   }
 
   static void writeArray(long[] data, Encoder out) throws IOException {
-    int size = data.length;
-    out.setItemCount(size);
-    for (long datum : data) {
-      out.startItem();
-      out.writeLong(datum);
-    }
+    out.setItemCount(data.length);
+    out.writeLongs(data, 0, data.length);
   }
 
   static void writeArray(float[] data, Encoder out) throws IOException {
-    int size = data.length;
-    out.setItemCount(size);
-    for (float datum : data) {
-      out.startItem();
-      out.writeFloat(datum);
-    }
+    out.setItemCount(data.length);
+    out.writeFloats(data, 0, data.length);
   }
 
   static void writeArray(double[] data, Encoder out) throws IOException {
-    int size = data.length;
-    out.setItemCount(size);
-    for (double datum : data) {
-      out.startItem();
-      out.writeDouble(datum);
-    }
+    out.setItemCount(data.length);
+    out.writeDoubles(data, 0, data.length);
   }
 
   static Object readArray(Object array, Class<?> elementType, long l, ResolvingDecoder in) throws IOException {
@@ -134,10 +118,8 @@ class ArrayAccessor {
       if (array.length < limit) {
         array = Arrays.copyOf(array, limit);
       }
-      while (index < limit) {
-        array[index] = in.readInt();
-        index++;
-      }
+      in.readInts(array, index, (int) l);
+      index = limit;
     } while ((l = in.arrayNext()) > 0);
     return array;
   }
@@ -179,10 +161,8 @@ class ArrayAccessor {
       if (array.length < limit) {
         array = Arrays.copyOf(array, limit);
       }
-      while (index < limit) {
-        array[index] = in.readLong();
-        index++;
-      }
+      in.readLongs(array, index, (int) l);
+      index = limit;
     } while ((l = in.arrayNext()) > 0);
     return array;
   }
@@ -194,10 +174,8 @@ class ArrayAccessor {
       if (array.length < limit) {
         array = Arrays.copyOf(array, limit);
       }
-      while (index < limit) {
-        array[index] = in.readFloat();
-        index++;
-      }
+      in.readFloats(array, index, (int) l);
+      index = limit;
     } while ((l = in.arrayNext()) > 0);
     return array;
   }
@@ -209,10 +187,8 @@ class ArrayAccessor {
       if (array.length < limit) {
         array = Arrays.copyOf(array, limit);
       }
-      while (index < limit) {
-        array[index] = in.readDouble();
-        index++;
-      }
+      in.readDoubles(array, index, (int) l);
+      index = limit;
     } while ((l = in.arrayNext()) > 0);
     return array;
   }
@@ -0,0 +1,346 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.reflect;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+
+import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.Schema;
+
+/**
+ * A {@link FieldAccess} through {@link MethodHandle}s. Fields of a primitive
+ * type get accessors whose typed methods, such as
+ * {@link FieldAccessor#getInt(Object)}, neither box nor unbox. Fields with a
+ * custom encoding are accessed with {@link FieldAccessReflect}. Fields that
+ * cannot be set, such as the components of a record, get accessors that can
+ * only get them.
+ * <p/>
+ * The handles are held by each accessor rather than in static fields, so the
+ * JIT does not treat them as constants and cannot inline the field access
+ * itself; what the typed accessors save over reflection is the boxing.
+ */
+class FieldAccessHandles extends FieldAccess {
+  private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+  private final FieldAccess fallback = new FieldAccessReflect();
+
+  @Override
+  protected FieldAccessor getAccessor(Field field) {
+    if (ReflectionUtil.getAvroEncode(field) != null) {
+      return fallback.getAccessor(field);
+    }
+    field.setAccessible(true);
+    MethodHandle getter;
+    try {
+      getter = LOOKUP.unreflectGetter(field);
+    } catch (IllegalAccessException e) {
+      throw new AvroRuntimeException(e);
+    }
+    MethodHandle setter;
+    try {
+      setter = LOOKUP.unreflectSetter(field);
+    } catch (IllegalAccessException e) {
+      // the final fields of records cannot be set, only written out
+      setter = MethodHandles.dropArguments(
+          MethodHandles.throwException(void.class, IllegalAccessException.class).bindTo(e), 0,
+          field.getDeclaringClass(), field.getType());
+    }
+    Class<?> type = field.getType();
+    if (type == int.class) {
+      return new IntAccessor(field, getter, setter);
+    } else if (type == long.class) {
+      return new LongAccessor(field, getter, setter);
+    } else if (type == float.class) {
+      return new FloatAccessor(field, getter, setter);
+    } else if (type == double.class) {
+      return new DoubleAccessor(field, getter, setter);
+    } else if (type == boolean.class) {
+      return new BooleanAccessor(field, getter, setter);
+    }
+    return new HandleAccessor(field, getter, setter);
+  }
+
+  /** Rethrows the failure of a handle invocation. */
+  private static RuntimeException rethrow(Throwable t) {
+    if (t instanceof RuntimeException) {
+      throw (RuntimeException) t;
+    }
+    if (t instanceof Error) {
+      throw (Error) t;
+    }
+    throw new AvroRuntimeException(t);
+  }
+
+  private static class HandleAccessor extends FieldAccessor {
+    private final Field field;
+    private final boolean isStringable;
+    /** Gets the field as an Object. */
+    private final MethodHandle get;
+    /** Sets the field from an Object. */
+    private final MethodHandle set;
+    /** The value set in place of null, for primitive fields. */
+    private final Object defaultValue;
+
+    HandleAccessor(Field field, MethodHandle getter, MethodHandle setter) {
+      this.field = field;
+      this.isStringable = field.isAnnotationPresent(Stringable.class);
+      this.get = getter.asType(MethodType.methodType(Object.class, Object.class));
+      this.set = setter.asType(MethodType.methodType(void.class, Object.class, Object.class));
+      this.defaultValue = defaultValue(field.getType());
+    }
+
+    private static Object defaultValue(Class<?> type) {
+      if (int.class.equals(type)) {
+        return INT_DEFAULT_VALUE;
+      } else if (float.class.equals(type)) {
+        return FLOAT_DEFAULT_VALUE;
+      } else if (short.class.equals(type)) {
+        return SHORT_DEFAULT_VALUE;
+      } else if (byte.class.equals(type)) {
+        return BYTE_DEFAULT_VALUE;
+      } else if (boolean.class.equals(type)) {
+        return BOOLEAN_DEFAULT_VALUE;
+      } else if (char.class.equals(type)) {
+        return CHAR_DEFAULT_VALUE;
+      } else if (long.class.equals(type)) {
+        return LONG_DEFAULT_VALUE;
+      } else if (double.class.equals(type)) {
+        return DOUBLE_DEFAULT_VALUE;
+      }
+      return null;
+    }
+
+    @Override
+    public String toString() {
+      return field.getName();
+    }
+
+    @Override
+    protected Object get(Object object) {
+      try {
+        return (Object) get.invokeExact(object);
+      } catch (Throwable t) {
+        throw rethrow(t);
+      }
+    }
+
+    @Override
+    protected void set(Object object, Object value) throws IllegalAccessException {
+      try {
+        set.invokeExact(object, value == null ? defaultValue : value);
+      } catch (IllegalAccessException e) {
+        throw e;
+      } catch (Throwable t) {
+        throw rethrow(t);
+      }
+    }
+
+    @Override
+    protected Field getField() {
+      return field;
+    }
+
+    @Override
+    protected boolean isStringable() {
+      return isStringable;
+    }
+  }
+
+  private static final class IntAccessor extends HandleAccessor {
+    private final MethodHandle getInt;
+    private final MethodHandle setInt;
+
+    IntAccessor(Field field, MethodHandle getter, MethodHandle setter) {
+      super(field, getter, setter);
+      this.getInt = getter.asType(MethodType.methodType(int.class, Object.class));
+      this.setInt = setter.asType(MethodType.methodType(void.class, Object.class, int.class));
+    }
+
+    @Override
+    protected Schema.Type primitiveType() {
+      return Schema.Type.INT;
+    }
+
+    @Override
+    protected int getInt(Object object) {
+      try {
+        return (int) getInt.invokeExact(object);
+      } catch (Throwable t) {
+        throw rethrow(t);
+      }
+    }
+
+    @Override
+    protected void setInt(Object object, int value) throws IllegalAccessException {
+      try {
+        setInt.invokeExact(object, value);
+      } catch (IllegalAccessException e) {
+        throw e;
+      } catch (Throwable t) {
+        throw rethrow(t);
+      }
+    }
+  }
+
+  private static final class LongAccessor extends HandleAccessor {
+    private final MethodHandle getLong;
+    private final MethodHandle setLong;
+
+    LongAccessor(Field field, MethodHandle getter, MethodHandle setter) {
+      super(field, getter, setter);
+      this.getLong = getter.asType(MethodType.methodType(long.class, Object.class));
+      this.setLong = setter.asType(MethodType.methodType(void.class, Object.class, long.class));
+    }
+
+    @Override
+    protected Schema.Type primitiveType() {
+      return Schema.Type.LONG;
+    }
+
+    @Override
+    protected long getLong(Object object) {
+      try {
+        return (long) getLong.invokeExact(object);
+      } catch (Throwable t) {
+        throw rethrow(t);
+      }
+    }
+
+    @Override
+    protected void setLong(Object object, long value) throws IllegalAccessException {
+      try {
+        setLong.invokeExact(object, value);
+      } catch (IllegalAccessException e) {
+        throw e;
+      } catch (Throwable t) {
+        throw rethrow(t);
+      }
+    }
+  }
+
+  private static final class FloatAccessor extends HandleAccessor {
+    private final MethodHandle getFloat;
+    private final MethodHandle setFloat;
+
+    FloatAccessor(Field field, MethodHandle getter, MethodHandle setter) {
+      super(field, getter, setter);
+      this.getFloat = getter.asType(MethodType.methodType(float.class, Object.class));
+      this.setFloat = setter.asType(MethodType.methodType(void.class, Object.class, float.class));
+    }
+
+    @Override
+    protected Schema.Type primitiveType() {
+      return Schema.Type.FLOAT;
+    }
+
+    @Override
+    protected float getFloat(Object object) {
+      try {
+        return (float) getFloat.invokeExact(object);
+      } catch (Throwable t) {
+        throw rethrow(t);
+      }
+    }
+
+    @Override
+    protected void setFloat(Object object, float value) throws IllegalAccessException {
+      try {
+        setFloat.invokeExact(object, value);
+      } catch (IllegalAccessException e) {
+        throw e;
+      } catch (Throwable t) {
+        throw rethrow(t);
+      }
+    }
+  }
+
+  private static final class DoubleAccessor extends HandleAccessor {
+    private final MethodHandle getDouble;
+    private final MethodHandle setDouble;
+
+    DoubleAccessor(Field field, MethodHandle getter, MethodHandle setter) {
+      super(field, getter, setter);
+      this.getDouble = getter.asType(MethodType.methodType(double.class, Object.class));
+      this.setDouble = setter.asType(MethodType.methodType(void.class, Object.class, double.class));
+    }
+
+    @Override
+    protected Schema.Type primitiveType() {
+      return Schema.Type.DOUBLE;
+    }
+
+    @Override
+    protected double getDouble(Object object) {
+      try {
+        return (double) getDouble.invokeExact(object);
+      } catch (Throwable t) {
+        throw rethrow(t);
+      }
+    }
+
+    @Override
+    protected void setDouble(Object object, double value) throws IllegalAccessException {
+      try {
+        setDouble.invokeExact(object, value);
+      } catch (IllegalAccessException e) {
+        throw e;
+      } catch (Throwable t) {
+        throw rethrow(t);
+      }
+    }
+  }
+
+  private static final class BooleanAccessor extends HandleAccessor {
+    private final MethodHandle getBoolean;
+    private final MethodHandle setBoolean;
+
+    BooleanAccessor(Field field, MethodHandle getter, MethodHandle setter) {
+      super(field, getter, setter);
+      this.getBoolean = getter.asType(MethodType.methodType(boolean.class, Object.class));
+      this.setBoolean = setter.asType(MethodType.methodType(void.class, Object.class, boolean.class));
+    }
+
+    @Override
+    protected Schema.Type primitiveType() {
+      return Schema.Type.BOOLEAN;
+    }
+
+    @Override
+    protected boolean getBoolean(Object object) {
+      try {
+        return (boolean) getBoolean.invokeExact(object);
+      } catch (Throwable t) {
+        throw rethrow(t);
+      }
+    }
+
+    @Override
+    protected void setBoolean(Object object, boolean value) throws IllegalAccessException {
+      try {
+        setBoolean.invokeExact(object, value);
+      } catch (IllegalAccessException e) {
+        throw e;
+      } catch (Throwable t) {
+        throw rethrow(t);
+      }
+    }
+  }
+}
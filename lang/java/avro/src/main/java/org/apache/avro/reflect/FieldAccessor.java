@@ -20,6 +20,7 @@ package org.apache.avro.reflect;
 import java.io.IOException;
 import java.lang.reflect.Field;
 
+import org.apache.avro.Schema;
 import org.apache.avro.io.Decoder;
 import org.apache.avro.io.Encoder;
 
@@ -41,6 +42,54 @@ abstract class FieldAccessor {
     return false;
   }
 
+  /**
+   * The schema type of a primitive field, which the typed accessors below get
+   * and set without boxing, or null.
+   */
+  protected Schema.Type primitiveType() {
+    return null;
+  }
+
+  protected int getInt(Object object) throws IllegalAccessException {
+    return (Integer) get(object);
+  }
+
+  protected void setInt(Object object, int value) throws IllegalAccessException, IOException {
+    set(object, value);
+  }
+
+  protected long getLong(Object object) throws IllegalAccessException {
+    return (Long) get(object);
+  }
+
+  protected void setLong(Object object, long value) throws IllegalAccessException, IOException {
+    set(object, value);
+  }
+
+  protected float getFloat(Object object) throws IllegalAccessException {
+    return (Float) get(object);
+  }
+
+  protected void setFloat(Object object, float value) throws IllegalAccessException, IOException {
+    set(object, value);
+  }
+
+  protected double getDouble(Object object) throws IllegalAccessException {
+    return (Double) get(object);
+  }
+
+  protected void setDouble(Object object, double value) throws IllegalAccessException, IOException {
+    set(object, value);
+  }
+
+  protected boolean getBoolean(Object object) throws IllegalAccessException {
+    return (Boolean) get(object);
+  }
+
+  protected void setBoolean(Object object, boolean value) throws IllegalAccessException, IOException {
+    set(object, value);
+  }
+
   protected abstract Field getField();
 
   protected boolean isStringable() {
@@ -300,6 +300,14 @@ public class ReflectDatumReader<T> extends SpecificDatumReader<T> {
           }
         }
         LogicalType logicalType = field.schema().getLogicalType();
+        if (logicalType == null && accessor.primitiveType() == field.schema().getType()) {
+          try {
+            readPrimitive(record, accessor, in);
+          } catch (IllegalAccessException e) {
+            throw new AvroRuntimeException("Failed to set " + field, e);
+          }
+          return;
+        }
         if (logicalType != null) {
           Conversion<?> conversion = getData().getConversionByClass(accessor.getField().getType(), logicalType);
           if (conversion != null) {
@@ -307,7 +315,7 @@ public class ReflectDatumReader<T> extends SpecificDatumReader<T> {
               accessor.set(record, convert(readWithoutConversion(oldDatum, field.schema(), in), field.schema(),
                   logicalType, conversion));
             } catch (IllegalAccessException e) {
-              throw new AvroRuntimeException("Failed to set " + field);
+              throw new AvroRuntimeException("Failed to set " + field, e);
             }
             return;
           }
@@ -318,17 +326,41 @@ public class ReflectDatumReader<T> extends SpecificDatumReader<T> {
             accessor.set(record, Optional.ofNullable(value));
             return;
           } catch (IllegalAccessException e) {
-            throw new AvroRuntimeException("Failed to set " + field);
+            throw new AvroRuntimeException("Failed to set " + field, e);
           }
         }
         try {
           accessor.set(record, readWithoutConversion(oldDatum, field.schema(), in));
           return;
         } catch (IllegalAccessException e) {
-          throw new AvroRuntimeException("Failed to set " + field);
+          throw new AvroRuntimeException("Failed to set " + field, e);
         }
       }
     }
     super.readField(record, field, oldDatum, in, state);
   }
+
+  /** Reads a primitive field without boxing. */
+  private static void readPrimitive(Object record, FieldAccessor accessor, ResolvingDecoder in)
+      throws IOException, IllegalAccessException {
+    switch (accessor.primitiveType()) {
+    case INT:
+      accessor.setInt(record, in.readInt());
+      break;
+    case LONG:
+      accessor.setLong(record, in.readLong());
+      break;
+    case FLOAT:
+      accessor.setFloat(record, in.readFloat());
+      break;
+    case DOUBLE:
+      accessor.setDouble(record, in.readDouble());
+      break;
+    case BOOLEAN:
+      accessor.setBoolean(record, in.readBoolean());
+      break;
+    default:
+      throw new AvroRuntimeException("Not a primitive field: " + accessor);
+    }
+  }
 }
@@ -192,8 +192,40 @@ public class ReflectDatumWriter<T> extends SpecificDatumWriter<T> {
           }
           return;
         }
+        if (f.schema().getLogicalType() == null && accessor.primitiveType() == f.schema().getType()) {
+          try {
+            writePrimitive(record, accessor, out);
+          } catch (IllegalAccessException e) {
+            throw new AvroRuntimeException("Failed to write " + f, e);
+          }
+          return;
+        }
       }
     }
     super.writeField(record, f, out, state);
   }
+
+  /** Writes a primitive field without boxing. */
+  private static void writePrimitive(Object record, FieldAccessor accessor, Encoder out)
+      throws IOException, IllegalAccessException {
+    switch (accessor.primitiveType()) {
+    case INT:
+      out.writeInt(accessor.getInt(record));
+      break;
+    case LONG:
+      out.writeLong(accessor.getLong(record));
+      break;
+    case FLOAT:
+      out.writeFloat(accessor.getFloat(record));
+      break;
+    case DOUBLE:
+      out.writeDouble(accessor.getDouble(record));
+      break;
+    case BOOLEAN:
+      out.writeBoolean(accessor.getBoolean(record));
+      break;
+    default:
+      throw new AvroRuntimeException("Not a primitive field: " + accessor);
+    }
+  }
 }
@@ -55,7 +55,15 @@ public class ReflectionUtil {
   static void resetFieldAccess() {
     // load only one implementation of FieldAccess
     // so it is monomorphic and the JIT can inline
-    FieldAccess access = null;
+    try {
+      FieldAccess handleAccess = new FieldAccessHandles();
+      if (validate(handleAccess)) {
+        fieldAccess = handleAccess;
+        return;
+      }
+    } catch (Throwable ignored) {
+      // fall back to plain reflection
+    }
     try {
       FieldAccess reflectAccess = new FieldAccessReflect();
       if (validate(reflectAccess)) {
@@ -103,6 +111,9 @@ public class ReflectionUtil {
       valid &= validField(access, "d", d, 0.4d);
       valid &= validField(access, "o", o, new Object());
       valid &= validField(access, "i2", i2, -555);
+      FieldAccessor typed = accessor(access, "d");
+      typed.setDouble(this, 8.8d);
+      valid &= typed.getDouble(this) == 8.8d && d == 8.8d;
       return valid;
     }
 
@@ -34,6 +34,8 @@ import org.apache.avro.io.DecoderFactory;
 import org.apache.avro.io.EncoderFactory;
 import org.apache.avro.util.ClassUtils;
 import org.apache.avro.util.SchemaUtil;
+import org.apache.avro.util.internal.Accessor;
+import org.apache.avro.util.internal.Accessor.SpecificDataAccessor;
 import org.apache.avro.util.internal.ClassValueCache;
 
 import java.io.ObjectInput;
@@ -63,6 +65,17 @@ public class SpecificData extends GenericData {
 
   static {
     addLogicalTypeConversions(INSTANCE);
+    Accessor.setAccessor(new SpecificDataAccessor() {
+      @Override
+      protected boolean isStringable(SpecificData data, Class<?> c) {
+        return data.isStringable(c);
+      }
+
+      @Override
+      protected boolean hasCustomCoders(SpecificRecordBase record) {
+        return record.hasCustomCoders();
+      }
+    });
   }
 
   protected static void addLogicalTypeConversions(SpecificData instance) {
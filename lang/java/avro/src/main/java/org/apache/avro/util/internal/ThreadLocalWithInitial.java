@@ -17,6 +17,10 @@
  */
 package org.apache.avro.util.internal;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.function.Predicate;
 import java.util.function.Supplier;
 
 /**
@@ -25,8 +29,67 @@ import java.util.function.Supplier;
  */
 public class ThreadLocalWithInitial {
 
+  // Thread.isVirtual(), or null before Java 21
+  private static final MethodHandle IS_VIRTUAL = findIsVirtual();
+
+  private static MethodHandle findIsVirtual() {
+    try {
+      return MethodHandles.publicLookup().findVirtual(Thread.class, "isVirtual", MethodType.methodType(boolean.class));
+    } catch (ReflectiveOperationException e) {
+      return null;
+    }
+  }
+
   /** Delegate a ThreadLocal instance with the supplier. */
   public static <T> ThreadLocal<T> of(Supplier<? extends T> supplier) {
     return ThreadLocal.withInitial(supplier);
   }
+
+  /**
+   * Returns a ThreadLocal for scratch values that are only reused to save
+   * allocations. Platform threads keep their value, as with {@link #of}. Virtual
+   * threads usually live for a single short task, so they get a new value from
+   * the supplier on every call to {@link ThreadLocal#get()} and nothing is
+   * stored for them.
+   */
+  public static <T> ThreadLocal<T> scratch(Supplier<? extends T> supplier) {
+    if (IS_VIRTUAL == null) {
+      return of(supplier);
+    }
+    return scratch(supplier, ThreadLocalWithInitial::isVirtual);
+  }
+
+  /** As {@link #scratch(Supplier)}, with the test for virtual threads given. */
+  static <T> ThreadLocal<T> scratch(Supplier<? extends T> supplier, Predicate<Thread> isVirtual) {
+    return new ThreadLocal<T>() {
+      @Override
+      protected T initialValue() {
+        return supplier.get();
+      }
+
+      @Override
+      public T get() {
+        return isVirtual.test(Thread.currentThread()) ? supplier.get() : super.get();
+      }
+
+      @Override
+      public void set(T value) {
+        if (!isVirtual.test(Thread.currentThread())) {
+          super.set(value);
+        }
+      }
+    };
+  }
+
+  /** Returns whether a thread is a virtual thread. */
+  public static boolean isVirtual(Thread thread) {
+    if (IS_VIRTUAL == null) {
+      return false;
+    }
+    try {
+      return (boolean) IS_VIRTUAL.invokeExact(thread);
+    } catch (Throwable e) {
+      throw new IllegalStateException(e);
+    }
+  }
 }
@@ -46,10 +46,13 @@ import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.function.Function;
 import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -113,6 +116,8 @@ public class TestDataFile {
       LOG.info("Running with codec: {}", codec);
       testGenericWrite(codec, encoder);
       testGenericRead(codec);
+      testParallelRead(codec);
+      testParallelWrite(codec);
       testSplits(codec);
       testSyncDiscovery(codec);
       testReadLastRecord(codec);
@@ -184,6 +189,73 @@ public class TestDataFile {
     }
   }
 
+  private void testParallelRead(CodecFactory codec) throws IOException {
+    File file = makeFile(codec);
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try (DataFileReader<Object> reader = new DataFileReader<>(file, new GenericDatumReader<>())) {
+      reader.setParallelDecoding(executor, 3);
+      Object datum = null;
+      for (Object expected : new RandomData(SCHEMA, COUNT, SEED)) {
+        datum = reader.next(datum);
+        assertEquals(expected, datum);
+      }
+      assertFalse(reader.hasNext());
+
+      // splits see the same sync points as sequential decoding
+      int splits = 10;
+      long length = file.length();
+      int count = 0;
+      for (int i = 0; i < splits; i++) {
+        long start = length * i / splits;
+        long end = length * (i + 1) / splits;
+        reader.sync(start);
+        while (!reader.pastSync(end)) {
+          reader.next();
+          count++;
+        }
+      }
+      assertEquals(COUNT, count);
+    } finally {
+      executor.shutdownNow();
+    }
+
+    // blocks the executor rejects once shut down are decoded by the caller
+    try (DataFileReader<Object> reader = new DataFileReader<>(file, new GenericDatumReader<>())) {
+      reader.setParallelDecoding(executor, 3);
+      int count = 0;
+      for (; reader.hasNext(); count++) {
+        reader.next();
+      }
+      assertEquals(COUNT, count);
+    }
+  }
+
+  private void testParallelWrite(CodecFactory codec) throws IOException {
+    File file = new File(DIR, "test-parallel-" + codec + ".avro");
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try (DataFileWriter<Object> writer = new DataFileWriter<>(new GenericDatumWriter<>())) {
+      writer.setSyncInterval(100).setParallelCompression(executor, 3);
+      if (codec != null) {
+        writer.setCodec(codec);
+      }
+      writer.create(SCHEMA, file);
+      int count = 0;
+      for (Object datum : new RandomData(SCHEMA, COUNT, SEED)) {
+        writer.append(datum);
+        if (++count % (COUNT / 3) == 0)
+          writer.sync(); // pending blocks must be written before the sync point
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+    try (DataFileReader<Object> reader = new DataFileReader<>(file, new GenericDatumReader<>())) {
+      for (Object expected : new RandomData(SCHEMA, COUNT, SEED)) {
+        assertEquals(expected, reader.next());
+      }
+      assertFalse(reader.hasNext());
+    }
+  }
+
   private void testSplits(CodecFactory codec) throws IOException {
     File file = makeFile(codec);
     try (DataFileReader<Object> reader = new DataFileReader<>(file, new GenericDatumReader<>())) {
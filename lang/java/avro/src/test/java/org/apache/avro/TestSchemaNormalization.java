@@ -18,6 +18,7 @@
 package org.apache.avro;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import java.io.BufferedReader;
 import java.io.IOException;
@@ -30,11 +31,29 @@ import java.util.Locale;
 
 import org.apache.avro.util.CaseFinder;
 import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.MethodSource;
 
 public class TestSchemaNormalization {
 
+  @Test
+  void memoizedFingerprints() throws Exception {
+    Schema s = SchemaParser.parseSingle("{\"type\": \"record\", \"name\": \"R\", \"doc\": \"ignored\","
+        + "\"fields\": [{\"name\": \"a\", \"type\": {\"type\": \"array\", \"items\": \"R\"}}]}");
+    byte[] form = SchemaNormalization.toParsingForm(s).getBytes(UTF_8);
+    for (String fpName : new String[] { "CRC-64-AVRO", "MD5", "SHA-256", "SHA-1" }) {
+      byte[] fp = SchemaNormalization.parsingFingerprint(fpName, s);
+      assertArrayEquals(SchemaNormalization.fingerprint(fpName, form), fp);
+      // callers get their own copy of a memoized fingerprint
+      fp[0]++;
+      assertArrayEquals(SchemaNormalization.fingerprint(fpName, form),
+          SchemaNormalization.parsingFingerprint(fpName, s));
+    }
+    assertEquals(SchemaNormalization.fingerprint64(form), SchemaNormalization.parsingFingerprint64(s));
+    assertEquals(SchemaNormalization.parsingFingerprint64(s), SchemaNormalization.parsingFingerprint64(s));
+  }
+
   @Nested
   public static class TestCanonical {
 
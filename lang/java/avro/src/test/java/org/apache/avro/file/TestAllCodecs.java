@@ -97,6 +97,39 @@ public class TestAllCodecs {
     Assertions.assertEquals(inputByteBuffer, decompressedBuffer);
   }
 
+  @ParameterizedTest
+  @MethodSource("codecTypes")
+  void codecReuse(String codec, Class<? extends Codec> codecClass) throws IOException {
+    byte[] input = generateTestData(100_000);
+    Codec codecInstance = CodecFactory.fromString(codec).createInstance();
+    ByteBuffer compressedBuffer = codecInstance.compress(ByteBuffer.wrap(input));
+
+    // too small to be used
+    ByteBuffer small = ByteBuffer.allocate(10);
+    ByteBuffer decompressedBuffer = codecInstance.decompress(compressedBuffer.duplicate(), small);
+    Assertions.assertEquals(ByteBuffer.wrap(input), decompressedBuffer);
+
+    ByteBuffer large = ByteBuffer.allocate(200_000);
+    decompressedBuffer = codecInstance.decompress(compressedBuffer.duplicate(), large);
+    Assertions.assertEquals(ByteBuffer.wrap(input), decompressedBuffer);
+    Assertions.assertEquals(0, decompressedBuffer.position());
+    if (!codec.equals("null")) {
+      Assertions.assertSame(large.array(), decompressedBuffer.array());
+    }
+
+    // compressing into a reused buffer, with the same result each time
+    ByteBuffer target = ByteBuffer.allocate(200_000);
+    for (int i = 0; i < 3; i++) {
+      ByteBuffer compressed = codecInstance.compress(ByteBuffer.wrap(input), target);
+      Assertions.assertEquals(0, compressed.position());
+      Assertions.assertEquals(compressedBuffer, compressed);
+      if (codec.equals("deflate") || codec.equals("snappy") || codec.equals("zstandard")) {
+        Assertions.assertSame(target.array(), compressed.array());
+      }
+      Assertions.assertEquals(ByteBuffer.wrap(input), codecInstance.decompress(compressed.duplicate()));
+    }
+  }
+
   public static Stream<Arguments> codecTypes() {
     return Stream.of(Arguments.of("bzip2", BZip2Codec.class), Arguments.of("zstandard", ZstandardCodec.class),
         Arguments.of("null", NullCodec.class), Arguments.of("xz", XZCodec.class),
@@ -0,0 +1,151 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.file;
+
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaParser;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.util.RandomData;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestBlockBufferPool {
+  private static final Schema SCHEMA = SchemaParser.parseSingle("{\"type\": \"record\", \"name\": \"Test\", "
+      + "\"fields\": [{\"name\":\"stringField\", \"type\":\"string\"}, {\"name\":\"longField\", \"type\":\"long\"}]}");
+  private static final int COUNT = 3000;
+  private static final long SEED = 11L;
+
+  @TempDir
+  public File dir;
+
+  @Test
+  void acquireAndRelease() {
+    BlockBufferPool pool = new BlockBufferPool(2);
+    ByteBuffer buffer = pool.acquire(5000);
+    assertEquals(8192, buffer.capacity());
+    assertEquals(0, buffer.position());
+    assertEquals(8192, buffer.limit());
+
+    buffer.position(10);
+    pool.release(buffer);
+    assertEquals(1, pool.size());
+    ByteBuffer again = pool.acquire(8000);
+    assertSame(buffer, again);
+    assertEquals(0, again.position());
+    assertEquals(0, pool.size());
+
+    // any heap buffer of 4KB or more can be released, and serves smaller requests
+    pool.release(ByteBuffer.allocate(10_000));
+    assertEquals(10_000, pool.acquire(8192).capacity());
+    // small, direct and read-only buffers, and those past the limit, are dropped
+    pool.release(ByteBuffer.allocate(100));
+    pool.release(ByteBuffer.allocateDirect(8192));
+    pool.release(ByteBuffer.allocate(8192).asReadOnlyBuffer());
+    assertEquals(0, pool.size());
+    for (int i = 0; i < 3; i++) {
+      pool.release(ByteBuffer.allocate(4096));
+    }
+    assertEquals(2, pool.size());
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = { "null", "deflate", "zstandard", "snappy" })
+  void sharedByReaderAndWriter(String codec) throws IOException {
+    BlockBufferPool pool = new BlockBufferPool(16);
+    ExecutorService executor = Executors.newFixedThreadPool(3);
+    try {
+      File file = new File(dir, "pooled-" + codec + ".avro");
+      try (DataFileWriter<Object> writer = new DataFileWriter<>(new GenericDatumWriter<>())) {
+        writer.setCodec(CodecFactory.fromString(codec)).setSyncInterval(2048);
+        writer.setParallelCompression(executor, 3).setBufferPool(pool).create(SCHEMA, file);
+        for (Object datum : new RandomData(SCHEMA, COUNT, SEED)) {
+          writer.append(datum);
+        }
+      }
+      assertTrue(pool.size() > 0);
+
+      for (boolean parallel : new boolean[] { false, true }) {
+        try (DataFileReader<Object> reader = new DataFileReader<>(file, new GenericDatumReader<>())) {
+          reader.setBufferPool(pool);
+          if (parallel) {
+            reader.setParallelDecoding(executor, 3);
+          }
+          for (Object expected : new RandomData(SCHEMA, COUNT, SEED)) {
+            assertEquals(expected, reader.next());
+          }
+          assertFalse(reader.hasNext());
+        }
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = { "null", "deflate", "zstandard", "snappy" })
+  void nextBlockIsNotOverwritten(String codec) throws IOException {
+    BlockBufferPool pool = new BlockBufferPool(16);
+    ExecutorService executor = Executors.newFixedThreadPool(3);
+    try {
+      File file = new File(dir, "blocks-" + codec + ".avro");
+      try (DataFileWriter<Object> writer = new DataFileWriter<>(new GenericDatumWriter<>())) {
+        writer.setCodec(CodecFactory.fromString(codec)).setSyncInterval(2048).create(SCHEMA, file);
+        for (Object datum : new RandomData(SCHEMA, COUNT, SEED)) {
+          writer.append(datum);
+        }
+      }
+
+      for (boolean parallel : new boolean[] { false, true }) {
+        List<ByteBuffer> blocks = new ArrayList<>();
+        List<ByteBuffer> copies = new ArrayList<>();
+        try (DataFileReader<Object> reader = new DataFileReader<>(file, new GenericDatumReader<>())) {
+          reader.setBufferPool(pool);
+          if (parallel) {
+            reader.setParallelDecoding(executor, 3);
+          }
+          while (reader.hasNext()) {
+            ByteBuffer block = reader.nextBlock();
+            blocks.add(block);
+            copies.add(ByteBuffer.allocate(block.remaining()).put(block.duplicate()).flip());
+          }
+        }
+        assertTrue(blocks.size() > 1);
+        // blocks handed out earlier survive reading the later ones
+        assertEquals(copies, blocks);
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+}
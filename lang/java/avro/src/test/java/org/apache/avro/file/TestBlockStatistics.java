@@ -0,0 +1,240 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.file;
+
+import org.apache.avro.LogicalTypes;
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaBuilder;
+import org.apache.avro.data.TimeConversions;
+import org.apache.avro.SchemaParser;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.util.Utf8;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestBlockStatistics {
+  private static final Schema SCHEMA = SchemaParser.parseSingle("{\"type\": \"record\", \"name\": \"Event\", "
+      + "\"fields\": [{\"name\":\"time\", \"type\":\"long\"}, {\"name\":\"name\", \"type\":[\"null\", \"string\"]},"
+      + " {\"name\":\"kind\", \"type\":{\"type\":\"enum\", \"name\":\"Kind\", \"symbols\":[\"A\", \"B\", \"C\"]}},"
+      + " {\"name\":\"tags\", \"type\":{\"type\":\"array\", \"items\":\"string\"}}]}");
+  private static final int COUNT = 2000;
+
+  @TempDir
+  public File dir;
+
+  private static GenericRecord event(long time) {
+    GenericRecord record = new GenericData.Record(SCHEMA);
+    record.put("time", time);
+    record.put("name", time % 7 == 0 ? null : "n" + time);
+    record.put("kind", new GenericData.EnumSymbol(SCHEMA.getField("kind").schema(), time < COUNT / 2 ? "B" : "C"));
+    record.put("tags", new ArrayList<>());
+    return record;
+  }
+
+  private File writeFile(String name) throws IOException {
+    File file = new File(dir, name);
+    try (DataFileWriter<GenericRecord> writer = new DataFileWriter<>(new GenericDatumWriter<>())) {
+      writer.setSyncInterval(1024).setBlockStatistics("time", "name", "kind").create(SCHEMA, file);
+      for (long time = 0; time < COUNT; time++) {
+        writer.append(event(time));
+      }
+    }
+    return file;
+  }
+
+  private static List<Long> readTimes(DataFileStream<GenericRecord> reader) {
+    List<Long> times = new ArrayList<>();
+    for (GenericRecord record : reader) {
+      times.add((Long) record.get("time"));
+    }
+    return times;
+  }
+
+  @Test
+  void statisticsOfEachBlock() throws IOException {
+    File file = writeFile("stats.avro");
+    try (DataFileReader<GenericRecord> reader = new DataFileReader<>(file, new GenericDatumReader<>())) {
+      long[] offsets = reader.getBlockOffsets();
+      long[] firstRows = reader.getBlockFirstRows();
+      assertTrue(offsets.length > 10);
+      BlockIndex index = reader.getBlockIndex();
+      for (int i = 0; i < offsets.length; i++) {
+        long last = (i + 1 < offsets.length ? firstRows[i + 1] : COUNT) - 1;
+        BlockStatistics statistics = index.getStatistics(offsets[i]);
+        assertNotNull(statistics);
+        assertEquals(last - firstRows[i] + 1, statistics.getRecordCount());
+        assertEquals(firstRows[i], statistics.getMin("time"));
+        assertEquals(last, statistics.getMax("time"));
+        assertEquals(0, statistics.getNullCount("time"));
+        long nulls = 0;
+        for (long time = firstRows[i]; time <= last; time++) {
+          nulls += time % 7 == 0 ? 1 : 0;
+        }
+        assertEquals(nulls, statistics.getNullCount("name"));
+        assertTrue(statistics.getMin("name") instanceof Utf8);
+        assertNull(statistics.getMin("tags"));
+        assertEquals(-1, statistics.getNullCount("tags"));
+      }
+      BlockStatistics first = index.getStatistics(offsets[0]);
+      assertEquals("B", first.getMax("kind").toString());
+      assertTrue(first.mightContain("kind", "A", "B"));
+      assertFalse(first.mightContain("kind", "C", null));
+      assertTrue(first.mightContain("tags", "x", "y"));
+    }
+  }
+
+  @Test
+  void filterBlocks() throws IOException {
+    File file = writeFile("stats.avro");
+    try (DataFileReader<GenericRecord> reader = new DataFileReader<>(file, new GenericDatumReader<>())) {
+      reader.setBlockFilter(BlockFilter.range("time", 500L, 520L));
+      List<Long> times = readTimes(reader);
+      assertTrue(times.size() < COUNT / 10, "read " + times.size());
+      assertTrue(times.containsAll(List.of(500L, 510L, 520L)));
+    }
+    try (DataFileReader<GenericRecord> reader = new DataFileReader<>(file, new GenericDatumReader<>())) {
+      reader.setBlockFilter(BlockFilter.range("kind", "C", "C"));
+      List<Long> times = readTimes(reader);
+      assertTrue(times.size() <= COUNT / 2 + COUNT / 10, "read " + times.size());
+      assertEquals(COUNT - 1, times.get(times.size() - 1));
+    }
+    // string statistics compare with any CharSequence
+    try (DataFileReader<GenericRecord> reader = new DataFileReader<>(file, new GenericDatumReader<>())) {
+      reader.setBlockFilter(BlockFilter.range("name", "zzz", null));
+      assertFalse(reader.hasNext());
+    }
+  }
+
+  @Test
+  void filterWithParallelDecoding() throws IOException {
+    File file = writeFile("stats.avro");
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try (DataFileReader<GenericRecord> reader = new DataFileReader<>(file, new GenericDatumReader<>())) {
+      reader.setParallelDecoding(executor, 4);
+      reader.setBlockFilter(BlockFilter.range("time", COUNT - 10L, null));
+      List<Long> times = readTimes(reader);
+      assertTrue(times.size() < COUNT / 10, "read " + times.size());
+      assertEquals(COUNT - 1, times.get(times.size() - 1));
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  void streamsReadAllBlocks() throws IOException {
+    File file = writeFile("stats.avro");
+    try (DataFileStream<GenericRecord> reader = new DataFileStream<>(new FileInputStream(file),
+        new GenericDatumReader<>())) {
+      reader.setBlockFilter(statistics -> false);
+      assertEquals(COUNT, readTimes(reader).size());
+    }
+  }
+
+  @Test
+  void unknownStatistics() throws IOException {
+    File file = new File(dir, "encoded.avro");
+    try (DataFileWriter<GenericRecord> writer = new DataFileWriter<>(new GenericDatumWriter<>())) {
+      writer.setBlockStatistics("time").create(SCHEMA, file);
+      writer.append(event(1));
+      writer.appendEncoded(ByteBuffer.wrap(new byte[] { 4, 0, 0, 0 }));
+      writer.sync();
+      writer.append(event(3));
+    }
+    try (DataFileReader<GenericRecord> reader = new DataFileReader<>(file, new GenericDatumReader<>())) {
+      long[] offsets = reader.getBlockOffsets();
+      assertEquals(2, offsets.length);
+      assertNull(reader.getBlockIndex().getStatistics(offsets[0]));
+      assertNotNull(reader.getBlockIndex().getStatistics(offsets[1]));
+      // blocks without statistics are always read
+      reader.setBlockFilter(statistics -> false);
+      assertEquals(List.of(1L, 2L), readTimes(reader));
+    }
+  }
+
+  @Test
+  void appendKeepsStatistics() throws IOException {
+    File file = writeFile("stats.avro");
+    try (DataFileWriter<GenericRecord> writer = new DataFileWriter<>(new GenericDatumWriter<>())) {
+      writer.appendTo(file);
+      writer.append(event(COUNT + 5));
+    }
+    try (DataFileReader<GenericRecord> reader = new DataFileReader<>(file, new GenericDatumReader<>())) {
+      reader.setBlockFilter(BlockFilter.range("time", (long) COUNT, null));
+      assertEquals(List.of(COUNT + 5L), readTimes(reader));
+    }
+  }
+
+  @Test
+  void logicalTypesWithConversions() throws IOException {
+    Schema timestamp = LogicalTypes.timestampMillis().addToSchema(Schema.create(Schema.Type.LONG));
+    Schema schema = SchemaBuilder.record("Stamped").fields().name("at").type(timestamp).noDefault().name("maybe")
+        .type().optional().type(timestamp).endRecord();
+    GenericData data = new GenericData();
+    data.addLogicalTypeConversion(new TimeConversions.TimestampMillisConversion());
+
+    File file = new File(dir, "stamped.avro");
+    try (DataFileWriter<GenericRecord> writer = new DataFileWriter<>(new GenericDatumWriter<>(schema, data))) {
+      writer.setBlockStatistics("at", "maybe").create(schema, file);
+      for (long millis = 1000; millis < 1100; millis++) {
+        GenericRecord record = new GenericData.Record(schema);
+        record.put("at", Instant.ofEpochMilli(millis));
+        record.put("maybe", millis % 2 == 0 ? null : Instant.ofEpochMilli(-millis));
+        writer.append(record);
+      }
+    }
+    try (DataFileReader<GenericRecord> reader = new DataFileReader<>(file, new GenericDatumReader<>())) {
+      BlockStatistics statistics = reader.getBlockIndex().getStatistics(reader.getBlockOffsets()[0]);
+      assertEquals(100, statistics.getRecordCount());
+      assertEquals(1000L, statistics.getMin("at"));
+      assertEquals(1099L, statistics.getMax("at"));
+      assertEquals(-1099L, statistics.getMin("maybe"));
+      assertEquals(-1001L, statistics.getMax("maybe"));
+      assertEquals(50, statistics.getNullCount("maybe"));
+    }
+  }
+
+  @Test
+  void invalidFields() {
+    File file = new File(dir, "invalid.avro");
+    for (String field : new String[] { "tags", "missing" }) {
+      DataFileWriter<GenericRecord> writer = new DataFileWriter<>(new GenericDatumWriter<>());
+      writer.setBlockStatistics(field);
+      assertThrows(IllegalArgumentException.class, () -> writer.create(SCHEMA, file));
+    }
+  }
+}
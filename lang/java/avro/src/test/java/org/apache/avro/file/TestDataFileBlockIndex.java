@@ -0,0 +1,237 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.file;
+
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaParser;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.util.RandomData;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestDataFileBlockIndex {
+  private static final Schema SCHEMA = SchemaParser.parseSingle("{\"type\": \"record\", \"name\": \"Test\", "
+      + "\"fields\": [{\"name\":\"stringField\", \"type\":\"string\"}, {\"name\":\"longField\", \"type\":\"long\"}]}");
+  private static final int COUNT = 1000;
+  private static final long SEED = 7L;
+
+  @TempDir
+  public File dir;
+
+  private List<Object> data(long seed) {
+    List<Object> data = new ArrayList<>();
+    new RandomData(SCHEMA, COUNT, seed).forEach(data::add);
+    return data;
+  }
+
+  private File writeFile(String name, boolean indexed, List<Object> data) throws IOException {
+    File file = new File(dir, name);
+    try (DataFileWriter<Object> writer = new DataFileWriter<>(new GenericDatumWriter<>())) {
+      writer.setCodec(CodecFactory.deflateCodec(1)).setSyncInterval(512).setBlockIndexEnabled(indexed);
+      writer.create(SCHEMA, file);
+      for (Object datum : data) {
+        writer.append(datum);
+      }
+    }
+    return file;
+  }
+
+  private static void checkSeekToRow(File file, List<Object> data) throws IOException {
+    try (DataFileReader<Object> reader = new DataFileReader<>(file, new GenericDatumReader<>())) {
+      for (int row : new int[] { 0, 1, data.size() / 3, data.size() / 2, data.size() - 1, 17, 0 }) {
+        reader.seekToRow(row);
+        assertEquals(data.get(row), reader.next(), "row " + row);
+      }
+      reader.seekToRow(data.size());
+      assertFalse(reader.hasNext());
+      assertThrows(IllegalArgumentException.class, () -> reader.seekToRow(-1));
+    }
+  }
+
+  @Test
+  void indexedFile() throws IOException {
+    List<Object> data = data(SEED);
+    File file = writeFile("indexed.avro", true, data);
+    checkSeekToRow(file, data);
+
+    try (DataFileReader<Object> reader = new DataFileReader<>(file, new GenericDatumReader<>())) {
+      assertEquals(DataFileConstants.TRAILING_BLOCK_INDEX, reader.getMetaString(DataFileConstants.BLOCK_INDEX));
+      long[] offsets = reader.getBlockOffsets();
+      long[] firstRows = reader.getBlockFirstRows();
+      assertTrue(offsets.length > 10);
+      assertEquals(offsets.length, firstRows.length);
+      assertEquals(0, firstRows[0]);
+      // every offset is a block start, reachable with seek()
+      for (int i = 0; i < offsets.length; i++) {
+        reader.seek(offsets[i]);
+        assertEquals(data.get((int) firstRows[i]), reader.next());
+      }
+    }
+  }
+
+  @Test
+  void indexMatchesScan() throws IOException {
+    File file = writeFile("indexed.avro", true, data(SEED));
+    try (DataFileReader<Object> reader = new DataFileReader<>(file, new GenericDatumReader<>())) {
+      BlockIndex stored = reader.getBlockIndex();
+      assertTrue(stored.getEnd() < file.length());
+      // a scan finds the same data blocks and skips the index block
+      File copy = new File(dir, "unindexed.avro");
+      try (DataFileWriter<Object> writer = new DataFileWriter<>(new GenericDatumWriter<>())) {
+        writer.setCodec(CodecFactory.deflateCodec(1)).create(SCHEMA, copy);
+        writer.appendAllFrom(reader, false);
+      }
+      try (DataFileReader<Object> scanned = new DataFileReader<>(copy, new GenericDatumReader<>())) {
+        assertArrayEquals(stored.getFirstRows(), scanned.getBlockFirstRows());
+        assertEquals(COUNT, scanned.getBlockIndex().getRowCount());
+      }
+    }
+  }
+
+  @Test
+  void unindexedFile() throws IOException {
+    List<Object> data = data(SEED);
+    File file = writeFile("unindexed.avro", false, data);
+    checkSeekToRow(file, data);
+    try (DataFileReader<Object> reader = new DataFileReader<>(file, new GenericDatumReader<>())) {
+      assertEquals(null, reader.getMetaString(DataFileConstants.BLOCK_INDEX));
+      assertEquals(file.length(), reader.getBlockIndex().getEnd());
+      // building the index does not disturb iteration
+      assertEquals(data.get(0), reader.next());
+      reader.getBlockOffsets();
+      assertEquals(data.get(1), reader.next());
+    }
+  }
+
+  @Test
+  void readIndexedFileSequentially() throws IOException {
+    List<Object> data = data(SEED);
+    File file = writeFile("indexed.avro", true, data);
+    try (DataFileStream<Object> reader = new DataFileStream<>(new FileInputStream(file),
+        new GenericDatumReader<>())) {
+      for (Object expected : data) {
+        assertEquals(expected, reader.next());
+      }
+      assertFalse(reader.hasNext());
+    }
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try (DataFileReader<Object> reader = new DataFileReader<>(file, new GenericDatumReader<>())) {
+      reader.setParallelDecoding(executor, 3);
+      for (Object expected : data) {
+        assertEquals(expected, reader.next());
+      }
+      assertFalse(reader.hasNext());
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  void appendToIndexedFile() throws IOException {
+    List<Object> data = data(SEED);
+    File file = writeFile("indexed.avro", true, data);
+    List<Object> more = data(SEED + 1);
+    try (DataFileWriter<Object> writer = new DataFileWriter<>(new GenericDatumWriter<>())) {
+      writer.appendTo(file);
+      for (Object datum : more) {
+        writer.append(datum);
+      }
+    }
+    data.addAll(more);
+    checkSeekToRow(file, data);
+    try (DataFileReader<Object> reader = new DataFileReader<>(file, new GenericDatumReader<>())) {
+      // the old index was replaced, so all records are read back
+      assertEquals(2L * COUNT, reader.getBlockIndex().getRowCount());
+      int count = 0;
+      while (reader.hasNext()) {
+        assertEquals(data.get(count++), reader.next());
+      }
+      assertEquals(data.size(), count);
+    }
+  }
+
+  @Test
+  void appendToIndexedStream() throws IOException {
+    List<Object> data = data(SEED);
+    File file = writeFile("indexed.avro", true, data);
+    List<Object> more = data(SEED + 1);
+    try (SeekableInput in = new SeekableFileInput(file);
+        DataFileWriter<Object> writer = new DataFileWriter<>(new GenericDatumWriter<>())) {
+      writer.appendTo(in, new FileOutputStream(file, true));
+      for (Object datum : more) {
+        writer.append(datum);
+      }
+    }
+    data.addAll(more);
+    checkSeekToRow(file, data);
+    try (DataFileStream<Object> reader = new DataFileStream<>(new FileInputStream(file),
+        new GenericDatumReader<>())) {
+      int count = 0;
+      while (reader.hasNext()) {
+        assertEquals(data.get(count++), reader.next());
+      }
+      assertEquals(data.size(), count);
+    }
+
+    // the index cannot be dropped from other streams
+    byte[] bytes = Files.readAllBytes(file.toPath());
+    try (DataFileWriter<Object> writer = new DataFileWriter<>(new GenericDatumWriter<>())) {
+      assertThrows(IOException.class,
+          () -> writer.appendTo(new SeekableByteArrayInput(bytes), new ByteArrayOutputStream()));
+    }
+  }
+
+  @Test
+  void largeTrailingIndex() throws IOException {
+    File file = new File(dir, "large.avro");
+    List<Object> data = new ArrayList<>();
+    new RandomData(SCHEMA, 60 * COUNT, SEED).forEach(data::add);
+    try (DataFileWriter<Object> writer = new DataFileWriter<>(new GenericDatumWriter<>())) {
+      writer.setSyncInterval(32).setBlockIndexEnabled(true);
+      writer.create(SCHEMA, file);
+      for (Object datum : data) {
+        writer.append(datum);
+      }
+    }
+    try (DataFileReader<Object> reader = new DataFileReader<>(file, new GenericDatumReader<>())) {
+      BlockIndex index = reader.getBlockIndex();
+      // read from the end of the file rather than rebuilt by a scan
+      assertTrue(index.getEnd() < file.length() - 64 * 1024);
+      assertEquals(data.size(), index.getRowCount());
+    }
+    checkSeekToRow(file, data);
+  }
+}
@@ -0,0 +1,173 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.file;
+
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaParser;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.util.RandomData;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestDataFileSplitter {
+  private static final Schema SCHEMA = SchemaParser.parseSingle("{\"type\": \"record\", \"name\": \"Test\", "
+      + "\"fields\": [{\"name\":\"stringField\", \"type\":\"string\"}, {\"name\":\"longField\", \"type\":\"long\"}]}");
+  private static final int COUNT = 5000;
+  private static final long SEED = 17L;
+
+  @TempDir
+  public File dir;
+
+  private File writeFile(boolean indexed) throws IOException {
+    File file = new File(dir, "split-" + indexed + ".avro");
+    try (DataFileWriter<Object> writer = new DataFileWriter<>(new GenericDatumWriter<>())) {
+      writer.setCodec(CodecFactory.deflateCodec(1)).setSyncInterval(1024).setBlockIndexEnabled(indexed);
+      writer.create(SCHEMA, file);
+      for (Object datum : new RandomData(SCHEMA, COUNT, SEED)) {
+        writer.append(datum);
+      }
+    }
+    return file;
+  }
+
+  private static List<Object> expected() {
+    List<Object> expected = new ArrayList<>();
+    new RandomData(SCHEMA, COUNT, SEED).forEach(expected::add);
+    return expected;
+  }
+
+  @ParameterizedTest
+  @ValueSource(booleans = { false, true })
+  void splitsReadEveryRecordOnce(boolean indexed) throws IOException {
+    File file = writeFile(indexed);
+    DataFileSplitter<Object> splitter = new DataFileSplitter<>(file, GenericDatumReader::new);
+    List<Object> expected = expected();
+    for (int count : new int[] { 1, 2, 3, 7, 50, 1000 }) {
+      List<DataFileSplitter<Object>.Split> splits = splitter.split(count);
+      assertTrue(splits.size() <= count);
+      assertEquals(0, splits.get(0).getStart());
+      assertEquals(file.length(), splits.get(splits.size() - 1).getEnd());
+      List<Object> read = new ArrayList<>();
+      for (int i = 0; i < splits.size(); i++) {
+        if (i > 0) {
+          assertEquals(splits.get(i - 1).getEnd(), splits.get(i).getStart());
+        }
+        try (DataFileSplitter<Object>.SplitReader reader = splits.get(i).open()) {
+          for (Object datum : reader) {
+            read.add(datum);
+          }
+        }
+      }
+      assertEquals(expected, read, "split in " + count);
+    }
+  }
+
+  @Test
+  void indexedSplitsAreBalanced() throws IOException {
+    File file = writeFile(true);
+    DataFileSplitter<Object> splitter = new DataFileSplitter<>(file, GenericDatumReader::new);
+    List<DataFileSplitter<Object>.Split> splits = splitter.split(4);
+    assertEquals(4, splits.size());
+    for (DataFileSplitter<Object>.Split split : splits) {
+      long records;
+      try (Stream<Object> stream = split.stream()) {
+        records = stream.count();
+      }
+      assertTrue(Math.abs(records - COUNT / 4) < COUNT / 20, split + " has " + records);
+    }
+  }
+
+  @ParameterizedTest
+  @ValueSource(booleans = { false, true })
+  void parallelStream(boolean indexed) throws IOException {
+    File file = writeFile(indexed);
+    DataFileSplitter<GenericRecord> splitter = new DataFileSplitter<>(file, GenericDatumReader::new);
+    List<Long> read;
+    try (Stream<GenericRecord> records = splitter.stream(8)) {
+      assertTrue(records.isParallel());
+      read = records.map(record -> (Long) record.get("longField")).collect(Collectors.toList());
+    }
+    List<Long> expected = new ArrayList<>();
+    for (Object datum : expected()) {
+      expected.add((Long) ((GenericRecord) datum).get("longField"));
+    }
+    assertEquals(expected, read);
+  }
+
+  @Test
+  void spliterator() throws IOException {
+    File file = writeFile(false);
+    AtomicInteger opened = new AtomicInteger();
+    DataFileSplitter<Object> splitter = new DataFileSplitter<>(() -> {
+      opened.incrementAndGet();
+      return new SeekableFileInput(file);
+    }, GenericDatumReader::new);
+    assertEquals(1, opened.get());
+
+    DataFileSplitter<Object>.Split split = splitter.split(2).get(1);
+    Spliterator<Object> spliterator = split.spliterator();
+    assertEquals(1, opened.get());
+    List<Object> read = new ArrayList<>();
+    spliterator.forEachRemaining(read::add);
+    assertEquals(2, opened.get());
+    assertFalse(read.isEmpty());
+    List<Object> expected = expected();
+    assertEquals(expected.subList(COUNT - read.size(), COUNT), read);
+    assertFalse(spliterator.tryAdvance(datum -> {
+    }));
+  }
+
+  @Test
+  void invalidCount() throws IOException {
+    DataFileSplitter<Object> splitter = new DataFileSplitter<>(writeFile(false), GenericDatumReader::new);
+    assertThrows(IllegalArgumentException.class, () -> splitter.split(0));
+  }
+
+  @Test
+  void closesInputOfInvalidFile() throws IOException {
+    AtomicBoolean closed = new AtomicBoolean();
+    DataFileSplitter.InputOpener opener = () -> new SeekableByteArrayInput(new byte[] { 1, 2, 3, 4, 5 }) {
+      @Override
+      public void close() throws IOException {
+        closed.set(true);
+        super.close();
+      }
+    };
+    assertThrows(IOException.class, () -> new DataFileSplitter<>(opener, GenericDatumReader::new));
+    assertTrue(closed.get());
+  }
+}
@@ -0,0 +1,198 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.file;
+
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaParser;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.util.RandomData;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestPrefetchingSeekableInput {
+  private static final Schema SCHEMA = SchemaParser.parseSingle("{\"type\": \"record\", \"name\": \"Test\", "
+      + "\"fields\": [{\"name\":\"stringField\", \"type\":\"string\"}, {\"name\":\"longField\", \"type\":\"long\"}]}");
+  private static final int COUNT = 2000;
+  private static final long SEED = 3L;
+
+  private ExecutorService executor;
+
+  @BeforeEach
+  void createExecutor() {
+    executor = Executors.newFixedThreadPool(2);
+  }
+
+  @AfterEach
+  void shutdownExecutor() {
+    executor.shutdown();
+  }
+
+  /** Records whether it was read from the thread that created it. */
+  private static class TrackingInput implements SeekableInput {
+    private final SeekableByteArrayInput in;
+    private final Thread owner = Thread.currentThread();
+    private final AtomicBoolean readByOwner = new AtomicBoolean();
+
+    TrackingInput(byte[] data) {
+      this.in = new SeekableByteArrayInput(data);
+    }
+
+    @Override
+    public void seek(long p) throws IOException {
+      in.seek(p);
+    }
+
+    @Override
+    public long tell() throws IOException {
+      return in.tell();
+    }
+
+    @Override
+    public long length() throws IOException {
+      return in.length();
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      if (Thread.currentThread() == owner) {
+        readByOwner.set(true);
+      }
+      return in.read(b, off, len);
+    }
+
+    @Override
+    public void close() throws IOException {
+      in.close();
+    }
+  }
+
+  private static byte[] writeFile() throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (DataFileWriter<Object> writer = new DataFileWriter<>(new GenericDatumWriter<>())) {
+      writer.setCodec(CodecFactory.deflateCodec(1)).setSyncInterval(1024).create(SCHEMA, out);
+      for (Object datum : new RandomData(SCHEMA, COUNT, SEED)) {
+        writer.append(datum);
+      }
+    }
+    return out.toByteArray();
+  }
+
+  @ParameterizedTest
+  @ValueSource(ints = { 1, 100, 4096, 1 << 20 })
+  void readDataFile(int chunkSize) throws IOException {
+    byte[] file = writeFile();
+    TrackingInput input = new TrackingInput(file);
+    try (DataFileReader<Object> reader = new DataFileReader<>(
+        new PrefetchingSeekableInput(input, executor, chunkSize, 3), new GenericDatumReader<>())) {
+      List<Object> expected = new ArrayList<>();
+      for (Object datum : new RandomData(SCHEMA, COUNT, SEED)) {
+        expected.add(datum);
+        assertEquals(datum, reader.next());
+      }
+      assertFalse(reader.hasNext());
+
+      // seeking back and to sync points
+      reader.sync(file.length / 2);
+      long sync = reader.previousSync();
+      Object atSync = reader.next();
+      reader.sync(0);
+      assertEquals(expected.get(0), reader.next());
+      reader.seek(sync);
+      assertEquals(atSync, reader.next());
+    }
+    assertFalse(input.readByOwner.get());
+  }
+
+  @Test
+  void randomSeeks() throws IOException {
+    byte[] data = new byte[10_000];
+    new Random(5).nextBytes(data);
+    Random random = new Random(7);
+    try (PrefetchingSeekableInput input = new PrefetchingSeekableInput(new SeekableByteArrayInput(data), executor,
+        128, 4)) {
+      assertEquals(data.length, input.length());
+      for (int i = 0; i < 500; i++) {
+        int position = random.nextInt(data.length + 1);
+        int length = random.nextInt(1000);
+        input.seek(position);
+        assertEquals(position, input.tell());
+        byte[] read = new byte[length];
+        int total = 0;
+        while (total < length) {
+          int n = input.read(read, total, length - total);
+          if (n < 0) {
+            break;
+          }
+          total += n;
+        }
+        assertEquals(Math.min(length, data.length - position), total);
+        for (int j = 0; j < total; j++) {
+          assertEquals(data[position + j], read[j]);
+        }
+        assertEquals(position + total, input.tell());
+      }
+      input.seek(data.length);
+      assertEquals(-1, input.read(new byte[1], 0, 1));
+      assertThrows(EOFException.class, () -> input.seek(data.length + 1));
+    }
+  }
+
+  @Test
+  void readErrors() throws IOException {
+    byte[] data = new byte[1000];
+    SeekableInput failing = new TrackingInput(data) {
+      @Override
+      public int read(byte[] b, int off, int len) throws IOException {
+        if (tell() >= 500) {
+          throw new IOException("unavailable");
+        }
+        return super.read(b, off, len);
+      }
+    };
+    try (PrefetchingSeekableInput input = new PrefetchingSeekableInput(failing, executor, 100, 8)) {
+      byte[] read = new byte[500];
+      int total = 0;
+      while (total < read.length) {
+        total += input.read(read, total, read.length - total);
+      }
+      assertArrayEquals(new byte[500], read);
+      IOException e = assertThrows(IOException.class, () -> input.read(read, 0, 1));
+      assertTrue(e.getMessage().contains("unavailable"));
+    }
+  }
+}
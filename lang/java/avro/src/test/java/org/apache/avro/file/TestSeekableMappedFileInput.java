@@ -0,0 +1,113 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.file;
+
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaParser;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.util.RandomData;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestSeekableMappedFileInput {
+  private static final Schema SCHEMA = SchemaParser.parseSingle("{\"type\": \"record\", \"name\": \"Test\", "
+      + "\"fields\": [{\"name\":\"stringField\", \"type\":\"string\"}, {\"name\":\"longField\", \"type\":\"long\"}]}");
+  private static final int COUNT = 500;
+  private static final long SEED = 42L;
+
+  @TempDir
+  public File dir;
+
+  private File writeFile(CodecFactory codec) throws IOException {
+    File file = new File(dir, "mapped-" + codec + ".avro");
+    try (DataFileWriter<Object> writer = new DataFileWriter<>(new GenericDatumWriter<>())) {
+      writer.setCodec(codec).setSyncInterval(256).create(SCHEMA, file);
+      for (Object datum : new RandomData(SCHEMA, COUNT, SEED)) {
+        writer.append(datum);
+      }
+    }
+    return file;
+  }
+
+  @ParameterizedTest
+  @ValueSource(ints = { 1 << 30, 100 })
+  void readDataFile(int regionSize) throws IOException {
+    for (CodecFactory codec : new CodecFactory[] { CodecFactory.nullCodec(), CodecFactory.deflateCodec(6) }) {
+      File file = writeFile(codec);
+      try (DataFileReader<Object> reader = new DataFileReader<>(new SeekableMappedFileInput(file, regionSize),
+          new GenericDatumReader<>())) {
+        for (Object expected : new RandomData(SCHEMA, COUNT, SEED)) {
+          assertEquals(expected, reader.next());
+        }
+        assertFalse(reader.hasNext());
+
+        // sync points are found the same way as with a stream
+        reader.sync(file.length() / 2);
+        long sync = reader.previousSync();
+        try (DataFileReader<Object> other = new DataFileReader<>(file, new GenericDatumReader<>())) {
+          other.sync(file.length() / 2);
+          assertEquals(other.previousSync(), sync);
+          assertEquals(other.next(), reader.next());
+        }
+      }
+    }
+  }
+
+  @Test
+  void readingData() throws IOException {
+    File file = new File(dir, "data");
+    byte[] data = "0123456789ABCD".getBytes(StandardCharsets.UTF_8);
+    Files.write(file.toPath(), data);
+    byte[] result = new byte[16];
+    try (SeekableMappedFileInput in = new SeekableMappedFileInput(file, 5)) {
+      in.read(result, 0, 8);
+      in.seek(4);
+      in.read(result, 8, 8);
+      assertEquals(12, in.tell());
+      assertEquals(data.length, in.length());
+      assertEquals("01234567456789AB", new String(result, StandardCharsets.UTF_8));
+      assertEquals(2, in.read(result, 0, 8));
+      assertEquals(-1, in.read(result, 0, 8));
+
+      ByteBuffer inRegion = in.slice(5, 5);
+      assertTrue(inRegion.isReadOnly());
+      assertEquals("56789", StandardCharsets.UTF_8.decode(inRegion).toString());
+      assertEquals("3456789A", StandardCharsets.UTF_8.decode(in.slice(3, 8)).toString());
+      assertEquals(14, in.tell());
+
+      assertThrows(EOFException.class, () -> in.slice(10, 8));
+      assertThrows(EOFException.class, () -> in.seek(-1));
+      assertThrows(EOFException.class, () -> in.seek(64));
+    }
+  }
+}
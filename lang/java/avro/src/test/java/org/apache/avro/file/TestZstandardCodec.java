@@ -17,14 +17,76 @@
  */
 package org.apache.avro.file;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
 
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaParser;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.EncoderFactory;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 public class TestZstandardCodec {
+  private static final Schema SCHEMA = SchemaParser.parseSingle("{\"type\": \"record\", \"name\": \"Visit\", "
+      + "\"fields\": [{\"name\":\"id\", \"type\":\"long\"}, {\"name\":\"url\", \"type\":\"string\"},"
+      + " {\"name\":\"agent\", \"type\":\"string\"}]}");
+
+  @TempDir
+  public File dir;
+
+  private static GenericRecord visit(int i) {
+    GenericRecord record = new GenericData.Record(SCHEMA);
+    record.put("id", (long) i);
+    record.put("url", "https://www.example.com/products/" + (i % 97) + "/reviews?page=" + (i % 13));
+    record.put("agent", "Mozilla/5.0 (X11; Linux x86_64; rv:" + (100 + i % 20) + ".0) Gecko/20100101 Firefox");
+    return record;
+  }
+
+  /** Serialize groups of records, as small blocks would hold them. */
+  private static List<ByteBuffer> samples(int count, int perSample) throws IOException {
+    List<ByteBuffer> samples = new ArrayList<>();
+    GenericDatumWriter<GenericRecord> writer = new GenericDatumWriter<>(SCHEMA);
+    BinaryEncoder encoder = null;
+    for (int i = 0; i < count; i++) {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      encoder = EncoderFactory.get().binaryEncoder(out, encoder);
+      for (int j = 0; j < perSample; j++) {
+        writer.write(visit(i * perSample + j), encoder);
+      }
+      encoder.flush();
+      samples.add(ByteBuffer.wrap(out.toByteArray()));
+    }
+    return samples;
+  }
+
+  private File writeFile(String name, CodecFactory codec, int count) throws IOException {
+    File file = new File(dir, name);
+    try (DataFileWriter<GenericRecord> writer = new DataFileWriter<>(new GenericDatumWriter<>())) {
+      writer.setCodec(codec).setSyncInterval(2048).create(SCHEMA, file);
+      for (int i = 0; i < count; i++) {
+        writer.append(visit(i));
+      }
+    }
+    return file;
+  }
 
   @Test
   void zstandardToStringAndName() throws IOException {
@@ -33,4 +95,81 @@ public class TestZstandardCodec {
     assertEquals(codec.getName(), "zstandard");
     assertEquals(codec.toString(), "zstandard[3]");
   }
+
+  @Test
+  void dictionaryRoundTrip() throws IOException {
+    byte[] dictionary = ZstandardCodec.trainDictionary(samples(500, 4), 16 * 1024);
+    assertTrue(dictionary.length > 0);
+    Codec codec = CodecFactory.zstandardCodec(3, false, false, dictionary).createInstance();
+    assertArrayEquals(dictionary, ((ZstandardCodec) codec).getDictionary());
+    Codec plain = CodecFactory.zstandardCodec(3).createInstance();
+    assertNull(((ZstandardCodec) plain).getDictionary());
+    assertNotEquals(plain, codec);
+    assertEquals(codec, CodecFactory.zstandardCodec(3, false, false, dictionary).createInstance());
+
+    ByteBuffer block = samples(1, 20).get(0);
+    ByteBuffer compressed = codec.compress(block.duplicate());
+    assertTrue(compressed.remaining() < plain.compress(block.duplicate()).remaining());
+    assertEquals(block, codec.decompress(compressed));
+  }
+
+  @Test
+  void dictionaryFile() throws IOException {
+    byte[] dictionary = ZstandardCodec.trainDictionary(samples(500, 4), 16 * 1024);
+    int count = 5000;
+    File plain = writeFile("plain.avro", CodecFactory.zstandardCodec(3), count);
+    File file = writeFile("dictionary.avro", CodecFactory.zstandardCodec(3, false, false, dictionary), count);
+    assertTrue(file.length() < plain.length(), file.length() + " >= " + plain.length());
+
+    try (DataFileWriter<GenericRecord> writer = new DataFileWriter<>(new GenericDatumWriter<>())) {
+      writer.appendTo(file);
+      writer.append(visit(count));
+    }
+    try (DataFileReader<GenericRecord> reader = new DataFileReader<>(file, new GenericDatumReader<>())) {
+      assertArrayEquals(dictionary, reader.getMeta(DataFileConstants.ZSTANDARD_DICTIONARY));
+      for (int i = 0; i <= count; i++) {
+        assertEquals(visit(i), reader.next());
+      }
+      assertFalse(reader.hasNext());
+    }
+
+    // blocks are recompressed when appended to a file with another dictionary
+    File other = writeFile("other.avro", CodecFactory.zstandardCodec(3), 10);
+    try (DataFileWriter<GenericRecord> writer = new DataFileWriter<>(new GenericDatumWriter<>())) {
+      writer.appendTo(other);
+      try (DataFileStream<GenericRecord> in = new DataFileReader<>(file, new GenericDatumReader<>())) {
+        writer.appendAllFrom(in, false);
+      }
+    }
+    try (DataFileReader<GenericRecord> reader = new DataFileReader<>(other, new GenericDatumReader<>())) {
+      assertNull(reader.getMeta(DataFileConstants.ZSTANDARD_DICTIONARY));
+      for (int i = 0; i < 10; i++) {
+        assertEquals(visit(i), reader.next());
+      }
+      for (int i = 0; i <= count; i++) {
+        assertEquals(visit(i), reader.next());
+      }
+      assertFalse(reader.hasNext());
+    }
+  }
+
+  @Test
+  void tooFewSamples() {
+    List<ByteBuffer> samples = List.of(ByteBuffer.wrap(new byte[] { 1, 2, 3 }));
+    assertThrows(IllegalArgumentException.class, () -> ZstandardCodec.trainDictionary(samples, 16 * 1024));
+  }
+
+  @Test
+  void streamedFrames() throws IOException {
+    // frames written by earlier versions do not record their size
+    byte[] input = TestAllCodecs.generateTestData(50_000);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (OutputStream zstd = ZstandardLoader.output(out, 3, false, false)) {
+      zstd.write(input);
+    }
+    Codec codec = CodecFactory.zstandardCodec(3).createInstance();
+    assertEquals(ByteBuffer.wrap(input), codec.decompress(ByteBuffer.wrap(out.toByteArray())));
+    ByteBuffer compressed = codec.compress(ByteBuffer.wrap(input));
+    assertEquals(ByteBuffer.wrap(input), codec.decompress(compressed));
+  }
 }
@@ -0,0 +1,136 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.generic;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.avro.FooBarSpecificRecord;
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaParser;
+import org.apache.avro.TypeEnum;
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.DatumWriter;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.EncoderFactory;
+import org.apache.avro.specific.SpecificDatumReader;
+import org.apache.avro.specific.SpecificDatumWriter;
+import org.apache.avro.util.RandomData;
+import org.junit.jupiter.api.Test;
+
+public class TestDatumArena {
+  private static final Schema SCHEMA = SchemaParser.parseSingle("{\"type\": \"record\", \"name\": \"Node\", "
+      + "\"fields\": [{\"name\": \"id\", \"type\": \"long\"}, {\"name\": \"label\", \"type\": [\"null\", \"string\"]},"
+      + "{\"name\": \"hash\", \"type\": {\"type\": \"fixed\", \"name\": \"Hash\", \"size\": 4}},"
+      + "{\"name\": \"payload\", \"type\": \"bytes\"}, {\"name\": \"ratios\", \"type\": "
+      + "{\"type\": \"array\", \"items\": \"double\"}},"
+      + "{\"name\": \"tags\", \"type\": {\"type\": \"map\", \"values\": {\"type\": \"array\", \"items\": \"string\"}}},"
+      + "{\"name\": \"children\", \"type\": {\"type\": \"array\", \"items\": \"Node\"}}]}");
+
+  private static <T> byte[] encode(DatumWriter<T> writer, Iterable<? extends T> data) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    BinaryEncoder encoder = EncoderFactory.get().binaryEncoder(out, null);
+    for (T datum : data) {
+      writer.write(datum, encoder);
+    }
+    encoder.flush();
+    return out.toByteArray();
+  }
+
+  private static List<Object> readBatch(GenericDatumReader<Object> reader, byte[] bytes, int count)
+      throws IOException {
+    BinaryDecoder in = DecoderFactory.get().binaryDecoder(bytes, null);
+    List<Object> batch = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      batch.add(reader.read(null, in));
+    }
+    assertTrue(in.isEnd());
+    return batch;
+  }
+
+  @Test
+  void recyclesPerBatch() throws IOException {
+    List<Object> first = new ArrayList<>();
+    new RandomData(SCHEMA, 50, 11L).forEach(first::add);
+    List<Object> second = new ArrayList<>();
+    new RandomData(SCHEMA, 50, 13L).forEach(second::add);
+    GenericDatumWriter<Object> writer = new GenericDatumWriter<>(SCHEMA);
+
+    DatumArena arena = new DatumArena();
+    GenericDatumReader<Object> reader = new GenericDatumReader<>(SCHEMA);
+    reader.setArena(arena);
+    assertSame(arena, reader.getArena());
+
+    // nothing read within a batch is shared, so all of it remains valid
+    List<Object> read = readBatch(reader, encode(writer, first), first.size());
+    assertEquals(first, read);
+
+    arena.reset();
+    List<Object> reread = readBatch(reader, encode(writer, second), second.size());
+    assertEquals(second, reread);
+    // values are handed out again in the order they were first taken
+    assertSame(read.get(0), reread.get(0));
+
+    arena.clear();
+    List<Object> cleared = readBatch(reader, encode(writer, first), first.size());
+    assertEquals(first, cleared);
+    assertNotSame(read.get(0), cleared.get(0));
+
+    reader.setArena(null);
+    Object reused = reader.read(cleared.get(0), DecoderFactory.get().binaryDecoder(encode(writer, first), null));
+    assertSame(cleared.get(0), reused);
+  }
+
+  @Test
+  void specificRecords() throws IOException {
+    List<FooBarSpecificRecord> records = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      records.add(FooBarSpecificRecord.newBuilder().setId(i).setName("name" + i)
+          .setNicknames(Arrays.asList("a" + i, "b" + i)).setRelatedids(Arrays.asList(i, i + 1))
+          .setTypeEnum(TypeEnum.c).build());
+    }
+    byte[] bytes = encode(new SpecificDatumWriter<>(FooBarSpecificRecord.class), records);
+
+    SpecificDatumReader<FooBarSpecificRecord> reader = new SpecificDatumReader<>(FooBarSpecificRecord.class);
+    DatumArena arena = new DatumArena();
+    reader.setArena(arena);
+    List<FooBarSpecificRecord> read = new ArrayList<>();
+    List<List<Integer>> ids = new ArrayList<>();
+    for (int batch = 0; batch < 2; batch++) {
+      arena.reset();
+      BinaryDecoder in = DecoderFactory.get().binaryDecoder(bytes, null);
+      for (int i = 0; i < records.size(); i++) {
+        FooBarSpecificRecord record = reader.read(null, in);
+        assertEquals(records.get(i), record);
+        if (batch == 0) {
+          read.add(record);
+          ids.add(record.getRelatedids());
+        } else {
+          assertSame(read.get(i), record);
+          assertSame(ids.get(i), record.getRelatedids());
+        }
+      }
+    }
+  }
+}
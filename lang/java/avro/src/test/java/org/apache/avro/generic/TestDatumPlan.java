@@ -0,0 +1,101 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.generic;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaParser;
+import org.apache.avro.reflect.ReflectData;
+import org.apache.avro.specific.SpecificData;
+import org.apache.avro.util.RandomData;
+import org.junit.jupiter.api.Test;
+
+public class TestDatumPlan {
+  private static final Schema SCHEMA = SchemaParser.parseSingle("{\"type\": \"record\", \"name\": \"Node\", "
+      + "\"fields\": [{\"name\": \"kind\", \"type\": {\"type\": \"enum\", \"name\": \"Kind\", "
+      + "\"symbols\": [\"A\", \"B\"]}}, {\"name\": \"on\", \"type\": \"boolean\", \"order\": \"descending\"},"
+      + "{\"name\": \"tags\", \"type\": {\"type\": \"map\", \"values\": \"int\"}, \"order\": \"ignore\"},"
+      + "{\"name\": \"label\", \"type\": [\"null\", \"string\"]}, {\"name\": \"x\", \"type\": \"float\"},"
+      + "{\"name\": \"day\", \"type\": {\"type\": \"int\", \"logicalType\": \"date\"}},"
+      + "{\"name\": \"hash\", \"type\": {\"type\": \"fixed\", \"name\": \"Hash\", \"size\": 2}},"
+      + "{\"name\": \"payload\", \"type\": \"bytes\"}, {\"name\": \"ids\", \"type\": "
+      + "{\"type\": \"array\", \"items\": \"long\"}, \"order\": \"descending\"},"
+      + "{\"name\": \"children\", \"type\": {\"type\": \"array\", \"items\": \"Node\"}}]}");
+
+  /** A model that is not compiled, as it overrides the comparison. */
+  private static class InterpretedData extends GenericData {
+    @Override
+    protected int compare(Object o1, Object o2, Schema s, boolean equals) {
+      return super.compare(o1, o2, s, equals);
+    }
+  }
+
+  @Test
+  void compilable() {
+    assertTrue(DatumPlan.isCompilable(GenericData.class));
+    assertTrue(DatumPlan.isCompilable(SpecificData.class));
+    assertTrue(DatumPlan.isCompilable(ReflectData.AllowNull.class));
+    assertFalse(DatumPlan.isCompilable(InterpretedData.class));
+  }
+
+  @Test
+  void matchesInterpretation() {
+    List<Object> data = new ArrayList<>();
+    new RandomData(SCHEMA, 40, 31L).forEach(data::add);
+    GenericData compiled = GenericData.get();
+    GenericData interpreted = new InterpretedData();
+    for (Object d1 : data) {
+      assertEquals(interpreted.hashCode(d1, SCHEMA), compiled.hashCode(d1, SCHEMA));
+      Object copy = compiled.deepCopy(SCHEMA, d1);
+      assertNotSame(d1, copy);
+      assertEquals(interpreted.deepCopy(SCHEMA, d1), copy);
+      assertEquals(0, compiled.compare(d1, copy, SCHEMA));
+      for (Object d2 : data) {
+        assertEquals(interpreted.compare(d1, d2, SCHEMA), compiled.compare(d1, d2, SCHEMA));
+        assertEquals(interpreted.compare(d1, d2, SCHEMA, true), compiled.compare(d1, d2, SCHEMA, true));
+      }
+    }
+  }
+
+  @Test
+  void copiesUseTheSchemaPassed() {
+    GenericData data = new GenericData();
+    Object record = new RandomData(SCHEMA, 1, 3L).iterator().next();
+    // equal schemas may differ in docs, which equals ignores
+    Schema documented = SchemaParser.parseSingle(SCHEMA.toString().replace("\"Node\",", "\"Node\", \"doc\": \"d\","));
+    assertEquals(SCHEMA, documented);
+    assertSame(SCHEMA, ((GenericRecord) data.deepCopy(SCHEMA, record)).getSchema());
+    GenericRecord copy = (GenericRecord) data.deepCopy(documented, record);
+    assertSame(documented, copy.getSchema());
+    assertSame(documented.getField("hash").schema(), ((GenericFixed) copy.get("hash")).getSchema());
+  }
+
+  @Test
+  void maps() {
+    Schema schema = SchemaParser.parseSingle("{\"type\": \"map\", \"values\": \"string\"}");
+    Object map = new RandomData(schema, 1, 5L).iterator().next();
+    assertEquals(0, GenericData.get().compare(map, GenericData.get().deepCopy(schema, map), schema, true));
+    assertThrows(AvroRuntimeException.class,
+        () -> GenericData.get().compare(map, GenericData.get().deepCopy(schema, map), schema));
+  }
+}
@@ -18,11 +18,15 @@
 package org.apache.avro.generic;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 import java.io.ByteArrayOutputStream;
 import java.io.EOFException;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -36,6 +40,7 @@ import org.apache.avro.io.BinaryDecoder;
 import org.apache.avro.io.BinaryEncoder;
 import org.apache.avro.io.DecoderFactory;
 import org.apache.avro.io.EncoderFactory;
+import org.apache.avro.io.ResolvingDecoder;
 import org.junit.jupiter.api.Test;
 
 public class TestGenericDatumReader {
@@ -60,6 +65,27 @@ public class TestGenericDatumReader {
     });
   }
 
+  @Test
+  void resolversOnOtherThreads() throws Exception {
+    Schema schema = Schema.createArray(Schema.create(Schema.Type.LONG));
+    GenericDatumReader<Object> reader = new GenericDatumReader<>(schema);
+    ResolvingDecoder[] resolvers = new ResolvingDecoder[2];
+    Thread other = new Thread(() -> {
+      try {
+        resolvers[0] = reader.getResolver(schema, schema);
+        resolvers[1] = reader.getResolver(schema, schema);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    });
+    other.start();
+    other.join();
+    // the other thread reuses its own decoder, not the creator's
+    assertNotNull(resolvers[0]);
+    assertSame(resolvers[0], resolvers[1]);
+    assertNotSame(resolvers[0], reader.getResolver(schema, schema));
+  }
+
   @Test
   void newInstanceFromString() {
     final GenericDatumReader.ReaderCache cache = new GenericDatumReader.ReaderCache(this::findStringClass);
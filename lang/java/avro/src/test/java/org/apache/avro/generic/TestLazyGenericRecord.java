@@ -0,0 +1,152 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.generic;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaParser;
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.EncoderFactory;
+import org.apache.avro.util.RandomData;
+import org.apache.avro.util.Utf8;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+public class TestLazyGenericRecord {
+  private static final Schema SCHEMA = SchemaParser.parseSingle("{\"type\": \"record\", \"name\": \"Node\", "
+      + "\"fields\": [{\"name\": \"id\", \"type\": \"long\"}, {\"name\": \"ratio\", \"type\": \"double\"},"
+      + "{\"name\": \"label\", \"type\": [\"null\", \"string\"]},"
+      + "{\"name\": \"point\", \"type\": {\"type\": \"record\", \"name\": \"Point\", \"fields\": ["
+      + "{\"name\": \"x\", \"type\": \"float\"}, {\"name\": \"y\", \"type\": \"float\"}]}},"
+      + "{\"name\": \"kind\", \"type\": {\"type\": \"enum\", \"name\": \"Kind\", \"symbols\": [\"A\", \"B\", \"C\"]}},"
+      + "{\"name\": \"hash\", \"type\": {\"type\": \"fixed\", \"name\": \"Hash\", \"size\": 4}},"
+      + "{\"name\": \"payload\", \"type\": \"bytes\"}, {\"name\": \"name\", \"type\": \"string\"},"
+      + "{\"name\": \"tags\", \"type\": {\"type\": \"map\", \"values\": {\"type\": \"array\", \"items\": \"int\"}}},"
+      + "{\"name\": \"children\", \"type\": {\"type\": \"array\", \"items\": \"Node\"}}]}");
+
+  private static ByteBuffer encode(List<Object> data, boolean direct) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    BinaryEncoder encoder = EncoderFactory.get().binaryEncoder(out, null);
+    GenericDatumWriter<Object> writer = new GenericDatumWriter<>(SCHEMA);
+    for (Object datum : data) {
+      writer.write(datum, encoder);
+    }
+    encoder.flush();
+    byte[] bytes = out.toByteArray();
+    ByteBuffer buffer = direct ? ByteBuffer.allocateDirect(bytes.length) : ByteBuffer.allocate(bytes.length);
+    buffer.put(bytes).flip();
+    return buffer;
+  }
+
+  @ParameterizedTest
+  @ValueSource(booleans = { true, false })
+  void readsFieldsLazily(boolean direct) throws IOException {
+    List<Object> expected = new ArrayList<>();
+    new RandomData(SCHEMA, 100, 3L).forEach(expected::add);
+    ByteBuffer buffer = encode(expected, direct);
+
+    for (Object datum : expected) {
+      GenericRecord record = (GenericRecord) datum;
+      LazyGenericRecord lazy = LazyGenericRecord.wrap(SCHEMA, buffer);
+      // out of order, so later fields are located before earlier ones are decoded
+      assertEquals(record.get("children"), lazy.get("children"));
+      assertEquals(new Utf8(record.get("name").toString()), lazy.get("name"));
+      // nested records are lazy too, and only equal to other lazy records
+      assertTrue(lazy.get("point") instanceof LazyGenericRecord);
+      Schema point = SCHEMA.getField("point").schema();
+      assertEquals(0, GenericData.get().compare(lazy.get("point"), record.get("point"), point, true));
+      assertNotEquals(lazy.get("point"), record.get("point"));
+      assertNotEquals(record.get("point"), lazy.get("point"));
+      ByteBuffer payload = (ByteBuffer) lazy.get("payload");
+      assertEquals(record.get("payload"), payload);
+      assertEquals(direct, payload.isDirect());
+      assertEquals(0, GenericData.get().compare(lazy, record, SCHEMA, true));
+      assertNotEquals(lazy, record);
+      assertEquals(record.hashCode(), lazy.hashCode());
+      assertEquals(LazyGenericRecord.wrap(SCHEMA, buffer.duplicate()), lazy);
+      assertEquals(record.get("point").toString(), lazy.get("point").toString());
+
+      ByteBuffer encoded = lazy.getEncoded();
+      assertEquals(encode(List.of(datum), false), encoded);
+      buffer.position(buffer.position() + encoded.remaining());
+    }
+    assertFalse(buffer.hasRemaining());
+  }
+
+  @ParameterizedTest
+  @ValueSource(booleans = { true, false })
+  void matchesDatumReader(boolean direct) throws IOException {
+    List<Object> written = new ArrayList<>();
+    new RandomData(SCHEMA, 20, 5L).forEach(written::add);
+    ByteBuffer buffer = encode(written, direct);
+    BinaryDecoder decoder = DecoderFactory.get().binaryDecoder(buffer, null);
+    GenericDatumReader<GenericRecord> reader = new GenericDatumReader<>(SCHEMA);
+
+    while (buffer.hasRemaining()) {
+      GenericRecord expected = reader.read(null, decoder);
+      LazyGenericRecord lazy = LazyGenericRecord.wrap(SCHEMA, buffer);
+      for (int i = SCHEMA.getFields().size() - 1; i >= 0; i--) {
+        Schema field = SCHEMA.getFields().get(i).schema();
+        assertEquals(0, GenericData.get().compare(lazy.get(i), expected.get(i), field, true));
+      }
+      buffer.position(buffer.position() + lazy.getEncoded().remaining());
+    }
+  }
+
+  @Test
+  void keepsTheSchemaPassed() throws IOException {
+    ByteBuffer buffer = encode(List.of(new RandomData(SCHEMA, 1, 9L).iterator().next()), false);
+    Schema documented = SchemaParser.parseSingle(SCHEMA.toString().replaceFirst("\\{", "{\"doc\": \"d\", "));
+    assertEquals(SCHEMA, documented);
+    assertSame(SCHEMA, LazyGenericRecord.wrap(SCHEMA, buffer).getSchema());
+    assertSame(documented, LazyGenericRecord.wrap(documented, buffer).getSchema());
+  }
+
+  @ParameterizedTest
+  @ValueSource(booleans = { true, false })
+  void putReplacesDecodedValues(boolean direct) throws IOException {
+    Object datum = new RandomData(SCHEMA, 1, 7L).iterator().next();
+    ByteBuffer buffer = encode(List.of(datum), direct);
+    LazyGenericRecord lazy = LazyGenericRecord.wrap(SCHEMA, buffer);
+    lazy.put("name", "replaced");
+    lazy.put(0, 42L);
+    assertEquals("replaced", lazy.get(7));
+    assertEquals(42L, lazy.get("id"));
+    assertEquals(((GenericRecord) datum).get("label"), lazy.get("label"));
+    // the encoded form is left as it was
+    assertEquals(buffer, lazy.getEncoded());
+    assertEquals(0, buffer.position());
+
+    assertThrows(AvroRuntimeException.class, () -> lazy.get("missing"));
+    assertThrows(AvroRuntimeException.class, () -> LazyGenericRecord.wrap(Schema.create(Schema.Type.INT), buffer));
+    ByteBuffer truncated = buffer.duplicate();
+    truncated.limit(truncated.limit() - 1);
+    assertThrows(AvroRuntimeException.class, () -> LazyGenericRecord.wrap(SCHEMA, truncated).getEncoded());
+  }
+}
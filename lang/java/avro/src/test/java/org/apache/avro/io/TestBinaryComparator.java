@@ -0,0 +1,154 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.io;
+
+import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaParser;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.util.RandomData;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestBinaryComparator {
+  private static final Schema SCHEMA = SchemaParser.parseSingle("{\"type\": \"record\", \"name\": \"Key\", "
+      + "\"fields\": [{\"name\": \"kind\", \"type\": {\"type\": \"enum\", \"name\": \"Kind\", "
+      + "\"symbols\": [\"A\", \"B\"]}}, {\"name\": \"on\", \"type\": \"boolean\"},"
+      + "{\"name\": \"tags\", \"type\": {\"type\": \"map\", \"values\": \"int\"}, \"order\": \"ignore\"},"
+      + "{\"name\": \"n\", \"type\": \"int\", \"order\": \"descending\"},"
+      + "{\"name\": \"name\", \"type\": [\"null\", \"string\"]},"
+      + "{\"name\": \"x\", \"type\": \"float\"}, {\"name\": \"y\", \"type\": \"double\", \"order\": \"descending\"},"
+      + "{\"name\": \"ts\", \"type\": \"long\"}, {\"name\": \"skipped\", \"type\": \"string\", \"order\": \"ignore\"},"
+      + "{\"name\": \"hash\", \"type\": {\"type\": \"fixed\", \"name\": \"Hash\", \"size\": 2}},"
+      + "{\"name\": \"path\", \"type\": {\"type\": \"array\", \"items\": \"bytes\"}, \"order\": \"descending\"},"
+      + "{\"name\": \"next\", \"type\": [\"null\", \"Key\"]}]}");
+
+  private static List<byte[]> encode(Schema schema, int count, long seed) throws IOException {
+    List<byte[]> encoded = new ArrayList<>();
+    GenericDatumWriter<Object> writer = new GenericDatumWriter<>(schema);
+    for (Object datum : new RandomData(schema, count, seed)) {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      BinaryEncoder encoder = EncoderFactory.get().binaryEncoder(out, null);
+      writer.write(datum, encoder);
+      encoder.flush();
+      encoded.add(out.toByteArray());
+    }
+    return encoded;
+  }
+
+  private static Object decode(Schema schema, byte[] bytes) throws IOException {
+    return new GenericDatumReader<>(schema).read(null, DecoderFactory.get().binaryDecoder(bytes, null));
+  }
+
+  @Test
+  void comparesLikeGenericData() throws IOException {
+    Schema small = SchemaParser.parseSingle("{\"type\": \"record\", \"name\": \"Small\", \"fields\": ["
+        + "{\"name\": \"b\", \"type\": \"boolean\"},"
+        + "{\"name\": \"ignored\", \"type\": \"long\", \"order\": \"ignore\"},"
+        + "{\"name\": \"e\", \"type\": {\"type\": \"enum\", \"name\": \"E\", \"symbols\": [\"X\", \"Y\"]}},"
+        + "{\"name\": \"s\", \"type\": \"string\", \"order\": \"descending\"}]}");
+    for (Schema schema : new Schema[] { SCHEMA, small }) {
+      List<byte[]> data = encode(schema, 60, 47L);
+      BinaryComparator comparator = BinaryComparator.get(schema);
+      assertSame(comparator, BinaryComparator.get(schema));
+      // equal schemas share a comparator
+      assertSame(comparator, BinaryComparator.get(SchemaParser.parseSingle(schema.toString())));
+      for (byte[] b1 : data) {
+        Object d1 = decode(schema, b1);
+        for (byte[] b2 : data) {
+          int expected = Integer.signum(GenericData.get().compare(d1, decode(schema, b2), schema));
+          assertEquals(expected, Integer.signum(comparator.compare(b1, 0, b1.length, b2, 0, b2.length)));
+          assertEquals(expected, Integer.signum(BinaryData.compare(b1, 0, b2, 0, schema)));
+        }
+      }
+    }
+  }
+
+  @ParameterizedTest
+  @ValueSource(ints = { 0, 3, 8, 24, 256 })
+  void normalizedKeys(int keyLength) throws IOException {
+    BinaryComparator comparator = BinaryComparator.get(SCHEMA);
+    List<byte[]> data = encode(SCHEMA, 60, 53L);
+    List<byte[]> keys = new ArrayList<>();
+    boolean[] complete = new boolean[data.size()];
+    for (int i = 0; i < data.size(); i++) {
+      byte[] b = data.get(i);
+      byte[] key = new byte[keyLength + 2];
+      complete[i] = comparator.writeNormalizedKey(b, 0, b.length, key, 1, keyLength);
+      keys.add(key);
+    }
+    for (int i = 0; i < data.size(); i++) {
+      for (int j = 0; j < data.size(); j++) {
+        int c = Arrays.compareUnsigned(keys.get(i), 1, keyLength + 1, keys.get(j), 1, keyLength + 1);
+        byte[] b1 = data.get(i);
+        byte[] b2 = data.get(j);
+        int expected = Integer.signum(comparator.compare(b1, 0, b1.length, b2, 0, b2.length));
+        if (c != 0 || (complete[i] && complete[j])) {
+          assertEquals(expected, Integer.signum(c));
+        }
+      }
+    }
+    if (keyLength == 0) {
+      assertFalse(complete[0]);
+    }
+  }
+
+  @Test
+  void normalizedKeyOrders() {
+    Schema schema = SchemaParser.parseSingle("[\"null\", \"string\", \"float\"]");
+    BinaryComparator comparator = BinaryComparator.get(schema);
+    byte[][] data = { { 0 }, { 2, 0 }, { 2, 2, 0 }, { 2, 4, 0, 0 }, { 2, 2, 'a' }, { 2, 4, 'a', 0 }, { 2, 4, 'a', 1 },
+        { 4, 0, 0, (byte) 0x80, (byte) 0xff }, { 4, 0, 0, (byte) 0x80, (byte) 0xbf }, { 4, 0, 0, 0, (byte) 0x80 },
+        { 4, 0, 0, 0, 0 }, { 4, 0, 0, (byte) 0x80, 0x3f }, { 4, 0, 0, (byte) 0x80, 0x7f },
+        { 4, 0, 0, (byte) 0xc0, 0x7f } };
+    byte[] previous = null;
+    for (int i = 0; i < data.length; i++) {
+      byte[] key = new byte[8];
+      assertTrue(comparator.writeNormalizedKey(data[i], 0, data[i].length, key, 0, key.length));
+      if (previous != null) {
+        assertTrue(Arrays.compareUnsigned(previous, key) < 0, "key " + i);
+        assertTrue(comparator.compare(data[i - 1], 0, data[i - 1].length, data[i], 0, data[i].length) < 0);
+      }
+      previous = key;
+    }
+  }
+
+  @Test
+  void maps() {
+    Schema schema = SchemaParser.parseSingle("{\"type\": \"map\", \"values\": \"int\"}");
+    byte[] b = { 0 };
+    assertThrows(AvroRuntimeException.class, () -> BinaryData.compare(b, 0, b, 0, schema));
+    assertThrows(AvroRuntimeException.class,
+        () -> BinaryComparator.get(schema).writeNormalizedKey(b, 0, 1, new byte[4], 0, 4));
+  }
+}
@@ -256,6 +256,34 @@ public class TestBinaryDecoder {
     }
   }
 
+  @ParameterizedTest
+  @ValueSource(booleans = { true, false })
+  void decodeFromByteBuffer(boolean useDirect) throws IOException {
+    GenericDatumReader<Object> reader = new GenericDatumReader<>();
+    reader.setSchema(schema);
+
+    ByteBuffer buffer = useDirect ? ByteBuffer.allocateDirect(data.length + 30) : ByteBuffer.allocate(data.length + 30);
+    buffer.position(15);
+    buffer.put(data);
+    buffer.flip();
+    buffer.position(15);
+
+    BinaryDecoder fromBuffer = factory.binaryDecoder(buffer, null);
+    for (Object datum : records) {
+      Assertions.assertEquals(datum, reader.read(null, fromBuffer),
+          "ByteBuffer based BinaryDecoder result does not match");
+    }
+    Assertions.assertTrue(fromBuffer.isEnd());
+    Assertions.assertEquals(15, buffer.position(), "position of the source buffer must not change");
+
+    // reinitialize on the same data and skip through it
+    BinaryDecoder reused = factory.binaryDecoder(buffer, fromBuffer);
+    Assertions.assertSame(fromBuffer, reused);
+    Assertions.assertEquals(data.length, reused.remainingBytes());
+    validateInputStreamReads(reused.inputStream(), new ByteArrayInputStream(data));
+    Assertions.assertThrows(EOFException.class, reused::readLong);
+  }
+
   @ParameterizedTest
   @ValueSource(booleans = { true, false })
   void inputStreamProxy(boolean useDirect) throws IOException {
@@ -0,0 +1,277 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.io;
+
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaParser;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.generic.PrimitivesArrays;
+import org.apache.avro.reflect.ReflectDatumReader;
+import org.apache.avro.reflect.ReflectDatumWriter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestBulkPrimitiveIO {
+  private static final int COUNT = 1000;
+
+  private static final int[] INTS = new int[COUNT];
+  private static final long[] LONGS = new long[COUNT];
+  private static final float[] FLOATS = new float[COUNT];
+  private static final double[] DOUBLES = new double[COUNT];
+
+  static {
+    Random random = new Random(59L);
+    for (int i = 0; i < COUNT; i++) {
+      int bits = random.nextInt(33);
+      INTS[i] = bits == 32 ? Integer.MIN_VALUE : random.nextInt() >> bits;
+      LONGS[i] = bits == 32 ? Long.MAX_VALUE : random.nextLong() >> (bits * 2);
+      FLOATS[i] = bits == 0 ? Float.NaN : random.nextFloat() * INTS[i];
+      DOUBLES[i] = bits == 0 ? Double.NEGATIVE_INFINITY : random.nextGaussian() * LONGS[i];
+    }
+  }
+
+  /** Writes each array in two blocks of items, half in bulk. */
+  private static void writeArrays(Encoder out) throws IOException {
+    int half = COUNT / 2;
+    out.writeArrayStart();
+    out.setItemCount(COUNT);
+    out.writeInts(INTS, 0, half);
+    for (int i = half; i < COUNT; i++) {
+      out.startItem();
+      out.writeInt(INTS[i]);
+    }
+    out.writeArrayEnd();
+    out.writeArrayStart();
+    out.setItemCount(COUNT);
+    out.writeLongs(LONGS, 0, COUNT);
+    out.writeArrayEnd();
+    out.writeArrayStart();
+    out.setItemCount(COUNT);
+    out.writeFloats(FLOATS, 0, half);
+    out.writeFloats(FLOATS, half, COUNT - half);
+    out.writeArrayEnd();
+    out.writeArrayStart();
+    out.setItemCount(COUNT);
+    out.writeDoubles(DOUBLES, 0, COUNT);
+    out.writeArrayEnd();
+    out.flush();
+  }
+
+  private static void readArrays(Decoder in) throws IOException {
+    int[] ints = new int[COUNT + 1];
+    for (long n = in.readArrayStart(), i = 0; n > 0; i += n, n = in.arrayNext()) {
+      in.readInts(ints, 1 + (int) i, (int) n);
+    }
+    long[] longs = new long[COUNT];
+    for (long n = in.readArrayStart(), i = 0; n > 0; i += n, n = in.arrayNext()) {
+      in.readLongs(longs, (int) i, (int) n);
+    }
+    float[] floats = new float[COUNT];
+    for (long n = in.readArrayStart(), i = 0; n > 0; i += n, n = in.arrayNext()) {
+      in.readFloats(floats, (int) i, (int) n);
+    }
+    double[] doubles = new double[COUNT];
+    for (long n = in.readArrayStart(), i = 0; n > 0; i += n, n = in.arrayNext()) {
+      in.readDoubles(doubles, (int) i, (int) n);
+    }
+    assertArrayEquals(INTS, Arrays.copyOfRange(ints, 1, COUNT + 1));
+    assertArrayEquals(LONGS, longs);
+    assertArrayEquals(FLOATS, floats);
+    assertArrayEquals(DOUBLES, doubles);
+  }
+
+  @Test
+  void binaryEncodersAndDecoders() throws IOException {
+    EncoderFactory small = new EncoderFactory().configureBufferSize(64).configureBlockSize(64);
+    ByteArrayOutputStream expected = new ByteArrayOutputStream();
+    Encoder plain = EncoderFactory.get().directBinaryEncoder(expected, null);
+    writeArrays(plain);
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    writeArrays(small.binaryEncoder(out, null));
+    assertArrayEquals(expected.toByteArray(), out.toByteArray());
+
+    ByteBufferBinaryEncoder growable = EncoderFactory.get().growableBinaryEncoder(16, true, null);
+    writeArrays(growable);
+    ByteBuffer buffer = growable.getByteBuffer();
+    byte[] bytes = new byte[buffer.remaining()];
+    buffer.get(bytes);
+    assertArrayEquals(expected.toByteArray(), bytes);
+
+    out = new ByteArrayOutputStream();
+    writeArrays(small.blockingBinaryEncoder(out, null));
+    readArrays(DecoderFactory.get().binaryDecoder(out.toByteArray(), null));
+
+    byte[] data = expected.toByteArray();
+    readArrays(DecoderFactory.get().binaryDecoder(data, null));
+    readArrays(new DecoderFactory().configureDecoderBufferSize(32).binaryDecoder(new ByteArrayInputStream(data), null));
+    readArrays(DecoderFactory.get().directBinaryDecoder(new ByteArrayInputStream(data), null));
+  }
+
+  @Test
+  void byteBufferAndDirectDecoders() throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    writeArrays(EncoderFactory.get().directBinaryEncoder(out, null));
+    byte[] data = out.toByteArray();
+
+    ByteBuffer heap = ByteBuffer.allocate(data.length + 3);
+    heap.put(new byte[3]).put(data).position(3);
+    readArrays(DecoderFactory.get().binaryDecoder(heap, null));
+    assertEquals(3, heap.position());
+    ByteBuffer direct = ByteBuffer.allocateDirect(data.length);
+    direct.put(data).flip();
+    readArrays(DecoderFactory.get().binaryDecoder(direct, null));
+    readArrays(DecoderFactory.get().directBinaryDecoder(new ByteArrayInputStream(data), null));
+
+    // running out part way through a block
+    ByteBuffer truncated = ByteBuffer.wrap(data, 0, data.length - 1).slice();
+    assertThrows(EOFException.class, () -> readArrays(DecoderFactory.get().binaryDecoder(truncated, null)));
+    assertThrows(EOFException.class, () -> readArrays(
+        DecoderFactory.get().directBinaryDecoder(new ByteArrayInputStream(data, 0, data.length - 1), null)));
+    for (Decoder in : Arrays.asList(DecoderFactory.get().binaryDecoder(ByteBuffer.wrap(new byte[] { -1, -1 }), null),
+        DecoderFactory.get().directBinaryDecoder(new ByteArrayInputStream(new byte[] { -1, -1 }), null))) {
+      assertThrows(EOFException.class, () -> in.readInts(new int[1], 0, 1));
+    }
+    assertThrows(EOFException.class,
+        () -> DecoderFactory.get().binaryDecoder(ByteBuffer.allocate(7), null).readFloats(new float[2], 0, 2));
+    assertThrows(EOFException.class,
+        () -> DecoderFactory.get().binaryDecoder(ByteBuffer.allocate(15), null).readDoubles(new double[2], 0, 2));
+  }
+
+  @Test
+  void validatingDecoder() throws IOException {
+    Schema schema = SchemaParser.parseSingle("{\"type\": \"record\", \"name\": \"Arrays\", \"fields\": ["
+        + "{\"name\": \"i\", \"type\": {\"type\": \"array\", \"items\": \"int\"}},"
+        + "{\"name\": \"l\", \"type\": {\"type\": \"array\", \"items\": \"long\"}},"
+        + "{\"name\": \"f\", \"type\": {\"type\": \"array\", \"items\": \"float\"}},"
+        + "{\"name\": \"d\", \"type\": {\"type\": \"array\", \"items\": \"double\"}}]}");
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    writeArrays(EncoderFactory.get().validatingEncoder(schema, EncoderFactory.get().binaryEncoder(out, null)));
+    readArrays(DecoderFactory.get().validatingDecoder(schema,
+        DecoderFactory.get().binaryDecoder(out.toByteArray(), null)));
+    readArrays(DecoderFactory.get().resolvingDecoder(schema, schema,
+        DecoderFactory.get().binaryDecoder(out.toByteArray(), null)));
+  }
+
+  private static final Schema WRITER = SchemaParser.parseSingle("{\"type\": \"record\", \"name\": \"Vectors\", "
+      + "\"fields\": [{\"name\": \"promoted\", \"type\": {\"type\": \"array\", \"items\": \"int\"}},"
+      + "{\"name\": \"i\", \"type\": {\"type\": \"array\", \"items\": \"int\"}},"
+      + "{\"name\": \"l\", \"type\": {\"type\": \"array\", \"items\": \"long\"}},"
+      + "{\"name\": \"f\", \"type\": {\"type\": \"array\", \"items\": \"float\"}},"
+      + "{\"name\": \"d\", \"type\": {\"type\": \"array\", \"items\": \"double\"}}]}");
+
+  private static final Schema READER = SchemaParser.parseSingle("{\"type\": \"record\", \"name\": \"Vectors\", "
+      + "\"fields\": [{\"name\": \"promoted\", \"type\": {\"type\": \"array\", \"items\": \"float\"}},"
+      + "{\"name\": \"i\", \"type\": {\"type\": \"array\", \"items\": \"int\"}},"
+      + "{\"name\": \"l\", \"type\": {\"type\": \"array\", \"items\": \"long\"}},"
+      + "{\"name\": \"f\", \"type\": {\"type\": \"array\", \"items\": \"double\"}},"
+      + "{\"name\": \"d\", \"type\": {\"type\": \"array\", \"items\": \"double\"}}]}");
+
+  @ParameterizedTest
+  @ValueSource(booleans = { true, false })
+  void genericArrays(boolean fast) throws IOException {
+    GenericData model = new GenericData().setFastReaderEnabled(fast);
+    GenericData.Record record = new GenericData.Record(WRITER);
+    PrimitivesArrays.IntArray ints = new PrimitivesArrays.IntArray(COUNT, WRITER.getField("i").schema());
+    PrimitivesArrays.LongArray longs = new PrimitivesArrays.LongArray(COUNT, WRITER.getField("l").schema());
+    PrimitivesArrays.FloatArray floats = new PrimitivesArrays.FloatArray(COUNT, WRITER.getField("f").schema());
+    PrimitivesArrays.DoubleArray doubles = new PrimitivesArrays.DoubleArray(COUNT, WRITER.getField("d").schema());
+    for (int i = 0; i < COUNT; i++) {
+      ints.add(INTS[i]);
+      longs.add(LONGS[i]);
+      floats.add(FLOATS[i]);
+      doubles.add(DOUBLES[i]);
+    }
+    record.put("i", ints);
+    record.put("l", longs);
+    record.put("f", floats);
+    record.put("d", doubles);
+    record.put("promoted", ints);
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    BinaryEncoder encoder = EncoderFactory.get().binaryEncoder(out, null);
+    new GenericDatumWriter<>(WRITER, model).write(record, encoder);
+    new GenericDatumWriter<>(WRITER, model).write(record, encoder);
+    encoder.flush();
+
+    GenericDatumReader<GenericRecord> reader = new GenericDatumReader<>(WRITER, READER, model);
+    BinaryDecoder in = DecoderFactory.get().binaryDecoder(out.toByteArray(), null);
+    GenericRecord first = reader.read(null, in);
+    GenericRecord second = reader.read(first, in);
+    assertTrue(in.isEnd());
+    for (GenericRecord read : new GenericRecord[] { first, second }) {
+      assertEquals(ints, read.get("i"));
+      assertEquals(longs, read.get("l"));
+      List<?> f = (List<?>) read.get("f");
+      List<?> promoted = (List<?>) read.get("promoted");
+      PrimitivesArrays.DoubleArray d = (PrimitivesArrays.DoubleArray) read.get("d");
+      for (int i = 0; i < COUNT; i++) {
+        assertEquals((double) FLOATS[i], f.get(i));
+        assertEquals(DOUBLES[i], d.getDouble(i));
+        assertEquals((float) INTS[i], promoted.get(i));
+      }
+    }
+    assertSame(first.get("d"), second.get("d"));
+  }
+
+  public static class Embedding {
+    int[] ids;
+    long[] timestamps;
+    float[] vector;
+    double[] weights;
+  }
+
+  @Test
+  void reflectArrays() throws IOException {
+    Embedding embedding = new Embedding();
+    embedding.ids = INTS;
+    embedding.timestamps = LONGS;
+    embedding.vector = FLOATS;
+    embedding.weights = DOUBLES;
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    BinaryEncoder encoder = EncoderFactory.get().binaryEncoder(out, null);
+    new ReflectDatumWriter<>(Embedding.class).write(embedding, encoder);
+    encoder.flush();
+
+    Embedding read = new ReflectDatumReader<>(Embedding.class).read(null,
+        DecoderFactory.get().binaryDecoder(out.toByteArray(), null));
+    assertArrayEquals(INTS, read.ids);
+    assertArrayEquals(LONGS, read.timestamps);
+    assertArrayEquals(FLOATS, read.vector);
+    assertArrayEquals(DOUBLES, read.weights);
+  }
+}
@@ -0,0 +1,159 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.io;
+
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaParser;
+import org.apache.avro.SystemLimitException;
+import org.apache.avro.file.DataFileStream;
+import org.apache.avro.file.DataFileWriter;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.util.RandomData;
+import org.apache.avro.util.Utf8;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestColumnarBatchReader {
+  private static final Schema SCHEMA = SchemaParser.parseSingle("{\"type\": \"record\", \"name\": \"Row\", "
+      + "\"fields\": [{\"name\": \"i\", \"type\": \"int\"}, {\"name\": \"l\", \"type\": \"long\"},"
+      + "{\"name\": \"tags\", \"type\": {\"type\": \"map\", \"values\": \"string\"}},"
+      + "{\"name\": \"f\", \"type\": \"float\"}, {\"name\": \"d\", \"type\": \"double\"},"
+      + "{\"name\": \"b\", \"type\": \"boolean\"}, {\"name\": \"s\", \"type\": \"string\"},"
+      + "{\"name\": \"items\", \"type\": {\"type\": \"array\", \"items\": \"long\"}},"
+      + "{\"name\": \"bytes\", \"type\": \"bytes\"},"
+      + "{\"name\": \"kind\", \"type\": {\"type\": \"enum\", \"name\": \"Kind\", \"symbols\": [\"A\", \"B\", \"C\"]}},"
+      + "{\"name\": \"hash\", \"type\": {\"type\": \"fixed\", \"name\": \"Hash\", \"size\": 4}},"
+      + "{\"name\": \"name\", \"type\": [\"null\", \"string\"]},"
+      + "{\"name\": \"count\", \"type\": [\"long\", \"null\"]}]}");
+
+  private static byte[] writeFile(List<Object> data) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (DataFileWriter<Object> writer = new DataFileWriter<>(new GenericDatumWriter<>(SCHEMA))) {
+      writer.setSyncInterval(2000);
+      writer.create(SCHEMA, out);
+      for (Object datum : data) {
+        writer.append(datum);
+      }
+    }
+    return out.toByteArray();
+  }
+
+  @Test
+  void readsAllColumns() throws IOException {
+    List<Object> data = new ArrayList<>();
+    new RandomData(SCHEMA, 1000, 43L).forEach(data::add);
+    byte[] file = writeFile(data);
+
+    ColumnarBatchReader reader = new ColumnarBatchReader(SCHEMA,
+        Arrays.asList("count", "i", "l", "f", "d", "b", "s", "bytes", "kind", "hash", "name"));
+    ColumnBatch batch = null;
+    BinaryDecoder decoder = null;
+    int blocks = 0;
+    int row = 0;
+    try (DataFileStream<Object> stream = new DataFileStream<>(new ByteArrayInputStream(file),
+        new GenericDatumReader<>())) {
+      while (stream.hasNext()) {
+        ByteBuffer block = stream.nextBlock();
+        decoder = DecoderFactory.get().binaryDecoder(block, decoder);
+        ColumnBatch read = reader.read(decoder, (int) stream.getBlockCount(), batch);
+        assertTrue(batch == null || batch == read);
+        batch = read;
+        assertTrue(decoder.isEnd());
+        blocks++;
+        for (int r = 0; r < batch.size(); r++) {
+          assertRow((GenericRecord) data.get(row++), batch, r);
+        }
+      }
+    }
+    assertEquals(data.size(), row);
+    assertTrue(blocks > 1);
+    assertEquals(11, batch.getColumnCount());
+    assertEquals("count", batch.getColumn(0).getName());
+    assertNull(batch.getColumn("items"));
+  }
+
+  private static void assertRow(GenericRecord expected, ColumnBatch batch, int r) {
+    assertEquals(expected.get("i"), ((ColumnBatch.IntVector) batch.getColumn("i")).get(r));
+    assertEquals(expected.get("l"), ((ColumnBatch.LongVector) batch.getColumn("l")).get(r));
+    assertEquals(expected.get("f"), ((ColumnBatch.FloatVector) batch.getColumn("f")).get(r));
+    assertEquals(expected.get("d"), ((ColumnBatch.DoubleVector) batch.getColumn("d")).get(r));
+    assertEquals(expected.get("b"), ((ColumnBatch.BooleanVector) batch.getColumn("b")).get(r));
+    assertEquals(new Utf8(expected.get("s").toString()), ((ColumnBatch.BytesVector) batch.getColumn("s")).getUtf8(r));
+    assertEquals(expected.get("bytes"), ((ColumnBatch.BytesVector) batch.getColumn("bytes")).getBytes(r));
+    assertEquals(SCHEMA.getField("kind").schema().getEnumOrdinal(expected.get("kind").toString()),
+        ((ColumnBatch.IntVector) batch.getColumn("kind")).get(r));
+    assertArrayEquals(((GenericData.Fixed) expected.get("hash")).bytes(),
+        toArray(((ColumnBatch.BytesVector) batch.getColumn("hash")).getBytes(r)));
+
+    ColumnBatch.BytesVector name = (ColumnBatch.BytesVector) batch.getColumn("name");
+    if (expected.get("name") == null) {
+      assertTrue(name.isNull(r));
+      assertEquals(0, name.getLength(r));
+    } else {
+      assertFalse(name.isNull(r));
+      assertEquals(new Utf8(expected.get("name").toString()), name.getUtf8(r));
+    }
+    ColumnBatch.LongVector count = (ColumnBatch.LongVector) batch.getColumn("count");
+    if (expected.get("count") == null) {
+      assertTrue(count.isNull(r));
+    } else {
+      assertFalse(count.isNull(r));
+      assertEquals(expected.get("count"), count.get(r));
+    }
+  }
+
+  private static byte[] toArray(ByteBuffer buffer) {
+    byte[] bytes = new byte[buffer.remaining()];
+    buffer.duplicate().get(bytes);
+    return bytes;
+  }
+
+  @Test
+  void invalidColumns() {
+    assertThrows(IllegalArgumentException.class, () -> new ColumnarBatchReader(SCHEMA));
+    assertThrows(IllegalArgumentException.class, () -> new ColumnarBatchReader(SCHEMA, Arrays.asList("items")));
+    assertThrows(IllegalArgumentException.class, () -> new ColumnarBatchReader(SCHEMA, Arrays.asList("missing")));
+    assertThrows(IllegalArgumentException.class, () -> new ColumnarBatchReader(SCHEMA, Arrays.asList("i", "i")));
+    assertThrows(IllegalArgumentException.class, () -> new ColumnarBatchReader(Schema.create(Schema.Type.INT)));
+  }
+
+  @Test
+  void columnDataLimit() {
+    ColumnBatch.BytesVector vector = new ColumnBatch.BytesVector("s", Schema.create(Schema.Type.STRING));
+    vector.offsets = new int[] { Integer.MAX_VALUE - 100, 0 };
+    SystemLimitException e = assertThrows(SystemLimitException.class, () -> vector.reserve(0, 100));
+    assertEquals("Cannot hold more than 2GB of data in a column: s", e.getMessage());
+  }
+}
@@ -0,0 +1,203 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.io;
+
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaParser;
+import org.apache.avro.data.TimeConversions;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.specific.SpecificData;
+import org.apache.avro.specific.SpecificDatumWriter;
+import org.apache.avro.specific.TestRecordWithLogicalTypes;
+import org.apache.avro.specific.TestRecordWithMapsAndArrays;
+import org.apache.avro.util.RandomData;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class TestCompiledDatumBuilder {
+  private static final Schema SCHEMA = SchemaParser.parseSingle("{\"type\": \"record\", \"name\": \"Node\", "
+      + "\"fields\": [{\"name\": \"id\", \"type\": \"long\"},"
+      + "{\"name\": \"label\", \"type\": [\"null\", \"string\"]},"
+      + "{\"name\": \"weight\", \"type\": [\"int\", \"double\", \"string\"]},"
+      + "{\"name\": \"kind\", \"type\": {\"type\": \"enum\", \"name\": \"Kind\", \"symbols\": [\"A\", \"B\", \"C\"]}},"
+      + "{\"name\": \"hash\", \"type\": {\"type\": \"fixed\", \"name\": \"Hash\", \"size\": 4}},"
+      + "{\"name\": \"payload\", \"type\": \"bytes\"}, {\"name\": \"flag\", \"type\": \"boolean\"},"
+      + "{\"name\": \"ratio\", \"type\": \"float\"}, {\"name\": \"tags\", \"type\": {\"type\": \"map\", \"values\": "
+      + "{\"type\": \"array\", \"items\": \"int\"}}},"
+      + "{\"name\": \"children\", \"type\": {\"type\": \"array\", \"items\": [\"null\", \"Node\"]}}]}");
+
+  /** Reads Node with a promotion, a dropped field, reordered and new fields. */
+  private static final Schema READER_SCHEMA = SchemaParser.parseSingle("{\"type\": \"record\", \"name\": \"Node\", "
+      + "\"fields\": [{\"name\": \"kind\", \"type\": {\"type\": \"enum\", \"name\": \"Kind\", "
+      + "\"symbols\": [\"C\", \"B\", \"A\"]}}, {\"name\": \"id\", \"type\": \"double\"},"
+      + "{\"name\": \"label\", \"type\": [\"null\", \"string\"]},"
+      + "{\"name\": \"weight\", \"type\": [\"int\", \"double\", \"string\"]},"
+      + "{\"name\": \"hash\", \"type\": {\"type\": \"fixed\", \"name\": \"Hash\", \"size\": 4}},"
+      + "{\"name\": \"flag\", \"type\": \"boolean\"}, {\"name\": \"ratio\", \"type\": \"double\"},"
+      + "{\"name\": \"tags\", \"type\": {\"type\": \"map\", \"values\": {\"type\": \"array\", \"items\": \"long\"}}},"
+      + "{\"name\": \"children\", \"type\": {\"type\": \"array\", \"items\": [\"null\", \"Node\"]}},"
+      + "{\"name\": \"names\", \"type\": {\"type\": \"array\", \"items\": \"string\"}, \"default\": [\"x\"]},"
+      + "{\"name\": \"count\", \"type\": \"int\", \"default\": 7}]}");
+
+  private static final Schema LOGICAL_SCHEMA = SchemaParser.parseSingle("{\"type\": \"record\", \"name\": \"Event\", "
+      + "\"fields\": [{\"name\": \"day\", \"type\": {\"type\": \"int\", \"logicalType\": \"date\"}},"
+      + "{\"name\": \"at\", \"type\": [\"null\", {\"type\": \"long\", \"logicalType\": \"timestamp-millis\"}]}]}");
+
+  private static <D> byte[] write(DatumWriter<D> writer, Iterable<? extends D> data) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    BinaryEncoder encoder = EncoderFactory.get().binaryEncoder(out, null);
+    for (D datum : data) {
+      writer.write(datum, encoder);
+    }
+    encoder.flush();
+    return out.toByteArray();
+  }
+
+  private static <D> List<D> read(DatumReader<D> reader, byte[] bytes, int count) throws IOException {
+    BinaryDecoder decoder = DecoderFactory.get().binaryDecoder(bytes, null);
+    List<D> read = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      read.add(reader.read(null, decoder));
+    }
+    return read;
+  }
+
+  @Test
+  void genericRoundTrip() throws IOException {
+    List<Object> expected = new ArrayList<>();
+    new RandomData(SCHEMA, 200, 13L).forEach(expected::add);
+    CompiledDatumBuilder builder = CompiledDatumBuilder.get();
+
+    byte[] bytes = write(new GenericDatumWriter<>(SCHEMA), expected);
+    assertArrayEquals(bytes, write(builder.createDatumWriter(SCHEMA), expected));
+    assertEquals(expected, read(builder.createDatumReader(SCHEMA), bytes, expected.size()));
+  }
+
+  @Test
+  void resolvingRead() throws IOException {
+    List<Object> written = new ArrayList<>();
+    new RandomData(SCHEMA, 200, 17L).forEach(written::add);
+    byte[] bytes = write(new GenericDatumWriter<>(SCHEMA), written);
+
+    List<Object> expected = read(new GenericDatumReader<>(SCHEMA, READER_SCHEMA), bytes, written.size());
+    List<Object> actual = read(CompiledDatumBuilder.get().createDatumReader(SCHEMA, READER_SCHEMA), bytes,
+        written.size());
+    assertEquals(expected, actual);
+    // mutable defaults are copied for each record
+    Object names = ((GenericRecord) actual.get(0)).get("names");
+    assertEquals("[x]", names.toString());
+    assertNotSame(names, ((GenericRecord) actual.get(1)).get("names"));
+  }
+
+  @Test
+  void reuse() throws IOException {
+    Object datum = new RandomData(SCHEMA, 1, 19L).iterator().next();
+    byte[] bytes = write(new GenericDatumWriter<>(SCHEMA), Arrays.asList(datum, datum));
+    DatumReader<Object> reader = CompiledDatumBuilder.get().createDatumReader(SCHEMA);
+    BinaryDecoder decoder = DecoderFactory.get().binaryDecoder(bytes, null);
+    Object first = reader.read(null, decoder);
+    assertSame(first, reader.read(first, decoder));
+    assertEquals(datum, first);
+  }
+
+  @Test
+  void logicalTypes() throws IOException {
+    GenericData model = new GenericData();
+    model.addLogicalTypeConversion(new TimeConversions.DateConversion());
+    model.addLogicalTypeConversion(new TimeConversions.TimestampMillisConversion());
+    GenericRecord record = new GenericData.Record(LOGICAL_SCHEMA);
+    record.put("day", LocalDate.of(2020, 2, 29));
+    record.put("at", Instant.ofEpochMilli(1234567890L));
+    GenericRecord empty = new GenericData.Record(LOGICAL_SCHEMA);
+    empty.put("day", LocalDate.of(1970, 1, 2));
+    List<GenericRecord> expected = Arrays.asList(record, empty);
+
+    CompiledDatumBuilder builder = new CompiledDatumBuilder(model);
+    byte[] bytes = write(new GenericDatumWriter<>(LOGICAL_SCHEMA, model), expected);
+    assertArrayEquals(bytes, write(builder.createDatumWriter(LOGICAL_SCHEMA), expected));
+    List<GenericRecord> read = read(builder.createDatumReader(LOGICAL_SCHEMA), bytes, expected.size());
+    for (int i = 0; i < expected.size(); i++) {
+      assertEquals(expected.get(i).get("day"), read.get(i).get("day"));
+      assertEquals(expected.get(i).get("at"), read.get(i).get("at"));
+    }
+  }
+
+  @Test
+  void specificRecords() throws IOException {
+    CompiledDatumBuilder builder = CompiledDatumBuilder.getSpecific();
+    TestRecordWithLogicalTypes logical = new TestRecordWithLogicalTypes(true, 34, 35L, 3.14F, 3019.34, "s",
+        LocalDate.of(2021, 1, 1), LocalTime.of(10, 11, 12), Instant.ofEpochMilli(1000L), new BigDecimal("123.45"),
+        new BigDecimal("-23.456"));
+    Schema schema = TestRecordWithLogicalTypes.getClassSchema();
+    byte[] bytes = write(new SpecificDatumWriter<>(schema), Collections.singleton(logical));
+    assertArrayEquals(bytes, write(builder.createDatumWriter(schema), Collections.singleton(logical)));
+    assertEquals(Collections.singletonList(logical), read(builder.createDatumReader(schema), bytes, 1));
+
+    // written with the custom coders of the class
+    TestRecordWithMapsAndArrays custom = new TestRecordWithMapsAndArrays(Arrays.asList("a", "b"),
+        Collections.singletonMap("k", 1L), Collections.singletonList(Arrays.asList("c", "d")),
+        Collections.singletonMap("n", Collections.singletonMap("m", 2L)));
+    schema = TestRecordWithMapsAndArrays.getClassSchema();
+    bytes = write(new SpecificDatumWriter<>(schema), Collections.singleton(custom));
+    assertArrayEquals(bytes, write(builder.createDatumWriter(schema), Collections.singleton(custom)));
+    DatumReader<TestRecordWithMapsAndArrays> reader = builder.createDatumReader(schema);
+    TestRecordWithMapsAndArrays read = read(reader, bytes, 1).get(0);
+    assertEquals(custom, read);
+    // map keys are read as the String the schema asks for
+    assertEquals(1L, read.getMap().get("k"));
+    assertEquals(2L, read.getNestedMap().get("n").get("m"));
+
+    // maps and arrays are reused
+    Map<String, Long> map = read.getMap();
+    List<String> arr = read.getArr();
+    assertSame(read, reader.read(read, DecoderFactory.get().binaryDecoder(bytes, null)));
+    assertEquals(custom, read);
+    assertSame(map, read.getMap());
+    assertSame(arr, read.getArr());
+  }
+
+  @Test
+  void errors() {
+    assertThrows(IllegalArgumentException.class, () -> new CompiledDatumBuilder(new SpecificData() {
+    }));
+    GenericRecord record = (GenericRecord) new RandomData(SCHEMA, 1, 23L).iterator().next();
+    record.put("weight", 1L);
+    DatumWriter<Object> writer = CompiledDatumBuilder.get().createDatumWriter(SCHEMA);
+    assertThrows(RuntimeException.class, () -> write(writer, Collections.singleton(record)));
+  }
+}
@@ -28,14 +28,18 @@ import org.apache.avro.Schema.Type;
 import org.apache.avro.SchemaParser;
 import org.apache.avro.generic.GenericDatumReader;
 import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.util.RandomData;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
 
 import java.io.BufferedOutputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.BufferOverflowException;
 import java.nio.ByteBuffer;
 import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
@@ -118,6 +122,62 @@ public class TestEncoders {
     });
   }
 
+  @Test
+  void byteBufferBinaryEncoderInit() throws IOException {
+    ByteBuffer out = ByteBuffer.allocate(16);
+    BinaryEncoder enc = FACTORY.byteBufferBinaryEncoder(out, null);
+    assertSame(enc, FACTORY.byteBufferBinaryEncoder(out, enc));
+    assertSame(enc, FACTORY.growableBinaryEncoder(16, true, enc));
+    assertThrows(NullPointerException.class, () -> FACTORY.byteBufferBinaryEncoder(null, null));
+    assertThrows(IllegalArgumentException.class, () -> FACTORY.byteBufferBinaryEncoder(out.asReadOnlyBuffer(), null));
+    assertThrows(IllegalArgumentException.class, () -> FACTORY.growableBinaryEncoder(0, false, null));
+  }
+
+  @ParameterizedTest
+  @ValueSource(booleans = { true, false })
+  void byteBufferBinaryEncoder(boolean direct) throws IOException {
+    Schema schema = SchemaParser.parseSingle("{\"type\": \"record\", \"name\": \"R\", \"fields\": ["
+        + "{\"name\": \"i\", \"type\": \"int\"}, {\"name\": \"l\", \"type\": \"long\"},"
+        + "{\"name\": \"f\", \"type\": \"float\"}, {\"name\": \"d\", \"type\": \"double\"},"
+        + "{\"name\": \"s\", \"type\": \"string\"}, {\"name\": \"b\", \"type\": \"bytes\"},"
+        + "{\"name\": \"a\", \"type\": {\"type\": \"array\", \"items\": [\"null\", \"boolean\"]}}]}");
+    GenericDatumWriter<Object> writer = new GenericDatumWriter<>(schema);
+    ByteArrayOutputStream expected = new ByteArrayOutputStream();
+    BinaryEncoder buffered = FACTORY.binaryEncoder(expected, null);
+    for (Object datum : new RandomData(schema, 100, 7L)) {
+      writer.write(datum, buffered);
+    }
+    buffered.flush();
+    byte[] bytes = expected.toByteArray();
+
+    // grows from a single byte
+    ByteBufferBinaryEncoder growable = FACTORY.growableBinaryEncoder(1, direct, null);
+    for (Object datum : new RandomData(schema, 100, 7L)) {
+      writer.write(datum, growable);
+    }
+    ByteBuffer written = growable.getByteBuffer();
+    assertEquals(direct, written.isDirect());
+    assertEquals(ByteBuffer.wrap(bytes), written);
+
+    // writes into the caller's buffer at its position
+    ByteBuffer out = direct ? ByteBuffer.allocateDirect(bytes.length + 10) : ByteBuffer.allocate(bytes.length + 10);
+    out.position(5);
+    BinaryEncoder fixed = FACTORY.byteBufferBinaryEncoder(out, null);
+    for (Object datum : new RandomData(schema, 100, 7L)) {
+      writer.write(datum, fixed);
+    }
+    assertEquals(5, out.position());
+    assertEquals(bytes.length, fixed.bytesBuffered());
+    fixed.flush();
+    assertEquals(5 + bytes.length, out.position());
+    out.flip().position(5);
+    assertEquals(ByteBuffer.wrap(bytes), out);
+
+    // fails once the caller's buffer is full
+    BinaryEncoder full = FACTORY.byteBufferBinaryEncoder(ByteBuffer.allocate(4), null);
+    assertThrows(BufferOverflowException.class, () -> full.writeLong(Long.MAX_VALUE));
+  }
+
   @Test
   void jsonEncoderInit() throws IOException {
     Schema s = Schema.create(Type.INT);
@@ -0,0 +1,163 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.io;
+
+import org.apache.avro.Conversions;
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaParser;
+import org.apache.avro.data.TimeConversions;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.specific.SpecificData;
+import org.apache.avro.specific.SpecificDatumWriter;
+import org.apache.avro.specific.TestRecordWithLogicalTypes;
+import org.apache.avro.specific.TestRecordWithMapsAndArrays;
+import org.apache.avro.util.RandomData;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestFastWriterBuilder {
+  private static final Schema SCHEMA = SchemaParser.parseSingle("{\"type\": \"record\", \"name\": \"Node\", "
+      + "\"fields\": [{\"name\": \"id\", \"type\": \"long\"},"
+      + "{\"name\": \"label\", \"type\": [\"null\", \"string\"]},"
+      + "{\"name\": \"weight\", \"type\": [\"int\", \"double\", \"string\"]},"
+      + "{\"name\": \"kind\", \"type\": {\"type\": \"enum\", \"name\": \"Kind\", \"symbols\": [\"A\", \"B\", \"C\"]}},"
+      + "{\"name\": \"hash\", \"type\": {\"type\": \"fixed\", \"name\": \"Hash\", \"size\": 4}},"
+      + "{\"name\": \"payload\", \"type\": \"bytes\"}, {\"name\": \"flag\", \"type\": \"boolean\"},"
+      + "{\"name\": \"ratio\", \"type\": \"float\"}, {\"name\": \"tags\", \"type\": {\"type\": \"map\", \"values\": "
+      + "{\"type\": \"array\", \"items\": \"int\"}}},"
+      + "{\"name\": \"children\", \"type\": {\"type\": \"array\", \"items\": [\"null\", \"Node\"]}}]}");
+
+  private static final Schema LOGICAL_SCHEMA = SchemaParser.parseSingle("{\"type\": \"record\", \"name\": \"Event\", "
+      + "\"fields\": [{\"name\": \"day\", \"type\": {\"type\": \"int\", \"logicalType\": \"date\"}},"
+      + "{\"name\": \"at\", \"type\": [\"null\", {\"type\": \"long\", \"logicalType\": \"timestamp-millis\"}]},"
+      + "{\"name\": \"id\", \"type\": {\"type\": \"string\", \"logicalType\": \"uuid\"}}]}");
+
+  private static <D> byte[] write(DatumWriter<D> writer, Iterable<? extends D> data) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    BinaryEncoder encoder = EncoderFactory.get().binaryEncoder(out, null);
+    for (D datum : data) {
+      writer.write(datum, encoder);
+    }
+    encoder.flush();
+    return out.toByteArray();
+  }
+
+  @Test
+  void genericRecords() throws IOException {
+    Iterable<Object> data = new RandomData(SCHEMA, 500, 11L);
+    GenericData fast = new GenericData().setFastWriterEnabled(true);
+    assertTrue(fast.isFastWriterEnabled());
+    assertFalse(new GenericData().isFastWriterEnabled());
+
+    byte[] expected = write(new GenericDatumWriter<>(SCHEMA), data);
+    assertArrayEquals(expected, write(new GenericDatumWriter<>(SCHEMA, fast), data));
+    assertArrayEquals(expected, write(FastWriterBuilder.get().createDatumWriter(SCHEMA), data));
+  }
+
+  @Test
+  void logicalTypes() throws IOException {
+    GenericData slow = new GenericData();
+    GenericData fast = new GenericData().setFastWriterEnabled(true);
+    for (GenericData model : Arrays.asList(slow, fast)) {
+      model.addLogicalTypeConversion(new TimeConversions.DateConversion());
+      model.addLogicalTypeConversion(new TimeConversions.TimestampMillisConversion());
+      model.addLogicalTypeConversion(new Conversions.UUIDConversion());
+    }
+    GenericRecord converted = new GenericData.Record(LOGICAL_SCHEMA);
+    converted.put("day", LocalDate.of(2020, 2, 29));
+    converted.put("at", Instant.ofEpochMilli(1234567890L));
+    converted.put("id", UUID.randomUUID());
+    GenericRecord raw = new GenericData.Record(LOGICAL_SCHEMA);
+    raw.put("day", 18321);
+    raw.put("at", null);
+    raw.put("id", "not converted");
+
+    Iterable<GenericRecord> data = Arrays.asList(converted, raw, converted);
+    assertArrayEquals(write(new GenericDatumWriter<>(LOGICAL_SCHEMA, slow), data),
+        write(new GenericDatumWriter<>(LOGICAL_SCHEMA, fast), data));
+  }
+
+  @Test
+  void specificRecords() throws IOException {
+    TestRecordWithLogicalTypes logical = new TestRecordWithLogicalTypes(true, 34, 35L, 3.14F, 3019.34, "s",
+        LocalDate.of(2021, 1, 1), LocalTime.of(10, 11, 12), Instant.ofEpochMilli(1000L), new BigDecimal("123.45"),
+        new BigDecimal("-23.456"));
+    SpecificData fast = new SpecificData();
+    fast.setFastWriterEnabled(true);
+    assertArrayEquals(
+        write(new SpecificDatumWriter<>(TestRecordWithLogicalTypes.getClassSchema()), Collections.singleton(logical)),
+        write(new SpecificDatumWriter<>(TestRecordWithLogicalTypes.getClassSchema(), fast),
+            Collections.singleton(logical)));
+
+    // written with the custom coders of the class
+    TestRecordWithMapsAndArrays custom = new TestRecordWithMapsAndArrays(Arrays.asList("a", "b"),
+        Collections.singletonMap("k", 1L), Collections.singletonList(Arrays.asList("c", "d")),
+        Collections.singletonMap("n", Collections.singletonMap("m", 2L)));
+    assertArrayEquals(
+        write(new SpecificDatumWriter<>(TestRecordWithMapsAndArrays.getClassSchema()), Collections.singleton(custom)),
+        write(new SpecificDatumWriter<>(TestRecordWithMapsAndArrays.getClassSchema(), fast),
+            Collections.singleton(custom)));
+  }
+
+  private static void assertSameFailure(GenericRecord datum) {
+    GenericData fast = new GenericData().setFastWriterEnabled(true);
+    Exception expected = assertThrows(Exception.class,
+        () -> write(new GenericDatumWriter<>(SCHEMA), Collections.singleton(datum)));
+    Exception actual = assertThrows(Exception.class,
+        () -> write(new GenericDatumWriter<>(SCHEMA, fast), Collections.singleton(datum)));
+    assertEquals(expected.getClass(), actual.getClass());
+    assertEquals(expected.getMessage(), actual.getMessage());
+  }
+
+  @Test
+  void errorsAreTraced() {
+    GenericRecord parent = (GenericRecord) new RandomData(SCHEMA, 1, 5L).iterator().next();
+    GenericRecord child = (GenericRecord) new RandomData(SCHEMA, 1, 7L).iterator().next();
+    child.put("weight", 1L);
+    parent.put("children", Arrays.asList(null, child));
+    assertSameFailure(parent);
+
+    parent.put("children", Collections.emptyList());
+    parent.put("kind", "A");
+    assertSameFailure(parent);
+
+    parent.put("kind", null);
+    assertSameFailure(parent);
+
+    parent.put("kind", child.get("kind"));
+    parent.put("tags", Collections.singletonMap("k", Collections.singletonList("1")));
+    assertSameFailure(parent);
+  }
+}
@@ -0,0 +1,108 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.io;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaParser;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.junit.jupiter.api.Test;
+
+public class TestResolverCache {
+  private static final Schema WRITER = SchemaParser.parseSingle("{\"type\": \"record\", \"name\": \"R\", "
+      + "\"fields\": [{\"name\": \"a\", \"type\": \"int\"}, {\"name\": \"b\", \"type\": \"string\"}]}");
+  private static final Schema READER = SchemaParser.parseSingle("{\"type\": \"record\", \"name\": \"R\", "
+      + "\"fields\": [{\"name\": \"b\", \"type\": \"string\"}, {\"name\": \"a\", \"type\": \"long\"},"
+      + "{\"name\": \"c\", \"type\": \"int\", \"default\": 7}]}");
+
+  @Test
+  void countsAndEvicts() throws IOException {
+    ResolverCache cache = new ResolverCache(8);
+    Object resolver = cache.resolve(WRITER, READER);
+    assertSame(resolver, cache.resolve(WRITER, READER));
+    assertEquals(1, cache.getMissCount());
+    assertEquals(1, cache.getHitCount());
+    assertTrue(cache.getBuildTimeNanos() > 0);
+
+    // equal but distinct schemas are resolved again
+    Schema copy = SchemaParser.parseSingle(WRITER.toString());
+    assertNotSame(resolver, cache.resolve(copy, READER));
+    assertEquals(2, cache.size());
+
+    List<Schema> schemas = new ArrayList<>();
+    for (int i = 0; i < 16; i++) {
+      schemas.add(Schema.create(Schema.Type.LONG));
+      cache.resolve(schemas.get(i), schemas.get(i));
+      cache.resolve(WRITER, READER);
+      assertTrue(cache.size() <= 8);
+    }
+    // the resolver used throughout was never evicted
+    assertSame(resolver, cache.resolve(WRITER, READER));
+    assertEquals(18, cache.getMissCount());
+    assertEquals(18 - cache.size(), cache.getEvictionCount());
+
+    cache.setMaximumSize(1);
+    assertEquals(1, cache.size());
+    cache.clear();
+    assertEquals(0, cache.size());
+    assertThrows(IllegalArgumentException.class, () -> cache.setMaximumSize(0));
+  }
+
+  @Test
+  void sharedAcrossThreads() throws Exception {
+    GenericRecord record = new GenericData.Record(WRITER);
+    record.put("a", 42);
+    record.put("b", "x");
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    BinaryEncoder encoder = EncoderFactory.get().binaryEncoder(out, null);
+    new GenericDatumWriter<GenericRecord>(WRITER).write(record, encoder);
+    encoder.flush();
+    byte[] bytes = out.toByteArray();
+
+    GenericData data = new GenericData();
+    data.setFastReaderEnabled(false);
+    GenericDatumReader<GenericRecord> reader = new GenericDatumReader<>(WRITER, READER, data);
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<GenericRecord>> results = new ArrayList<>();
+      for (int i = 0; i < 100; i++) {
+        results.add(executor.submit(() -> reader.read(null, DecoderFactory.get().binaryDecoder(bytes, null))));
+      }
+      for (Future<GenericRecord> result : results) {
+        GenericRecord read = result.get();
+        assertEquals(42L, read.get("a"));
+        assertEquals("x", read.get("b").toString());
+        assertEquals(7, read.get("c"));
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+}
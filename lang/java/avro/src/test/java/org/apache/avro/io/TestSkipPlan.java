@@ -0,0 +1,210 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.io;
+
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaParser;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.util.RandomData;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestSkipPlan {
+  private static final Schema SCHEMA = SchemaParser.parseSingle("{\"type\": \"record\", \"name\": \"Node\", "
+      + "\"fields\": [{\"name\": \"id\", \"type\": \"long\"}, {\"name\": \"x\", \"type\": \"double\"},"
+      + "{\"name\": \"y\", \"type\": \"float\"}, {\"name\": \"on\", \"type\": \"boolean\"},"
+      + "{\"name\": \"hash\", \"type\": {\"type\": \"fixed\", \"name\": \"Hash\", \"size\": 4}},"
+      + "{\"name\": \"label\", \"type\": [\"null\", \"string\"]},"
+      + "{\"name\": \"kind\", \"type\": {\"type\": \"enum\", \"name\": \"Kind\", \"symbols\": [\"A\", \"B\", \"C\"]}},"
+      + "{\"name\": \"values\", \"type\": {\"type\": \"array\", \"items\": \"double\"}},"
+      + "{\"name\": \"nulls\", \"type\": {\"type\": \"array\", \"items\": \"null\"}},"
+      + "{\"name\": \"tags\", \"type\": {\"type\": \"map\", \"values\": {\"type\": \"array\", \"items\": \"int\"}}},"
+      + "{\"name\": \"payload\", \"type\": \"bytes\"},"
+      + "{\"name\": \"children\", \"type\": {\"type\": \"array\", \"items\": \"Node\"}},"
+      + "{\"name\": \"next\", \"type\": [\"null\", \"Node\"]}]}");
+
+  /** Reads a few of the fields of Node, so the others are skipped. */
+  private static final Schema PROJECTION = SchemaParser.parseSingle("{\"type\": \"record\", \"name\": \"Node\", "
+      + "\"fields\": [{\"name\": \"id\", \"type\": \"long\"}, {\"name\": \"kind\", \"type\": {\"type\": \"enum\","
+      + "\"name\": \"Kind\", \"symbols\": [\"A\", \"B\", \"C\"]}}, {\"name\": \"payload\", \"type\": \"bytes\"}]}");
+
+  private static byte[] encode(List<Object> data, BinaryEncoder encoder, ByteArrayOutputStream out)
+      throws IOException {
+    GenericDatumWriter<Object> writer = new GenericDatumWriter<>(SCHEMA);
+    for (Object datum : data) {
+      writer.write(datum, encoder);
+      encoder.writeLong(-42L);
+    }
+    encoder.flush();
+    return out.toByteArray();
+  }
+
+  private static void assertSkips(byte[] bytes, int count) throws IOException {
+    SkipPlan plan = SkipPlan.get(SCHEMA);
+    BinaryDecoder in = DecoderFactory.get().binaryDecoder(bytes, null);
+    for (int i = 0; i < count; i++) {
+      plan.skip(in);
+      assertEquals(-42L, in.readLong());
+    }
+    assertTrue(in.isEnd());
+  }
+
+  @Test
+  void skipsBinaryData() throws IOException {
+    List<Object> data = new ArrayList<>();
+    new RandomData(SCHEMA, 200, 31L).forEach(data::add);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    assertSkips(encode(data, EncoderFactory.get().binaryEncoder(out, null), out), data.size());
+
+    // blocks with byte counts are skipped whole
+    out = new ByteArrayOutputStream();
+    assertSkips(encode(data, new EncoderFactory().configureBlockSize(64).blockingBinaryEncoder(out, null), out),
+        data.size());
+  }
+
+  @Test
+  void skipsOtherDecoders() throws IOException {
+    Object datum = new RandomData(SCHEMA, 1, 37L).iterator().next();
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    JsonEncoder encoder = EncoderFactory.get().jsonEncoder(SCHEMA, out);
+    new GenericDatumWriter<>(SCHEMA).write(datum, encoder);
+    encoder.flush();
+
+    Decoder in = DecoderFactory.get().jsonDecoder(SCHEMA, new ByteArrayInputStream(out.toByteArray()));
+    SkipPlan.get(SCHEMA).skip(in);
+  }
+
+  @Test
+  void fixedSize() {
+    assertSame(SkipPlan.get(SCHEMA), SkipPlan.get(SCHEMA));
+    assertEquals(-1, SkipPlan.get(SCHEMA).getFixedSize());
+    Schema point = SchemaParser.parseSingle("{\"type\": \"record\", \"name\": \"Point\", \"fields\": ["
+        + "{\"name\": \"x\", \"type\": \"double\"}, {\"name\": \"y\", \"type\": \"float\"},"
+        + "{\"name\": \"n\", \"type\": \"null\"}, {\"name\": \"id\", \"type\": {\"type\": \"fixed\", "
+        + "\"name\": \"Id\", \"size\": 16}}]}");
+    assertEquals(28, SkipPlan.get(point).getFixedSize());
+    assertEquals(0, SkipPlan.get(Schema.create(Schema.Type.NULL)).getFixedSize());
+  }
+
+  @Test
+  void cachedSchemasAreCollected() throws InterruptedException {
+    WeakReference<Schema> schema = new WeakReference<>(SchemaParser.parseSingle(SCHEMA.toString()));
+    assertEquals(-1, SkipPlan.get(schema.get()).getFixedSize());
+    for (int i = 0; i < 100 && schema.get() != null; i++) {
+      System.gc(); // Not guaranteed, but seems to be reliable enough
+      Thread.sleep(10);
+    }
+    assertNull(schema.get());
+  }
+
+  @Test
+  void heldPlansKeepTheirSchema() throws IOException, InterruptedException {
+    // a schema no other plan was cached for, as equal schemas share plans
+    Schema copy = SchemaParser.parseSingle(SCHEMA.toString().replace("Node", "Held"));
+    WeakReference<Schema> schema = new WeakReference<>(copy);
+    SkipPlan plan = SkipPlan.get(copy);
+    copy = null;
+    for (int i = 0; i < 10; i++) {
+      System.gc();
+      Thread.sleep(10);
+    }
+    assertNotNull(schema.get());
+
+    Schema held = schema.get();
+    Object datum = new RandomData(held, 1, 43L).iterator().next();
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    JsonEncoder encoder = EncoderFactory.get().jsonEncoder(held, out);
+    new GenericDatumWriter<>(held).write(datum, encoder);
+    encoder.flush();
+    plan.skip(DecoderFactory.get().jsonDecoder(held, new ByteArrayInputStream(out.toByteArray())));
+  }
+
+  @Test
+  void nestedRecursiveRecords() throws IOException {
+    // each record refers to itself and holds the next, so each is compiled once
+    int depth = 32;
+    String json = "{\"type\": \"record\", \"name\": \"R" + depth + "\", \"fields\": []}";
+    for (int i = depth - 1; i >= 0; i--) {
+      json = "{\"type\": \"record\", \"name\": \"R" + i + "\", \"fields\": ["
+          + "{\"name\": \"id\", \"type\": \"int\"}, {\"name\": \"self\", \"type\": [\"null\", \"R" + i + "\"]},"
+          + "{\"name\": \"next\", \"type\": " + json + "}]}";
+    }
+    Schema schema = SchemaParser.parseSingle(json);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    BinaryEncoder encoder = EncoderFactory.get().binaryEncoder(out, null);
+    for (int i = 0; i < depth; i++) {
+      encoder.writeInt(i);
+      encoder.writeIndex(0);
+    }
+    encoder.writeLong(-42L);
+    encoder.flush();
+    BinaryDecoder in = DecoderFactory.get().binaryDecoder(out.toByteArray(), null);
+    SkipPlan.get(schema).skip(in);
+    assertEquals(-42L, in.readLong());
+    assertTrue(in.isEnd());
+  }
+
+  @Test
+  void projections() throws IOException {
+    List<Object> data = new ArrayList<>();
+    new RandomData(SCHEMA, 100, 41L).forEach(data::add);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    BinaryEncoder encoder = EncoderFactory.get().binaryEncoder(out, null);
+    GenericDatumWriter<Object> writer = new GenericDatumWriter<>(SCHEMA);
+    for (Object datum : data) {
+      writer.write(datum, encoder);
+    }
+    encoder.flush();
+    byte[] bytes = out.toByteArray();
+
+    GenericData slow = new GenericData().setFastReaderEnabled(false);
+    for (GenericData model : new GenericData[] { slow, new GenericData() }) {
+      GenericDatumReader<GenericRecord> reader = new GenericDatumReader<>(SCHEMA, PROJECTION, model);
+      BinaryDecoder in = DecoderFactory.get().binaryDecoder(bytes, null);
+      for (Object datum : data) {
+        GenericRecord expected = (GenericRecord) datum;
+        GenericRecord actual = reader.read(null, in);
+        assertEquals(expected.get("id"), actual.get("id"));
+        assertEquals(expected.get("kind").toString(), actual.get("kind").toString());
+        assertEquals(expected.get("payload"), actual.get("payload"));
+      }
+      assertTrue(in.isEnd());
+    }
+    BinaryDecoder in = DecoderFactory.get().binaryDecoder(bytes, null);
+    DatumReader<Object> compiled = CompiledDatumBuilder.get().createDatumReader(SCHEMA, PROJECTION);
+    for (Object datum : data) {
+      assertEquals(((GenericRecord) datum).get("id"), ((GenericRecord) compiled.read(null, in)).get("id"));
+    }
+    assertTrue(in.isEnd());
+  }
+}
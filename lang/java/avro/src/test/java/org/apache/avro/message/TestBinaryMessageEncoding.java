@@ -21,6 +21,7 @@ package org.apache.avro.message;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.nio.BufferOverflowException;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -30,6 +31,7 @@ import java.util.Set;
 import org.apache.avro.AvroRuntimeException;
 import org.apache.avro.Schema;
 import org.apache.avro.SchemaBuilder;
+import org.apache.avro.file.BlockBufferPool;
 import org.apache.avro.generic.GenericData;
 import org.apache.avro.generic.GenericData.Record;
 import org.apache.avro.generic.GenericRecordBuilder;
@@ -177,6 +179,31 @@ public class TestBinaryMessageEncoding {
     assertEquals(V1_RECORDS.get(1), decoder.decode(b0), "Buffer was reused, decode(b0) should be record 1");
   }
 
+  @Test
+  void byteBufferSlices() throws Exception {
+    MessageEncoder<Record> encoder = new BinaryMessageEncoder<>(GenericData.get(), SCHEMA_V2);
+    MessageDecoder<Record> decoder = new BinaryMessageDecoder<>(GenericData.get(), SCHEMA_V2);
+    ByteBuffer encoded = encoder.encode(V2_RECORDS.get(1));
+    int length = encoded.remaining();
+
+    byte[] padded = new byte[length + 7];
+    encoded.duplicate().get(padded, 3, length);
+    ByteBuffer heap = ByteBuffer.wrap(padded, 3, length);
+    assertEquals(V2_RECORDS.get(1), decoder.decode(heap));
+    assertEquals(3, heap.position());
+    assertEquals(V2_RECORDS.get(1), decoder.decode(heap.slice()));
+
+    ByteBuffer direct = ByteBuffer.allocateDirect(length + 2);
+    direct.position(2);
+    direct.put(encoded.duplicate());
+    direct.position(2);
+    assertEquals(V2_RECORDS.get(1), decoder.decode(direct));
+    assertEquals(2, direct.position());
+
+    direct.limit(10);
+    assertThrows(BadHeaderException.class, () -> decoder.decode(direct));
+  }
+
   @Test
   void bufferCopy() throws Exception {
     MessageEncoder<Record> encoder = new BinaryMessageEncoder<>(GenericData.get(), SCHEMA_V1);
@@ -258,4 +285,95 @@ public class TestBinaryMessageEncoding {
       decoder.decode(buffer);
     });
   }
+
+  @Test
+  void encodeIntoByteBuffer() throws Exception {
+    BinaryMessageEncoder<Record> encoder = new BinaryMessageEncoder<>(GenericData.get(), SCHEMA_V2);
+    MessageDecoder<Record> decoder = new BinaryMessageDecoder<>(GenericData.get(), SCHEMA_V2);
+
+    for (ByteBuffer buffer : new ByteBuffer[] { ByteBuffer.allocate(1024), ByteBuffer.allocateDirect(1024) }) {
+      List<ByteBuffer> messages = new ArrayList<>();
+      for (Record record : V2_RECORDS) {
+        int start = buffer.position();
+        encoder.encode(record, buffer);
+        ByteBuffer message = buffer.duplicate();
+        message.position(start).limit(buffer.position());
+        assertEquals(encoder.encode(record), message);
+        messages.add(message);
+      }
+      assertEquals(V2_RECORDS, decoder.decodeAll(messages, new ArrayList<>()));
+
+      // a datum that does not fit leaves the position where it was
+      ByteBuffer small = buffer.duplicate();
+      small.limit(small.position() + 10);
+      assertThrows(BufferOverflowException.class, () -> encoder.encode(V2_RECORDS.get(0), small));
+      assertEquals(buffer.position(), small.position());
+    }
+  }
+
+  @Test
+  void encodeIntoPooledBuffers() throws Exception {
+    Schema schema = SchemaBuilder.record("Blob").fields().requiredBytes("data").endRecord();
+    BinaryMessageEncoder<Record> encoder = new BinaryMessageEncoder<>(GenericData.get(), schema);
+    MessageDecoder<Record> decoder = new BinaryMessageDecoder<>(GenericData.get(), schema);
+    BlockBufferPool pool = new BlockBufferPool(4);
+
+    Record small = new GenericRecordBuilder(schema).set("data", ByteBuffer.wrap(new byte[10])).build();
+    ByteBuffer buffer = encoder.encode(small, pool);
+    assertEquals(encoder.encode(small), buffer);
+    assertEquals(small, decoder.decode(buffer));
+    pool.release(buffer);
+    assertEquals(1, pool.size());
+
+    // larger datums move on to larger buffers
+    Record large = new GenericRecordBuilder(schema).set("data", ByteBuffer.wrap(new byte[10_000])).build();
+    ByteBuffer larger = encoder.encode(large, pool);
+    assertEquals(0, larger.position());
+    assertTrue(larger.capacity() >= 10_000);
+    assertEquals(large, decoder.decode(larger));
+    // the 4KB and 8KB buffers that were too small went back to the pool
+    assertEquals(2, pool.size());
+
+    // so does the buffer of a datum that fails to encode
+    Record invalid = new Record(schema);
+    assertThrows(NullPointerException.class, () -> encoder.encode(invalid, pool));
+    assertEquals(2, pool.size());
+  }
+
+  @Test
+  void batches() throws Exception {
+    List<Record> records = new ArrayList<>(V1_RECORDS);
+    List<ByteBuffer> expected = new ArrayList<>();
+    for (Record record : records) {
+      expected.add(new BinaryMessageEncoder<>(GenericData.get(), SCHEMA_V1).encode(record));
+    }
+    for (boolean copy : new boolean[] { true, false }) {
+      BinaryMessageEncoder<Record> encoder = new BinaryMessageEncoder<>(GenericData.get(), SCHEMA_V1, copy);
+      List<ByteBuffer> buffers = encoder.encodeAll(records);
+      assertEquals(expected, buffers);
+      for (ByteBuffer buffer : buffers) {
+        assertEquals(0, buffer.position());
+      }
+
+      // datums are reused and the list is cut to the batch
+      MessageDecoder<Record> decoder = new BinaryMessageDecoder<>(GenericData.get(), SCHEMA_V1);
+      List<Record> datums = decoder.decodeAll(buffers, new ArrayList<>());
+      assertEquals(records, datums);
+      Record first = datums.get(0);
+      assertSame(datums, decoder.decodeAll(buffers.subList(1, 3), datums));
+      assertEquals(records.subList(1, 3), datums);
+      assertSame(first, datums.get(0));
+    }
+
+    // raw messages are decoded with a single decoder
+    RawMessageEncoder<Record> encoder = new RawMessageEncoder<>(GenericData.get(), SCHEMA_V1);
+    RawMessageDecoder<Record> decoder = new RawMessageDecoder<>(GenericData.get(), SCHEMA_V1);
+    List<Record> datums = decoder.decodeAll(encoder.encodeAll(records), new ArrayList<>());
+    assertEquals(records, datums);
+    Record first = datums.get(0);
+    decoder.decodeAll(encoder.encodeAll(records.subList(2, 4)), datums);
+    assertEquals(records.subList(2, 4), datums);
+    assertSame(first, datums.get(0));
+    assertEquals(0, encoder.encodeAll(new ArrayList<>()).size());
+  }
 }
@@ -0,0 +1,198 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.message;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaBuilder;
+import org.apache.avro.SchemaNormalization;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class TestCachingSchemaStore {
+  private static Schema record(int i) {
+    return SchemaBuilder.record("R" + i).fields().requiredLong("id").endRecord();
+  }
+
+  /** A loader that knows the schemas added to it, and counts its lookups. */
+  private static class CountingStore extends SchemaStore.Cache {
+    private final AtomicInteger lookups = new AtomicInteger();
+
+    @Override
+    public Schema findByFingerprint(long fingerprint) {
+      lookups.incrementAndGet();
+      return super.findByFingerprint(fingerprint);
+    }
+  }
+
+  @Test
+  void hitsAndMisses() {
+    CountingStore loader = new CountingStore();
+    Schema schema = record(0);
+    loader.addSchema(schema);
+    long fp = SchemaNormalization.parsingFingerprint64(schema);
+
+    CachingSchemaStore store = new CachingSchemaStore(loader, 16, Duration.ofHours(1), Runnable::run);
+    assertSame(schema, store.findByFingerprint(fp));
+    assertSame(schema, store.findByFingerprint(fp));
+    assertEquals(1, loader.lookups.get());
+    assertEquals(1, store.getMissCount());
+    assertEquals(1, store.getHitCount());
+
+    // unknown fingerprints are remembered too
+    assertNull(store.findByFingerprint(fp + 1));
+    assertNull(store.findByFingerprint(fp + 1));
+    assertEquals(2, loader.lookups.get());
+    assertEquals(2, store.size());
+
+    // unless they are not to be remembered
+    CachingSchemaStore uncached = new CachingSchemaStore(loader, 16, Duration.ZERO, Runnable::run);
+    assertNull(uncached.findByFingerprint(fp + 1));
+    assertNull(uncached.findByFingerprint(fp + 1));
+    assertEquals(4, loader.lookups.get());
+    assertEquals(0, uncached.size());
+
+    // schemas added directly are never loaded
+    Schema added = record(1);
+    store.addSchema(added);
+    assertSame(added, store.findByFingerprint(SchemaNormalization.parsingFingerprint64(added)));
+    assertEquals(4, loader.lookups.get());
+
+    store.clear();
+    assertEquals(0, store.size());
+    assertSame(schema, store.findByFingerprint(fp));
+    assertEquals(5, loader.lookups.get());
+
+    assertThrows(IllegalArgumentException.class,
+        () -> new CachingSchemaStore(loader, 0, Duration.ZERO, Runnable::run));
+    assertThrows(IllegalArgumentException.class,
+        () -> new CachingSchemaStore(loader, 1, Duration.ofSeconds(-1), Runnable::run));
+  }
+
+  @Test
+  void evictsLeastRecentlyUsed() {
+    CountingStore loader = new CountingStore();
+    List<Long> fingerprints = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      Schema schema = record(i);
+      loader.addSchema(schema);
+      fingerprints.add(SchemaNormalization.parsingFingerprint64(schema));
+    }
+    CachingSchemaStore store = new CachingSchemaStore(loader, 8, Duration.ofHours(1), Runnable::run);
+    long first = fingerprints.get(0);
+    Schema schema = store.findByFingerprint(first);
+    for (long fp : fingerprints) {
+      assertNotNull(store.findByFingerprint(fp));
+      assertSame(schema, store.findByFingerprint(first));
+      assertTrue(store.size() <= 8);
+    }
+    // the schema used throughout was never evicted
+    assertEquals(100, loader.lookups.get());
+    assertEquals(100 - store.size(), store.getEvictionCount());
+    // and the others are all found again
+    for (long fp : fingerprints) {
+      assertNotNull(store.findByFingerprint(fp));
+    }
+  }
+
+  @Test
+  void prefetch() throws Exception {
+    CountingStore loader = new CountingStore();
+    Schema schema = record(0);
+    loader.addSchema(schema);
+    long fp = SchemaNormalization.parsingFingerprint64(schema);
+
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      CachingSchemaStore store = new CachingSchemaStore(loader, 16, Duration.ofHours(1), executor);
+      assertSame(schema, store.prefetch(fp).get(1, TimeUnit.MINUTES));
+      assertNull(store.prefetch(fp + 1).get(1, TimeUnit.MINUTES));
+      assertEquals(2, loader.lookups.get());
+      // both are cached now
+      assertSame(schema, store.prefetch(fp).getNow(null));
+      assertSame(schema, store.findByFingerprint(fp));
+      assertNull(store.findByFingerprint(fp + 1));
+      assertEquals(2, loader.lookups.get());
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  void loaderFailures() {
+    CachingSchemaStore store = new CachingSchemaStore(fingerprint -> {
+      throw new AvroRuntimeException("Unavailable");
+    });
+    AvroRuntimeException e = assertThrows(AvroRuntimeException.class, () -> store.findByFingerprint(1));
+    assertEquals("Unavailable", e.getMessage());
+    // failures are not cached
+    assertEquals(0, store.size());
+  }
+
+  @Test
+  void directory(@TempDir Path dir) throws Exception {
+    Schema first = record(0);
+    Schema second = record(1);
+    Files.write(dir.resolve("first.avsc"), first.toString().getBytes(StandardCharsets.UTF_8));
+    Files.write(dir.resolve("broken.avsc"), "{\"type\": ".getBytes(StandardCharsets.UTF_8));
+    Files.write(dir.resolve("ignored.txt"), second.toString().getBytes(StandardCharsets.UTF_8));
+
+    DirectorySchemaStore store = new DirectorySchemaStore(dir);
+    assertEquals(first, store.findByFingerprint(SchemaNormalization.parsingFingerprint64(first)));
+    assertNull(store.findByFingerprint(SchemaNormalization.parsingFingerprint64(second)));
+
+    // files added later are found on the next miss
+    Files.write(dir.resolve("second.avsc"), second.toString().getBytes(StandardCharsets.UTF_8));
+    assertEquals(second, store.findByFingerprint(SchemaNormalization.parsingFingerprint64(second)));
+
+    // files that failed are only parsed again once modified
+    Schema third = record(2);
+    Path broken = dir.resolve("broken.avsc");
+    FileTime failed = Files.getLastModifiedTime(broken);
+    Files.write(broken, third.toString().getBytes(StandardCharsets.UTF_8));
+    Files.setLastModifiedTime(broken, failed);
+    assertNull(store.findByFingerprint(SchemaNormalization.parsingFingerprint64(third)));
+    Files.setLastModifiedTime(broken, FileTime.fromMillis(failed.toMillis() + 10_000));
+    assertEquals(third, store.findByFingerprint(SchemaNormalization.parsingFingerprint64(third)));
+
+    // files edited in place are parsed again, and earlier schemas stay known
+    Schema fourth = record(3);
+    Path file = dir.resolve("first.avsc");
+    Files.write(file, fourth.toString().getBytes(StandardCharsets.UTF_8));
+    Files.setLastModifiedTime(file, FileTime.fromMillis(Files.getLastModifiedTime(file).toMillis() + 10_000));
+    assertEquals(fourth, store.findByFingerprint(SchemaNormalization.parsingFingerprint64(fourth)));
+    assertEquals(first, store.findByFingerprint(SchemaNormalization.parsingFingerprint64(first)));
+
+    assertThrows(AvroRuntimeException.class,
+        () -> new DirectorySchemaStore(dir.resolve("missing")).findByFingerprint(1));
+  }
+}
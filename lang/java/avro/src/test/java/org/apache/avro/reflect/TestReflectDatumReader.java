@@ -20,9 +20,16 @@ package org.apache.avro.reflect;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.HashMap;
@@ -31,7 +38,13 @@ import java.util.Set;
 import java.util.Map;
 import java.util.Optional;
 
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
 import org.apache.avro.Schema;
+import org.apache.avro.SchemaParser;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericRecord;
 import org.apache.avro.io.Decoder;
 import org.apache.avro.io.DecoderFactory;
 import org.apache.avro.io.Encoder;
@@ -39,6 +52,7 @@ import org.apache.avro.io.EncoderFactory;
 import org.apache.avro.util.ClassSecurityValidator;
 import org.apache.avro.util.ClassSecurityValidator.ClassSecurityPredicate;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 public class TestReflectDatumReader {
 
@@ -619,4 +633,108 @@ public class TestReflectDatumReader {
       return Double.compare(that.doubleId, doubleId) == 0;
     }
   }
+
+  public static class PrimitiveFields {
+    private final int count;
+    long total;
+    float ratio;
+    double mean;
+    boolean valid;
+    String name;
+
+    public PrimitiveFields() {
+      this(0);
+    }
+
+    PrimitiveFields(int count) {
+      this.count = count;
+    }
+  }
+
+  @Test
+  void primitiveFields() throws IOException {
+    assertTrue(ReflectionUtil.getFieldAccess() instanceof FieldAccessHandles);
+    PrimitiveFields fields = new PrimitiveFields(-7);
+    fields.total = Long.MIN_VALUE;
+    fields.ratio = 0.25f;
+    fields.mean = Double.MAX_VALUE;
+    fields.valid = true;
+    fields.name = "fields";
+    byte[] bytes = serializeWithReflectDatumWriter(fields, PrimitiveFields.class);
+
+    ReflectDatumReader<PrimitiveFields> reader = new ReflectDatumReader<>(PrimitiveFields.class);
+    PrimitiveFields read = reader.read(null, DecoderFactory.get().binaryDecoder(bytes, null));
+    assertEquals(-7, read.count);
+    assertEquals(Long.MIN_VALUE, read.total);
+    assertEquals(0.25f, read.ratio);
+    assertEquals(Double.MAX_VALUE, read.mean);
+    assertEquals(true, read.valid);
+    assertEquals("fields", read.name);
+
+    // fields written as another type than their own, and promoted when read
+    Schema schema = SchemaParser.parseSingle("{\"type\": \"record\", \"name\": \"PrimitiveFields\", "
+        + "\"fields\": [{\"name\": \"count\", \"type\": \"long\"}, {\"name\": \"total\", \"type\": \"long\"},"
+        + "{\"name\": \"ratio\", \"type\": \"double\"}, {\"name\": \"mean\", \"type\": \"double\"},"
+        + "{\"name\": \"valid\", \"type\": \"boolean\"}, {\"name\": \"name\", \"type\": \"string\"}]}");
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    Encoder encoder = EncoderFactory.get().binaryEncoder(out, null);
+    new ReflectDatumWriter<PrimitiveFields>(schema).write(fields, encoder);
+    encoder.flush();
+    Decoder decoder = DecoderFactory.get().binaryDecoder(out.toByteArray(), null);
+    assertEquals(-7L, decoder.readLong());
+    assertEquals(Long.MIN_VALUE, decoder.readLong());
+    assertEquals(0.25d, decoder.readDouble());
+
+    Schema writer = SchemaParser.parseSingle("{\"type\": \"record\", \"name\": \"PrimitiveFields\", "
+        + "\"fields\": [{\"name\": \"count\", \"type\": \"int\"}, {\"name\": \"total\", \"type\": \"int\"},"
+        + "{\"name\": \"ratio\", \"type\": \"int\"}, {\"name\": \"mean\", \"type\": \"float\"},"
+        + "{\"name\": \"valid\", \"type\": \"boolean\"}, {\"name\": \"name\", \"type\": \"string\"}]}");
+    out.reset();
+    encoder = EncoderFactory.get().binaryEncoder(out, null);
+    encoder.writeInt(3);
+    encoder.writeInt(-4);
+    encoder.writeInt(5);
+    encoder.writeFloat(1.5f);
+    encoder.writeBoolean(false);
+    encoder.writeString("promoted");
+    encoder.flush();
+    reader = new ReflectDatumReader<>(writer, ReflectData.get().getSchema(PrimitiveFields.class));
+    read = reader.read(read, DecoderFactory.get().binaryDecoder(out.toByteArray(), null));
+    assertEquals(3, read.count);
+    assertEquals(-4L, read.total);
+    assertEquals(5f, read.ratio);
+    assertEquals(1.5d, read.mean);
+    assertEquals(false, read.valid);
+    assertEquals("promoted", read.name);
+  }
+
+  @Test
+  void writeJavaRecords(@TempDir Path dir) throws Exception {
+    // records need Java 16, so the test compiles one rather than this module
+    JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    assumeTrue(compiler != null && Runtime.version().feature() >= 16, "records are not available");
+    Path source = dir.resolve("Point.java");
+    Files.write(source, "public record Point(int x, long y, String name) {}".getBytes(StandardCharsets.UTF_8));
+    assertEquals(0, compiler.run(null, null, null, "-d", dir.toString(), source.toString()));
+
+    try (URLClassLoader loader = new URLClassLoader(new URL[] { dir.toUri().toURL() })) {
+      Class<?> type = loader.loadClass("Point");
+      Object point = type.getConstructor(int.class, long.class, String.class).newInstance(3, -4L, "p");
+      Schema schema = ReflectData.get().getSchema(type);
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      Encoder encoder = EncoderFactory.get().binaryEncoder(out, null);
+      new ReflectDatumWriter<>(schema).write(point, encoder);
+      encoder.flush();
+      GenericRecord read = new GenericDatumReader<GenericRecord>(schema).read(null,
+          DecoderFactory.get().binaryDecoder(out.toByteArray(), null));
+      assertEquals(3, read.get("x"));
+      assertEquals(-4L, read.get("y"));
+      assertEquals("p", read.get("name").toString());
+
+      // the components can be read but not set
+      FieldAccessor x = new FieldAccessHandles().getAccessor(type.getDeclaredField("x"));
+      assertEquals(3, x.getInt(point));
+      assertThrows(IllegalAccessException.class, () -> x.setInt(point, 4));
+    }
+  }
 }
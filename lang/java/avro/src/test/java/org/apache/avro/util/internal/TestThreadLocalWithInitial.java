@@ -0,0 +1,79 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.util.internal;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.Test;
+
+public class TestThreadLocalWithInitial {
+
+  @Test
+  void scratchOnPlatformThreads() {
+    ThreadLocal<Object> scratch = ThreadLocalWithInitial.scratch(Object::new);
+    assertFalse(ThreadLocalWithInitial.isVirtual(Thread.currentThread()));
+    assertSame(scratch.get(), scratch.get());
+    Object value = new Object();
+    scratch.set(value);
+    assertSame(value, scratch.get());
+  }
+
+  @Test
+  void scratchOnVirtualThreads() throws Exception {
+    ExecutorService executor;
+    try {
+      executor = (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+    } catch (NoSuchMethodException e) {
+      executor = null;
+    }
+    assumeTrue(executor != null, "virtual threads are not available");
+    ThreadLocal<Object> scratch = ThreadLocalWithInitial.scratch(Object::new);
+    try {
+      assertTrue(executor.submit(() -> {
+        assertTrue(ThreadLocalWithInitial.isVirtual(Thread.currentThread()));
+        Object value = new Object();
+        scratch.set(value);
+        return scratch.get() != scratch.get() && scratch.get() != value;
+      }).get());
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  void scratchOnThreadsTakenAsVirtual() throws Exception {
+    AtomicBoolean fresh = new AtomicBoolean();
+    Thread[] virtual = new Thread[1];
+    ThreadLocal<Object> scratch = ThreadLocalWithInitial.scratch(Object::new, thread -> thread == virtual[0]);
+    virtual[0] = new Thread(() -> {
+      Object value = new Object();
+      scratch.set(value);
+      fresh.set(scratch.get() != scratch.get() && scratch.get() != value);
+    });
+    virtual[0].start();
+    virtual[0].join();
+    assertTrue(fresh.get());
+    // other threads still keep their value
+    assertSame(scratch.get(), scratch.get());
+  }
+}
@@ -23,24 +23,27 @@ import org.apache.hadoop.conf.Configured;
 import org.apache.hadoop.conf.Configuration;
 
 import org.apache.avro.Schema;
-import org.apache.avro.io.BinaryData;
+import org.apache.avro.io.BinaryComparator;
 import org.apache.avro.reflect.ReflectData;
 
 /** The {@link RawComparator} used by jobs configured with {@link AvroJob}. */
 public class AvroKeyComparator<T> extends Configured implements RawComparator<AvroWrapper<T>> {
 
   private Schema schema;
+  private BinaryComparator binaryComparator;
 
   @Override
   public void setConf(Configuration conf) {
     super.setConf(conf);
-    if (conf != null)
+    if (conf != null) {
       schema = Pair.getKeySchema(AvroJob.getMapOutputSchema(conf));
+      binaryComparator = BinaryComparator.get(schema);
+    }
   }
 
   @Override
   public int compare(byte[] b1, int s1, int l1, byte[] b2, int s2, int l2) {
-    return BinaryData.compare(b1, s1, l1, b2, s2, l2, schema);
+    return binaryComparator.compare(b1, s1, l1, b2, s2, l2);
   }
 
   @Override
@@ -0,0 +1,130 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.avro.perf.test.message;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.avro.file.BlockBufferPool;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.message.BinaryMessageDecoder;
+import org.apache.avro.message.BinaryMessageEncoder;
+import org.apache.avro.perf.test.BasicState;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares encoding single-object messages one at a time with encoding them in
+ * batches, into a caller's buffer or into pooled buffers, and decoding them one
+ * at a time with decoding them in batches.
+ */
+public class BatchMessageTest {
+
+  @Benchmark
+  @OperationsPerInvocation(BasicState.BATCH_SIZE)
+  public void encodeEach(final Blackhole blackhole, final TestState state) throws IOException {
+    for (GenericRecord record : state.testData) {
+      blackhole.consume(state.encoder.encode(record));
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BasicState.BATCH_SIZE)
+  public void encodeAll(final Blackhole blackhole, final TestState state) throws IOException {
+    blackhole.consume(state.encoder.encodeAll(state.testData));
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BasicState.BATCH_SIZE)
+  public void encodeIntoBuffer(final Blackhole blackhole, final TestState state) throws IOException {
+    ByteBuffer buffer = state.buffer;
+    ((Buffer) buffer).clear();
+    for (GenericRecord record : state.testData) {
+      state.encoder.encode(record, buffer);
+    }
+    blackhole.consume(buffer.position());
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BasicState.BATCH_SIZE)
+  public void encodePooled(final Blackhole blackhole, final TestState state) throws IOException {
+    for (GenericRecord record : state.testData) {
+      ByteBuffer buffer = state.encoder.encode(record, state.pool);
+      blackhole.consume(buffer.remaining());
+      state.pool.release(buffer);
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BasicState.BATCH_SIZE)
+  public void decodeEach(final Blackhole blackhole, final TestState state) throws IOException {
+    for (ByteBuffer message : state.messages) {
+      blackhole.consume(state.decoder.decode(message));
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BasicState.BATCH_SIZE)
+  public void decodeAll(final Blackhole blackhole, final TestState state) throws IOException {
+    blackhole.consume(state.decoder.decodeAll(state.messages, state.datums));
+  }
+
+  @State(Scope.Thread)
+  public static class TestState extends MessageState {
+
+    private List<GenericRecord> testData;
+    private List<ByteBuffer> messages;
+    private List<GenericRecord> datums;
+    private BinaryMessageEncoder<GenericRecord> encoder;
+    private BinaryMessageDecoder<GenericRecord> decoder;
+    private ByteBuffer buffer;
+    private BlockBufferPool pool;
+
+    /**
+     * Setup the trial data, the encoded messages and the buffers.
+     *
+     * @throws IOException Could not encode the messages
+     */
+    @Setup(Level.Trial)
+    public void doSetupTrial() throws IOException {
+      this.encoder = new BinaryMessageEncoder<>(GenericData.get(), schema);
+      this.decoder = new BinaryMessageDecoder<>(GenericData.get(), schema);
+      this.pool = new BlockBufferPool(4);
+
+      this.testData = createTestData();
+
+      this.messages = encoder.encodeAll(testData);
+      this.datums = new ArrayList<>(getBatchSize());
+      int size = 0;
+      for (ByteBuffer message : messages) {
+        size += message.remaining();
+      }
+      this.buffer = ByteBuffer.allocate(size);
+    }
+  }
+}
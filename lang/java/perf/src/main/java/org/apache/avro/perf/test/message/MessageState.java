@@ -0,0 +1,64 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.avro.perf.test.message;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaParser;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.perf.test.BasicState;
+
+/**
+ * The schema and the records that the message benchmarks encode and decode.
+ */
+public abstract class MessageState extends BasicState {
+
+  private static final String RECORD_SCHEMA = "{ \"type\": \"record\", \"name\": \"R\", \"fields\": [\n"
+      + "{ \"name\": \"id\", \"type\": \"long\" },\n" + "{ \"name\": \"name\", \"type\": \"string\" },\n"
+      + "{ \"name\": \"score\", \"type\": \"double\" },\n"
+      + "{ \"name\": \"tags\", \"type\": { \"type\": \"array\", \"items\": \"string\" } }\n" + "] }";
+
+  protected final Schema schema;
+
+  public MessageState() {
+    super();
+    this.schema = SchemaParser.parseSingle(RECORD_SCHEMA);
+  }
+
+  /** Returns a batch of random records. */
+  protected List<GenericRecord> createTestData() {
+    final Random r = super.getRandom();
+    final List<GenericRecord> testData = new ArrayList<>(getBatchSize());
+    for (int i = 0; i < getBatchSize(); i++) {
+      GenericRecord rec = new GenericData.Record(schema);
+      rec.put(0, r.nextLong());
+      rec.put(1, "name-" + r.nextInt(1000));
+      rec.put(2, r.nextDouble());
+      rec.put(3, new GenericData.Array<>(schema.getField("tags").schema(),
+          Arrays.asList("a" + r.nextInt(10), "b" + r.nextInt(10))));
+      testData.add(rec);
+    }
+    return testData;
+  }
+}
@@ -0,0 +1,114 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.avro.perf.test.message;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.message.BinaryMessageDecoder;
+import org.apache.avro.message.BinaryMessageEncoder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Encodes and decodes single-object messages, one per task, on 100,000 virtual
+ * threads or on a pool of platform threads. Thread-local state is allocated
+ * again for every virtual thread, so run with <tt>-prof gc</tt> to compare the
+ * memory allocated per message. Virtual threads require Java 21.
+ */
+public class VirtualThreadMessageTest {
+
+  public static final int TASKS = 100_000;
+
+  @Benchmark
+  @OperationsPerInvocation(TASKS)
+  public void encodeDecode(final Blackhole blackhole, final TestState state) throws Exception {
+    final CountDownLatch done = new CountDownLatch(TASKS);
+    final LongAdder ids = new LongAdder();
+    for (int i = 0; i < TASKS; i++) {
+      final GenericRecord record = state.testData[i % state.testData.length];
+      state.executor.execute(() -> {
+        try {
+          ByteBuffer encoded = state.encoder.encode(record);
+          ids.add((Long) state.decoder.decode(encoded).get(0));
+        } catch (Exception e) {
+          state.failure = e;
+        } finally {
+          done.countDown();
+        }
+      });
+    }
+    done.await();
+    if (state.failure != null) {
+      throw state.failure;
+    }
+    blackhole.consume(ids.sum());
+  }
+
+  @State(Scope.Benchmark)
+  public static class TestState extends MessageState {
+
+    @Param({ "virtual", "platform" })
+    public String threads;
+
+    private GenericRecord[] testData;
+    private BinaryMessageEncoder<GenericRecord> encoder;
+    private BinaryMessageDecoder<GenericRecord> decoder;
+    private ExecutorService executor;
+    private volatile Exception failure;
+
+    /**
+     * Setup the trial data and the executor.
+     *
+     * @throws Exception Could not create virtual threads
+     */
+    @Setup(Level.Trial)
+    public void doSetupTrial() throws Exception {
+      this.encoder = new BinaryMessageEncoder<>(GenericData.get(), schema);
+      this.decoder = new BinaryMessageDecoder<>(GenericData.get(), schema);
+      if ("virtual".equals(threads)) {
+        // looked up reflectively, as the module is compiled for Java 11
+        this.executor = (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+      } else {
+        this.executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+      }
+
+      this.testData = createTestData().toArray(new GenericRecord[0]);
+    }
+
+    @TearDown(Level.Trial)
+    public void doTearDownTrial() throws InterruptedException {
+      executor.shutdown();
+      executor.awaitTermination(1, TimeUnit.MINUTES);
+    }
+  }
+}